@@ -31,6 +31,9 @@ public class Account {
     @Column(name = "STATUS", nullable = false)
     private String status;
 
+    @Column(name = "ACCOUNT_TYPE")
+    private String accountType; // SAVINGS, CURRENT...; null on accounts opened before it was recorded
+
     @Column(name = "CREATED_AT", nullable = false)
     private OffsetDateTime createdAt; // or LocalDateTime if you don't want time zone
 }
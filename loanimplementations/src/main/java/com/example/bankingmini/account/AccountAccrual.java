@@ -0,0 +1,29 @@
+package com.example.bankingmini.account;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// Interest accrued but not yet posted, per account. Written by InterestAccrualService with JDBC;
+// the two watermark columns make each daily accrual and each monthly posting happen at most once.
+@Entity
+@Table(name = "ACCOUNT_ACCRUAL")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountAccrual {
+    @Id
+    @Column(name = "ACCOUNT_ID")
+    private Long accountId;
+
+    @Column(name = "ACCRUED", nullable = false)
+    private Long accrued; // in 1/10000 of a cent
+
+    @Column(name = "LAST_ACCRUAL_DATE")
+    private LocalDate lastAccrualDate;
+
+    @Column(name = "LAST_POSTED_PERIOD")
+    private Integer lastPostedPeriod; // yyyymm
+}
@@ -0,0 +1,8 @@
+package com.example.bankingmini.account;
+
+import java.math.BigDecimal;
+
+// Raised when ACCOUNT.BALANCE moves without a TXN row being written (e.g. loan disbursements),
+// so anything caching balances knows its copy is out of date.
+public record AccountBalanceChangedEvent(Long accountId, String accountNumber, BigDecimal balance) {
+}
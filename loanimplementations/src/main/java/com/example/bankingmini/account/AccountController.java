@@ -8,6 +8,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -19,6 +20,7 @@ public class AccountController {
     private final AccountService service;
     private final AccountQueryService queries;
     private final StatementService statements;
+    private final CustomerSummaryView summaries;
     private final CustomerRepository customerRepository;
 
     private Long requireUser() {
@@ -78,6 +80,13 @@ public class AccountController {
         return new BalanceResponse(accountNumber, bal);
     }
 
+    @GetMapping("/balance-as-of")
+    public BalanceAsOfResponse balanceAsOf(@RequestParam("accountNumber") String accountNumber,
+                                           @RequestParam("at") Instant at, HttpServletRequest request) {
+        Long userId = requireUser();
+        return queries.balanceAsOf(accountNumber, at, userId);
+    }
+
     @GetMapping("/mini-statement")
     public MiniStatementResponse mini(@RequestParam("accountNumber") String accountNumber, HttpServletRequest request) {
         Long userId = requireUser();
@@ -95,16 +104,21 @@ public class AccountController {
     @GetMapping("/list")
     public List<AccountSummaryDto> getCustomerAccounts() {
         Long customerId = requireUser();
-        var accounts = service.getCustomerAccounts(customerId);
-        return accounts.stream()
+        return summaries.get(customerId).accounts().stream()
                 .map(account -> new AccountSummaryDto(
-                        account.getId(),
-                        account.getAccountNumber(),
-                        account.getBalance(),
+                        account.id(),
+                        account.accountNumber(),
+                        account.balance(),
 //                        account.getAccountType(),
-                        account.getStatus()
+                        account.status()
                 ))
                 .collect(java.util.stream.Collectors.toList());
 
     }
-}
\ No newline at end of file
+
+    @GetMapping("/summary")
+    public CustomerSummaryView.Summary summary() {
+        Long customerId = requireUser();
+        return summaries.get(customerId);
+    }
+}
@@ -36,6 +36,9 @@ public class AccountDtos {
     public record BalanceResponse(String accountNumber, BigDecimal balance) {
     }
 
+    public record BalanceAsOfResponse(String accountNumber, String at, BigDecimal balance, long version) {
+    }
+
     public record TxnItem(String type, BigDecimal amount, String occurredAt) {
     }
 
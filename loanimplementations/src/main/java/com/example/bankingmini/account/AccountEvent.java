@@ -0,0 +1,47 @@
+package com.example.bankingmini.account;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Append-only event stream per account (account-events.enabled=true). Rows are written with JDBC by
+// AccountEventStore; the primary key doubles as the optimistic-concurrency check on append.
+@Entity
+@Table(name = "ACCOUNT_EVENT")
+@IdClass(AccountEvent.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountEvent {
+    @Id
+    @Column(name = "ACCOUNT_ID")
+    private Long accountId;
+
+    @Id
+    @Column(name = "VERSION")
+    private Long version; // 1, 2, 3... per account
+
+    @Column(name = "EVENT_TYPE", nullable = false)
+    private String eventType; // OPENING, BALANCE_ADJUSTED, or the TXN type
+
+    @Column(name = "AMOUNT", nullable = false)
+    private BigDecimal amount; // signed change to the balance
+
+    @Column(name = "TXN_ID")
+    private Long txnId;
+
+    @Column(name = "OCCURRED_AT", nullable = false)
+    private Instant occurredAt; // never earlier than the previous event of the same account
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+        private Long version;
+    }
+}
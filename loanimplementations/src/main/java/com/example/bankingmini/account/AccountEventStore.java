@@ -0,0 +1,236 @@
+package com.example.bankingmini.account;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Event-sourced view of account balances (account-events.enabled=true). Every posting appends to
+// ACCOUNT_EVENT in the posting's own transaction; every snapshot-every events the resulting balance
+// is stored in ACCOUNT_SNAPSHOT, so loading an account or answering "balance as of T" reads one
+// snapshot and at most snapshot-every events. ACCOUNT.BALANCE stays the operational copy and can
+// be regenerated from the streams with rebuild().
+@Service
+@ConditionalOnProperty(name = "account-events.enabled", havingValue = "true")
+@Slf4j
+public class AccountEventStore {
+
+    public record AccountState(long accountId, long version, BigDecimal balance, Instant asOf) {
+    }
+
+    public record RebuildResult(boolean dryRun, int ranges, long accounts, long corrected, BigDecimal netCorrection,
+                                long elapsedMillis) {
+    }
+
+    private record Head(long version, Instant occurredAt) {
+    }
+
+    private static final String INSERT_EVENT = "INSERT INTO ACCOUNT_EVENT (ACCOUNT_ID, VERSION, EVENT_TYPE, AMOUNT, TXN_ID, OCCURRED_AT) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher events;
+    private final int snapshotEvery;
+    private final int rangeSize;
+    private final int parallelism;
+    private final int fetchSize;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public AccountEventStore(JdbcTemplate jdbc,
+                             PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher events,
+                             @Value("${account-events.snapshot-every:100}") int snapshotEvery,
+                             @Value("${account-events.rebuild.range-size:2000}") int rangeSize,
+                             @Value("${account-events.rebuild.parallelism:4}") int parallelism,
+                             @Value("${account-events.rebuild.fetch-size:1000}") int fetchSize) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.events = events;
+        this.snapshotEvery = snapshotEvery;
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.fetchSize = fetchSize;
+    }
+
+    @EventListener
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        var delta = StatementService.apply(BigDecimal.ZERO, event.type(), event.amount());
+        append(event.accountId(), event.type(), delta, event.transactionId(), event.occurredAt(),
+                event.balanceAfter().subtract(delta));
+    }
+
+    // Balance moved without a TXN row (loan disbursal outside the journal); record the difference
+    @EventListener
+    public void onBalanceChanged(AccountBalanceChangedEvent event) {
+        var delta = event.balance().subtract(load(event.accountId()).balance());
+        if (delta.signum() != 0) {
+            append(event.accountId(), "BALANCE_ADJUSTED", delta, null, Instant.now(), event.balance().subtract(delta));
+        }
+    }
+
+    public AccountState load(long accountId) {
+        return stateAt(accountId, null);
+    }
+
+    public AccountState balanceAsOf(long accountId, Instant at) {
+        return stateAt(accountId, at);
+    }
+
+    // Starts a stream (OPENING = current ACCOUNT.BALANCE) for every account that has none yet.
+    // Meant to be run once when the store is switched on.
+    public int seed() {
+        return jdbc.update("INSERT INTO ACCOUNT_EVENT (ACCOUNT_ID, VERSION, EVENT_TYPE, AMOUNT, OCCURRED_AT) " +
+                "SELECT a.ID, 1, 'OPENING', NVL(a.BALANCE, 0), ? FROM ACCOUNT a " +
+                "WHERE NOT EXISTS (SELECT 1 FROM ACCOUNT_EVENT e WHERE e.ACCOUNT_ID = a.ID)", Timestamp.from(Instant.now()));
+    }
+
+    // Recomputes ACCOUNT.BALANCE from snapshot + tail for every account with a stream, one ID range
+    // per task. Intended for recovery, with postings stopped; dryRun only counts the differences.
+    public RebuildResult rebuild(boolean dryRun) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("A rebuild is already in progress");
+        }
+        long started = System.currentTimeMillis();
+        var accounts = new AtomicLong();
+        var corrected = new AtomicLong();
+        var net = new BigDecimal[]{BigDecimal.ZERO};
+        var done = new AtomicInteger();
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            var ranges = AccountIdRange.plan(jdbc, rangeSize, fetchSize);
+            pool.submit(() -> ranges.parallelStream().forEach(range -> {
+                var diff = tx.execute(status -> rebuild(range, dryRun, accounts));
+                corrected.addAndGet(diff.size());
+                synchronized (net) {
+                    for (var d : diff) {
+                        net[0] = net[0].add(d);
+                    }
+                }
+                done.incrementAndGet();
+            })).get();
+            var result = new RebuildResult(dryRun, ranges.size(), accounts.get(), corrected.get(), net[0],
+                    System.currentTimeMillis() - started);
+            log.info("Account rebuild{}: {} accounts in {} ranges, {} corrected (net {}) in {} ms",
+                    dryRun ? " (dry run)" : "", result.accounts(), result.ranges(), result.corrected(),
+                    result.netCorrection(), result.elapsedMillis());
+            return result;
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof RuntimeException re ? re : new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rebuild interrupted after " + done.get() + " ranges", ex);
+        } finally {
+            pool.shutdown();
+            rebuilding.set(false);
+        }
+    }
+
+    // Returns the corrections (stream balance minus stored balance) applied in this range
+    private List<BigDecimal> rebuild(AccountIdRange range, boolean dryRun, AtomicLong accounts) {
+        List<Object[]> updates = new ArrayList<>();
+        List<AccountBalanceChangedEvent> changed = new ArrayList<>();
+        List<BigDecimal> diffs = new ArrayList<>();
+        jdbc.query(con -> {
+            var ps = con.prepareStatement(
+                    "SELECT a.ID, a.ACCOUNT_NUMBER, NVL(a.BALANCE, 0), NVL(s.BALANCE, 0) + " +
+                            "NVL((SELECT SUM(e.AMOUNT) FROM ACCOUNT_EVENT e WHERE e.ACCOUNT_ID = a.ID AND e.VERSION > NVL(s.VERSION, 0)), 0), " +
+                            "CASE WHEN s.ACCOUNT_ID IS NOT NULL OR EXISTS (SELECT 1 FROM ACCOUNT_EVENT e WHERE e.ACCOUNT_ID = a.ID) THEN 1 ELSE 0 END " +
+                            "FROM ACCOUNT a LEFT JOIN ACCOUNT_SNAPSHOT s ON s.ACCOUNT_ID = a.ID " +
+                            "AND s.VERSION = (SELECT MAX(x.VERSION) FROM ACCOUNT_SNAPSHOT x WHERE x.ACCOUNT_ID = a.ID) " +
+                            "WHERE a.ID BETWEEN ? AND ?");
+            ps.setLong(1, range.from());
+            ps.setLong(2, range.to());
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            if (rs.getInt(5) == 0) {
+                return; // no stream; nothing to rebuild from
+            }
+            accounts.incrementAndGet();
+            var stored = rs.getBigDecimal(3);
+            var rebuilt = rs.getBigDecimal(4);
+            if (stored.compareTo(rebuilt) != 0) {
+                diffs.add(rebuilt.subtract(stored));
+                updates.add(new Object[]{rebuilt, rs.getLong(1)});
+                changed.add(new AccountBalanceChangedEvent(rs.getLong(1), rs.getString(2), rebuilt));
+            }
+        });
+        if (!dryRun && !updates.isEmpty()) {
+            jdbc.batchUpdate("UPDATE ACCOUNT SET BALANCE = ? WHERE ID = ?", updates);
+            // caches drop their copies once this range commits
+            changed.forEach(events::publishEvent);
+        }
+        return diffs;
+    }
+
+    // at == null means the latest state
+    private AccountState stateAt(long accountId, Instant at) {
+        var timeFilter = at == null ? "" : " AND OCCURRED_AT <= ?";
+        Object[] snapshotArgs = at == null ? new Object[]{accountId} : new Object[]{accountId, Timestamp.from(at)};
+        var snapshot = jdbc.query(
+                "SELECT VERSION, BALANCE, OCCURRED_AT FROM (SELECT VERSION, BALANCE, OCCURRED_AT FROM ACCOUNT_SNAPSHOT " +
+                        "WHERE ACCOUNT_ID = ?" + timeFilter + " ORDER BY VERSION DESC) WHERE ROWNUM = 1",
+                (rs, n) -> new AccountState(accountId, rs.getLong(1), rs.getBigDecimal(2), rs.getTimestamp(3).toInstant()),
+                snapshotArgs);
+        var base = snapshot.isEmpty() ? new AccountState(accountId, 0, BigDecimal.ZERO, null) : snapshot.get(0);
+        Object[] tailArgs = at == null
+                ? new Object[]{accountId, base.version()}
+                : new Object[]{accountId, base.version(), Timestamp.from(at)};
+        return jdbc.queryForObject(
+                "SELECT NVL(SUM(AMOUNT), 0), MAX(VERSION), MAX(OCCURRED_AT) FROM ACCOUNT_EVENT " +
+                        "WHERE ACCOUNT_ID = ? AND VERSION > ?" + timeFilter,
+                (rs, n) -> {
+                    var last = rs.getTimestamp(3);
+                    return last == null ? base : new AccountState(accountId, rs.getLong(2),
+                            base.balance().add(rs.getBigDecimal(1)), last.toInstant());
+                },
+                tailArgs);
+    }
+
+    private Head head(long accountId) {
+        var rows = jdbc.query(
+                "SELECT VERSION, OCCURRED_AT FROM (SELECT VERSION, OCCURRED_AT FROM ACCOUNT_EVENT " +
+                        "WHERE ACCOUNT_ID = ? ORDER BY VERSION DESC) WHERE ROWNUM = 1",
+                (rs, n) -> new Head(rs.getLong(1), rs.getTimestamp(2).toInstant()), accountId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // A concurrent append to the same account collides on (ACCOUNT_ID, VERSION) and rolls its
+    // transaction back, so the stream never forks.
+    private void append(long accountId, String type, BigDecimal delta, Long txnId, Instant occurredAt,
+                        BigDecimal balanceBefore) {
+        var head = head(accountId);
+        if (head == null) {
+            // first posting since the store was enabled (or on a new account): carry the balance in
+            jdbc.update(INSERT_EVENT, accountId, 1L, "OPENING", balanceBefore, null, Timestamp.from(occurredAt));
+            head = new Head(1, occurredAt);
+        }
+        // keep OCCURRED_AT in version order so point-in-time reads can cut the stream by time
+        var at = occurredAt.isBefore(head.occurredAt()) ? head.occurredAt() : occurredAt;
+        long version = head.version() + 1;
+        jdbc.update(INSERT_EVENT, accountId, version, type, delta, txnId, Timestamp.from(at));
+        if (version % snapshotEvery == 0) {
+            var state = load(accountId);
+            jdbc.update("INSERT INTO ACCOUNT_SNAPSHOT (ACCOUNT_ID, VERSION, BALANCE, OCCURRED_AT) VALUES (?, ?, ?, ?)",
+                    accountId, state.version(), state.balance(), Timestamp.from(state.asOf()));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.bankingmini.account;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Contiguous slice of the ACCOUNT id space; the batch jobs split their work into these
+record AccountIdRange(long from, long to) {
+
+    String key() {
+        return from + "-" + to;
+    }
+
+    static AccountIdRange parse(String key) {
+        int dash = key.indexOf('-', 1);
+        return new AccountIdRange(Long.parseLong(key.substring(0, dash)), Long.parseLong(key.substring(dash + 1)));
+    }
+
+    // Ranges of roughly rangeSize accounts covering the whole id space, so accounts opened after
+    // the plan was made still fall into some range
+    static List<AccountIdRange> plan(JdbcTemplate jdbc, int rangeSize, int fetchSize) {
+        List<Long> starts = new ArrayList<>();
+        long[] seen = {0};
+        jdbc.query(con -> {
+            var ps = con.prepareStatement("SELECT ID FROM ACCOUNT ORDER BY ID");
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            if (seen[0]++ % rangeSize == 0) {
+                starts.add(rs.getLong(1));
+            }
+        });
+
+        List<AccountIdRange> ranges = new ArrayList<>(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            long from = i == 0 ? Long.MIN_VALUE : starts.get(i);
+            long to = i + 1 < starts.size() ? starts.get(i + 1) - 1 : Long.MAX_VALUE;
+            ranges.add(new AccountIdRange(from, to));
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.bankingmini.account;
+
+// Published by AccountService.createAccount inside its transaction
+public record AccountOpenedEvent(Long accountId, String accountNumber, Long customerId) {
+}
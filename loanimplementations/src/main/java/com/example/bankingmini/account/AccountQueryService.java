@@ -2,12 +2,12 @@ package com.example.bankingmini.account;
 
 import com.example.bankingmini.common.NotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.*;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -15,33 +15,30 @@ import java.util.stream.Collectors;
 public class AccountQueryService {
     private final AccountRepository accounts;
     private final TransactionRepository txns;
+    private final MiniStatementCache miniStatements;
+    private final ObjectProvider<AccountEventStore> eventStore;
 
+    // Served from the in-memory ring buffer; only the first call per account touches the database
     public java.math.BigDecimal getBalance(String accountNumber, Long userId) {
-        var acc = accounts.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new NotFoundException("Account not found: " + accountNumber));
+        var snapshot = miniStatements.get(accountNumber);
         
         // Verify the account belongs to the authenticated user
-        if (!acc.getCustomer().getId().equals(userId)) {
+        if (!snapshot.customerId().equals(userId)) {
             throw new IllegalArgumentException("Access denied: Account does not belong to user");
         }
         
-        return acc.getBalance();
+        return snapshot.balance();
     }
 
     public java.util.List<AccountDtos.TxnItem> last5(String accountNumber, Long userId) {
-        var acc = accounts.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new NotFoundException("Account not found: " + accountNumber));
+        var snapshot = miniStatements.get(accountNumber);
         
         // Verify the account belongs to the authenticated user
-        if (!acc.getCustomer().getId().equals(userId)) {
+        if (!snapshot.customerId().equals(userId)) {
             throw new IllegalArgumentException("Access denied: Account does not belong to user");
         }
         
-        return txns.findTop5ByAccountOrderByOccurredAtDesc(acc).stream()
-                .map(t -> new AccountDtos.TxnItem(
-                        t.getType(), t.getAmount(), t.getOccurredAt().toString()
-                ))
-                .collect(Collectors.toList());
+        return snapshot.recent();
     }
 
     public List<TransactionEntity> findByDateRange(Account acc, LocalDate from, LocalDate to, Long userId) {
@@ -67,6 +64,23 @@ public class AccountQueryService {
         return acc.getBalance();
     }
 
+    public AccountDtos.BalanceAsOfResponse balanceAsOf(String accountNumber, Instant at, Long userId) {
+        var store = eventStore.getIfAvailable();
+        if (store == null) {
+            throw new IllegalArgumentException("Point-in-time balances are not enabled");
+        }
+        var acc = accounts.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new NotFoundException("Account not found: " + accountNumber));
+
+        // Verify the account belongs to the authenticated user
+        if (!acc.getCustomer().getId().equals(userId)) {
+            throw new IllegalArgumentException("Access denied: Account does not belong to user");
+        }
+
+        var state = store.balanceAsOf(acc.getId(), at);
+        return new AccountDtos.BalanceAsOfResponse(accountNumber, at.toString(), state.balance(), state.version());
+    }
+
     @Deprecated
     public java.math.BigDecimal getBalance(String accountNumber) {
         throw new IllegalArgumentException("Unauthorized access: User ID required");
@@ -1,8 +1,15 @@
 package com.example.bankingmini.account;
 
+import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
 
@@ -13,6 +20,30 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     List<Account> findByCustomerId(Long customerId);
     
     List<Account> findByCustomerIdAndStatus(Long customerId, String status);
+
+    @Query("SELECT a.id FROM Account a WHERE a.customer.id = :customerId")
+    List<Long> findIdsByCustomerId(@Param("customerId") Long customerId);
+
+    // Balance read-modify-writes go through these row locks, so they cannot overwrite each other or
+    // the JDBC paths that move BALANCE in place (EMI debits, interest, tranche and bulk disbursals).
+    // The lock has to be the transaction's first read of the account: an entity already loaded keeps
+    // the balance it was read with.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids")
+    List<Account> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountNumber = :accountNumber")
+    Optional<Account> findByAccountNumberForUpdate(@Param("accountNumber") String accountNumber);
+
+    // For accounts already loaded in the transaction (e.g. through a loan): moves BALANCE in place,
+    // which locks the row, and balanceOf then reads the result back
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE ACCOUNT SET BALANCE = BALANCE + :amount WHERE ID = :id", nativeQuery = true)
+    int addToBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Query(value = "SELECT BALANCE FROM ACCOUNT WHERE ID = :id", nativeQuery = true)
+    BigDecimal balanceOf(@Param("id") Long id);
 }
 
 //In databases, a query might not find a matching row.
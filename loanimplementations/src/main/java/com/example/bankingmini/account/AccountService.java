@@ -4,8 +4,11 @@ import com.example.bankingmini.auth.Customer;
 import com.example.bankingmini.auth.CustomerRepository;
 import com.example.bankingmini.common.InsufficientFundsException;
 import com.example.bankingmini.common.NotFoundException;
+import com.example.bankingmini.journal.JournalService;
 import jakarta.persistence.LockModeType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +26,10 @@ public class AccountService {
     private final AccountRepository accounts;
     private final TransactionRepository txns;
     private final CustomerRepository customers;
+    private final ApplicationEventPublisher events;
+    private final VelocityLimiter limits;
+    // present when journal.enabled=true; postings then go through the journal instead of straight to ACCOUNT
+    private final ObjectProvider<JournalService> journal;
 
     @Transactional
     public Account createAccount(Long customerId, String accountType) {
@@ -39,44 +46,57 @@ public class AccountService {
                 .id(System.currentTimeMillis() + new Random().nextInt(1_000))
                 .customer(customer)
                 .accountNumber(accountNumber)   // renamed from .number(...)
+                .accountType(accountType)
                 .balance(BigDecimal.ZERO)
                 .status("ACTIVE")
 //                .createdAt(OffsetDateTime.from(Instant.now()))
                 .createdAt(Instant.now().atOffset(ZoneOffset.UTC))
                 .build();
 
-        return accounts.save(account);
+        var saved = accounts.save(account);
+        events.publishEvent(new AccountOpenedEvent(saved.getId(), saved.getAccountNumber(), customerId));
+        return saved;
     }
 
     private String generateAccountNumber() {
         return "ACC" + System.currentTimeMillis() + String.format("%03d", new Random().nextInt(1000));
     }
 
+    private Account findWithAuth(String accountNumber, Long userId) {
+        return checkOwner(accounts.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new NotFoundException("Account not found: " + accountNumber)), userId);
+    }
+
+    // SELECT ... FOR UPDATE, held until commit, so the balance read here cannot be overwritten by (or
+    // overwrite) another posting or one of the JDBC jobs that move BALANCE in place
     private Account findAndLockWithAuth(String accountNumber, Long userId) {
-        var acc = accounts.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new NotFoundException("Account not found: " + accountNumber));
+        return checkOwner(findAndLock(accountNumber), userId);
+    }
+
+    private Account findAndLock(String number) {
+        return accounts.findByAccountNumberForUpdate(number)
+                .orElseThrow(() -> new NotFoundException("Account not found: " + number));
+    }
 
+    private static Account checkOwner(Account acc, Long userId) {
         // Verify the account belongs to the authenticated user
         if (!acc.getCustomer().getId().equals(userId)) {
             throw new IllegalArgumentException("Access denied: Account does not belong to user");
         }
-
-        return acc;
-    }
-
-    private Account findAndLock(String number) {
-        var acc = accounts.findByAccountNumber(number)
-                .orElseThrow(() -> new NotFoundException("Account not found: " + number));
-        // For Oracle, optimistic locking would need @Version; here we rely on TX boundary and row-level locks via updates.
         return acc;
     }
 
     @Transactional
     public void deposit(String accountNumber, BigDecimal amount, Long userId) {
+        var journaled = journal.getIfAvailable();
+        if (journaled != null) {
+            journaled.deposit(accountNumber, amount, userId);
+            return;
+        }
         var acc = findAndLockWithAuth(accountNumber, userId);
         acc.setBalance(acc.getBalance().add(amount));
         accounts.save(acc);
-        txns.save(TransactionEntity.builder()
+        post(TransactionEntity.builder()
                 .account(acc)
                 .type("DEPOSIT")
                 .amount(amount)
@@ -86,13 +106,21 @@ public class AccountService {
 
     @Transactional
     public void withdraw(String accountNumber, BigDecimal amount, Long userId) {
-        var acc = findAndLockWithAuth(accountNumber, userId);
+        // the journal checks funds itself and writes ACCOUNT later, so it needs no row lock here
+        var journaled = journal.getIfAvailable();
+        var acc = journaled != null ? findWithAuth(accountNumber, userId) : findAndLockWithAuth(accountNumber, userId);
+        // counted against the velocity limits now, given back if this transaction rolls back
+        limits.reserve(acc, amount);
+        if (journaled != null) {
+            journaled.withdraw(accountNumber, amount, userId);
+            return;
+        }
         if (acc.getBalance().compareTo(amount) < 0) {
             throw new InsufficientFundsException("Insufficient funds");
         }
         acc.setBalance(acc.getBalance().subtract(amount));
         accounts.save(acc);
-        txns.save(TransactionEntity.builder()
+        post(TransactionEntity.builder()
                 .account(acc)
                 .type("WITHDRAW")
                 .amount(amount)
@@ -104,9 +132,24 @@ public class AccountService {
     public void transfer(String from, String to, BigDecimal amount, Long userId) {
         if (from.equals(to)) throw new IllegalArgumentException("Cannot transfer to same account");
 
-        var a = findAndLockWithAuth(from, userId);
-        // Destination account can belong to any user (for transfers between users)
-        var b = findAndLock(to);
+        var journaled = journal.getIfAvailable();
+        if (journaled != null) {
+            limits.reserve(findWithAuth(from, userId), amount);
+            journaled.transfer(from, to, amount, userId);
+            return;
+        }
+        // Destination account can belong to any user (for transfers between users). Both rows are
+        // locked in account number order, so opposite transfers between two accounts cannot deadlock.
+        Account a;
+        Account b;
+        if (from.compareTo(to) < 0) {
+            a = findAndLockWithAuth(from, userId);
+            b = findAndLock(to);
+        } else {
+            b = findAndLock(to);
+            a = findAndLockWithAuth(from, userId);
+        }
+        limits.reserve(a, amount);
 
         if (a.getBalance().compareTo(amount) < 0) {
             throw new InsufficientFundsException("Insufficient funds");
@@ -115,12 +158,19 @@ public class AccountService {
         b.setBalance(b.getBalance().add(amount));
         accounts.save(a);
         accounts.save(b);
-        txns.save(TransactionEntity.builder()
+        post(TransactionEntity.builder()
                 .account(a).type("TRANSFER_OUT").amount(amount).refAccountId(b.getId()).occurredAt(Instant.now()).build());
-        txns.save(TransactionEntity.builder()
+        post(TransactionEntity.builder()
                 .account(b).type("TRANSFER_IN").amount(amount).refAccountId(a.getId()).occurredAt(Instant.now()).build());
     }
 
+    // Saves the TXN row and announces it; listeners only run once the surrounding transaction commits.
+    private TransactionEntity post(TransactionEntity txn) {
+        var saved = txns.save(txn);
+        events.publishEvent(TransactionPostedEvent.of(saved));
+        return saved;
+    }
+
     @Deprecated
     public void deposit(String accountNumber, BigDecimal amount) {
         throw new IllegalArgumentException("Unauthorized access: User ID required");
@@ -0,0 +1,40 @@
+package com.example.bankingmini.account;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Balance after event VERSION of the account's stream; taken every account-events.snapshot-every events
+@Entity
+@Table(name = "ACCOUNT_SNAPSHOT")
+@IdClass(AccountSnapshot.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountSnapshot {
+    @Id
+    @Column(name = "ACCOUNT_ID")
+    private Long accountId;
+
+    @Id
+    @Column(name = "VERSION")
+    private Long version;
+
+    @Column(name = "BALANCE", nullable = false)
+    private BigDecimal balance;
+
+    @Column(name = "OCCURRED_AT", nullable = false)
+    private Instant occurredAt; // OCCURRED_AT of event VERSION
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+        private Long version;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.bankingmini.account;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+// Admin-only (see SecurityConfig /api/admin/**)
+@RestController
+@RequestMapping("/api/admin/account-events")
+@ConditionalOnProperty(name = "account-events.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class AdminAccountEventController {
+
+    private final AccountEventStore store;
+
+    @PostMapping("/seed")
+    public int seed() {
+        return store.seed();
+    }
+
+    @PostMapping("/rebuild")
+    public AccountEventStore.RebuildResult rebuild(@RequestParam(value = "dryRun", defaultValue = "true") boolean dryRun) {
+        return store.rebuild(dryRun);
+    }
+
+    @GetMapping("/{accountId}")
+    public AccountEventStore.AccountState state(@PathVariable Long accountId,
+                                                @RequestParam(value = "at", required = false) Instant at) {
+        return at == null ? store.load(accountId) : store.balanceAsOf(accountId, at);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.bankingmini.account;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+// Admin-only (see SecurityConfig /api/admin/**)
+@RestController
+@RequestMapping("/api/admin/interest")
+@RequiredArgsConstructor
+public class AdminInterestController {
+
+    private final InterestAccrualService interest;
+
+    @PostMapping("/accrue")
+    public InterestAccrualService.Result accrue(@RequestParam("date") LocalDate date) {
+        return interest.accrue(date);
+    }
+
+    @PostMapping("/post")
+    public InterestAccrualService.Result post(@RequestParam("period") YearMonth period) {
+        return interest.post(period);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.bankingmini.account;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+// Admin-only (see SecurityConfig /api/admin/**)
+@RestController
+@RequestMapping("/api/admin/reconciliation")
+@RequiredArgsConstructor
+public class AdminReconciliationController {
+
+    private final BalanceReconciliationService reconciliation;
+
+    @PostMapping("/run")
+    public BalanceReconciliationService.Progress start() {
+        return reconciliation.start();
+    }
+
+    @GetMapping("/status")
+    public BalanceReconciliationService.Progress status() {
+        return reconciliation.progress();
+    }
+}
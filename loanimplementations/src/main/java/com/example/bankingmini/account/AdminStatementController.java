@@ -0,0 +1,26 @@
+package com.example.bankingmini.account;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+
+// Admin-only (see SecurityConfig /api/admin/**)
+@RestController
+@RequestMapping("/api/admin/statements")
+@RequiredArgsConstructor
+public class AdminStatementController {
+
+    private final BulkStatementService bulkStatements;
+
+    @PostMapping("/month-end")
+    public BulkStatementService.Progress startMonthEnd(@RequestParam("period") YearMonth period,
+                                                       @RequestParam(value = "csv", defaultValue = "false") boolean csv) {
+        return bulkStatements.start(period, csv);
+    }
+
+    @GetMapping("/month-end/status")
+    public BulkStatementService.Progress monthEndStatus() {
+        return bulkStatements.progress();
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.bankingmini.account;
+
+import com.example.bankingmini.archive.TxnArchive;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Checks ACCOUNT.BALANCE against the ledger (archived plus live TXN rows) for every account.
+// Accounts are cut into ID ranges; each range is one grouped aggregate over TXN joined to ACCOUNT,
+// so the balance and the sum come from the same read-consistent snapshot. Ranges run on a small
+// fork/join pool and are paced to reconcile.max-ranges-per-second so the job can share the
+// database with daytime traffic.
+//
+// Every node schedules the nightly run; the node whose RECONCILIATION_RUN insert for the day wins
+// runs it and the others skip it. A FAILED run, or a RUNNING one older than
+// reconcile.claim-timeout-minutes (its node died before it could mark it), is taken over. The run
+// itself goes to the launcher thread so it does not hold a scheduler thread for hours. Runs started
+// from the admin endpoints are not claimed.
+@Service
+@Slf4j
+public class BalanceReconciliationService {
+
+    public record Progress(
+            String state, // IDLE, RUNNING, COMPLETED, FAILED
+            int totalRanges,
+            int completedRanges,
+            long accounts,
+            long discrepancies,
+            BigDecimal netDifference,
+            long elapsedMillis,
+            double accountsPerSecond,
+            String report,
+            String error
+    ) {
+    }
+
+    record Discrepancy(long accountId, String accountNumber, BigDecimal storedBalance, BigDecimal ledgerBalance,
+                       long txnCount) {
+        BigDecimal difference() {
+            return storedBalance.subtract(ledgerBalance);
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TxnArchive archive;
+    private final Path outputDir;
+    private final boolean scheduled;
+    private final int rangeSize;
+    private final int parallelism;
+    private final double maxRangesPerSecond;
+    private final int fetchSize;
+    private final Duration claimTimeout;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService launcher = Executors.newSingleThreadExecutor(r -> new Thread(r, "reconciliation"));
+    private volatile RunState current;
+
+    public BalanceReconciliationService(JdbcTemplate jdbc,
+                                        TxnArchive archive,
+                                        @Value("${reconcile.output-dir:./reconciliation}") String outputDir,
+                                        @Value("${reconcile.enabled:false}") boolean scheduled,
+                                        @Value("${reconcile.range-size:2000}") int rangeSize,
+                                        @Value("${reconcile.parallelism:4}") int parallelism,
+                                        @Value("${reconcile.max-ranges-per-second:0}") double maxRangesPerSecond,
+                                        @Value("${reconcile.fetch-size:1000}") int fetchSize,
+                                        @Value("${reconcile.claim-timeout-minutes:360}") long claimTimeoutMinutes) {
+        this.jdbc = jdbc;
+        this.archive = archive;
+        this.outputDir = Paths.get(outputDir);
+        this.scheduled = scheduled;
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.maxRangesPerSecond = maxRangesPerSecond;
+        this.fetchSize = fetchSize;
+        this.claimTimeout = Duration.ofMinutes(claimTimeoutMinutes);
+    }
+
+    @Scheduled(cron = "${reconcile.cron:0 0 1 * * *}")
+    public void nightly() {
+        if (!scheduled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        var key = "NIGHTLY:" + LocalDate.now();
+        var claimedAt = Timestamp.from(Instant.now());
+        boolean launched = false;
+        try {
+            if (!claim(key, claimedAt)) {
+                log.info("Reconciliation {} already claimed by another node", key);
+                return;
+            }
+            var state = new RunState();
+            current = state;
+            launcher.execute(() -> {
+                execute(state);
+                var p = state.progress();
+                jdbc.update("UPDATE RECONCILIATION_RUN SET STATUS = ?, COMPLETED_AT = ?, ACCOUNTS = ?, DISCREPANCIES = ?, " +
+                                "REPORT = ? WHERE RUN_KEY = ? AND STARTED_AT = ?", p.state(), Timestamp.from(Instant.now()),
+                        p.accounts(), p.discrepancies(), p.report(), key, claimedAt);
+            });
+            launched = true;
+        } finally {
+            if (!launched) {
+                running.set(false);
+            }
+        }
+    }
+
+    // Inserts the day's row, or takes over a failed or abandoned one; false when another node has it
+    private boolean claim(String key, Timestamp claimedAt) {
+        try {
+            jdbc.update("INSERT INTO RECONCILIATION_RUN (RUN_KEY, STATUS, STARTED_AT) VALUES (?, 'RUNNING', ?)",
+                    key, claimedAt);
+            return true;
+        } catch (DuplicateKeyException ex) {
+            var abandoned = Timestamp.from(claimedAt.toInstant().minus(claimTimeout));
+            return jdbc.update("UPDATE RECONCILIATION_RUN SET STATUS = 'RUNNING', STARTED_AT = ?, COMPLETED_AT = NULL " +
+                    "WHERE RUN_KEY = ? AND (STATUS = 'FAILED' OR (STATUS = 'RUNNING' AND STARTED_AT < ?))",
+                    claimedAt, key, abandoned) == 1;
+        }
+    }
+
+    public Progress start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("A reconciliation run is already in progress");
+        }
+        current = new RunState();
+        launcher.execute(() -> execute(current));
+        return current.progress();
+    }
+
+    public Progress run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("A reconciliation run is already in progress");
+        }
+        current = new RunState();
+        execute(current);
+        return current.progress();
+    }
+
+    public Progress progress() {
+        var state = current;
+        return state == null
+                ? new Progress("IDLE", 0, 0, 0, 0, BigDecimal.ZERO, 0, 0, null, null)
+                : state.progress();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        launcher.shutdownNow();
+    }
+
+    private void execute(RunState state) {
+        try {
+            Files.createDirectories(outputDir);
+            var name = "reconciliation-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".csv";
+            var target = outputDir.resolve(name);
+            var tmp = outputDir.resolve(name + ".tmp");
+            state.report = target.toString();
+
+            var ranges = AccountIdRange.plan(jdbc, rangeSize, fetchSize);
+            state.totalRanges = ranges.size();
+            log.info("Reconciliation started: {} ranges of up to {} accounts", ranges.size(), rangeSize);
+
+            var pacer = new Pacer(maxRangesPerSecond);
+            var pool = new ForkJoinPool(parallelism);
+            try (var report = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                report.write("AccountId,AccountNumber,StoredBalance,LedgerBalance,Difference,TxnCount\n");
+                pool.submit(() -> ranges.parallelStream().forEach(range -> {
+                    pacer.acquire();
+                    var found = reconcile(range, state);
+                    write(report, found);
+                    state.completedRanges.incrementAndGet();
+                })).get();
+            } catch (ExecutionException ex) {
+                throw ex.getCause() instanceof RuntimeException re ? re : new IllegalStateException(ex.getCause());
+            } finally {
+                pool.shutdown();
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            state.finish(null);
+            var p = state.progress();
+            log.info("Reconciliation completed: {} accounts, {} discrepancies (net {}) in {} ms ({} accounts/s), report {}",
+                    p.accounts(), p.discrepancies(), p.netDifference(), p.elapsedMillis(),
+                    Math.round(p.accountsPerSecond()), p.report());
+        } catch (Exception ex) {
+            log.error("Reconciliation failed", ex);
+            state.finish(ex.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private List<Discrepancy> reconcile(AccountIdRange range, RunState state) {
+        long[] accounts = {0};
+        var found = archive.readConsistent(cutoff -> {
+            Map<Long, BigDecimal> archived = new HashMap<>();
+            Map<Long, Long> archivedCount = new HashMap<>();
+            archive.scan(range.from(), range.to(), Instant.EPOCH, cutoff, t -> {
+                archived.merge(t.accountId(), StatementService.apply(BigDecimal.ZERO, t.type(), t.amount()), BigDecimal::add);
+                archivedCount.merge(t.accountId(), 1L, Long::sum);
+            });
+
+            List<Discrepancy> out = new ArrayList<>();
+            accounts[0] = 0;
+            jdbc.query(con -> {
+                var ps = con.prepareStatement(
+                        "SELECT a.ID, a.ACCOUNT_NUMBER, a.BALANCE, NVL(t.NET, 0), NVL(t.CNT, 0) FROM ACCOUNT a " +
+                                "LEFT JOIN (SELECT ACCOUNT_ID, SUM(" + StatementService.SIGNED_AMOUNT_SQL + ") NET, COUNT(*) CNT " +
+                                "FROM TXN WHERE ACCOUNT_ID BETWEEN ? AND ? AND OCCURRED_AT >= ? GROUP BY ACCOUNT_ID) t " +
+                                "ON t.ACCOUNT_ID = a.ID WHERE a.ID BETWEEN ? AND ?");
+                ps.setLong(1, range.from());
+                ps.setLong(2, range.to());
+                ps.setTimestamp(3, Timestamp.from(cutoff));
+                ps.setLong(4, range.from());
+                ps.setLong(5, range.to());
+                ps.setFetchSize(fetchSize);
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                long id = rs.getLong(1);
+                var stored = rs.getBigDecimal(3);
+                var ledger = rs.getBigDecimal(4).add(archived.getOrDefault(id, BigDecimal.ZERO));
+                if (stored == null) {
+                    stored = BigDecimal.ZERO;
+                }
+                if (stored.compareTo(ledger) != 0) {
+                    out.add(new Discrepancy(id, rs.getString(2), stored, ledger,
+                            rs.getLong(5) + archivedCount.getOrDefault(id, 0L)));
+                }
+                accounts[0]++;
+            });
+            return out;
+        });
+
+        state.accounts.addAndGet(accounts[0]);
+        state.discrepancies.addAndGet(found.size());
+        for (var d : found) {
+            state.addNet(d.difference());
+        }
+        return found;
+    }
+
+    private static void write(BufferedWriter report, List<Discrepancy> found) {
+        if (found.isEmpty()) {
+            return;
+        }
+        var sb = new StringBuilder();
+        for (var d : found) {
+            sb.append(d.accountId()).append(',').append(d.accountNumber()).append(',')
+                    .append(d.storedBalance()).append(',').append(d.ledgerBalance()).append(',')
+                    .append(d.difference()).append(',').append(d.txnCount()).append('\n');
+        }
+        synchronized (report) {
+            try {
+                report.write(sb.toString());
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not write reconciliation report", ex);
+            }
+        }
+    }
+
+    // Spaces range starts evenly across all workers; 0 means unthrottled
+    private static final class Pacer {
+        private final long intervalNanos;
+        private final AtomicLong next = new AtomicLong(System.nanoTime());
+
+        Pacer(double perSecond) {
+            this.intervalNanos = perSecond <= 0 ? 0 : (long) (1_000_000_000L / perSecond);
+        }
+
+        void acquire() {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long slot = next.getAndAdd(intervalNanos);
+            long wait = slot - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (wait < -intervalNanos) {
+                // fell behind (slow ranges); do not let the backlog turn into a burst
+                next.accumulateAndGet(System.nanoTime(), Math::max);
+            }
+        }
+    }
+
+    private static final class RunState {
+        private final long startedAt = System.currentTimeMillis();
+        private volatile long finishedAt;
+        private volatile int totalRanges;
+        private volatile String report;
+        private volatile String error;
+        private volatile boolean finished;
+        private final AtomicInteger completedRanges = new AtomicInteger();
+        private final AtomicLong accounts = new AtomicLong();
+        private final AtomicLong discrepancies = new AtomicLong();
+        private BigDecimal netDifference = BigDecimal.ZERO; // guarded by this
+
+        synchronized void addNet(BigDecimal difference) {
+            netDifference = netDifference.add(difference);
+        }
+
+        void finish(String error) {
+            this.error = error;
+            this.finishedAt = System.currentTimeMillis();
+            this.finished = true;
+        }
+
+        synchronized Progress progress() {
+            long elapsed = (finished ? finishedAt : System.currentTimeMillis()) - startedAt;
+            double seconds = Math.max(elapsed, 1) / 1000.0;
+            String stateName = !finished ? "RUNNING" : error == null ? "COMPLETED" : "FAILED";
+            return new Progress(stateName, totalRanges, completedRanges.get(), accounts.get(), discrepancies.get(),
+                    netDifference, elapsed, accounts.get() / seconds, report, error);
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package com.example.bankingmini.account;
+
+import com.example.bankingmini.archive.ArchivedTxn;
+import com.example.bankingmini.archive.TxnArchive;
+import com.example.bankingmini.common.Money;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Month-end statement run for every account. Accounts are cut into contiguous ID ranges, ranges are
+// processed in parallel on a fork/join pool, and each range reads TXN with a single ordered scan
+// instead of one query per account. Finished ranges are appended to a checkpoint file so a restarted
+// run for the same period only redoes the ranges that never completed.
+@Service
+@Slf4j
+public class BulkStatementService {
+
+    public record Progress(
+            String period,
+            String state, // IDLE, RUNNING, COMPLETED, FAILED
+            int totalRanges,
+            int completedRanges,
+            int skippedRanges,
+            long accounts,
+            long transactions,
+            long elapsedMillis,
+            double accountsPerSecond,
+            double transactionsPerSecond,
+            String error
+    ) {
+    }
+
+    record AccountRef(long id, String accountNumber) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TxnArchive archive;
+    private final Path outputDir;
+    private final int rangeSize;
+    private final int parallelism;
+    private final int fetchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService launcher = Executors.newSingleThreadExecutor(r -> new Thread(r, "statement-batch"));
+    private volatile RunState current;
+
+    public BulkStatementService(JdbcTemplate jdbc,
+                                TxnArchive archive,
+                                @Value("${statement.batch.output-dir:./statements}") String outputDir,
+                                @Value("${statement.batch.range-size:500}") int rangeSize,
+                                @Value("${statement.batch.parallelism:4}") int parallelism,
+                                @Value("${statement.batch.fetch-size:1000}") int fetchSize) {
+        this.jdbc = jdbc;
+        this.archive = archive;
+        this.outputDir = Paths.get(outputDir);
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.fetchSize = fetchSize;
+    }
+
+    // Kicks the run off in the background and returns immediately; poll progress() for status
+    public Progress start(YearMonth period, boolean csv) {
+        if (!period.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Statements can only be run for a closed month");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("A statement run is already in progress");
+        }
+        current = new RunState(period);
+        launcher.execute(() -> execute(current, csv));
+        return current.progress();
+    }
+
+    public Progress progress() {
+        var state = current;
+        if (state == null) {
+            return new Progress(null, "IDLE", 0, 0, 0, 0, 0, 0, 0, 0, null);
+        }
+        return state.progress();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        launcher.shutdownNow();
+    }
+
+    private void execute(RunState state, boolean csv) {
+        try {
+            var dir = outputDir.resolve(state.period.toString());
+            Files.createDirectories(dir);
+            var checkpoint = new Checkpoint(dir, csv);
+
+            var ranges = checkpoint.plan(() -> AccountIdRange.plan(jdbc, rangeSize, fetchSize));
+            List<AccountIdRange> todo = new ArrayList<>();
+            for (var range : ranges) {
+                if (!checkpoint.isDone(range)) {
+                    todo.add(range);
+                }
+            }
+            state.totalRanges = ranges.size();
+            state.skippedRanges = ranges.size() - todo.size();
+            log.info("Statement run {}: {} ranges, {} already done by a previous attempt",
+                    state.period, ranges.size(), state.skippedRanges);
+
+            var pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new RangeTask(todo, 0, todo.size(), state, dir, checkpoint, csv));
+            } finally {
+                pool.shutdown();
+            }
+            state.finish(null);
+            var p = state.progress();
+            log.info("Statement run {} completed: {} accounts, {} transactions in {} ms ({} accounts/s, {} txns/s)",
+                    p.period(), p.accounts(), p.transactions(), p.elapsedMillis(),
+                    Math.round(p.accountsPerSecond()), Math.round(p.transactionsPerSecond()));
+        } catch (Exception ex) {
+            log.error("Statement run {} failed", state.period, ex);
+            state.finish(ex.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void processRange(AccountIdRange range, RunState state, Path dir, Checkpoint checkpoint, boolean csv) {
+        LocalDate fromDate = state.period.atDay(1);
+        LocalDate toDate = state.period.atEndOfMonth();
+        Instant fromTs = fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
+        Instant toTs = toDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+
+        List<AccountRef> accounts = jdbc.query(
+                "SELECT ID, ACCOUNT_NUMBER FROM ACCOUNT WHERE ID BETWEEN ? AND ? ORDER BY ID",
+                (rs, i) -> new AccountRef(rs.getLong(1), rs.getString(2)),
+                range.from(), range.to());
+
+        // files are rewritten if an archive move commits mid-range, so only count the pass that sticks
+        var writer = archive.readConsistent(cutoff -> {
+            var archived = new ArchivedHistory(fromTs);
+            archive.scan(range.from(), range.to(), Instant.EPOCH, toTs.isBefore(cutoff) ? toTs : cutoff, archived::add);
+            archived.sortLines();
+
+            var w = new RangeWriter(accounts, archived, fromDate, toDate, fromTs, dir, csv);
+            jdbc.query(con -> {
+                var ps = con.prepareStatement(
+                        "SELECT ACCOUNT_ID, TYPE, AMOUNT, REF_ACCOUNT_ID, OCCURRED_AT FROM TXN " +
+                                "WHERE ACCOUNT_ID BETWEEN ? AND ? AND OCCURRED_AT >= ? AND OCCURRED_AT < ? " +
+                                "ORDER BY ACCOUNT_ID, OCCURRED_AT, ID");
+                ps.setLong(1, range.from());
+                ps.setLong(2, range.to());
+                ps.setTimestamp(3, Timestamp.from(cutoff));
+                ps.setTimestamp(4, Timestamp.from(toTs));
+                ps.setFetchSize(fetchSize);
+                return ps;
+            }, (RowCallbackHandler) w::accept);
+            w.finish();
+            return w;
+        });
+        state.accounts.addAndGet(writer.accountsWritten);
+        state.transactions.addAndGet(writer.transactionsRead);
+
+        checkpoint.markDone(range);
+        int done = state.completedRanges.incrementAndGet();
+        if (done % 50 == 0 || done + state.skippedRanges == state.totalRanges) {
+            log.info("Statement run {}: {}/{} ranges, {} accounts", state.period,
+                    done + state.skippedRanges, state.totalRanges, state.accounts.get());
+        }
+    }
+
+    // Per-account opening balance and in-period lines taken from the archive tier
+    static final class ArchivedHistory {
+        private final Instant fromTs;
+        private final Map<Long, long[]> opening = new HashMap<>(); // cents, boxed once per account
+        private final Map<Long, List<ArchivedTxn>> lines = new HashMap<>();
+        private long rows;
+
+        ArchivedHistory(Instant fromTs) {
+            this.fromTs = fromTs;
+        }
+
+        void add(ArchivedTxn t) {
+            if (t.occurredAt().isBefore(fromTs)) {
+                var balance = opening.computeIfAbsent(t.accountId(), id -> new long[1]);
+                balance[0] = StatementService.apply(balance[0], t.type(), Money.minorUnits(t.amount()));
+            } else {
+                lines.computeIfAbsent(t.accountId(), id -> new ArrayList<>()).add(t);
+            }
+            rows++;
+        }
+
+        void sortLines() {
+            for (var list : lines.values()) {
+                list.sort(Comparator.comparing(ArchivedTxn::occurredAt).thenComparingLong(ArchivedTxn::id));
+            }
+        }
+    }
+
+    private final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<AccountIdRange> ranges;
+        private final int start;
+        private final int end;
+        private final RunState state;
+        private final Path dir;
+        private final Checkpoint checkpoint;
+        private final boolean csv;
+
+        RangeTask(List<AccountIdRange> ranges, int start, int end, RunState state, Path dir, Checkpoint checkpoint, boolean csv) {
+            this.ranges = ranges;
+            this.start = start;
+            this.end = end;
+            this.state = state;
+            this.dir = dir;
+            this.checkpoint = checkpoint;
+            this.csv = csv;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= 1) {
+                if (end > start) {
+                    processRange(ranges.get(start), state, dir, checkpoint, csv);
+                }
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new RangeTask(ranges, start, mid, state, dir, checkpoint, csv),
+                    new RangeTask(ranges, mid, end, state, dir, checkpoint, csv));
+        }
+    }
+
+    // Consumes the ordered TXN scan for one range and writes a file each time the account changes
+    static final class RangeWriter {
+        private final List<AccountRef> accounts;
+        private final ArchivedHistory archived;
+        private final LocalDate fromDate;
+        private final LocalDate toDate;
+        private final Instant fromTs;
+        private final Path dir;
+        private final boolean csv;
+
+        private int index;
+        private boolean started;
+        private long opening; // cents
+        private long closing;
+        private List<AccountDtos.StatementLine> lines = new ArrayList<>();
+        private long accountsWritten;
+        private long transactionsRead;
+
+        RangeWriter(List<AccountRef> accounts, ArchivedHistory archived, LocalDate fromDate, LocalDate toDate,
+                    Instant fromTs, Path dir, boolean csv) {
+            this.accounts = accounts;
+            this.archived = archived;
+            this.fromDate = fromDate;
+            this.toDate = toDate;
+            this.fromTs = fromTs;
+            this.dir = dir;
+            this.csv = csv;
+            this.transactionsRead = archived.rows;
+        }
+
+        void accept(ResultSet rs) throws SQLException {
+            long accountId = rs.getLong(1);
+            while (index < accounts.size() && accounts.get(index).id() < accountId) {
+                flush();
+            }
+            // account opened after the range was listed; it is picked up on the next run
+            if (index == accounts.size() || accounts.get(index).id() != accountId) {
+                return;
+            }
+            startAccount();
+            String type = rs.getString(2);
+            BigDecimal amount = rs.getBigDecimal(3);
+            long ref = rs.getLong(4);
+            String refAccount = rs.wasNull() ? "" : String.valueOf(ref);
+            Instant occurredAt = rs.getTimestamp(5).toInstant();
+
+            if (occurredAt.isBefore(fromTs)) {
+                opening = StatementService.apply(opening, type, Money.minorUnits(amount));
+                closing = opening;
+            } else {
+                closing = StatementService.apply(closing, type, Money.minorUnits(amount));
+                lines.add(new AccountDtos.StatementLine(occurredAt.toString(), type, amount, refAccount));
+            }
+            transactionsRead++;
+        }
+
+        void finish() {
+            while (index < accounts.size()) {
+                flush();
+            }
+        }
+
+        // archived rows are all older than the live ones, so they go first
+        private void startAccount() {
+            if (started) {
+                return;
+            }
+            started = true;
+            long accountId = accounts.get(index).id();
+            var archivedOpening = archived.opening.get(accountId);
+            opening = archivedOpening == null ? 0 : archivedOpening[0];
+            closing = opening;
+            for (var t : archived.lines.getOrDefault(accountId, List.of())) {
+                closing = StatementService.apply(closing, t.type(), Money.minorUnits(t.amount()));
+                lines.add(new AccountDtos.StatementLine(t.occurredAt().toString(), t.type(), t.amount(),
+                        t.refAccountId() == null ? "" : String.valueOf(t.refAccountId())));
+            }
+        }
+
+        private void flush() {
+            startAccount();
+            var account = accounts.get(index++);
+            var openingAmount = Money.toBigDecimal(opening);
+            var closingAmount = Money.toBigDecimal(closing);
+            String payload = csv
+                    ? StatementService.toCsv(account.accountNumber(), fromDate, toDate, openingAmount, closingAmount, lines)
+                    : StatementService.toText(account.accountNumber(), fromDate, toDate, openingAmount, closingAmount, lines);
+            var target = dir.resolve(account.accountNumber() + (csv ? ".csv" : ".txt"));
+            var tmp = dir.resolve(account.accountNumber() + ".tmp");
+            try {
+                Files.writeString(tmp, payload, StandardCharsets.UTF_8);
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not write statement for " + account.accountNumber(), ex);
+            }
+            accountsWritten++;
+            started = false;
+            opening = 0;
+            closing = 0;
+            lines = new ArrayList<>();
+        }
+    }
+
+    // plan.txt fixes the range boundaries for a period; checkpoint-<format>.log lists the ranges already
+    // written in that format, so a rerun in the other format does not skip them
+    static final class Checkpoint {
+        private final Path planFile;
+        private final Path logFile;
+        private final Set<String> done = new HashSet<>();
+
+        Checkpoint(Path dir, boolean csv) throws IOException {
+            this.planFile = dir.resolve("plan.txt");
+            this.logFile = dir.resolve(csv ? "checkpoint-csv.log" : "checkpoint-txt.log");
+            if (Files.exists(logFile)) {
+                done.addAll(Files.readAllLines(logFile));
+            }
+        }
+
+        List<AccountIdRange> plan(java.util.function.Supplier<List<AccountIdRange>> planner) throws IOException {
+            if (Files.exists(planFile)) {
+                return Files.readAllLines(planFile).stream().filter(l -> !l.isBlank()).map(AccountIdRange::parse).toList();
+            }
+            var ranges = planner.get();
+            var sb = new StringBuilder();
+            for (var r : ranges) {
+                sb.append(r.key()).append('\n');
+            }
+            var tmp = planFile.resolveSibling("plan.tmp");
+            Files.writeString(tmp, sb.toString(), StandardCharsets.UTF_8);
+            Files.move(tmp, planFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return ranges;
+        }
+
+        boolean isDone(AccountIdRange range) {
+            return done.contains(range.key());
+        }
+
+        synchronized void markDone(AccountIdRange range) {
+            try {
+                Files.writeString(logFile, range.key() + "\n", StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not write statement checkpoint", ex);
+            }
+        }
+    }
+
+    private static final class RunState {
+        private final YearMonth period;
+        private final long startedAt = System.currentTimeMillis();
+        private volatile long finishedAt;
+        private volatile int totalRanges;
+        private volatile int skippedRanges;
+        private volatile String error;
+        private volatile boolean finished;
+        private final AtomicInteger completedRanges = new AtomicInteger();
+        private final AtomicLong accounts = new AtomicLong();
+        private final AtomicLong transactions = new AtomicLong();
+
+        RunState(YearMonth period) {
+            this.period = period;
+        }
+
+        void finish(String error) {
+            this.error = error;
+            this.finishedAt = System.currentTimeMillis();
+            this.finished = true;
+        }
+
+        Progress progress() {
+            long elapsed = (finished ? finishedAt : System.currentTimeMillis()) - startedAt;
+            double seconds = Math.max(elapsed, 1) / 1000.0;
+            String stateName = !finished ? "RUNNING" : error == null ? "COMPLETED" : "FAILED";
+            return new Progress(period.toString(), stateName, totalRanges, completedRanges.get(), skippedRanges,
+                    accounts.get(), transactions.get(), elapsed,
+                    accounts.get() / seconds, transactions.get() / seconds, error);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.bankingmini.account;
+
+import com.example.bankingmini.loan.LoanRepository;
+import com.example.bankingmini.loan.LoanStatusChangedEvent;
+import com.example.bankingmini.loan.StudentLoanRepository;
+import com.example.bankingmini.loan.VehicleLoanRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Denormalised per-customer read model: accounts with balance and last activity, plus loan counts
+// by type and status. Loaded once per customer, then kept current from committed posting and loan
+// events, so /api/account/list and /api/account/summary are answered with one map lookup.
+//
+// A customer's accounts are mapped to their entry before the load reads any balance, so a posting
+// that commits during the load marks the entry and the load is not cached. The load also notes the
+// highest TXN id per account; an event at or below it may be older than what was read and forces a
+// reload instead of being applied.
+//
+// Events only arrive from this node's commits, so an entry is re-read once it is older than
+// customer-summary.cache.ttl-ms; that bounds how stale a change made on another node can be.
+@Component
+public class CustomerSummaryView {
+
+    public record AccountView(Long id, String accountNumber, BigDecimal balance, String status, Instant lastActivityAt) {
+    }
+
+    public record Summary(
+            Long customerId,
+            List<AccountView> accounts,
+            BigDecimal totalBalance,
+            Instant lastActivityAt,
+            Map<String, Map<String, Integer>> loans // GENERAL/VEHICLE/STUDENT -> status -> count
+    ) {
+    }
+
+    private final AccountRepository accounts;
+    private final TransactionRepository txns;
+    private final LoanRepository loans;
+    private final VehicleLoanRepository vehicleLoans;
+    private final StudentLoanRepository studentLoans;
+    private final LinkedHashMap<Long, Entry> cache;
+    private final Map<Long, Long> customerByAccount = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+
+    public CustomerSummaryView(AccountRepository accounts,
+                               TransactionRepository txns,
+                               LoanRepository loans,
+                               VehicleLoanRepository vehicleLoans,
+                               StudentLoanRepository studentLoans,
+                               @Value("${customer-summary.cache.max-customers:10000}") int maxCustomers,
+                               @Value("${customer-summary.cache.ttl-ms:5000}") long ttlMillis) {
+        this.accounts = accounts;
+        this.txns = txns;
+        this.loans = loans;
+        this.vehicleLoans = vehicleLoans;
+        this.studentLoans = studentLoans;
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() <= maxCustomers) {
+                    return false;
+                }
+                forgetAccounts(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public Summary get(Long customerId) {
+        Entry entry;
+        boolean loader = false;
+        synchronized (cache) {
+            entry = cache.get(customerId);
+            if (entry != null && entry.expired(System.currentTimeMillis() - ttlMillis)) {
+                cache.remove(customerId);
+                forgetAccounts(entry);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry();
+                cache.put(customerId, entry);
+                loader = true;
+            }
+        }
+        if (!loader) {
+            var summary = entry.summary();
+            // null: another request is loading this customer right now
+            return summary != null ? summary : read(customerId, new HashMap<>());
+        }
+
+        Summary loaded;
+        Map<Long, Long> lastTxnIds = new HashMap<>();
+        try {
+            var ids = accounts.findIdsByCustomerId(customerId);
+            entry.track(ids);
+            ids.forEach(id -> customerByAccount.put(id, customerId));
+            loaded = read(customerId, lastTxnIds);
+        } catch (RuntimeException ex) {
+            remove(customerId, entry);
+            throw ex;
+        }
+        for (var a : loaded.accounts()) {
+            customerByAccount.put(a.id(), customerId);
+        }
+        if (!entry.fill(loaded, lastTxnIds)) {
+            // something committed while we were reading; the next request reads again
+            remove(customerId, entry);
+        }
+        return loaded;
+    }
+
+    // The listeners below run after commit in the committing thread
+
+    @TransactionalEventListener
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        var entry = entryForAccount(event.accountId());
+        if (entry != null && !entry.posted(event)) {
+            evict(customerByAccount.get(event.accountId()));
+        }
+    }
+
+    // no ordering information on these, so re-read rather than risk going backwards
+    @TransactionalEventListener
+    public void onBalanceChanged(AccountBalanceChangedEvent event) {
+        evict(customerByAccount.get(event.accountId()));
+    }
+
+    @TransactionalEventListener
+    public void onAccountOpened(AccountOpenedEvent event) {
+        evict(event.customerId());
+    }
+
+    @TransactionalEventListener
+    public void onLoanStatusChanged(LoanStatusChangedEvent event) {
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(event.customerId());
+        }
+        if (entry != null && !entry.loanChanged(event)) {
+            evict(event.customerId());
+        }
+    }
+
+    public void evict(Long customerId) {
+        if (customerId == null) {
+            return;
+        }
+        synchronized (cache) {
+            var removed = cache.remove(customerId);
+            if (removed != null) {
+                forgetAccounts(removed);
+            }
+        }
+    }
+
+    private Entry entryForAccount(Long accountId) {
+        var customerId = customerByAccount.get(accountId);
+        if (customerId == null) {
+            return null;
+        }
+        synchronized (cache) {
+            return cache.get(customerId);
+        }
+    }
+
+    private void remove(Long customerId, Entry entry) {
+        synchronized (cache) {
+            if (cache.remove(customerId, entry)) {
+                forgetAccounts(entry);
+            }
+        }
+    }
+
+    private void forgetAccounts(Entry entry) {
+        entry.trackedIds().forEach(customerByAccount::remove);
+        var summary = entry.summary();
+        if (summary != null) {
+            summary.accounts().forEach(a -> customerByAccount.remove(a.id()));
+        }
+    }
+
+    // lastTxnIds receives the highest live TXN id per account
+    private Summary read(Long customerId, Map<Long, Long> lastTxnIds) {
+        Map<Long, Instant> lastActivity = new HashMap<>();
+        for (var row : txns.findLastActivityByCustomerId(customerId)) {
+            lastActivity.put((Long) row[0], (Instant) row[1]);
+            lastTxnIds.put((Long) row[0], (Long) row[2]);
+        }
+        var views = accounts.findByCustomerId(customerId).stream()
+                .map(a -> new AccountView(a.getId(), a.getAccountNumber(), a.getBalance(), a.getStatus(),
+                        lastActivity.get(a.getId())))
+                .toList();
+
+        Map<String, Map<String, Integer>> loanCounts = new HashMap<>();
+        loanCounts.put("GENERAL", counts(loans.countByStatusForCustomer(customerId)));
+        loanCounts.put("VEHICLE", counts(vehicleLoans.countByStatusForCustomer(customerId)));
+        loanCounts.put("STUDENT", counts(studentLoans.countByStatusForCustomer(customerId)));
+        return summary(customerId, views, loanCounts);
+    }
+
+    private static Map<String, Integer> counts(List<Object[]> rows) {
+        Map<String, Integer> byStatus = new HashMap<>();
+        for (var row : rows) {
+            byStatus.put((String) row[0], ((Number) row[1]).intValue());
+        }
+        return byStatus;
+    }
+
+    private static Summary summary(Long customerId, List<AccountView> views, Map<String, Map<String, Integer>> loanCounts) {
+        var total = views.stream().map(AccountView::balance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        var last = views.stream().map(AccountView::lastActivityAt).filter(t -> t != null)
+                .max(Comparator.naturalOrder()).orElse(null);
+        return new Summary(customerId, List.copyOf(views), total, last, loanCounts);
+    }
+
+    // Summaries are immutable; updates swap in a new one
+    private static final class Entry {
+        private Summary summary;
+        private List<Long> trackedIds = List.of();
+        private final Map<Long, Long> lastTxnId = new HashMap<>();
+        private boolean missedUpdate;
+        private long loadedAt;
+
+        synchronized Summary summary() {
+            return summary;
+        }
+
+        synchronized void track(List<Long> accountIds) {
+            trackedIds = List.copyOf(accountIds);
+        }
+
+        synchronized List<Long> trackedIds() {
+            return trackedIds;
+        }
+
+        synchronized boolean fill(Summary loaded, Map<Long, Long> lastTxnIds) {
+            if (missedUpdate) {
+                return false;
+            }
+            summary = loaded;
+            lastTxnId.putAll(lastTxnIds);
+            loadedAt = System.currentTimeMillis();
+            return true;
+        }
+
+        // loaded before the cutoff; an entry still being loaded is left to its loader
+        synchronized boolean expired(long cutoff) {
+            return summary != null && loadedAt < cutoff;
+        }
+
+        // false means the entry can no longer be trusted
+        synchronized boolean posted(TransactionPostedEvent event) {
+            if (summary == null) {
+                missedUpdate = true;
+                return true;
+            }
+            // postings can commit out of order; balanceAfter of an older one would move us backwards
+            var previous = lastTxnId.get(event.accountId());
+            if (event.transactionId() == null || event.balanceAfter() == null
+                    || (previous != null && event.transactionId() <= previous)) {
+                return false;
+            }
+            lastTxnId.put(event.accountId(), event.transactionId());
+            List<AccountView> views = new ArrayList<>(summary.accounts().size());
+            boolean found = false;
+            for (var a : summary.accounts()) {
+                if (a.id().equals(event.accountId())) {
+                    var last = a.lastActivityAt() == null || event.occurredAt().isAfter(a.lastActivityAt())
+                            ? event.occurredAt() : a.lastActivityAt();
+                    views.add(new AccountView(a.id(), a.accountNumber(), event.balanceAfter(), a.status(), last));
+                    found = true;
+                } else {
+                    views.add(a);
+                }
+            }
+            if (!found) {
+                return false;
+            }
+            summary = CustomerSummaryView.summary(summary.customerId(), views, summary.loans());
+            return true;
+        }
+
+        synchronized boolean loanChanged(LoanStatusChangedEvent event) {
+            if (summary == null) {
+                missedUpdate = true;
+                return true;
+            }
+            Map<String, Map<String, Integer>> loans = new HashMap<>();
+            summary.loans().forEach((type, byStatus) -> loans.put(type, new HashMap<>(byStatus)));
+            var byStatus = loans.computeIfAbsent(event.loanType(), t -> new HashMap<>());
+            if (event.previousStatus() != null) {
+                int left = byStatus.getOrDefault(event.previousStatus(), 0) - 1;
+                if (left < 0) {
+                    return false;
+                }
+                if (left == 0) {
+                    byStatus.remove(event.previousStatus());
+                } else {
+                    byStatus.put(event.previousStatus(), left);
+                }
+            }
+            byStatus.merge(event.status(), 1, Integer::sum);
+            summary = new Summary(summary.customerId(), summary.accounts(), summary.totalBalance(),
+                    summary.lastActivityAt(), loans);
+            return true;
+        }
+    }
+}
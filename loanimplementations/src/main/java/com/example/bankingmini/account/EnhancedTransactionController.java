@@ -45,6 +45,7 @@ public class EnhancedTransactionController {
             @RequestParam(value = "maxAmount", required = false) BigDecimal maxAmount,
             @RequestParam(value = "type", required = false) String type,
             @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "q", required = false) String q,
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "20") int size) {
 
@@ -59,6 +60,7 @@ public class EnhancedTransactionController {
                 .maxAmount(maxAmount)
                 .type(type)
                 .category(category)
+                .query(q)
                 .build();
 
         Page<TransactionDto> transactions = transactionService.searchTransactions(criteria, user.getId(), pageable);
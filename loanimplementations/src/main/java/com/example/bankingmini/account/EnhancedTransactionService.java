@@ -1,12 +1,24 @@
 package com.example.bankingmini.account;
 
+import com.example.bankingmini.archive.ArchivedTxn;
+import com.example.bankingmini.archive.TxnArchive;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,35 +31,121 @@ public class EnhancedTransactionService {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private TransactionSearchIndex searchIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TxnArchive archive;
+
     public Page<TransactionDto> getTransactionHistory(Long accountId, Long userId, Pageable pageable) {
         validateAccountOwnership(accountId, userId);
-        Page<TransactionEntity> transactions = transactionRepository.findByAccountIdOrderByOccurredAtDesc(accountId, pageable);
-        return transactions.map(this::convertToDto);
+        return archive.readConsistent(cutoff -> withArchived(
+            transactionRepository.findByAccountIdAndOccurredAtGreaterThanEqualOrderByOccurredAtDesc(accountId, cutoff, pageable),
+            accountId, Instant.EPOCH, cutoff, t -> true, pageable));
     }
 
 
     public Page<TransactionDto> searchTransactions(TransactionSearchCriteria criteria, Long userId, Pageable pageable) {
         validateAccountOwnership(criteria.getAccountId(), userId);
         
-        Page<TransactionEntity> transactions;
-        
-        if (criteria.getStartDate() != null && criteria.getEndDate() != null) {
-            transactions = transactionRepository.findByAccountIdAndDateRange(
-                criteria.getAccountId(), criteria.getStartDate(), criteria.getEndDate(), pageable);
-        } else if (criteria.getMinAmount() != null && criteria.getMaxAmount() != null) {
-            transactions = transactionRepository.findByAccountIdAndAmountRange(
-                criteria.getAccountId(), criteria.getMinAmount(), criteria.getMaxAmount(), pageable);
-        } else if (criteria.getType() != null) {
-            transactions = transactionRepository.findByAccountIdAndTypeOrderByOccurredAtDesc(
-                criteria.getAccountId(), criteria.getType(), pageable);
-        } else if (criteria.getCategory() != null) {
-            transactions = transactionRepository.findByAccountIdAndCategoryOrderByOccurredAtDesc(
-                criteria.getAccountId(), criteria.getCategory(), pageable);
-        } else {
-            transactions = transactionRepository.findByAccountIdOrderByOccurredAtDesc(criteria.getAccountId(), pageable);
+        if (criteria.getQuery() != null && !criteria.getQuery().isBlank()) {
+            return searchByText(criteria.getAccountId(), criteria.getQuery(), pageable);
         }
-        
-        return transactions.map(this::convertToDto);
+
+        Long accountId = criteria.getAccountId();
+        return archive.readConsistent(cutoff -> {
+            if (criteria.getStartDate() != null && criteria.getEndDate() != null) {
+                Instant start = criteria.getStartDate().isAfter(cutoff) ? criteria.getStartDate() : cutoff;
+                Instant endExclusive = criteria.getEndDate().plusNanos(1);
+                return withArchived(
+                    transactionRepository.findByAccountIdAndDateRange(accountId, start, criteria.getEndDate(), pageable),
+                    accountId, criteria.getStartDate(), endExclusive.isBefore(cutoff) ? endExclusive : cutoff, t -> true, pageable);
+            } else if (criteria.getMinAmount() != null && criteria.getMaxAmount() != null) {
+                return withArchived(
+                    transactionRepository.findByAccountIdAndAmountRangeSince(
+                        accountId, cutoff, criteria.getMinAmount(), criteria.getMaxAmount(), pageable),
+                    accountId, Instant.EPOCH, cutoff,
+                    t -> t.amount().compareTo(criteria.getMinAmount()) >= 0 && t.amount().compareTo(criteria.getMaxAmount()) <= 0,
+                    pageable);
+            } else if (criteria.getType() != null) {
+                return withArchived(
+                    transactionRepository.findByAccountIdAndTypeAndOccurredAtGreaterThanEqualOrderByOccurredAtDesc(
+                        accountId, criteria.getType(), cutoff, pageable),
+                    accountId, Instant.EPOCH, cutoff, t -> criteria.getType().equals(t.type()), pageable);
+            } else if (criteria.getCategory() != null) {
+                return withArchived(
+                    transactionRepository.findByAccountIdAndCategoryAndOccurredAtGreaterThanEqualOrderByOccurredAtDesc(
+                        accountId, criteria.getCategory(), cutoff, pageable),
+                    accountId, Instant.EPOCH, cutoff, t -> criteria.getCategory().equals(t.category()), pageable);
+            }
+            return withArchived(
+                transactionRepository.findByAccountIdAndOccurredAtGreaterThanEqualOrderByOccurredAtDesc(accountId, cutoff, pageable),
+                accountId, Instant.EPOCH, cutoff, t -> true, pageable);
+        });
+    }
+
+    // Every live row is newer than every archived one, so a newest-first page over both is the live
+    // rows followed by the archived rows. live must be the same page queried from TXN alone.
+    private Page<TransactionDto> withArchived(Page<TransactionEntity> live, Long accountId, Instant from, Instant to,
+                                              Predicate<ArchivedTxn> filter, Pageable pageable) {
+        if (archive.isEmpty()) {
+            return live.map(this::convertToDto);
+        }
+        List<ArchivedTxn> archived = new ArrayList<>();
+        for (var t : archive.find(accountId, from, to)) {
+            if (filter.test(t)) {
+                archived.add(t);
+            }
+        }
+        Collections.reverse(archived);
+
+        List<TransactionDto> content = new ArrayList<>();
+        live.getContent().forEach(t -> content.add(convertToDto(t)));
+        long liveTotal = live.getTotalElements();
+        if (pageable.isUnpaged()) {
+            archived.forEach(t -> content.add(convertArchivedToDto(t)));
+        } else if (content.size() < pageable.getPageSize()) {
+            int skip = (int) Math.min(Math.max(0, pageable.getOffset() - liveTotal), archived.size());
+            int take = Math.min(pageable.getPageSize() - content.size(), archived.size() - skip);
+            archived.subList(skip, skip + take).forEach(t -> content.add(convertArchivedToDto(t)));
+        }
+        return new PageImpl<>(content, pageable, liveTotal + archived.size());
+    }
+
+    // Free-text mode: ids come from the in-memory index and only the requested page is resolved, from
+    // TXN first and then, for ids already purged from it, by one pass over the account's archived rows
+    private Page<TransactionDto> searchByText(Long accountId, String query, Pageable pageable) {
+        long[] ids = searchIndex.search(accountId, query);
+        int from = pageable.isUnpaged() ? 0 : (int) Math.min(pageable.getOffset(), ids.length);
+        int to = pageable.isUnpaged() ? ids.length : Math.min(from + pageable.getPageSize(), ids.length);
+
+        List<Long> pageIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageIds.add(ids[i]);
+        }
+        Map<Long, TransactionDto> byId = transactionRepository.findAllById(pageIds).stream()
+            .collect(Collectors.toMap(TransactionEntity::getId, this::convertToDto));
+        if (byId.size() < pageIds.size()) {
+            Set<Long> missing = new HashSet<>(pageIds);
+            missing.removeAll(byId.keySet());
+            // rows leave TXN only after the cutoff has moved past them
+            archive.refresh();
+            archive.scan(accountId, accountId, Instant.EPOCH, archive.cutoff(), t -> {
+                if (missing.contains(t.id())) {
+                    byId.putIfAbsent(t.id(), convertArchivedToDto(t));
+                }
+            });
+        }
+
+        List<TransactionDto> content = pageIds.stream()
+            .map(byId::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+        // ids on this page that resolve to nothing are gone; do not count them in the total
+        return new PageImpl<>(content, pageable, ids.length - (pageIds.size() - content.size()));
     }
 
     public void updateTransactionDescription(Long transactionId, String description, Long userId) {
@@ -55,8 +153,11 @@ public class EnhancedTransactionService {
             .orElseThrow(() -> new RuntimeException("Transaction not found"));
         
         validateAccountOwnership(transaction.getAccount().getId(), userId);
+        String oldDescription = transaction.getDescription();
         transaction.setDescription(description);
         transactionRepository.save(transaction);
+        eventPublisher.publishEvent(new TransactionDetailsChangedEvent(transaction.getId(), transaction.getAccount().getId(),
+            oldDescription, transaction.getCategory(), description, transaction.getCategory()));
     }
 
     public void updateTransactionCategory(Long transactionId, String category, Long userId) {
@@ -64,8 +165,11 @@ public class EnhancedTransactionService {
             .orElseThrow(() -> new RuntimeException("Transaction not found"));
         
         validateAccountOwnership(transaction.getAccount().getId(), userId);
+        String oldCategory = transaction.getCategory();
         transaction.setCategory(category);
         transactionRepository.save(transaction);
+        eventPublisher.publishEvent(new TransactionDetailsChangedEvent(transaction.getId(), transaction.getAccount().getId(),
+            transaction.getDescription(), oldCategory, transaction.getDescription(), category));
     }
 
     private void validateAccountOwnership(Long accountId, Long userId) {
@@ -77,6 +181,19 @@ public class EnhancedTransactionService {
         }
     }
 
+    private TransactionDto convertArchivedToDto(ArchivedTxn transaction) {
+        return TransactionDto.builder()
+            .id(transaction.id())
+            .accountId(transaction.accountId())
+            .type(transaction.type())
+            .amount(transaction.amount())
+            .refAccountId(transaction.refAccountId())
+            .description(transaction.description())
+            .category(transaction.category())
+            .occurredAt(transaction.occurredAt())
+            .build();
+    }
+
     private TransactionDto convertToDto(TransactionEntity transaction) {
         return TransactionDto.builder()
             .id(transaction.getId())
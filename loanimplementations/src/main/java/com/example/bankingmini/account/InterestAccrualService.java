@@ -0,0 +1,358 @@
+package com.example.bankingmini.account;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Daily interest accrual and month-end posting for active accounts.
+//
+// Amounts are carried as longs: balances in cents, accruals in 1/10000 of a cent, so a day's
+// accrual is cents * rateBps / daysInYear with no BigDecimal per row. Accounts are processed in ID
+// ranges on a fork/join pool, one transaction per range. ACCOUNT_ACCRUAL.LAST_ACCRUAL_DATE and
+// LAST_POSTED_PERIOD are checked in the same statement that moves the money, so re-running a day or
+// a month after a crash only picks up the accounts that were not done; INTEREST_RUN records which
+// runs completed so a finished one is not even scanned again.
+//
+// Every node schedules the job, so a run is claimed by inserting its INTEREST_RUN row: the node
+// whose insert wins does the work and the others see it in progress. A FAILED run, or a RUNNING one
+// older than interest.claim-timeout-minutes (its node died before it could mark it), is taken over.
+@Service
+@Slf4j
+public class InterestAccrualService {
+
+    public record Result(String run, String state, int ranges, long accounts, long amountMinor, long elapsedMillis) {
+    }
+
+    static final long UNITS_PER_CENT = 10_000;
+    static final String IN_PROGRESS = "IN_PROGRESS";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher events;
+    private final boolean scheduled;
+    private final long rateBps;
+    private final int daysInYear;
+    private final int rangeSize;
+    private final int parallelism;
+    private final int fetchSize;
+    private final Duration claimTimeout;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public InterestAccrualService(JdbcTemplate jdbc,
+                                  PlatformTransactionManager transactionManager,
+                                  ApplicationEventPublisher events,
+                                  @Value("${interest.enabled:false}") boolean scheduled,
+                                  @Value("${interest.annual-rate-bps:350}") long rateBps,
+                                  @Value("${interest.days-in-year:365}") int daysInYear,
+                                  @Value("${interest.range-size:2000}") int rangeSize,
+                                  @Value("${interest.parallelism:4}") int parallelism,
+                                  @Value("${interest.fetch-size:1000}") int fetchSize,
+                                  @Value("${interest.claim-timeout-minutes:180}") long claimTimeoutMinutes) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.events = events;
+        this.scheduled = scheduled;
+        this.rateBps = rateBps;
+        this.daysInYear = daysInYear;
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.fetchSize = fetchSize;
+        this.claimTimeout = Duration.ofMinutes(claimTimeoutMinutes);
+    }
+
+    // Accrues yesterday; after the last day of a month, also posts that month
+    @Scheduled(cron = "${interest.cron:0 15 0 * * *}")
+    public void nightly() {
+        if (!scheduled) {
+            return;
+        }
+        var day = LocalDate.now().minusDays(1);
+        var accrued = accrue(day);
+        // the node accruing the last day posts the month once it is done
+        if (!IN_PROGRESS.equals(accrued.state()) && day.getDayOfMonth() == day.lengthOfMonth()) {
+            post(YearMonth.from(day));
+        }
+    }
+
+    // Interest for one day, in 1/10000 cent; non-positive balances earn nothing
+    static long dailyAccrual(long balanceCents, long rateBps, int daysInYear) {
+        return balanceCents <= 0 ? 0 : Math.multiplyExact(balanceCents, rateBps) / daysInYear;
+    }
+
+    public Result accrue(LocalDate day) {
+        return runOnce("ACCRUAL:" + day, range -> accrueRange(range, day));
+    }
+
+    public Result post(YearMonth period) {
+        if (!period.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Only closed months can be posted");
+        }
+        return runOnce("POSTING:" + period, range -> postRange(range, period));
+    }
+
+    // work returns {accounts, amount} for its range
+    private Result runOnce(String key, Function<AccountIdRange, long[]> work) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("An interest run is already in progress");
+        }
+        long started = System.currentTimeMillis();
+        try {
+            var claimedAt = Timestamp.from(Instant.ofEpochMilli(started));
+            if (!claim(key, claimedAt)) {
+                var status = jdbc.queryForList("SELECT STATUS FROM INTEREST_RUN WHERE RUN_KEY = ?", String.class, key);
+                if (status.contains("COMPLETED")) {
+                    return new Result(key, "SKIPPED", 0, 0, 0, 0);
+                }
+                log.info("Interest run {} is in progress on another node", key);
+                return new Result(key, IN_PROGRESS, 0, 0, 0, 0);
+            }
+            return execute(key, claimedAt, started, work);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Inserts the run's row, or takes over a failed or abandoned one; false when another node has it
+    private boolean claim(String key, Timestamp claimedAt) {
+        try {
+            jdbc.update("INSERT INTO INTEREST_RUN (RUN_KEY, STATUS, STARTED_AT) VALUES (?, 'RUNNING', ?)", key, claimedAt);
+            return true;
+        } catch (DuplicateKeyException ex) {
+            var abandoned = Timestamp.from(claimedAt.toInstant().minus(claimTimeout));
+            return jdbc.update("UPDATE INTEREST_RUN SET STATUS = 'RUNNING', STARTED_AT = ?, COMPLETED_AT = NULL " +
+                    "WHERE RUN_KEY = ? AND (STATUS = 'FAILED' OR (STATUS = 'RUNNING' AND STARTED_AT < ?))",
+                    claimedAt, key, abandoned) == 1;
+        }
+    }
+
+    // STARTED_AT identifies this node's claim, so a run that was taken over does not overwrite the row
+    private Result execute(String key, Timestamp claimedAt, long started, Function<AccountIdRange, long[]> work) {
+        try {
+            var ranges = AccountIdRange.plan(jdbc, rangeSize, fetchSize);
+            var accounts = new AtomicLong();
+            var amount = new AtomicLong();
+            var done = new AtomicInteger();
+            var pool = new ForkJoinPool(parallelism);
+            try {
+                pool.submit(() -> ranges.parallelStream().forEach(range -> {
+                    var r = tx.execute(s -> work.apply(range));
+                    accounts.addAndGet(r[0]);
+                    amount.addAndGet(r[1]);
+                    done.incrementAndGet();
+                })).get();
+            } catch (ExecutionException ex) {
+                throw ex.getCause() instanceof RuntimeException re ? re : new IllegalStateException(ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interest run " + key + " interrupted after " + done.get() + " ranges", ex);
+            } finally {
+                pool.shutdown();
+            }
+
+            jdbc.update("UPDATE INTEREST_RUN SET STATUS = 'COMPLETED', COMPLETED_AT = ?, ACCOUNTS = ?, AMOUNT_MINOR = ? " +
+                    "WHERE RUN_KEY = ? AND STARTED_AT = ?", Timestamp.from(Instant.now()), accounts.get(), amount.get(),
+                    key, claimedAt);
+            var result = new Result(key, "COMPLETED", ranges.size(), accounts.get(), amount.get(),
+                    System.currentTimeMillis() - started);
+            log.info("Interest run {} completed: {} accounts, {} minor units, {} ranges in {} ms",
+                    key, result.accounts(), result.amountMinor(), result.ranges(), result.elapsedMillis());
+            return result;
+        } catch (RuntimeException ex) {
+            log.error("Interest run {} failed; re-running it continues where it stopped", key, ex);
+            jdbc.update("UPDATE INTEREST_RUN SET STATUS = 'FAILED' WHERE RUN_KEY = ? AND STARTED_AT = ?", key, claimedAt);
+            throw ex;
+        }
+    }
+
+    private long[] accrueRange(AccountIdRange range, LocalDate day) {
+        var batch = new LongPairs();
+        jdbc.query(con -> {
+            var ps = con.prepareStatement(
+                    "SELECT a.ID, ROUND(a.BALANCE * 100), r.LAST_ACCRUAL_DATE FROM ACCOUNT a " +
+                            "LEFT JOIN ACCOUNT_ACCRUAL r ON r.ACCOUNT_ID = a.ID " +
+                            "WHERE a.ID BETWEEN ? AND ? AND a.STATUS = 'ACTIVE' " +
+                            "AND (r.LAST_ACCRUAL_DATE IS NULL OR r.LAST_ACCRUAL_DATE < ?)");
+            ps.setLong(1, range.from());
+            ps.setLong(2, range.to());
+            ps.setDate(3, Date.valueOf(day));
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            var last = rs.getDate(3);
+            // catch up on days a missed run skipped, at today's balance
+            long days = last == null ? 1 : ChronoUnit.DAYS.between(last.toLocalDate(), day);
+            batch.add(rs.getLong(1), dailyAccrual(rs.getLong(2), rateBps, daysInYear) * days);
+        });
+        if (batch.size == 0) {
+            return new long[]{0, 0};
+        }
+
+        var date = Date.valueOf(day);
+        jdbc.batchUpdate("MERGE INTO ACCOUNT_ACCRUAL r USING DUAL ON (r.ACCOUNT_ID = ?) " +
+                "WHEN MATCHED THEN UPDATE SET r.ACCRUED = r.ACCRUED + ?, r.LAST_ACCRUAL_DATE = ? " +
+                "WHERE r.LAST_ACCRUAL_DATE IS NULL OR r.LAST_ACCRUAL_DATE < ? " +
+                "WHEN NOT MATCHED THEN INSERT (ACCOUNT_ID, ACCRUED, LAST_ACCRUAL_DATE) VALUES (?, ?, ?)", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, batch.keys[i]);
+                ps.setLong(2, batch.values[i]);
+                ps.setDate(3, date);
+                ps.setDate(4, date);
+                ps.setLong(5, batch.keys[i]);
+                ps.setLong(6, batch.values[i]);
+                ps.setDate(7, date);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size;
+            }
+        });
+        return new long[]{batch.size, batch.sum()};
+    }
+
+    private long[] postRange(AccountIdRange range, YearMonth period) {
+        int periodKey = period.getYear() * 100 + period.getMonthValue();
+        var cents = new LongPairs();
+        var balances = new LongPairs();
+        var numbers = new ArrayList<String>();
+        // locks the accounts being credited until the range commits
+        jdbc.query(con -> {
+            var ps = con.prepareStatement(
+                    "SELECT a.ID, a.ACCOUNT_NUMBER, ROUND(a.BALANCE * 100), r.ACCRUED FROM ACCOUNT a " +
+                            "JOIN ACCOUNT_ACCRUAL r ON r.ACCOUNT_ID = a.ID " +
+                            "WHERE a.ID BETWEEN ? AND ? AND a.STATUS = 'ACTIVE' AND r.ACCRUED >= ? " +
+                            "AND (r.LAST_POSTED_PERIOD IS NULL OR r.LAST_POSTED_PERIOD < ?) FOR UPDATE");
+            ps.setLong(1, range.from());
+            ps.setLong(2, range.to());
+            ps.setLong(3, UNITS_PER_CENT);
+            ps.setInt(4, periodKey);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            long id = rs.getLong(1);
+            numbers.add(rs.getString(2));
+            balances.add(id, rs.getLong(3));
+            cents.add(id, rs.getLong(4) / UNITS_PER_CENT);
+        });
+        int n = cents.size;
+        if (n == 0) {
+            return new long[]{0, 0};
+        }
+
+        List<Long> txnIds = jdbc.queryForList("SELECT TXN_SEQ.NEXTVAL FROM DUAL CONNECT BY LEVEL <= ?", Long.class, n);
+        var now = Instant.now();
+        var occurredAt = Timestamp.from(now);
+        var description = "Interest " + period;
+        var amounts = new BigDecimal[n];
+        for (int i = 0; i < n; i++) {
+            amounts[i] = BigDecimal.valueOf(cents.values[i], 2);
+        }
+
+        jdbc.batchUpdate("INSERT INTO TXN (ID, ACCOUNT_ID, TYPE, AMOUNT, DESCRIPTION, OCCURRED_AT) " +
+                "VALUES (?, ?, 'INTEREST', ?, ?, ?)", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, txnIds.get(i));
+                ps.setLong(2, cents.keys[i]);
+                ps.setBigDecimal(3, amounts[i]);
+                ps.setString(4, description);
+                ps.setTimestamp(5, occurredAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return n;
+            }
+        });
+        // the FOR UPDATE above holds the rows until commit; AccountService takes the same lock before
+        // reading a balance, so a concurrent deposit cannot write over the posted interest
+        jdbc.batchUpdate("UPDATE ACCOUNT SET BALANCE = BALANCE + ? WHERE ID = ?", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setBigDecimal(1, amounts[i]);
+                ps.setLong(2, cents.keys[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return n;
+            }
+        });
+        jdbc.batchUpdate("UPDATE ACCOUNT_ACCRUAL SET ACCRUED = ACCRUED - ?, LAST_POSTED_PERIOD = ? WHERE ACCOUNT_ID = ?",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, cents.values[i] * UNITS_PER_CENT);
+                        ps.setInt(2, periodKey);
+                        ps.setLong(3, cents.keys[i]);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return n;
+                    }
+                });
+
+        // same notifications as any other posting; listeners act once the range commits
+        for (int i = 0; i < n; i++) {
+            events.publishEvent(new TransactionPostedEvent(txnIds.get(i), cents.keys[i], numbers.get(i), "INTEREST",
+                    amounts[i], null, description, null, now,
+                    BigDecimal.valueOf(balances.values[i] + cents.values[i], 2)));
+        }
+        return new long[]{n, cents.sum()};
+    }
+
+    // Growable parallel long arrays, so a range's batch is not boxed row by row
+    private static final class LongPairs {
+        long[] keys = new long[256];
+        long[] values = new long[256];
+        int size;
+
+        void add(long key, long value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = key;
+            values[size] = value;
+            size++;
+        }
+
+        long sum() {
+            long total = 0;
+            for (int i = 0; i < size; i++) {
+                total += values[i];
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.bankingmini.account;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// One row per accrual day (ACCRUAL:yyyy-MM-dd) or posting month (POSTING:yyyy-MM)
+@Entity
+@Table(name = "INTEREST_RUN")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterestRun {
+    @Id
+    @Column(name = "RUN_KEY")
+    private String runKey;
+
+    @Column(name = "STATUS", nullable = false)
+    private String status; // RUNNING, COMPLETED, FAILED
+
+    @Column(name = "STARTED_AT", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "COMPLETED_AT")
+    private Instant completedAt;
+
+    @Column(name = "ACCOUNTS")
+    private Long accounts;
+
+    @Column(name = "AMOUNT_MINOR")
+    private Long amountMinor; // accrued in 1/10000 cent, or posted in cents
+}
@@ -0,0 +1,165 @@
+package com.example.bankingmini.account;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Sorted, de-duplicated list of transaction ids backed by a primitive long[].
+// Ids come from TXN_SEQ so new postings almost always land at the tail (O(1) append).
+class LongPostingList {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] ids;
+    private int size;
+
+    LongPostingList() {
+        this.ids = EMPTY;
+    }
+
+    private LongPostingList(long[] ids, int size) {
+        this.ids = ids;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long get(int i) {
+        return ids[i];
+    }
+
+    // returns true when the id was not already present
+    boolean add(long id) {
+        if (size == 0 || id > ids[size - 1]) {
+            ensureCapacity(size + 1);
+            ids[size++] = id;
+            return true;
+        }
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+            return false;
+        }
+        int insertAt = -pos - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+        return true;
+    }
+
+    boolean remove(long id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+        if (size == 0) {
+            ids = EMPTY;
+        }
+        return true;
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(4, Math.max(needed, ids.length + (ids.length >> 1))));
+        }
+    }
+
+    // k-way merge of sorted lists, used to combine every term that matches a prefix. A binary heap
+    // of list indexes keyed by each list's next id, so the cost is total * log(k) with no sort.
+    static LongPostingList union(List<LongPostingList> lists) {
+        if (lists.isEmpty()) {
+            return new LongPostingList();
+        }
+        if (lists.size() == 1) {
+            var only = lists.get(0);
+            return new LongPostingList(only.toArray(), only.size);
+        }
+        var sources = lists.toArray(new LongPostingList[0]);
+        int[] cursor = new int[sources.length];
+        int[] heap = new int[sources.length];
+        int heapSize = 0;
+        int total = 0;
+        for (int i = 0; i < sources.length; i++) {
+            total += sources[i].size;
+            if (sources[i].size > 0) {
+                heap[heapSize++] = i;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, sources, cursor);
+        }
+
+        long[] merged = new long[total];
+        int n = 0;
+        while (heapSize > 0) {
+            int top = heap[0];
+            long id = sources[top].ids[cursor[top]++];
+            if (n == 0 || merged[n - 1] != id) {
+                merged[n++] = id;
+            }
+            if (cursor[top] == sources[top].size) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(heap, heapSize, 0, sources, cursor);
+        }
+        return new LongPostingList(merged, n);
+    }
+
+    private static void siftDown(int[] heap, int heapSize, int i, LongPostingList[] sources, int[] cursor) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < heapSize && head(heap[left], sources, cursor) < head(heap[smallest], sources, cursor)) {
+                smallest = left;
+            }
+            if (right < heapSize && head(heap[right], sources, cursor) < head(heap[smallest], sources, cursor)) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            int tmp = heap[i];
+            heap[i] = heap[smallest];
+            heap[smallest] = tmp;
+            i = smallest;
+        }
+    }
+
+    private static long head(int list, LongPostingList[] sources, int[] cursor) {
+        return sources[list].ids[cursor[list]];
+    }
+
+    static LongPostingList intersect(LongPostingList a, LongPostingList b) {
+        long[] out = new long[Math.min(a.size, b.size)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.size && j < b.size) {
+            long x = a.ids[i], y = b.ids[j];
+            if (x == y) {
+                out[n++] = x;
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return new LongPostingList(out, n);
+    }
+
+    long estimatedBytes() {
+        return 16L + 8L * ids.length;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.bankingmini.account;
+
+import com.example.bankingmini.common.NotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-account ring buffer of the most recent postings plus the current balance, so the
+// mini-statement and balance endpoints are answered from memory after the first read.
+//
+// Entries are kept current by this node's commit events only; postings made on another node never
+// reach them. Each entry is therefore re-read once it is older than mini-statement.cache.ttl-ms,
+// which bounds how stale a balance changed elsewhere can be.
+@Component
+public class MiniStatementCache {
+
+    public static final int SIZE = 5;
+
+    public record Snapshot(Long accountId, Long customerId, BigDecimal balance, List<AccountDtos.TxnItem> recent) {
+    }
+
+    private final AccountRepository accounts;
+    private final TransactionRepository txns;
+    private final LinkedHashMap<String, RecentPostings> cache;
+    private final long ttlMillis;
+
+    public MiniStatementCache(AccountRepository accounts,
+                              TransactionRepository txns,
+                              @Value("${mini-statement.cache.max-accounts:10000}") int maxAccounts,
+                              @Value("${mini-statement.cache.ttl-ms:5000}") long ttlMillis) {
+        this.accounts = accounts;
+        this.txns = txns;
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RecentPostings> eldest) {
+                return size() > maxAccounts;
+            }
+        };
+    }
+
+    public Snapshot get(String accountNumber) {
+        RecentPostings entry;
+        boolean loader = false;
+        synchronized (cache) {
+            entry = cache.get(accountNumber);
+            if (entry == null || entry.expired(System.currentTimeMillis() - ttlMillis)) {
+                entry = new RecentPostings();
+                cache.put(accountNumber, entry);
+                loader = true;
+            }
+        }
+        if (!loader) {
+            var snapshot = entry.snapshot();
+            if (snapshot != null) {
+                return snapshot;
+            }
+            // someone else is filling this entry right now; answer from the database meanwhile
+            return read(accountNumber).snapshot();
+        }
+
+        RecentPostings loaded;
+        try {
+            loaded = read(accountNumber);
+        } catch (RuntimeException ex) {
+            remove(accountNumber, entry);
+            throw ex;
+        }
+        if (!entry.fill(loaded)) {
+            // a posting committed while we were reading, so what we read may already be behind
+            remove(accountNumber, entry);
+        }
+        return loaded.snapshot();
+    }
+
+    // Runs synchronously in the posting thread, right after AccountService's transaction commits.
+    @TransactionalEventListener
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        RecentPostings entry;
+        synchronized (cache) {
+            entry = cache.get(event.accountNumber());
+        }
+        if (entry == null) {
+            return;
+        }
+        var item = new AccountDtos.TxnItem(event.type(), event.amount(), event.occurredAt().toString());
+        if (!entry.append(event.transactionId(), item, event.balanceAfter())) {
+            remove(event.accountNumber(), entry);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onBalanceChanged(AccountBalanceChangedEvent event) {
+        evict(event.accountNumber());
+    }
+
+    public void evict(String accountNumber) {
+        synchronized (cache) {
+            cache.remove(accountNumber);
+        }
+    }
+
+    private void remove(String accountNumber, RecentPostings entry) {
+        synchronized (cache) {
+            cache.remove(accountNumber, entry);
+        }
+    }
+
+    private RecentPostings read(String accountNumber) {
+        var acc = accounts.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new NotFoundException("Account not found: " + accountNumber));
+        var latest = txns.findTop5ByAccountOrderByOccurredAtDesc(acc);
+
+        var loaded = new RecentPostings();
+        loaded.accountId = acc.getId();
+        loaded.customerId = acc.getCustomer().getId();
+        loaded.balance = acc.getBalance();
+        loaded.ready = true;
+        // the query returns newest first, the ring is filled oldest first
+        for (int i = latest.size() - 1; i >= 0; i--) {
+            var t = latest.get(i);
+            loaded.push(t.getId(), new AccountDtos.TxnItem(t.getType(), t.getAmount(), t.getOccurredAt().toString()));
+        }
+        return loaded;
+    }
+
+    private static final class RecentPostings {
+
+        private final AccountDtos.TxnItem[] ring = new AccountDtos.TxnItem[SIZE];
+        private int head; // next slot to write
+        private int count;
+        private long lastTxnId;
+        private Long accountId;
+        private Long customerId;
+        private BigDecimal balance;
+        private boolean ready;
+        private boolean missedPosting;
+        private long loadedAt;
+
+        synchronized boolean fill(RecentPostings loaded) {
+            if (missedPosting) {
+                return false;
+            }
+            System.arraycopy(loaded.ring, 0, ring, 0, SIZE);
+            head = loaded.head;
+            count = loaded.count;
+            lastTxnId = loaded.lastTxnId;
+            accountId = loaded.accountId;
+            customerId = loaded.customerId;
+            balance = loaded.balance;
+            loadedAt = System.currentTimeMillis();
+            ready = true;
+            return true;
+        }
+
+        // filled before the cutoff; an entry still being filled is left to its loader
+        synchronized boolean expired(long cutoff) {
+            return ready && loadedAt < cutoff;
+        }
+
+        // false means the entry can no longer be trusted and should be dropped
+        synchronized boolean append(Long txnId, AccountDtos.TxnItem item, BigDecimal balanceAfter) {
+            if (!ready) {
+                missedPosting = true;
+                return true;
+            }
+            // postings from concurrent transactions can commit out of order; re-read rather than guess
+            if (txnId == null || txnId <= lastTxnId || balanceAfter == null) {
+                return false;
+            }
+            push(txnId, item);
+            balance = balanceAfter;
+            return true;
+        }
+
+        private void push(Long txnId, AccountDtos.TxnItem item) {
+            ring[head] = item;
+            head = (head + 1) % SIZE;
+            count = Math.min(count + 1, SIZE);
+            lastTxnId = Math.max(lastTxnId, txnId);
+        }
+
+        synchronized Snapshot snapshot() {
+            if (!ready) {
+                return null;
+            }
+            List<AccountDtos.TxnItem> recent = new ArrayList<>(count);
+            for (int i = 1; i <= count; i++) {
+                recent.add(ring[(head - i + SIZE) % SIZE]);
+            }
+            return new Snapshot(accountId, customerId, balance, recent);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.bankingmini.account;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// One row per scheduled reconciliation (NIGHTLY:yyyy-MM-dd); inserting it claims the run for one node
+@Entity
+@Table(name = "RECONCILIATION_RUN")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationRun {
+    @Id
+    @Column(name = "RUN_KEY")
+    private String runKey;
+
+    @Column(name = "STATUS", nullable = false)
+    private String status; // RUNNING, COMPLETED, FAILED
+
+    @Column(name = "STARTED_AT", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "COMPLETED_AT")
+    private Instant completedAt;
+
+    @Column(name = "ACCOUNTS")
+    private Long accounts;
+
+    @Column(name = "DISCREPANCIES")
+    private Long discrepancies;
+
+    @Column(name = "REPORT", length = 500)
+    private String report;
+}
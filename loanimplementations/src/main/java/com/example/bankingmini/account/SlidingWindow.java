@@ -0,0 +1,90 @@
+package com.example.bankingmini.account;
+
+// Amounts (in cents) over the last 24 hours in per-minute buckets, with running totals for the
+// rolling day and hour. Only minutes with activity take a bucket, and expired buckets are dropped
+// from the front as time moves on, so a check touches a handful of longs. Not thread-safe.
+final class SlidingWindow {
+
+    static final int DAY_MINUTES = 24 * 60;
+    static final int HOUR_MINUTES = 60;
+
+    private long[] minutes = new long[8];
+    private long[] amounts = new long[8];
+    private int head;
+    private int size;
+    private int hourStart; // buckets from head that are older than the hour window
+    private long day;
+    private long hour;
+
+    // reservations whose transaction has not completed; a window holding any is not evicted
+    int inFlight;
+
+    long day(long nowMinute) {
+        expire(nowMinute);
+        return day;
+    }
+
+    long hour(long nowMinute) {
+        expire(nowMinute);
+        return hour;
+    }
+
+    // A negative amount undoes an earlier add and goes into that add's bucket, normally the last one
+    void add(long minute, long cents) {
+        int i = size - 1;
+        while (i >= 0 && minutes[slot(i)] > minute) {
+            i--;
+        }
+        int target;
+        if (i >= 0 && minutes[slot(i)] == minute) {
+            target = i;
+        } else if (i < size - 1) {
+            target = i + 1; // that minute has no bucket; use the next one
+        } else {
+            if (size == minutes.length) {
+                grow();
+            }
+            target = size++;
+            minutes[slot(target)] = minute;
+            amounts[slot(target)] = 0;
+        }
+        amounts[slot(target)] += cents;
+        day += cents;
+        if (target >= hourStart) {
+            hour += cents;
+        }
+    }
+
+    private int slot(int index) {
+        return (head + index) & (minutes.length - 1);
+    }
+
+    private void expire(long nowMinute) {
+        while (size > 0 && minutes[head] <= nowMinute - DAY_MINUTES) {
+            day -= amounts[head];
+            if (hourStart > 0) {
+                hourStart--;
+            } else {
+                hour -= amounts[head];
+            }
+            head = (head + 1) & (minutes.length - 1);
+            size--;
+        }
+        while (hourStart < size && minutes[slot(hourStart)] <= nowMinute - HOUR_MINUTES) {
+            hour -= amounts[slot(hourStart)];
+            hourStart++;
+        }
+    }
+
+    private void grow() {
+        var m = new long[minutes.length * 2];
+        var a = new long[amounts.length * 2];
+        for (int i = 0; i < size; i++) {
+            m[i] = minutes[slot(i)];
+            a[i] = amounts[slot(i)];
+        }
+        minutes = m;
+        amounts = a;
+        head = 0;
+    }
+}
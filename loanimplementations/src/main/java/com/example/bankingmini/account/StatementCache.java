@@ -0,0 +1,194 @@
+package com.example.bankingmini.account;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded LRU of generated statements keyed by account, period and format.
+// Accounts share a fixed table of posting counters, picked by account id; an entry is only
+// stored if its account's counter did not move while it was being computed, and a later posting
+// dated before the end of a cached period removes that entry. A posting to another account on the
+// same counter only costs a spurious miss, and the table does not grow with the number of accounts.
+//
+// Counters and invalidation only see this node's postings, so an entry is also dropped once it is
+// older than statement.cache.ttl-ms; that bounds how long a posting made on another node can be missing.
+@Component
+public class StatementCache {
+
+    public record Key(Long accountId, LocalDate fromDate, LocalDate toDate, boolean csv) {
+    }
+
+    private record Entry(AccountDtos.StatementResponse response, long watermark, Instant rangeEnd, long bytes,
+                         long storedAt) {
+    }
+
+    private static final int WATERMARK_SLOTS = 1 << 16;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Set<Key>> keysByAccount = new HashMap<>();
+    private final AtomicLongArray watermarks = new AtomicLongArray(WATERMARK_SLOTS);
+    private long bytes; // guarded by entries
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public StatementCache(MeterRegistry registry,
+                          @Value("${statement.cache.max-entries:5000}") int maxEntries,
+                          @Value("${statement.cache.max-bytes:33554432}") long maxBytes,
+                          @Value("${statement.cache.ttl-ms:60000}") long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+
+        FunctionCounter.builder("statement.cache.requests", hits, AtomicLong::get).tag("result", "hit").register(registry);
+        FunctionCounter.builder("statement.cache.requests", misses, AtomicLong::get).tag("result", "miss").register(registry);
+        FunctionCounter.builder("statement.cache.invalidations", invalidations, AtomicLong::get).register(registry);
+        FunctionCounter.builder("statement.cache.evictions", evictions, AtomicLong::get).register(registry);
+        Gauge.builder("statement.cache.hit.ratio", this, StatementCache::hitRatio).register(registry);
+        Gauge.builder("statement.cache.entries", this, StatementCache::size).register(registry);
+        Gauge.builder("statement.cache.memory", this, StatementCache::estimatedBytes).baseUnit("bytes").register(registry);
+    }
+
+    public long watermark(Long accountId) {
+        return watermarks.get(slot(accountId));
+    }
+
+    public Optional<AccountDtos.StatementResponse> get(Key key) {
+        synchronized (entries) {
+            var entry = entries.get(key);
+            if (entry != null && entry.storedAt() >= System.currentTimeMillis() - ttlMillis) {
+                hits.incrementAndGet();
+                return Optional.of(entry.response());
+            }
+            if (entry != null) {
+                // expired; the recomputed statement replaces it in put
+                entries.remove(key);
+                bytes -= entry.bytes();
+                unindex(key);
+            }
+        }
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    // watermark is the value read before the statement was computed
+    public void put(Key key, AccountDtos.StatementResponse response, long watermark, Instant rangeEnd) {
+        var entry = new Entry(response, watermark, rangeEnd, estimateBytes(response), System.currentTimeMillis());
+        synchronized (entries) {
+            if (watermark(key.accountId()) != watermark) {
+                return;
+            }
+            var previous = entries.put(key, entry);
+            if (previous != null) {
+                bytes -= previous.bytes();
+            }
+            bytes += entry.bytes();
+            keysByAccount.computeIfAbsent(key.accountId(), id -> new HashSet<>()).add(key);
+            evictIfNeeded();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        watermarks.incrementAndGet(slot(event.accountId()));
+        synchronized (entries) {
+            var keys = keysByAccount.get(event.accountId());
+            if (keys == null) {
+                return;
+            }
+            for (var it = keys.iterator(); it.hasNext(); ) {
+                var key = it.next();
+                var entry = entries.get(key);
+                // a posting before the period end changes either the lines or the opening balance
+                if (entry == null || event.occurredAt().isBefore(entry.rangeEnd())) {
+                    if (entry != null) {
+                        entries.remove(key);
+                        bytes -= entry.bytes();
+                        invalidations.incrementAndGet();
+                    }
+                    it.remove();
+                }
+            }
+            if (keys.isEmpty()) {
+                keysByAccount.remove(event.accountId());
+            }
+        }
+    }
+
+    public double hitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long estimatedBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            var eldest = it.next();
+            it.remove();
+            bytes -= eldest.getValue().bytes();
+            unindex(eldest.getKey());
+            evictions.incrementAndGet();
+        }
+    }
+
+    // caller holds entries
+    private void unindex(Key key) {
+        var keys = keysByAccount.get(key.accountId());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByAccount.remove(key.accountId());
+            }
+        }
+    }
+
+    private static int slot(Long accountId) {
+        return Math.floorMod(accountId.hashCode(), WATERMARK_SLOTS);
+    }
+
+    // rough heap footprint: UTF-16 payload plus per-line object overhead
+    private static long estimateBytes(AccountDtos.StatementResponse response) {
+        long size = 256;
+        if (response.payload() != null) {
+            size += 2L * response.payload().length();
+        }
+        for (var line : response.lines()) {
+            size += 160 + 2L * (line.occurredAt().length() + line.type().length() + line.refAccount().length());
+        }
+        return size;
+    }
+}
@@ -1,36 +1,91 @@
 package com.example.bankingmini.account;
 
+import com.example.bankingmini.archive.TxnArchive;
+import com.example.bankingmini.common.Money;
 import com.example.bankingmini.common.NotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.*;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class StatementService {
     private final AccountRepository accounts;
     private final TransactionRepository txns;
+    private final StatementCache cache;
+    private final TxnArchive archive;
 
-    private BigDecimal apply(BigDecimal bal, TransactionEntity t) {
-        return switch (t.getType()) {
-            case "DEPOSIT", "TRANSFER_IN" -> bal.add(t.getAmount());
-            case "WITHDRAW", "TRANSFER_OUT" -> bal.subtract(t.getAmount());
+    private static long apply(long balMinor, TransactionEntity t) {
+        return apply(balMinor, t.getType(), Money.minorUnits(t.getAmount()));
+    }
+
+    // SQL form of apply() for set-based sums over TXN; keep the two in step
+    static final String SIGNED_AMOUNT_SQL =
+            "CASE WHEN TYPE IN ('DEPOSIT', 'TRANSFER_IN', 'LOAN_DISBURSAL', 'INTEREST') THEN AMOUNT " +
+                    "WHEN TYPE IN ('WITHDRAW', 'TRANSFER_OUT', 'EMI_DEBIT') THEN -AMOUNT ELSE 0 END";
+
+    static BigDecimal apply(BigDecimal bal, String type, BigDecimal amount) {
+        return switch (type) {
+            case "DEPOSIT", "TRANSFER_IN", "LOAN_DISBURSAL", "INTEREST" -> bal.add(amount);
+            case "WITHDRAW", "TRANSFER_OUT", "EMI_DEBIT" -> bal.subtract(amount);
             default -> bal;
         };
     }
 
-    private BigDecimal computeOpening(Account acc, LocalDate from) {
-        var fromTs = from.atStartOfDay(ZoneId.systemDefault()).toInstant();
-        var history = txns.findByAccountAndOccurredAtBeforeOrderByOccurredAtAsc(acc, fromTs);
-        var bal = BigDecimal.ZERO;
-        for (var t : history) {
-            bal = apply(bal, t);
+    // apply() on cents, for folding long histories without a BigDecimal per row
+    static long apply(long balMinor, String type, long amountMinor) {
+        return switch (type) {
+            case "DEPOSIT", "TRANSFER_IN", "LOAN_DISBURSAL", "INTEREST" -> Money.add(balMinor, amountMinor);
+            case "WITHDRAW", "TRANSFER_OUT", "EMI_DEBIT" -> Money.subtract(balMinor, amountMinor);
+            default -> balMinor;
+        };
+    }
+
+    private record Period(BigDecimal opening, BigDecimal closing, List<AccountDtos.StatementLine> lines) {
+    }
+
+    // TXN only holds rows from the archive cutoff on; anything older comes from the archive segments
+    private Period readPeriod(Account acc, Instant fromTs, Instant toTs, Instant cutoff) {
+        long opening = 0;
+        for (var t : archive.find(acc.getId(), Instant.EPOCH, earlier(fromTs, cutoff))) {
+            opening = apply(opening, t.type(), Money.minorUnits(t.amount()));
+        }
+        for (var t : txns.findByAccountInRange(acc, cutoff, fromTs)) {
+            opening = apply(opening, t);
+        }
+
+        var closing = opening;
+        List<AccountDtos.StatementLine> lines = new ArrayList<>();
+        for (var t : archive.find(acc.getId(), fromTs, earlier(toTs, cutoff))) {
+            closing = apply(closing, t.type(), Money.minorUnits(t.amount()));
+            lines.add(line(t.occurredAt(), t.type(), t.amount(), t.refAccountId()));
+        }
+        for (var t : txns.findByAccountInRange(acc, later(fromTs, cutoff), toTs)) {
+            closing = apply(closing, t);
+            lines.add(line(t.getOccurredAt(), t.getType(), t.getAmount(), t.getRefAccountId()));
         }
-        return bal;
+        return new Period(Money.toBigDecimal(opening), Money.toBigDecimal(closing), lines);
+    }
+
+    private static AccountDtos.StatementLine line(Instant occurredAt, String type, BigDecimal amount, Long refAccountId) {
+        return new AccountDtos.StatementLine(
+                occurredAt.toString(),
+                type,
+                amount,
+                refAccountId == null ? "" : String.valueOf(refAccountId)
+        );
+    }
+
+    private static Instant earlier(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static Instant later(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
     }
 
     public AccountDtos.StatementResponse generate(AccountDtos.StatementRequest req, Long userId) {
@@ -46,32 +101,28 @@ public class StatementService {
             throw new IllegalArgumentException("toDate must be on/after fromDate");
         }
 
-        var opening = computeOpening(acc, req.fromDate());
+        var key = new StatementCache.Key(acc.getId(), req.fromDate(), req.toDate(), req.csv());
+        var cached = cache.get(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        // read before computing so a posting that lands mid-computation keeps the result out of the cache
+        long watermark = cache.watermark(acc.getId());
+
         var fromTs = req.fromDate().atStartOfDay(ZoneId.systemDefault()).toInstant();
         var toTs = req.toDate().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
 
-        var lines = txns.findByAccountAndOccurredAtBetweenOrderByOccurredAtAsc(acc, fromTs, toTs);
-
-        var closing = opening;
-        for (var t : lines) {
-            closing = apply(closing, t);
-        }
-
-        var mapped = lines.stream().map(t ->
-                new AccountDtos.StatementLine(
-                        t.getOccurredAt().toString(),
-                        t.getType(),
-                        t.getAmount(),
-                        t.getRefAccountId() == null ? "" : String.valueOf(t.getRefAccountId())
-                )
-        ).collect(Collectors.toList());
+        var period = archive.readConsistent(cutoff -> readPeriod(acc, fromTs, toTs, cutoff));
+        var opening = period.opening();
+        var closing = period.closing();
+        var mapped = period.lines();
 
         String contentType = req.csv() ? "text/csv" : "text/plain";
         String payload = req.csv()
                 ? toCsv(req.accountNumber(), req.fromDate(), req.toDate(), opening, closing, mapped)
                 : toText(req.accountNumber(), req.fromDate(), req.toDate(), opening, closing, mapped);
 
-        return new AccountDtos.StatementResponse(
+        var response = new AccountDtos.StatementResponse(
                 req.accountNumber(),
                 req.fromDate().toString(),
                 req.toDate().toString(),
@@ -81,6 +132,8 @@ public class StatementService {
                 contentType,
                 payload
         );
+        cache.put(key, response, watermark, toTs);
+        return response;
     }
 
     @Deprecated
@@ -88,7 +141,7 @@ public class StatementService {
         throw new IllegalArgumentException("Unauthorized access: User ID required");
     }
 
-    private String toCsv(String acc, LocalDate from, LocalDate to,
+    static String toCsv(String acc, LocalDate from, LocalDate to,
                          BigDecimal opening, BigDecimal closing, List<AccountDtos.StatementLine> lines) {
         var sb = new StringBuilder();
         sb.append("Account,From,To,Opening,Closing\n");
@@ -103,7 +156,7 @@ public class StatementService {
         return sb.toString();
     }
 
-    private String toText(String acc, LocalDate from, LocalDate to,
+    static String toText(String acc, LocalDate from, LocalDate to,
                           BigDecimal opening, BigDecimal closing, List<AccountDtos.StatementLine> lines) {
         var sb = new StringBuilder();
         sb.append("Statement for ").append(acc).append("\n")
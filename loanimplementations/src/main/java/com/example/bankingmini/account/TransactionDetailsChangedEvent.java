@@ -0,0 +1,13 @@
+package com.example.bankingmini.account;
+
+// Raised when a customer edits the description or category of a posted transaction.
+// Carries the previous values so indexes can drop stale terms without re-reading the row.
+public record TransactionDetailsChangedEvent(
+        Long transactionId,
+        Long accountId,
+        String oldDescription,
+        String oldCategory,
+        String newDescription,
+        String newCategory
+) {
+}
@@ -31,6 +31,7 @@ class TransactionSearchCriteria {
     private BigDecimal maxAmount;
     private String type;
     private String category;
+    private String query; // free-text words matched by prefix against description and category
 }
 
 @Data
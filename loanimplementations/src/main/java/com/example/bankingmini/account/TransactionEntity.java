@@ -25,7 +25,7 @@ public class TransactionEntity {
     private Account account;
 
     @Column(name = "TYPE", nullable = false)
-    private String type; // DEPOSIT, WITHDRAW, TRANSFER_OUT, TRANSFER_IN
+    private String type; // DEPOSIT, WITHDRAW, TRANSFER_OUT, TRANSFER_IN, LOAN_DISBURSAL, INTEREST, EMI_DEBIT
 
     @Column(name = "AMOUNT", nullable = false)
     private BigDecimal amount;
@@ -41,4 +41,7 @@ public class TransactionEntity {
 
     @Column(name = "OCCURRED_AT", nullable = false)
     private Instant occurredAt;
+
+    @Column(name = "JOURNAL_ENTRY_ID")
+    private Long journalEntryId; // set when the row was written by the journal
 }
@@ -0,0 +1,34 @@
+package com.example.bankingmini.account;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Published by AccountService for every TXN row it writes; listeners use @TransactionalEventListener
+// so they only ever see postings that actually committed.
+public record TransactionPostedEvent(
+        Long transactionId,
+        Long accountId,
+        String accountNumber,
+        String type,
+        BigDecimal amount,
+        Long refAccountId,
+        String description,
+        String category,
+        Instant occurredAt,
+        BigDecimal balanceAfter
+) {
+    public static TransactionPostedEvent of(TransactionEntity t) {
+        return new TransactionPostedEvent(
+                t.getId(),
+                t.getAccount().getId(),
+                t.getAccount().getAccountNumber(),
+                t.getType(),
+                t.getAmount(),
+                t.getRefAccountId(),
+                t.getDescription(),
+                t.getCategory(),
+                t.getOccurredAt(),
+                t.getAccount().getBalance()
+        );
+    }
+}
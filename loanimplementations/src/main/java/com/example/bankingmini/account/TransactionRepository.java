@@ -39,4 +39,35 @@ public interface TransactionRepository extends JpaRepository<TransactionEntity,
     Page<TransactionEntity> findByAccountIdAndTypeOrderByOccurredAtDesc(Long accountId, String type, Pageable pageable);
     
     Page<TransactionEntity> findByAccountIdAndCategoryOrderByOccurredAtDesc(Long accountId, String category, Pageable pageable);
+
+    // id, description, category - only rows that carry some text are worth loading into the search index
+    @Query("SELECT t.id, t.description, t.category FROM TransactionEntity t WHERE t.account.id = :accountId " +
+            "AND (t.description IS NOT NULL OR t.category IS NOT NULL)")
+    List<Object[]> findSearchableTextByAccountId(@Param("accountId") Long accountId);
+
+    // Variants bounded below by the archive cutoff; rows older than that are read from the archive
+    @Query("SELECT t FROM TransactionEntity t WHERE t.account = :account AND t.occurredAt >= :from AND t.occurredAt < :to " +
+            "ORDER BY t.occurredAt ASC, t.id ASC")
+    List<TransactionEntity> findByAccountInRange(@Param("account") Account account,
+                                                 @Param("from") Instant from,
+                                                 @Param("to") Instant to);
+
+    Page<TransactionEntity> findByAccountIdAndOccurredAtGreaterThanEqualOrderByOccurredAtDesc(Long accountId, Instant since, Pageable pageable);
+
+    @Query("SELECT t FROM TransactionEntity t WHERE t.account.id = :accountId AND t.occurredAt >= :since " +
+            "AND t.amount BETWEEN :minAmount AND :maxAmount ORDER BY t.occurredAt DESC")
+    Page<TransactionEntity> findByAccountIdAndAmountRangeSince(@Param("accountId") Long accountId,
+                                                               @Param("since") Instant since,
+                                                               @Param("minAmount") BigDecimal minAmount,
+                                                               @Param("maxAmount") BigDecimal maxAmount,
+                                                               Pageable pageable);
+
+    Page<TransactionEntity> findByAccountIdAndTypeAndOccurredAtGreaterThanEqualOrderByOccurredAtDesc(Long accountId, String type, Instant since, Pageable pageable);
+
+    Page<TransactionEntity> findByAccountIdAndCategoryAndOccurredAtGreaterThanEqualOrderByOccurredAtDesc(Long accountId, String category, Instant since, Pageable pageable);
+
+    // account id, latest OCCURRED_AT and highest TXN id for each of the customer's accounts that has live TXN rows
+    @Query("SELECT t.account.id, MAX(t.occurredAt), MAX(t.id) FROM TransactionEntity t WHERE t.account.customer.id = :customerId " +
+            "GROUP BY t.account.id")
+    List<Object[]> findLastActivityByCustomerId(@Param("customerId") Long customerId);
 }
@@ -0,0 +1,269 @@
+package com.example.bankingmini.account;
+
+import com.example.bankingmini.archive.TxnArchive;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+// In-memory inverted index over TXN.DESCRIPTION / TXN.CATEGORY, one per recently searched account.
+// Built lazily on the first search, kept current from committed postings and edits, evicted LRU
+// once either the account count or the estimated heap footprint goes over budget.
+@Component
+@Slf4j
+public class TransactionSearchIndex {
+
+    private static final Pattern SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final TransactionRepository txns;
+    private final TxnArchive archive;
+    private final int maxAccounts;
+    private final long maxBytes;
+
+    private final LinkedHashMap<Long, AccountIndex> indexes = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    public TransactionSearchIndex(TransactionRepository txns,
+                                  TxnArchive archive,
+                                  @Value("${search.index.max-accounts:1000}") int maxAccounts,
+                                  @Value("${search.index.max-bytes:67108864}") long maxBytes) {
+        this.txns = txns;
+        this.archive = archive;
+        this.maxAccounts = maxAccounts;
+        this.maxBytes = maxBytes;
+    }
+
+    // Matching transaction ids, newest first. Every query word is treated as a prefix and all words must match.
+    public long[] search(Long accountId, String query) {
+        var words = tokenize(query);
+        if (words.isEmpty()) {
+            return new long[0];
+        }
+        return acquire(accountId).search(words);
+    }
+
+    @TransactionalEventListener
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        update(event.accountId(), idx -> idx.add(event.transactionId(), event.description(), event.category()));
+    }
+
+    @TransactionalEventListener
+    public void onTransactionDetailsChanged(TransactionDetailsChangedEvent event) {
+        update(event.accountId(), idx -> {
+            idx.remove(event.transactionId(), event.oldDescription(), event.oldCategory());
+            idx.add(event.transactionId(), event.newDescription(), event.newCategory());
+        });
+    }
+
+    public void evict(Long accountId) {
+        synchronized (indexes) {
+            var idx = indexes.remove(accountId);
+            if (idx != null) {
+                totalBytes.addAndGet(-idx.evict());
+            }
+        }
+    }
+
+    public int indexedAccounts() {
+        synchronized (indexes) {
+            return indexes.size();
+        }
+    }
+
+    public long estimatedBytes() {
+        return totalBytes.get();
+    }
+
+    private void update(Long accountId, Consumer<AccountIndex> op) {
+        AccountIndex idx;
+        synchronized (indexes) {
+            idx = indexes.get(accountId);
+        }
+        // accounts nobody has searched recently are not worth indexing eagerly
+        if (idx == null) {
+            return;
+        }
+        long delta = idx.apply(op);
+        if (delta != 0) {
+            totalBytes.addAndGet(delta);
+            synchronized (indexes) {
+                evictIfNeeded();
+            }
+        }
+    }
+
+    private AccountIndex acquire(Long accountId) {
+        AccountIndex idx;
+        boolean builder = false;
+        synchronized (indexes) {
+            idx = indexes.get(accountId);
+            if (idx == null) {
+                idx = new AccountIndex();
+                indexes.put(accountId, idx);
+                builder = true;
+                evictIfNeeded();
+            }
+        }
+        if (builder) {
+            build(accountId, idx);
+        }
+        try {
+            idx.ready.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException re ? re : ex;
+        }
+        return idx;
+    }
+
+    private void build(Long accountId, AccountIndex idx) {
+        try {
+            List<Object[]> rows = new ArrayList<>(txns.findSearchableTextByAccountId(accountId));
+            // archived rows are searchable too; a row still waiting to be purged from TXN is simply added twice
+            for (var t : archive.findAll(accountId)) {
+                if (t.description() != null || t.category() != null) {
+                    rows.add(new Object[]{t.id(), t.description(), t.category()});
+                }
+            }
+            totalBytes.addAndGet(idx.load(rows));
+            idx.ready.complete(null);
+            log.debug("Built search index for account {} from {} rows", accountId, rows.size());
+        } catch (RuntimeException ex) {
+            synchronized (indexes) {
+                indexes.remove(accountId, idx);
+            }
+            idx.ready.completeExceptionally(ex);
+        }
+        synchronized (indexes) {
+            evictIfNeeded();
+        }
+    }
+
+    // caller holds the indexes lock; the most recently used index is never evicted
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Long, AccountIndex>> it = indexes.entrySet().iterator();
+        while (indexes.size() > 1 && (indexes.size() > maxAccounts || totalBytes.get() > maxBytes) && it.hasNext()) {
+            var eldest = it.next();
+            it.remove();
+            totalBytes.addAndGet(-eldest.getValue().evict());
+        }
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> out = new LinkedHashSet<>();
+        if (text == null || text.isBlank()) {
+            return out;
+        }
+        for (var word : SPLIT.split(text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                out.add(word);
+            }
+        }
+        return out;
+    }
+
+    private static final class AccountIndex {
+
+        private final TreeMap<String, LongPostingList> terms = new TreeMap<>();
+        private final CompletableFuture<Void> ready = new CompletableFuture<>();
+        // postings that commit while the initial load is running are replayed once it finishes;
+        // add/remove are idempotent so a row seen by both the load and the event is harmless
+        private List<Consumer<AccountIndex>> pending = new ArrayList<>();
+        private long bytes;
+        private boolean evicted;
+
+        synchronized long load(List<Object[]> rows) {
+            for (var row : rows) {
+                add(((Number) row[0]).longValue(), (String) row[1], (String) row[2]);
+            }
+            for (var op : pending) {
+                op.accept(this);
+            }
+            pending = null;
+            return evicted ? 0 : bytes;
+        }
+
+        synchronized long apply(Consumer<AccountIndex> op) {
+            if (evicted) {
+                return 0;
+            }
+            if (pending != null) {
+                pending.add(op);
+                return 0;
+            }
+            long before = bytes;
+            op.accept(this);
+            return bytes - before;
+        }
+
+        synchronized long evict() {
+            evicted = true;
+            return pending == null ? bytes : 0;
+        }
+
+        void add(long txnId, String... texts) {
+            for (var text : texts) {
+                for (var word : tokenize(text)) {
+                    var list = terms.get(word);
+                    if (list == null) {
+                        list = new LongPostingList();
+                        terms.put(word, list);
+                        bytes += 64 + 2L * word.length();
+                    }
+                    long before = list.estimatedBytes();
+                    list.add(txnId);
+                    bytes += list.estimatedBytes() - before;
+                }
+            }
+        }
+
+        void remove(long txnId, String... texts) {
+            for (var text : texts) {
+                for (var word : tokenize(text)) {
+                    var list = terms.get(word);
+                    if (list == null) {
+                        continue;
+                    }
+                    long before = list.estimatedBytes();
+                    list.remove(txnId);
+                    bytes += list.estimatedBytes() - before;
+                    if (list.isEmpty()) {
+                        terms.remove(word);
+                        bytes -= 64 + 2L * word.length();
+                    }
+                }
+            }
+        }
+
+        synchronized long[] search(Set<String> words) {
+            LongPostingList result = null;
+            for (var word : words) {
+                var matches = new ArrayList<>(terms.subMap(word, true, word + Character.MAX_VALUE, false).values());
+                var forWord = LongPostingList.union(matches);
+                result = result == null ? forWord : LongPostingList.intersect(result, forWord);
+                if (result.isEmpty()) {
+                    return new long[0];
+                }
+            }
+            long[] ids = new long[result.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = result.get(ids.length - 1 - i);
+            }
+            return ids;
+        }
+    }
+}
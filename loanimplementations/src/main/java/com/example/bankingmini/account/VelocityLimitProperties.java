@@ -0,0 +1,31 @@
+package com.example.bankingmini.account;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+// limits.* in application.properties. Account limits can be overridden per ACCOUNT_TYPE under
+// limits.account-types.<TYPE>; a missing value means no limit.
+@ConfigurationProperties(prefix = "limits")
+@Getter
+@Setter
+public class VelocityLimitProperties {
+
+    private boolean enabled = true;
+    private int maxAccounts = 100_000;
+    private int maxCustomers = 50_000;
+    private Limit account = new Limit();
+    private Map<String, Limit> accountTypes = new HashMap<>();
+    private Limit customer = new Limit();
+
+    @Getter
+    @Setter
+    public static class Limit {
+        private BigDecimal daily;
+        private BigDecimal hourly;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.bankingmini.account;
+
+import com.example.bankingmini.common.Money;
+import com.example.bankingmini.common.VelocityLimitExceededException;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Rolling hourly and daily limits on money leaving an account (WITHDRAW, TRANSFER_OUT), per account
+// and per customer. Each account and customer has a SlidingWindow, seeded from the last 24 hours of
+// TXN the first time it is touched and kept in LRU maps after that, so a check is a few long
+// comparisons instead of SUM queries. AccountService reserves inside the posting transaction and
+// the amount is given back if that transaction does not commit. A window is pinned while it holds
+// such a reservation, so LRU eviction only drops windows whose amounts are all in TXN and can be
+// seeded again.
+//
+// The windows live in this node's memory: each node enforces the limits on the postings it handles
+// itself, so with N nodes an account can move up to N times the configured limit within a window.
+@Component
+@EnableConfigurationProperties(VelocityLimitProperties.class)
+public class VelocityLimiter {
+
+    private static final String ACCOUNT_DEBITS = "SELECT OCCURRED_AT, AMOUNT FROM TXN " +
+            "WHERE ACCOUNT_ID = ? AND TYPE IN ('WITHDRAW', 'TRANSFER_OUT') AND OCCURRED_AT > ? ORDER BY OCCURRED_AT";
+    private static final String CUSTOMER_DEBITS = "SELECT t.OCCURRED_AT, t.AMOUNT FROM TXN t JOIN ACCOUNT a ON a.ID = t.ACCOUNT_ID " +
+            "WHERE a.CUSTOMER_ID = ? AND t.TYPE IN ('WITHDRAW', 'TRANSFER_OUT') AND t.OCCURRED_AT > ? ORDER BY t.OCCURRED_AT";
+
+    // {daily, hourly} in cents; Long.MAX_VALUE = unlimited
+    private record Limit(long daily, long hourly) {
+        static Limit of(VelocityLimitProperties.Limit limit, Limit fallback) {
+            if (limit == null) {
+                return fallback;
+            }
+            return new Limit(limit.getDaily() == null ? fallback.daily() : Money.minorUnits(limit.getDaily()),
+                    limit.getHourly() == null ? fallback.hourly() : Money.minorUnits(limit.getHourly()));
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final Limit accountDefault;
+    private final Map<String, Limit> accountByType = new HashMap<>();
+    private final Limit customerLimit;
+    private final LinkedHashMap<Long, SlidingWindow> accountWindows;
+    private final LinkedHashMap<Long, SlidingWindow> customerWindows;
+    private final int maxAccounts;
+    private final int maxCustomers;
+
+    public VelocityLimiter(JdbcTemplate jdbc, VelocityLimitProperties props) {
+        this.jdbc = jdbc;
+        this.enabled = props.isEnabled();
+        var unlimited = new Limit(Long.MAX_VALUE, Long.MAX_VALUE);
+        this.accountDefault = Limit.of(props.getAccount(), unlimited);
+        props.getAccountTypes().forEach((type, limit) -> accountByType.put(type, Limit.of(limit, accountDefault)));
+        this.customerLimit = Limit.of(props.getCustomer(), unlimited);
+        this.accountWindows = new LinkedHashMap<>(16, 0.75f, true);
+        this.customerWindows = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxAccounts = props.getMaxAccounts();
+        this.maxCustomers = props.getMaxCustomers();
+    }
+
+    public void reserve(Account account, BigDecimal amount) {
+        if (!enabled) {
+            return;
+        }
+        long cents = Money.minorUnits(amount);
+        long minute = System.currentTimeMillis() / 60_000;
+        var type = account.getAccountType();
+        var limit = type == null ? accountDefault : accountByType.getOrDefault(type, accountDefault);
+        var accountWindow = window(accountWindows, maxAccounts, account.getId(), ACCOUNT_DEBITS);
+        SlidingWindow customerWindow;
+        try {
+            customerWindow = window(customerWindows, maxCustomers, account.getCustomer().getId(), CUSTOMER_DEBITS);
+        } catch (RuntimeException ex) {
+            complete(accountWindow, null, minute, 0);
+            throw ex;
+        }
+
+        // always account before customer, so two postings never lock them in opposite order
+        synchronized (accountWindow) {
+            synchronized (customerWindow) {
+                try {
+                    check(accountWindow, limit, minute, cents, "Account");
+                    check(customerWindow, customerLimit, minute, cents, "Customer");
+                } catch (RuntimeException ex) {
+                    accountWindow.inFlight--;
+                    customerWindow.inFlight--;
+                    throw ex;
+                }
+                accountWindow.add(minute, cents);
+                customerWindow.add(minute, cents);
+            }
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    complete(accountWindow, customerWindow, minute, status == STATUS_COMMITTED ? 0 : cents);
+                }
+            });
+        } else {
+            complete(accountWindow, customerWindow, minute, 0);
+        }
+    }
+
+    // Unpins the windows, first giving back refund cents (a reservation that did not commit)
+    private static void complete(SlidingWindow accountWindow, SlidingWindow customerWindow, long minute, long refund) {
+        synchronized (accountWindow) {
+            if (customerWindow == null) {
+                accountWindow.inFlight--;
+                return;
+            }
+            synchronized (customerWindow) {
+                if (refund != 0) {
+                    accountWindow.add(minute, -refund);
+                    customerWindow.add(minute, -refund);
+                }
+                accountWindow.inFlight--;
+                customerWindow.inFlight--;
+            }
+        }
+    }
+
+    private static void check(SlidingWindow window, Limit limit, long minute, long cents, String scope) {
+        if (window.hour(minute) + cents > limit.hourly()) {
+            throw new VelocityLimitExceededException(scope + " hourly limit of " + BigDecimal.valueOf(limit.hourly(), 2) + " exceeded");
+        }
+        if (window.day(minute) + cents > limit.daily()) {
+            throw new VelocityLimitExceededException(scope + " daily limit of " + BigDecimal.valueOf(limit.daily(), 2) + " exceeded");
+        }
+    }
+
+    // Returns the key's window pinned for one reservation. The database read happens outside the map
+    // lock; if two threads seed the same key the first one in wins.
+    private SlidingWindow window(LinkedHashMap<Long, SlidingWindow> windows, int max, Long key, String seedSql) {
+        synchronized (windows) {
+            var window = windows.get(key);
+            if (window != null) {
+                return pin(window);
+            }
+        }
+        var seeded = new SlidingWindow();
+        jdbc.query(seedSql, (RowCallbackHandler) rs -> seeded.add(
+                        rs.getTimestamp(1).getTime() / 60_000, Money.minorUnits(rs.getBigDecimal(2))),
+                key, Timestamp.from(Instant.now().minus(Duration.ofMinutes(SlidingWindow.DAY_MINUTES))));
+        synchronized (windows) {
+            var existing = windows.putIfAbsent(key, seeded);
+            var window = pin(existing != null ? existing : seeded);
+            evictIdle(windows, max);
+            return window;
+        }
+    }
+
+    private static SlidingWindow pin(SlidingWindow window) {
+        synchronized (window) {
+            window.inFlight++;
+        }
+        return window;
+    }
+
+    // Least recently used first; pinned windows are skipped, so the map can briefly exceed max
+    private static void evictIdle(LinkedHashMap<Long, SlidingWindow> windows, int max) {
+        var eldest = windows.values().iterator();
+        while (windows.size() > max && eldest.hasNext()) {
+            var window = eldest.next();
+            synchronized (window) {
+                if (window.inFlight == 0) {
+                    eldest.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.bankingmini.anomaly;
+
+import com.example.bankingmini.common.NotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Admin-only (see SecurityConfig /api/admin/**)
+@RestController
+@RequestMapping("/api/admin/anomalies")
+@RequiredArgsConstructor
+public class AdminAnomalyController {
+
+    private final AnomalyDetector detector;
+    private final AnomalyAlertRepository alerts;
+
+    @GetMapping
+    public List<AnomalyAlert> list(@RequestParam(value = "status", defaultValue = "OPEN") String status) {
+        return alerts.findTop100ByStatusOrderByIdDesc(status);
+    }
+
+    @PostMapping("/{id}/review")
+    @Transactional
+    public AnomalyAlert review(@PathVariable("id") Long id) {
+        var alert = alerts.findById(id).orElseThrow(() -> new NotFoundException("Alert not found: " + id));
+        alert.setStatus("REVIEWED");
+        return alert;
+    }
+
+    @GetMapping("/detector")
+    public AnomalyDetector.Status status() {
+        return detector.status();
+    }
+
+    // Any rule left out keeps its live value
+    @PostMapping("/replay")
+    public AnomalyDetector.ReplayResult replay(@RequestParam("from") Instant from,
+                                               @RequestParam("to") Instant to,
+                                               @RequestParam(value = "write", defaultValue = "false") boolean write,
+                                               @RequestParam(value = "alpha", required = false) Double alpha,
+                                               @RequestParam(value = "minHistory", required = false) Integer minHistory,
+                                               @RequestParam(value = "zThreshold", required = false) Double zThreshold,
+                                               @RequestParam(value = "minAmount", required = false) BigDecimal minAmount,
+                                               @RequestParam(value = "newPayeeBurst", required = false) Integer newPayeeBurst,
+                                               @RequestParam(value = "newPayeeWindowMinutes", required = false) Long newPayeeWindowMinutes) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        var live = detector.rules();
+        var rules = new AnomalyRules(
+                alpha != null ? alpha : live.alpha(),
+                minHistory != null ? minHistory : live.minHistory(),
+                zThreshold != null ? zThreshold : live.zThreshold(),
+                minAmount != null ? minAmount.movePointRight(2).longValue() : live.minAmountCents(),
+                newPayeeBurst != null ? newPayeeBurst : live.newPayeeBurst(),
+                newPayeeWindowMinutes != null ? Duration.ofMinutes(newPayeeWindowMinutes).toMillis() : live.newPayeeWindowMillis(),
+                live.maxPayees());
+        return detector.replay(from, to, rules, write);
+    }
+}
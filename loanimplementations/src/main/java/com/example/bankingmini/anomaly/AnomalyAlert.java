@@ -0,0 +1,51 @@
+package com.example.bankingmini.anomaly;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Flag raised by AnomalyDetector for fraud review. Rows are inserted in batches with JDBC.
+@Entity
+@Table(name = "ANOMALY_ALERT",
+        indexes = @Index(name = "IX_ANOMALY_ALERT_STATUS", columnList = "STATUS, ID"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnomalyAlert {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "anomaly_alert_seq_gen")
+    @SequenceGenerator(name = "anomaly_alert_seq_gen", sequenceName = "ANOMALY_ALERT_SEQ", allocationSize = 1)
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "ACCOUNT_ID", nullable = false)
+    private Long accountId;
+
+    @Column(name = "TXN_ID")
+    private Long txnId;
+
+    @Column(name = "ALERT_RULE", nullable = false)
+    private String rule; // LARGE_AMOUNT, NEW_PAYEE_BURST
+
+    @Column(name = "SCORE", nullable = false)
+    private Double score;
+
+    @Column(name = "AMOUNT", nullable = false, precision = 38, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "DETAIL", length = 500)
+    private String detail;
+
+    @Column(name = "OCCURRED_AT", nullable = false)
+    private Instant occurredAt;
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "STATUS", nullable = false)
+    private String status; // OPEN, REVIEWED
+}
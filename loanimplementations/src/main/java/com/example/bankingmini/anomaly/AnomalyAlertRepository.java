@@ -0,0 +1,10 @@
+package com.example.bankingmini.anomaly;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface AnomalyAlertRepository extends JpaRepository<AnomalyAlert, Long> {
+
+    List<AnomalyAlert> findTop100ByStatusOrderByIdDesc(String status);
+}
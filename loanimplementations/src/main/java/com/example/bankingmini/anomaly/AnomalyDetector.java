@@ -0,0 +1,265 @@
+package com.example.bankingmini.anomaly;
+
+import com.example.bankingmini.account.TransactionPostedEvent;
+import com.example.bankingmini.common.Money;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Flags unusual outgoing activity without adding work to the posting path.
+//
+// Committed WITHDRAW and TRANSFER_OUT postings are offered to a bounded in-process queue. Past the
+// high-water mark only a sample is admitted, and a full queue drops the posting, so the committing
+// thread never waits. One consumer thread feeds them through AnomalyModel and writes any alerts to
+// ANOMALY_ALERT in batches. Skipped postings also leave the model's statistics, which is the price
+// of never slowing postings down. replay() runs the same model over historical TXN rows so
+// thresholds can be tuned before they go live.
+@Component
+@Slf4j
+public class AnomalyDetector {
+
+    public record Status(boolean running, int queued, int trackedAccounts, long accepted, long sampledOut,
+                         long dropped, long alerts) {
+    }
+
+    public record ReplayResult(Instant from, Instant to, long postings, Map<String, Long> alertsByRule,
+                               List<AlertView> sample, boolean written) {
+    }
+
+    public record AlertView(Long accountId, Long txnId, String rule, double score, BigDecimal amount, String detail,
+                            Instant occurredAt) {
+    }
+
+    private static final String INSERT = "INSERT INTO ANOMALY_ALERT " +
+            "(ID, ACCOUNT_ID, TXN_ID, ALERT_RULE, SCORE, AMOUNT, DETAIL, OCCURRED_AT, CREATED_AT, STATUS) " +
+            "VALUES (ANOMALY_ALERT_SEQ.NEXTVAL, ?, ?, ?, ?, ?, ?, ?, ?, 'OPEN')";
+    private static final String HISTORY = "SELECT ID, ACCOUNT_ID, TYPE, AMOUNT, REF_ACCOUNT_ID, OCCURRED_AT FROM TXN " +
+            "WHERE TYPE IN ('WITHDRAW', 'TRANSFER_OUT') AND OCCURRED_AT >= ? AND OCCURRED_AT < ? ORDER BY OCCURRED_AT, ID";
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final AnomalyRules rules;
+    private final int maxAccounts;
+    private final long idleMillis;
+    private final int sampleAbove;
+    private final int samplePercent;
+    private final int fetchSize;
+    private final BlockingQueue<AnomalyModel.Posting> queue;
+    private final AnomalyModel model;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong alerts = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread consumer;
+
+    public AnomalyDetector(JdbcTemplate jdbc,
+                           MeterRegistry registry,
+                           @Value("${anomaly.enabled:true}") boolean enabled,
+                           @Value("${anomaly.ewma-alpha:0.1}") double alpha,
+                           @Value("${anomaly.min-history:5}") int minHistory,
+                           @Value("${anomaly.z-threshold:4.0}") double zThreshold,
+                           @Value("${anomaly.min-amount:1000.00}") BigDecimal minAmount,
+                           @Value("${anomaly.new-payee-burst:3}") int newPayeeBurst,
+                           @Value("${anomaly.new-payee-window-minutes:60}") long newPayeeWindowMinutes,
+                           @Value("${anomaly.max-payees:64}") int maxPayees,
+                           @Value("${anomaly.max-accounts:200000}") int maxAccounts,
+                           @Value("${anomaly.idle-hours:72}") long idleHours,
+                           @Value("${anomaly.queue-capacity:65536}") int queueCapacity,
+                           @Value("${anomaly.sample-above-percent:75}") int sampleAbovePercent,
+                           @Value("${anomaly.sample-percent:10}") int samplePercent,
+                           @Value("${anomaly.replay.fetch-size:1000}") int fetchSize) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+        this.rules = new AnomalyRules(alpha, minHistory, zThreshold, Money.minorUnits(minAmount), newPayeeBurst,
+                Duration.ofMinutes(newPayeeWindowMinutes).toMillis(), maxPayees);
+        this.maxAccounts = maxAccounts;
+        this.idleMillis = Duration.ofHours(idleHours).toMillis();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.sampleAbove = (int) ((long) queueCapacity * sampleAbovePercent / 100);
+        this.samplePercent = samplePercent;
+        this.fetchSize = fetchSize;
+        this.model = new AnomalyModel(rules, maxAccounts, idleMillis);
+        FunctionCounter.builder("anomaly.postings", accepted, AtomicLong::get).tag("result", "accepted").register(registry);
+        FunctionCounter.builder("anomaly.postings", sampledOut, AtomicLong::get).tag("result", "sampled_out").register(registry);
+        FunctionCounter.builder("anomaly.postings", dropped, AtomicLong::get).tag("result", "dropped").register(registry);
+        FunctionCounter.builder("anomaly.alerts", alerts, AtomicLong::get).register(registry);
+        Gauge.builder("anomaly.queue.size", queue, BlockingQueue::size).register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        consumer = new Thread(this::consumeLoop, "anomaly-detector");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (consumer != null) {
+            consumer.join(10_000);
+        }
+    }
+
+    // Runs in the posting thread after commit, so it only queues
+    @TransactionalEventListener
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        if (!running || !isDebit(event.type()) || event.transactionId() == null) {
+            return;
+        }
+        if (queue.size() >= sampleAbove && ThreadLocalRandom.current().nextInt(100) >= samplePercent) {
+            sampledOut.incrementAndGet();
+            return;
+        }
+        var posting = new AnomalyModel.Posting(event.transactionId(), event.accountId(), event.type().equals("TRANSFER_OUT"),
+                Money.minorUnits(event.amount()), event.refAccountId() == null ? 0 : event.refAccountId(),
+                event.occurredAt() == null ? System.currentTimeMillis() : event.occurredAt().toEpochMilli());
+        if (queue.offer(posting)) {
+            accepted.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public Status status() {
+        return new Status(running, queue.size(), model.trackedAccounts(), accepted.get(), sampledOut.get(),
+                dropped.get(), alerts.get());
+    }
+
+    // Runs the model over [from, to) of TXN with the given rules and a model of its own. Alerts are only
+    // written when asked to, so thresholds can be compared without flooding the review queue.
+    public ReplayResult replay(Instant from, Instant to, AnomalyRules replayRules, boolean write) {
+        if (!replaying.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("A replay is already running");
+        }
+        try {
+            var replayModel = new AnomalyModel(replayRules, maxAccounts, idleMillis);
+            Map<String, Long> byRule = new TreeMap<>();
+            List<AnomalyModel.Alert> sample = new ArrayList<>();
+            List<AnomalyModel.Alert> pending = new ArrayList<>();
+            long[] rows = {0};
+            jdbc.query(con -> {
+                var ps = con.prepareStatement(HISTORY);
+                ps.setFetchSize(fetchSize);
+                ps.setTimestamp(1, Timestamp.from(from));
+                ps.setTimestamp(2, Timestamp.from(to));
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                rows[0]++;
+                long ref = rs.getLong(5);
+                long payee = rs.wasNull() ? 0 : ref;
+                var found = replayModel.observe(new AnomalyModel.Posting(rs.getLong(1), rs.getLong(2),
+                        rs.getString(3).equals("TRANSFER_OUT"), Money.minorUnits(rs.getBigDecimal(4)), payee,
+                        rs.getTimestamp(6).getTime()));
+                for (var alert : found) {
+                    byRule.merge(alert.rule(), 1L, Long::sum);
+                    if (sample.size() < 100) {
+                        sample.add(alert);
+                    }
+                    if (write) {
+                        pending.add(alert);
+                        if (pending.size() >= 500) {
+                            insert(pending);
+                            pending.clear();
+                        }
+                    }
+                }
+            });
+            if (write && !pending.isEmpty()) {
+                insert(pending);
+            }
+            return new ReplayResult(from, to, rows[0], byRule, sample.stream().map(AnomalyDetector::view).toList(), write);
+        } finally {
+            replaying.set(false);
+        }
+    }
+
+    public AnomalyRules rules() {
+        return rules;
+    }
+
+    private void consumeLoop() {
+        List<AnomalyModel.Posting> batch = new ArrayList<>(512);
+        List<AnomalyModel.Alert> found = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, 511);
+                for (var posting : batch) {
+                    found.addAll(model.observe(posting));
+                }
+                if (!found.isEmpty()) {
+                    insert(found);
+                    alerts.addAndGet(found.size());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                // the statistics are already updated; only this batch's alerts are lost
+                log.warn("Anomaly detector failed to write {} alerts: {}", found.size(), ex.getMessage());
+            } finally {
+                batch.clear();
+                found.clear();
+            }
+        }
+    }
+
+    private void insert(List<AnomalyModel.Alert> batch) {
+        var now = Timestamp.from(Instant.now());
+        jdbc.batchUpdate(INSERT, batch, batch.size(), (ps, a) -> {
+            ps.setLong(1, a.accountId());
+            ps.setLong(2, a.txnId());
+            ps.setString(3, a.rule());
+            ps.setDouble(4, Math.min(a.score(), 1e9));
+            ps.setBigDecimal(5, BigDecimal.valueOf(a.amountCents(), 2));
+            ps.setString(6, a.detail());
+            ps.setTimestamp(7, new Timestamp(a.atMillis()));
+            ps.setTimestamp(8, now);
+        });
+    }
+
+    private static AlertView view(AnomalyModel.Alert a) {
+        return new AlertView(a.accountId(), a.txnId(), a.rule(), a.score(), BigDecimal.valueOf(a.amountCents(), 2),
+                a.detail(), Instant.ofEpochMilli(a.atMillis()));
+    }
+
+    private static boolean isDebit(String type) {
+        return "WITHDRAW".equals(type) || "TRANSFER_OUT".equals(type);
+    }
+}
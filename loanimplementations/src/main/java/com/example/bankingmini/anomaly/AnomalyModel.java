@@ -0,0 +1,113 @@
+package com.example.bankingmini.anomaly;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Per-account rolling statistics over outgoing postings and the rules evaluated against them.
+//
+// For each account: an exponentially weighted mean and variance of debit amounts, the payees it has
+// sent money to, and the times of its last few first-time payees. Everything is primitive and a
+// posting is O(1). The live detector and the replay each run their own instance.
+final class AnomalyModel {
+
+    record Posting(long txnId, long accountId, boolean transfer, long amountCents, long payeeId, long atMillis) {
+    }
+
+    record Alert(long accountId, long txnId, String rule, double score, long amountCents, String detail, long atMillis) {
+    }
+
+    private static final class Stats {
+        double mean;
+        double variance;
+        int count;
+        long lastAt;
+        LongHashSet payees;
+        long[] newPayeeTimes; // ring of the latest first-time payees
+        int newPayeeHead;
+    }
+
+    private final AnomalyRules rules;
+    private final int maxAccounts;
+    private final long idleMillis;
+    private final LongObjectMap<Stats> accounts = new LongObjectMap<>(1024);
+
+    AnomalyModel(AnomalyRules rules, int maxAccounts, long idleMillis) {
+        this.rules = rules;
+        this.maxAccounts = maxAccounts;
+        this.idleMillis = idleMillis;
+    }
+
+    int trackedAccounts() {
+        return accounts.size();
+    }
+
+    List<Alert> observe(Posting p) {
+        var stats = accounts.get(p.accountId());
+        if (stats == null) {
+            if (accounts.size() >= maxAccounts) {
+                evictIdle(p.atMillis());
+            }
+            stats = new Stats();
+            stats.newPayeeTimes = new long[rules.newPayeeBurst()];
+            Arrays.fill(stats.newPayeeTimes, Long.MIN_VALUE);
+            accounts.put(p.accountId(), stats);
+        }
+        List<Alert> alerts = List.of();
+        double x = p.amountCents();
+
+        if (stats.count >= rules.minHistory() && p.amountCents() >= rules.minAmountCents()) {
+            // floor the deviation so an account that always sends the same amount is not flagged for cents
+            double deviation = Math.max(Math.sqrt(stats.variance), stats.mean * 0.1);
+            double z = deviation == 0 ? Double.POSITIVE_INFINITY : (x - stats.mean) / deviation;
+            if (z >= rules.zThreshold()) {
+                alerts = add(alerts, new Alert(p.accountId(), p.txnId(), "LARGE_AMOUNT", z, p.amountCents(),
+                        String.format("amount %.2f vs typical %.2f", x / 100, stats.mean / 100), p.atMillis()));
+            }
+        }
+        double diff = x - stats.mean;
+        double increment = rules.alpha() * diff;
+        stats.mean = stats.count == 0 ? x : stats.mean + increment;
+        stats.variance = stats.count == 0 ? 0 : (1 - rules.alpha()) * (stats.variance + diff * increment);
+        stats.count++;
+        stats.lastAt = Math.max(stats.lastAt, p.atMillis());
+
+        if (p.transfer() && p.payeeId() != 0) {
+            if (stats.payees == null) {
+                stats.payees = new LongHashSet(4, rules.maxPayees());
+            }
+            if (stats.payees.add(p.payeeId())) {
+                var ring = stats.newPayeeTimes;
+                // the slot being overwritten holds the oldest of the last newPayeeBurst first-time payees
+                long oldest = ring[stats.newPayeeHead];
+                ring[stats.newPayeeHead] = p.atMillis();
+                stats.newPayeeHead = (stats.newPayeeHead + 1) % ring.length;
+                // payees are only known from what this instance has seen, so wait for some history here too
+                if (stats.count > rules.minHistory() && oldest != Long.MIN_VALUE
+                        && p.atMillis() - oldest <= rules.newPayeeWindowMillis()) {
+                    alerts = add(alerts, new Alert(p.accountId(), p.txnId(), "NEW_PAYEE_BURST", ring.length + 1, p.amountCents(),
+                            (ring.length + 1) + " new payees within " + rules.newPayeeWindowMillis() / 60_000 + " minutes", p.atMillis()));
+                }
+            }
+        }
+        return alerts;
+    }
+
+    private static List<Alert> add(List<Alert> alerts, Alert alert) {
+        List<Alert> out = alerts.isEmpty() ? new ArrayList<>(2) : alerts;
+        out.add(alert);
+        return out;
+    }
+
+    // Drops accounts idle for longer than idleMillis; if that frees nothing, the cutoff moves closer to now
+    private void evictIdle(long now) {
+        long cutoff = now - idleMillis;
+        for (int attempt = 0; attempt < 32; attempt++) {
+            long limit = cutoff;
+            if (accounts.removeIf(s -> s.lastAt < limit) > 0) {
+                return;
+            }
+            cutoff += Math.max(1, (now - cutoff) / 2);
+        }
+    }
+}
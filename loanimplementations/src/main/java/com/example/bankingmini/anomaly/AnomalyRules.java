@@ -0,0 +1,18 @@
+package com.example.bankingmini.anomaly;
+
+// Tuning knobs for AnomalyModel. The live detector takes them from anomaly.*; a replay can try others.
+public record AnomalyRules(
+        double alpha,              // EWMA weight of the newest amount
+        int minHistory,            // debits seen before any rule can fire
+        double zThreshold,         // how many (floored) deviations above the mean counts as large
+        long minAmountCents,       // never flag amounts below this
+        int newPayeeBurst,         // more than this many first-time payees...
+        long newPayeeWindowMillis, // ...within this window raise NEW_PAYEE_BURST
+        int maxPayees              // payees remembered per account
+) {
+    public AnomalyRules {
+        if (alpha <= 0 || alpha > 1 || newPayeeBurst < 1 || maxPayees < 1) {
+            throw new IllegalArgumentException("Invalid anomaly rules");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.bankingmini.anomaly;
+
+import java.util.Arrays;
+
+// Open-addressing (linear probing) set of longs with a size cap. Below the cap it is an ordinary set;
+// once full, each new id evicts one chosen by CLOCK (second chance): every member carries a reference
+// bit, set when it is added or seen again, and a sweeping hand clears set bits and evicts the first
+// member whose bit is already clear. Members seen since the hand last passed survive, so the set
+// approximates LRU without growing further.
+final class LongHashSet {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final int maxSize;
+    private long[] slots;
+    private boolean[] referenced;
+    private int size;
+    private int hand;
+
+    LongHashSet(int initialCapacity, int maxSize) {
+        this.maxSize = maxSize;
+        this.slots = newSlots(Integer.highestOneBit(Math.max(4, initialCapacity - 1)) << 1);
+        this.referenced = new boolean[slots.length];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long id) {
+        return indexOf(id) >= 0;
+    }
+
+    // true when id was not already a member; either way id counts as recently seen
+    boolean add(long id) {
+        if (id == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE is reserved");
+        }
+        int found = indexOf(id);
+        if (found >= 0) {
+            referenced[found] = true;
+            return false;
+        }
+        if (size >= maxSize) {
+            evictOne();
+        }
+        if ((size + 1) * 4 > slots.length * 3) {
+            rehash(slots.length * 2);
+        }
+        referenced[insert(slots, id)] = true;
+        size++;
+        return true;
+    }
+
+    private int indexOf(long id) {
+        int mask = slots.length - 1;
+        for (int i = mix(id) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (slots[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // at most two turns of the hand: the first clears every bit it passes
+    private void evictOne() {
+        int mask = slots.length - 1;
+        while (slots[hand & mask] == EMPTY || referenced[hand & mask]) {
+            referenced[hand & mask] = false;
+            hand++;
+        }
+        removeAt(hand & mask);
+        hand++;
+    }
+
+    // Backward-shift deletion: later members of the probe chain move into the gap where their home allows
+    private void removeAt(int gap) {
+        int mask = slots.length - 1;
+        slots[gap] = EMPTY;
+        referenced[gap] = false;
+        size--;
+        for (int j = (gap + 1) & mask; slots[j] != EMPTY; j = (j + 1) & mask) {
+            int home = mix(slots[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                slots[gap] = slots[j];
+                referenced[gap] = referenced[j];
+                slots[j] = EMPTY;
+                referenced[j] = false;
+                gap = j;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        var old = slots;
+        var oldReferenced = referenced;
+        slots = newSlots(capacity);
+        referenced = new boolean[capacity];
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] != EMPTY) {
+                referenced[insert(slots, old[i])] = oldReferenced[i];
+            }
+        }
+    }
+
+    // returns the slot id went into
+    private static int insert(long[] slots, long id) {
+        int mask = slots.length - 1;
+        int i = mix(id) & mask;
+        while (slots[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = id;
+        return i;
+    }
+
+    private static long[] newSlots(int capacity) {
+        var slots = new long[capacity];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+
+    static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.bankingmini.anomaly;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+// Open-addressing (linear probing) map from long keys to objects, without boxing the keys.
+// Not thread-safe; the detector only touches it from its own thread.
+final class LongObjectMap<V> {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    LongObjectMap(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(4, initialCapacity - 1)) << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new Object[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int mask = keys.length - 1;
+        for (int i = LongHashSet.mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    void put(long key, V value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE is reserved");
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            rehash(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = LongHashSet.mix(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == EMPTY) {
+            keys[i] = key;
+            size++;
+        }
+        values[i] = value;
+    }
+
+    // Returns the number of entries removed
+    @SuppressWarnings("unchecked")
+    int removeIf(Predicate<V> test) {
+        int removed = 0;
+        int i = 0;
+        while (i < keys.length) {
+            if (keys[i] != EMPTY && test.test((V) values[i])) {
+                removeAt(i);
+                removed++;
+                // an entry from further on may have shifted into slot i; look at it again
+                continue;
+            }
+            i++;
+        }
+        return removed;
+    }
+
+    private void removeAt(int gap) {
+        int mask = keys.length - 1;
+        keys[gap] = EMPTY;
+        values[gap] = null;
+        size--;
+        for (int j = (gap + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = LongHashSet.mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                keys[j] = EMPTY;
+                values[j] = null;
+                gap = j;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        var oldKeys = keys;
+        var oldValues = values;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new Object[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int mask = capacity - 1;
+                int j = LongHashSet.mix(oldKeys[i]) & mask;
+                while (keys[j] != EMPTY) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+                size++;
+            }
+        }
+    }
+}
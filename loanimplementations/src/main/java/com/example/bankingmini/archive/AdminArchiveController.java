@@ -0,0 +1,32 @@
+package com.example.bankingmini.archive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+// Admin-only (see SecurityConfig /api/admin/**)
+@RestController
+@RequestMapping("/api/admin/archive")
+@RequiredArgsConstructor
+public class AdminArchiveController {
+
+    private final TxnArchiver archiver;
+    private final TxnArchive archive;
+
+    @PostMapping("/run")
+    public TxnArchiver.Result run() {
+        return archiver.run();
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> status() {
+        archive.refresh();
+        return Map.of(
+                "cutoff", archive.cutoff().toString(),
+                "segments", archive.segmentCount(),
+                "rows", archive.rowCount(),
+                "running", archiver.isRunning()
+        );
+    }
+}
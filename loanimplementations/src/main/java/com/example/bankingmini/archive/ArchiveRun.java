@@ -0,0 +1,31 @@
+package com.example.bankingmini.archive;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// One row per archived month (yyyy-MM); the row is the claim on the month's directory
+@Entity
+@Table(name = "ARCHIVE_RUN")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveRun {
+    @Id
+    @Column(name = "RUN_KEY")
+    private String runKey;
+
+    @Column(name = "STATUS", nullable = false)
+    private String status; // RUNNING, COMPLETED, FAILED
+
+    @Column(name = "STARTED_AT", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "COMPLETED_AT")
+    private Instant completedAt;
+
+    @Column(name = "ROWS_ARCHIVED")
+    private Long rowsArchived;
+}
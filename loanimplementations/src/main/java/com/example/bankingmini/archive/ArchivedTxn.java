@@ -0,0 +1,17 @@
+package com.example.bankingmini.archive;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// One TXN row as it is stored in an archive segment
+public record ArchivedTxn(
+        long id,
+        long accountId,
+        String type,
+        BigDecimal amount,
+        Long refAccountId,
+        String description,
+        String category,
+        Instant occurredAt
+) {
+}
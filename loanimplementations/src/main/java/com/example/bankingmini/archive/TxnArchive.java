@@ -0,0 +1,275 @@
+package com.example.bankingmini.archive;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Cold tier for TXN. Closed months live under <dir>/<yyyy-MM>/ as immutable segment files, and
+// everything that occurred before cutoff() is served from here; the TXN table only answers for
+// OCCURRED_AT >= cutoff(). Readers should split their time range at the cutoff so a row that is
+// still waiting to be purged from the table is never counted twice.
+//
+// A month is written under a <yyyy-MM>.pending marker. The cutoff file is advanced only once all
+// of its segments are on disk, and the marker is removed after that. Only months below the cutoff
+// are ever opened, so a crash at any point leaves either a month nobody reads, which the next
+// claim on it (TxnArchiver's ARCHIVE_RUN row) discards and rewrites, or a month that is fully
+// visible. Startup never deletes an uncommitted month: another node may be writing it right now.
+//
+// The directory is shared between nodes and only the claiming node archives a month, so the others
+// pick up a moved cutoff by re-reading the cutoff file around every consistent read. Without archive.dir
+// (the same setting TxnArchiver requires) there is no archive: the cutoff stays at the epoch.
+@Component
+@Slf4j
+public class TxnArchive {
+
+    private static final String CUTOFF_FILE = "cutoff";
+    private static final String PENDING_SUFFIX = ".pending";
+    private static final String SEGMENT_SUFFIX = ".txs";
+
+    private final Path dir;
+    private final int stripeRows;
+
+    private volatile Instant cutoff = Instant.EPOCH;
+    private volatile List<TxnSegment> segments = List.of();
+    private final Set<YearMonth> loadedMonths = new HashSet<>();
+
+    public TxnArchive(@Value("${archive.dir:}") String dir,
+                      @Value("${archive.stripe-rows:4096}") int stripeRows) {
+        this.dir = dir.isBlank() ? null : Paths.get(dir);
+        this.stripeRows = stripeRows;
+    }
+
+    @PostConstruct
+    void load() throws IOException {
+        if (dir == null) {
+            log.info("Transaction archive: archive.dir not set, all transactions are served from TXN");
+            return;
+        }
+        Files.createDirectories(dir);
+        var stored = readCutoff();
+        if (stored != null) {
+            cutoff = stored;
+        }
+        clearCommittedMarkers();
+
+        List<TxnSegment> loaded = new ArrayList<>();
+        try (Stream<Path> months = Files.list(dir)) {
+            for (var monthDir : months.filter(Files::isDirectory).sorted().toList()) {
+                var month = YearMonth.parse(monthDir.getFileName().toString());
+                if (!cutoff.isBefore(monthEnd(month))) {
+                    loaded.addAll(openSegments(monthDir));
+                    loadedMonths.add(month);
+                }
+            }
+        }
+        segments = List.copyOf(loaded);
+        log.info("Transaction archive: {} segments, {} rows, cutoff {}", loaded.size(),
+                loaded.stream().mapToLong(TxnSegment::rows).sum(), cutoff);
+    }
+
+    // Everything that occurred strictly before this instant is archived
+    public Instant cutoff() {
+        return cutoff;
+    }
+
+    // Runs reader against one cutoff and repeats it if a month was committed in the meantime, here
+    // or on another node, since the rows between the old and the new cutoff may already be purged
+    // from TXN. The cutoff file is advanced before any row is purged, so a read that may have
+    // missed purged rows always sees it moved afterwards.
+    public <T> T readConsistent(Function<Instant, T> reader) {
+        while (true) {
+            refresh();
+            var before = cutoff;
+            var result = reader.apply(before);
+            refresh();
+            if (before.equals(cutoff)) {
+                return result;
+            }
+        }
+    }
+
+    // Picks up months another node committed: re-reads the cutoff file and opens the segments of
+    // every month below it that is not loaded yet
+    public void refresh() {
+        if (dir == null) {
+            return;
+        }
+        try {
+            var stored = readCutoff();
+            if (stored == null || !stored.isAfter(cutoff)) {
+                return;
+            }
+            synchronized (this) {
+                if (!stored.isAfter(cutoff)) {
+                    return;
+                }
+                List<TxnSegment> next = new ArrayList<>(segments);
+                try (Stream<Path> months = Files.list(dir)) {
+                    for (var monthDir : months.filter(Files::isDirectory).sorted().toList()) {
+                        var month = YearMonth.parse(monthDir.getFileName().toString());
+                        if (!loadedMonths.contains(month) && !stored.isBefore(monthEnd(month))) {
+                            next.addAll(openSegments(monthDir));
+                            loadedMonths.add(month);
+                        }
+                    }
+                }
+                segments = List.copyOf(next);
+                cutoff = stored;
+                log.info("Transaction archive: cutoff moved to {} by another node", stored);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not refresh the transaction archive in " + dir, ex);
+        }
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long rowCount() {
+        return segments.stream().mapToLong(TxnSegment::rows).sum();
+    }
+
+    // One account's archived rows with from <= occurredAt < to, oldest first
+    public List<ArchivedTxn> find(long accountId, Instant from, Instant to) {
+        List<ArchivedTxn> result = new ArrayList<>();
+        scan(accountId, accountId, from, to, result::add);
+        result.sort(Comparator.comparing(ArchivedTxn::occurredAt).thenComparingLong(ArchivedTxn::id));
+        return result;
+    }
+
+    public List<ArchivedTxn> findAll(long accountId) {
+        refresh();
+        return find(accountId, Instant.EPOCH, cutoff);
+    }
+
+    // Rows for an account id range in segment order (ordered within a segment, not across segments)
+    public void scan(long fromAccount, long toAccount, Instant from, Instant to, Consumer<ArchivedTxn> sink) {
+        if (from.isBefore(Instant.EPOCH)) {
+            from = Instant.EPOCH;
+        }
+        if (to.isAfter(cutoff)) {
+            to = cutoff;
+        }
+        if (!from.isBefore(to)) {
+            return;
+        }
+        for (var segment : segments) {
+            if (segment.overlaps(fromAccount, toAccount, from, to)) {
+                segment.scan(fromAccount, toAccount, from, to, sink);
+            }
+        }
+    }
+
+    // Writing a month: beginMonth, writeSegment for each chunk (sorted by account, occurredAt, id), commitMonth.
+    // The caller must hold the month's claim: beginMonth throws away whatever an earlier claim left behind.
+    public void beginMonth(YearMonth month) throws IOException {
+        var monthDir = dir.resolve(month.toString());
+        discardMonth(month);
+        Files.createDirectories(monthDir);
+        Files.writeString(dir.resolve(month + PENDING_SUFFIX), "", StandardCharsets.UTF_8);
+    }
+
+    public void writeSegment(YearMonth month, int sequence, List<ArchivedTxn> rows) throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        var file = dir.resolve(month.toString()).resolve(String.format("seg-%05d%s", sequence, SEGMENT_SUFFIX));
+        TxnSegment.write(file, rows, stripeRows);
+    }
+
+    public synchronized void commitMonth(YearMonth month, Instant newCutoff) throws IOException {
+        var opened = openSegments(dir.resolve(month.toString()));
+        var tmp = dir.resolve(CUTOFF_FILE + ".tmp");
+        Files.writeString(tmp, newCutoff.toString(), StandardCharsets.UTF_8);
+        Files.move(tmp, dir.resolve(CUTOFF_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<TxnSegment> next = new ArrayList<>(segments);
+        next.addAll(opened);
+        segments = List.copyOf(next);
+        loadedMonths.add(month);
+        cutoff = newCutoff;
+        Files.deleteIfExists(dir.resolve(month + PENDING_SUFFIX));
+    }
+
+    // A marker left on a month the cutoff already covers is from a crash between the cutoff move and
+    // the marker delete. Markers above the cutoff are left alone: a live claim may own the month, and
+    // the next claim on an abandoned one discards it in beginMonth.
+    private void clearCommittedMarkers() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (var marker : files.filter(p -> p.getFileName().toString().endsWith(PENDING_SUFFIX)).toList()) {
+                var name = marker.getFileName().toString();
+                var month = YearMonth.parse(name.substring(0, name.length() - PENDING_SUFFIX.length()));
+                if (!cutoff.isBefore(monthEnd(month))) {
+                    Files.deleteIfExists(marker);
+                }
+            }
+        }
+    }
+
+    private Instant readCutoff() throws IOException {
+        var cutoffFile = dir.resolve(CUTOFF_FILE);
+        if (!Files.exists(cutoffFile)) {
+            return null;
+        }
+        return Instant.parse(Files.readString(cutoffFile, StandardCharsets.UTF_8).trim());
+    }
+
+    private static Instant monthEnd(YearMonth month) {
+        return month.plusMonths(1).atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+
+    private void discardMonth(YearMonth month) throws IOException {
+        var monthDir = dir.resolve(month.toString());
+        if (!Files.exists(monthDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(monthDir)) {
+            for (var f : files.toList()) {
+                Files.delete(f);
+            }
+        }
+        Files.delete(monthDir);
+    }
+
+    private static List<TxnSegment> openSegments(Path monthDir) throws IOException {
+        List<TxnSegment> opened = new ArrayList<>();
+        if (!Files.isDirectory(monthDir)) {
+            return opened;
+        }
+        try (Stream<Path> files = Files.list(monthDir)) {
+            for (var f : files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList()) {
+                try {
+                    opened.add(TxnSegment.open(f));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Could not open archive segment " + f, ex);
+                }
+            }
+        }
+        return opened;
+    }
+}
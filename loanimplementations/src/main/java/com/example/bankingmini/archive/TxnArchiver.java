@@ -0,0 +1,232 @@
+package com.example.bankingmini.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Moves closed months older than the retention window out of TXN into the archive, one month at a
+// time: write the month's segments, advance the archive cutoff, then delete the rows below the
+// cutoff in small chunks. The delete only ever removes rows the archive already serves, so rerunning
+// it after a crash is harmless.
+//
+// Purged rows only exist in the archive from then on, so archive.dir has to be set explicitly to an
+// absolute path on storage every node reads and that outlives the container; a node-local default
+// would leave other nodes and a redeployed instance without them.
+//
+// Every node schedules the job against the same directory, so a month is claimed by inserting its
+// ARCHIVE_RUN row before anything under <dir>/<yyyy-MM>/ is touched. A node that loses the insert
+// stops, unless the month turns out to be committed already. A FAILED month, or a RUNNING one older
+// than archive.claim-timeout-minutes (its node died mid-write), is taken over and rewritten, and a
+// node checks it still holds its claim before it advances the cutoff.
+@Service
+@Slf4j
+public class TxnArchiver {
+
+    public record Result(int months, long archivedRows, long purgedRows, Instant cutoff) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TxnArchive archive;
+    private final boolean enabled;
+    private final boolean dirConfigured;
+    private final int retentionMonths;
+    private final int segmentRows;
+    private final int purgeChunk;
+    private final int fetchSize;
+    private final Duration claimTimeout;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public TxnArchiver(JdbcTemplate jdbc,
+                       TxnArchive archive,
+                       @Value("${archive.enabled:false}") boolean enabled,
+                       @Value("${archive.dir:}") String dir,
+                       @Value("${archive.retention-months:18}") int retentionMonths,
+                       @Value("${archive.segment-rows:200000}") int segmentRows,
+                       @Value("${archive.purge-chunk:5000}") int purgeChunk,
+                       @Value("${archive.fetch-size:1000}") int fetchSize,
+                       @Value("${archive.claim-timeout-minutes:240}") long claimTimeoutMinutes) {
+        this.jdbc = jdbc;
+        this.archive = archive;
+        this.enabled = enabled;
+        this.dirConfigured = !dir.isBlank() && Paths.get(dir).isAbsolute();
+        if (enabled && !dirConfigured) {
+            throw new IllegalStateException("archive.enabled needs archive.dir set to an absolute path on shared, durable storage");
+        }
+        this.retentionMonths = retentionMonths;
+        this.segmentRows = segmentRows;
+        this.purgeChunk = purgeChunk;
+        this.fetchSize = fetchSize;
+        this.claimTimeout = Duration.ofMinutes(claimTimeoutMinutes);
+    }
+
+    @Scheduled(cron = "${archive.cron:0 30 2 * * *}")
+    public void scheduledRun() {
+        if (enabled && !running.get()) {
+            run();
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Result run() {
+        if (!dirConfigured) {
+            throw new IllegalArgumentException("Set archive.dir to an absolute path on shared, durable storage before archiving");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("An archive run is already in progress");
+        }
+        try {
+            // another node may have archived months since this one last looked
+            archive.refresh();
+            // finish a purge that a previous run did not get to complete
+            long purged = purge();
+            var horizon = YearMonth.now().minusMonths(retentionMonths);
+            int months = 0;
+            long rows = 0;
+            for (var month = firstLiveMonth(); month != null && month.isBefore(horizon); month = month.plusMonths(1)) {
+                var claimedAt = Timestamp.from(Instant.now());
+                if (!claim(month, claimedAt)) {
+                    archive.refresh();
+                    if (archive.cutoff().isBefore(monthEnd(month))) {
+                        log.info("Archiving {} is in progress on another node", month);
+                        break;
+                    }
+                    continue;
+                }
+                rows += archiveMonth(month, claimedAt);
+                purged += purge();
+                months++;
+            }
+            if (months > 0) {
+                log.info("Archived {} month(s), {} rows; {} rows purged from TXN, cutoff now {}",
+                        months, rows, purged, archive.cutoff());
+            }
+            return new Result(months, rows, purged, archive.cutoff());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private YearMonth firstLiveMonth() {
+        var oldest = jdbc.queryForObject("SELECT MIN(OCCURRED_AT) FROM TXN WHERE OCCURRED_AT >= ?",
+                Timestamp.class, Timestamp.from(archive.cutoff()));
+        return oldest == null ? null : YearMonth.from(oldest.toInstant().atZone(ZoneId.systemDefault()));
+    }
+
+    // Inserts the month's row, or takes over a failed or abandoned one; false when another node has it
+    private boolean claim(YearMonth month, Timestamp claimedAt) {
+        try {
+            jdbc.update("INSERT INTO ARCHIVE_RUN (RUN_KEY, STATUS, STARTED_AT) VALUES (?, 'RUNNING', ?)",
+                    month.toString(), claimedAt);
+            return true;
+        } catch (DuplicateKeyException ex) {
+            var abandoned = Timestamp.from(claimedAt.toInstant().minus(claimTimeout));
+            return jdbc.update("UPDATE ARCHIVE_RUN SET STATUS = 'RUNNING', STARTED_AT = ?, COMPLETED_AT = NULL " +
+                    "WHERE RUN_KEY = ? AND (STATUS = 'FAILED' OR (STATUS = 'RUNNING' AND STARTED_AT < ?))",
+                    claimedAt, month.toString(), abandoned) == 1;
+        }
+    }
+
+    private boolean stillClaimed(YearMonth month, Timestamp claimedAt) {
+        var owned = jdbc.queryForObject("SELECT COUNT(*) FROM ARCHIVE_RUN WHERE RUN_KEY = ? AND STATUS = 'RUNNING' " +
+                "AND STARTED_AT = ?", Integer.class, month.toString(), claimedAt);
+        return owned != null && owned == 1;
+    }
+
+    private static Instant monthEnd(YearMonth month) {
+        return month.plusMonths(1).atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+
+    // STARTED_AT identifies this node's claim, so a month that was taken over does not overwrite the row
+    private long archiveMonth(YearMonth month, Timestamp claimedAt) {
+        var monthStart = month.atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        var start = monthStart.isAfter(archive.cutoff()) ? monthStart : archive.cutoff();
+        var end = monthEnd(month);
+
+        try {
+            archive.beginMonth(month);
+            List<ArchivedTxn> buffer = new ArrayList<>();
+            int[] sequence = {0};
+            long[] rows = {0};
+            jdbc.query(con -> {
+                var ps = con.prepareStatement(
+                        "SELECT ID, ACCOUNT_ID, TYPE, AMOUNT, REF_ACCOUNT_ID, DESCRIPTION, CATEGORY, OCCURRED_AT FROM TXN " +
+                                "WHERE OCCURRED_AT >= ? AND OCCURRED_AT < ? ORDER BY ACCOUNT_ID, OCCURRED_AT, ID");
+                ps.setTimestamp(1, Timestamp.from(start));
+                ps.setTimestamp(2, Timestamp.from(end));
+                ps.setFetchSize(fetchSize);
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                long ref = rs.getLong(5);
+                Long refAccountId = rs.wasNull() ? null : ref;
+                buffer.add(new ArchivedTxn(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getBigDecimal(4),
+                        refAccountId, rs.getString(6), rs.getString(7), rs.getTimestamp(8).toInstant()));
+                if (buffer.size() >= segmentRows) {
+                    writeSegment(month, sequence[0]++, buffer);
+                    rows[0] += buffer.size();
+                    buffer.clear();
+                }
+            });
+            writeSegment(month, sequence[0], buffer);
+            rows[0] += buffer.size();
+            if (!stillClaimed(month, claimedAt)) {
+                throw new IllegalStateException("Archive claim on " + month + " was taken over by another node");
+            }
+            archive.commitMonth(month, end);
+            jdbc.update("UPDATE ARCHIVE_RUN SET STATUS = 'COMPLETED', COMPLETED_AT = ?, ROWS_ARCHIVED = ? " +
+                    "WHERE RUN_KEY = ? AND STARTED_AT = ?", Timestamp.from(Instant.now()), rows[0], month.toString(), claimedAt);
+            log.info("Archived {}: {} rows in {} segment(s)", month, rows[0], buffer.isEmpty() ? sequence[0] : sequence[0] + 1);
+            return rows[0];
+        } catch (IOException ex) {
+            markFailed(month, claimedAt);
+            throw new UncheckedIOException("Could not archive " + month, ex);
+        } catch (RuntimeException ex) {
+            markFailed(month, claimedAt);
+            throw ex;
+        }
+    }
+
+    private void markFailed(YearMonth month, Timestamp claimedAt) {
+        jdbc.update("UPDATE ARCHIVE_RUN SET STATUS = 'FAILED' WHERE RUN_KEY = ? AND STARTED_AT = ? AND STATUS = 'RUNNING'",
+                month.toString(), claimedAt);
+    }
+
+    private void writeSegment(YearMonth month, int sequence, List<ArchivedTxn> rows) {
+        try {
+            archive.writeSegment(month, sequence, rows);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write archive segment for " + month, ex);
+        }
+    }
+
+    // each chunk commits on its own so undo and lock footprint stay small
+    private long purge() {
+        var cutoff = Timestamp.from(archive.cutoff());
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbc.update("DELETE FROM TXN WHERE OCCURRED_AT < ? AND ROWNUM <= ?", cutoff, purgeChunk);
+            total += deleted;
+        } while (deleted > 0);
+        return total;
+    }
+}
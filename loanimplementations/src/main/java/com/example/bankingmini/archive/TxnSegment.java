@@ -0,0 +1,408 @@
+package com.example.bankingmini.archive;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Immutable archive file holding TXN rows sorted by (account, occurredAt, id).
+//
+// Layout: a fixed header with the segment-wide min/max account and time, a stripe directory with
+// the same min/max per stripe, then the stripes. Each stripe is one deflate stream whose content is
+// column after column (account ids, ids, times, types, amounts, refs, descriptions, categories), with
+// the sorted numeric columns delta encoded. Readers memory-map the file and only inflate stripes
+// whose min/max range overlaps the query.
+final class TxnSegment {
+
+    static final int MAGIC = 0x54585347; // "TXSG"
+    static final short VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 4 + 8 * 5;
+    private static final int STRIPE_ENTRY_BYTES = 4 + 8 * 4 + 8 + 4 + 4;
+
+    record Stripe(int rows, long minAccount, long maxAccount, long minMillis, long maxMillis,
+                  long offset, int compressedLength, int rawLength) {
+
+        boolean overlaps(long fromAccount, long toAccount, long fromMillis, long toMillis) {
+            return maxAccount >= fromAccount && minAccount <= toAccount
+                    && maxMillis >= fromMillis && minMillis < toMillis;
+        }
+    }
+
+    private final Path path;
+    private final long rows;
+    private final long minAccount;
+    private final long maxAccount;
+    private final long minMillis;
+    private final long maxMillis;
+    private final Stripe[] stripes;
+    private final ByteBuffer data; // read-only mapping of the whole file
+
+    private TxnSegment(Path path, ByteBuffer data) {
+        this.path = path;
+        this.data = data;
+        if (data.getInt(0) != MAGIC || data.getShort(4) != VERSION) {
+            throw new IllegalStateException("Not an archive segment: " + path);
+        }
+        int stripeCount = data.getInt(6);
+        this.rows = data.getLong(10);
+        this.minAccount = data.getLong(18);
+        this.maxAccount = data.getLong(26);
+        this.minMillis = data.getLong(34);
+        this.maxMillis = data.getLong(42);
+        this.stripes = new Stripe[stripeCount];
+        int pos = HEADER_BYTES;
+        for (int i = 0; i < stripeCount; i++, pos += STRIPE_ENTRY_BYTES) {
+            stripes[i] = new Stripe(data.getInt(pos), data.getLong(pos + 4), data.getLong(pos + 12),
+                    data.getLong(pos + 20), data.getLong(pos + 28), data.getLong(pos + 36),
+                    data.getInt(pos + 44), data.getInt(pos + 48));
+        }
+    }
+
+    static TxnSegment open(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new TxnSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    boolean overlaps(long fromAccount, long toAccount, Instant from, Instant to) {
+        return maxAccount >= fromAccount && minAccount <= toAccount
+                && maxMillis >= from.toEpochMilli() && minMillis < to.toEpochMilli();
+    }
+
+    // Rows with fromAccount <= accountId <= toAccount and from <= occurredAt < to, in file order
+    void scan(long fromAccount, long toAccount, Instant from, Instant to, Consumer<ArchivedTxn> sink) {
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli() + 1; // stripe bounds are truncated to millis
+        for (var stripe : stripes) {
+            if (stripe.overlaps(fromAccount, toAccount, fromMillis, toMillis)) {
+                readStripe(stripe, fromAccount, toAccount, from, to, sink);
+            }
+        }
+    }
+
+    private void readStripe(Stripe stripe, long fromAccount, long toAccount, Instant from, Instant to,
+                            Consumer<ArchivedTxn> sink) {
+        byte[] raw = new byte[stripe.rawLength()];
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice((int) stripe.offset(), stripe.compressedLength()));
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                int read = inflater.inflate(raw, n, raw.length - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated archive segment " + path);
+                }
+                n += read;
+            }
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Corrupt archive segment " + path, ex);
+        } finally {
+            inflater.end();
+        }
+
+        int rowCount = stripe.rows();
+        var in = new Reader(raw);
+        long[] accountIds = in.deltas(rowCount);
+        long[] ids = in.deltas(rowCount);
+        long[] seconds = in.deltas(rowCount);
+        Instant[] times = new Instant[rowCount];
+        boolean[] match = new boolean[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            times[i] = Instant.ofEpochSecond(seconds[i], in.varLong());
+            match[i] = accountIds[i] >= fromAccount && accountIds[i] <= toAccount
+                    && !times[i].isBefore(from) && times[i].isBefore(to);
+        }
+
+        String[] dictionary = new String[(int) in.varLong()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = in.string();
+        }
+        String[] types = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            types[i] = dictionary[(int) in.varLong()];
+        }
+        BigDecimal[] amounts = new BigDecimal[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            int scale = (int) in.varLong();
+            amounts[i] = BigDecimal.valueOf(in.zigzag(), scale);
+        }
+        Long[] refs = new Long[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            long v = in.varLong();
+            refs[i] = v == 0 ? null : unzigzag(v - 1);
+        }
+        String[] descriptions = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            descriptions[i] = match[i] ? in.string() : in.skipString();
+        }
+        for (int i = 0; i < rowCount; i++) {
+            String category = match[i] ? in.string() : in.skipString();
+            if (match[i]) {
+                sink.accept(new ArchivedTxn(ids[i], accountIds[i], types[i], amounts[i], refs[i],
+                        descriptions[i], category, times[i]));
+            }
+        }
+    }
+
+    // rows must already be sorted by (accountId, occurredAt, id)
+    static void write(Path target, List<ArchivedTxn> rows, int stripeRows) throws IOException {
+        int stripeCount = (rows.size() + stripeRows - 1) / stripeRows;
+        List<Stripe> directory = new ArrayList<>(stripeCount);
+        List<byte[]> compressed = new ArrayList<>(stripeCount);
+        long offset = HEADER_BYTES + (long) stripeCount * STRIPE_ENTRY_BYTES;
+        var deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            for (int start = 0; start < rows.size(); start += stripeRows) {
+                var slice = rows.subList(start, Math.min(rows.size(), start + stripeRows));
+                byte[] raw = encode(slice);
+                deflater.reset();
+                deflater.setInput(raw);
+                deflater.finish();
+                var out = new Writer(raw.length / 2 + 64);
+                byte[] chunk = new byte[8192];
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(chunk);
+                    out.bytes(chunk, n);
+                }
+                byte[] packed = out.toByteArray();
+                long minMillis = Long.MAX_VALUE;
+                long maxMillis = Long.MIN_VALUE;
+                for (var t : slice) {
+                    minMillis = Math.min(minMillis, t.occurredAt().toEpochMilli());
+                    maxMillis = Math.max(maxMillis, t.occurredAt().toEpochMilli());
+                }
+                directory.add(new Stripe(slice.size(), slice.get(0).accountId(), slice.get(slice.size() - 1).accountId(),
+                        minMillis, maxMillis, offset, packed.length, raw.length));
+                compressed.add(packed);
+                offset += packed.length;
+            }
+        } finally {
+            deflater.end();
+        }
+
+        var header = ByteBuffer.allocate(HEADER_BYTES + stripeCount * STRIPE_ENTRY_BYTES);
+        header.putInt(MAGIC).putShort(VERSION).putInt(stripeCount).putLong(rows.size());
+        header.putLong(directory.stream().mapToLong(Stripe::minAccount).min().orElse(0));
+        header.putLong(directory.stream().mapToLong(Stripe::maxAccount).max().orElse(0));
+        header.putLong(directory.stream().mapToLong(Stripe::minMillis).min().orElse(0));
+        header.putLong(directory.stream().mapToLong(Stripe::maxMillis).max().orElse(0));
+        for (var s : directory) {
+            header.putInt(s.rows()).putLong(s.minAccount()).putLong(s.maxAccount())
+                    .putLong(s.minMillis()).putLong(s.maxMillis()).putLong(s.offset())
+                    .putInt(s.compressedLength()).putInt(s.rawLength());
+        }
+        header.flip();
+
+        var tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            for (var packed : compressed) {
+                var buf = ByteBuffer.wrap(packed);
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] encode(List<ArchivedTxn> rows) {
+        var out = new Writer(rows.size() * 48);
+        long prev = 0;
+        for (var t : rows) {
+            out.zigzag(t.accountId() - prev);
+            prev = t.accountId();
+        }
+        prev = 0;
+        for (var t : rows) {
+            out.zigzag(t.id() - prev);
+            prev = t.id();
+        }
+        prev = 0;
+        for (var t : rows) {
+            out.zigzag(t.occurredAt().getEpochSecond() - prev);
+            prev = t.occurredAt().getEpochSecond();
+        }
+        for (var t : rows) {
+            out.varLong(t.occurredAt().getNano());
+        }
+
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        for (var t : rows) {
+            codes.computeIfAbsent(t.type(), k -> {
+                dictionary.add(k);
+                return dictionary.size() - 1;
+            });
+        }
+        out.varLong(dictionary.size());
+        for (var type : dictionary) {
+            out.string(type);
+        }
+        for (var t : rows) {
+            out.varLong(codes.get(t.type()));
+        }
+
+        for (var t : rows) {
+            var amount = t.amount();
+            if (amount.scale() < 0) {
+                amount = amount.setScale(0);
+            }
+            BigInteger unscaled = amount.unscaledValue();
+            if (unscaled.bitLength() > 63) {
+                throw new IllegalArgumentException("Amount out of range for archive: " + t.amount());
+            }
+            out.varLong(amount.scale());
+            out.zigzag(unscaled.longValue());
+        }
+        for (var t : rows) {
+            out.varLong(t.refAccountId() == null ? 0 : zigzag(t.refAccountId()) + 1);
+        }
+        for (var t : rows) {
+            out.string(t.description());
+        }
+        for (var t : rows) {
+            out.string(t.category());
+        }
+        return out.toByteArray();
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buf;
+        private int size;
+
+        Writer(int capacity) {
+            buf = new byte[Math.max(capacity, 64)];
+        }
+
+        void varLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void zigzag(long v) {
+            varLong(TxnSegment.zigzag(v));
+        }
+
+        // length + 1 so that 0 can stand for null
+        void string(String s) {
+            if (s == null) {
+                varLong(0);
+                return;
+            }
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            varLong(b.length + 1L);
+            bytes(b, b.length);
+        }
+
+        void bytes(byte[] b, int len) {
+            ensure(len);
+            System.arraycopy(b, 0, buf, size, len);
+            size += len;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        long varLong() {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return v;
+        }
+
+        long zigzag() {
+            return unzigzag(varLong());
+        }
+
+        long[] deltas(int count) {
+            long[] values = new long[count];
+            long prev = 0;
+            for (int i = 0; i < count; i++) {
+                prev += zigzag();
+                values[i] = prev;
+            }
+            return values;
+        }
+
+        String string() {
+            int len = (int) varLong();
+            if (len == 0) {
+                return null;
+            }
+            var s = new String(buf, pos, len - 1, StandardCharsets.UTF_8);
+            pos += len - 1;
+            return s;
+        }
+
+        String skipString() {
+            int len = (int) varLong();
+            if (len > 0) {
+                pos += len - 1;
+            }
+            return null;
+        }
+    }
+}
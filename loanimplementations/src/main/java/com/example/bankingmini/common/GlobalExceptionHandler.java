@@ -3,6 +3,7 @@ package com.example.bankingmini.common;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -38,6 +39,13 @@ public class GlobalExceptionHandler {
         return ApiError.of("DATA_INTEGRITY", "Duplicate or invalid data " + ex.getMessage());
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ApiError handleConcurrentUpdate(OptimisticLockingFailureException ex) {
+        log.warn("Concurrent update: {}", ex.getMessage());
+        return ApiError.of("CONCURRENT_UPDATE", ex.getMessage());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiError handleIllegalArg(IllegalArgumentException ex) {
@@ -62,6 +70,13 @@ public class GlobalExceptionHandler {
         return ApiError.of("INSUFFICIENT_FUNDS", "Insufficient funds for transaction");
     }
 
+    @ExceptionHandler(VelocityLimitExceededException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiError handleLimit(VelocityLimitExceededException ex) {
+        log.warn("Limit exceeded: {}", ex.getMessage());
+        return ApiError.of("LIMIT_EXCEEDED", ex.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ApiError handleGeneral(Exception ex) {
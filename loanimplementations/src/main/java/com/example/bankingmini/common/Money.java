@@ -0,0 +1,108 @@
+package com.example.bankingmini.common;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// An amount in minor units (cents). Arithmetic is on the long and throws ArithmeticException on
+// overflow instead of wrapping. The static long methods are for loops that fold many amounts
+// (statements, dashboard totals, limit checks): they keep the running total in a local long and
+// allocate nothing per row. Amounts reach the API and the database as two-decimal BigDecimals.
+@JsonSerialize(using = MoneyJson.Serializer.class)
+@JsonDeserialize(using = MoneyJson.Deserializer.class)
+public record Money(long minor) implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    // Largest unscaled value whose double form is exact, so doubleValue() * 100 rounds back to it
+    private static final long EXACT_DOUBLE = 1L << 50;
+
+    public static Money ofMinor(long minor) {
+        return minor == 0 ? ZERO : new Money(minor);
+    }
+
+    public static Money of(BigDecimal amount) {
+        return ofMinor(minorUnits(amount));
+    }
+
+    public static Money parse(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    // Cents in amount, rounding half-up past the second decimal. Values with at most two decimals
+    // (every amount column) take the double path, which BigDecimal answers without allocating.
+    public static long minorUnits(BigDecimal amount) {
+        int scale = amount.scale();
+        if (scale >= 0 && scale <= SCALE && amount.precision() <= 15) {
+            double value = amount.doubleValue() * 100;
+            if (Math.abs(value) < EXACT_DOUBLE) {
+                return Math.round(value);
+            }
+        }
+        return amount.movePointRight(SCALE).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minor, other.minor));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minor, other.minor));
+    }
+
+    public Money times(long factor) {
+        return ofMinor(Math.multiplyExact(minor, factor));
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minor));
+    }
+
+    public boolean isNegative() {
+        return minor < 0;
+    }
+
+    public boolean isZero() {
+        return minor == 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(minor);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minor, other.minor);
+    }
+
+    // Plain decimal with two places, e.g. -12.05
+    @Override
+    public String toString() {
+        long abs = Math.abs(minor);
+        var sb = new StringBuilder(24);
+        if (minor < 0) {
+            sb.append('-');
+        }
+        long fraction = abs % 100;
+        sb.append(abs / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction).toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.bankingmini.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+// Money goes over the wire as a plain JSON number with two decimals, the same as the BigDecimal
+// amounts elsewhere in the API; strings like "12.50" are accepted on the way in.
+public final class MoneyJson {
+
+    private MoneyJson() {
+    }
+
+    public static class Serializer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.toString());
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_STRING) {
+                return Money.parse(p.getText().trim());
+            }
+            return Money.of(p.getDecimalValue());
+        }
+    }
+}
@@ -43,6 +43,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, "/api/auth/register-admin").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/api/auth/register-loan-officer").hasRole("ADMIN") // Added loan officer registration endpoint (admin-only)
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/metrics/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/api/dashboard/admin-summary").hasRole("ADMIN")
 
                         // Loan officer and admin endpoints
@@ -50,6 +51,8 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, "/api/vehicle-loans/*/approve", "/api/vehicle-loans/*/reject", "/api/vehicle-loans/*/disburse").hasAnyRole("LOAN_OFFICER", "ADMIN")
                         .requestMatchers(HttpMethod.GET, "/api/student-loans/pending", "/api/student-loans/all").hasAnyRole("LOAN_OFFICER", "ADMIN")
                         .requestMatchers(HttpMethod.POST, "/api/student-loans/*/approve", "/api/student-loans/*/reject", "/api/student-loans/*/disburse", "/api/student-loans/*/renew").hasAnyRole("LOAN_OFFICER", "ADMIN")
+                        .requestMatchers("/api/loan-queue/**").hasAnyRole("LOAN_OFFICER", "ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/loan-bulk/**").hasAnyRole("LOAN_OFFICER", "ADMIN")
                         .requestMatchers(HttpMethod.GET, "/api/dashboard/loan-officer-summary", "/api/dashboard/loan-analytics", "/api/dashboard/portfolio-summary").hasAnyRole("LOAN_OFFICER", "ADMIN")
 
                         // Customer loan application endpoints (authenticated users)
@@ -65,6 +68,7 @@ public class SecurityConfig {
 
                         // Customer loan application endpoints (authenticated users)
                         .requestMatchers(HttpMethod.POST, "/api/loan/request", "/api/loan/apply").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/loan/quote-grid").hasAnyRole("USER", "LOAN_OFFICER", "ADMIN")
                         .requestMatchers(HttpMethod.GET, "/api/loan/my-loans", "/api/loan/*", "/api/loan/*/installments").hasAnyRole("USER", "ADMIN")
                         .requestMatchers(HttpMethod.POST, "/api/loan/*/pay-installment", "/api/loan/*/renew", "/api/loan/*/close").hasAnyRole("USER", "ADMIN")
 
@@ -74,6 +78,9 @@ public class SecurityConfig {
                         // Enhanced transaction endpoints
                         .requestMatchers("/api/transactions/**").hasAnyRole("USER", "ADMIN")
 
+                        // Standing instructions (recurring transfers)
+                        .requestMatchers("/api/standing-instructions/**").hasAnyRole("USER", "ADMIN")
+
                         // Customer dashboard
                         .requestMatchers(HttpMethod.GET, "/api/dashboard/customer-summary").hasAnyRole("USER", "ADMIN")
 
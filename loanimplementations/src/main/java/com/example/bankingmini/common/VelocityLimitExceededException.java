@@ -0,0 +1,7 @@
+package com.example.bankingmini.common;
+
+public class VelocityLimitExceededException extends RuntimeException {
+    public VelocityLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -3,6 +3,7 @@ package com.example.bankingmini.dashboard;
 import com.example.bankingmini.account.AccountRepository;
 import com.example.bankingmini.account.TransactionRepository;
 import com.example.bankingmini.auth.CustomerRepository;
+import com.example.bankingmini.common.Money;
 import com.example.bankingmini.loan.LoanRepository;
 import com.example.bankingmini.loan.StudentLoanRepository;
 import com.example.bankingmini.loan.VehicleLoanRepository;
@@ -135,16 +136,16 @@ public class LoanDashboardService {
         var allVehicleLoans = vehicleLoanRepository.findAll();
         var allStudentLoans = studentLoanRepository.findAll();
 
-        BigDecimal totalDisbursedAmount = BigDecimal.ZERO;
-        totalDisbursedAmount = totalDisbursedAmount.add(allVehicleLoans.stream()
+        long totalDisbursedAmountMinor = allVehicleLoans.stream()
                 .filter(loan -> "DISBURSED".equals(loan.getStatus()) || "ACTIVE".equals(loan.getStatus()))
-                .map(loan -> loan.getLoanAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
+                .mapToLong(loan -> Money.minorUnits(loan.getLoanAmount()))
+                .reduce(0L, Money::add);
 
-        totalDisbursedAmount = totalDisbursedAmount.add(allStudentLoans.stream()
+        totalDisbursedAmountMinor = Money.add(totalDisbursedAmountMinor, allStudentLoans.stream()
                 .filter(loan -> "DISBURSED".equals(loan.getStatus()) || "ACTIVE".equals(loan.getStatus()))
-                .map(loan -> loan.getLoanAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
+                .mapToLong(loan -> Money.minorUnits(loan.getLoanAmount()))
+                .reduce(0L, Money::add));
+        BigDecimal totalDisbursedAmount = Money.toBigDecimal(totalDisbursedAmountMinor);
 
         // Loan status distribution
         Map<String, Integer> loanStatusDistribution = new HashMap<>();
@@ -174,43 +175,40 @@ public class LoanDashboardService {
         var allStudentLoans = studentLoanRepository.findAll();
         var allGeneralLoans = generalLoanRepository.findAll();
 
-        BigDecimal totalLoanPortfolio = BigDecimal.ZERO;
-        totalLoanPortfolio = totalLoanPortfolio.add(allVehicleLoans.stream()
-                .map(loan -> loan.getLoanAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        long totalLoanPortfolioMinor = allVehicleLoans.stream()
+                .mapToLong(loan -> Money.minorUnits(loan.getLoanAmount()))
+                .reduce(0L, Money::add);
 
-        totalLoanPortfolio = totalLoanPortfolio.add(allStudentLoans.stream()
-                .map(loan -> loan.getLoanAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
-        totalLoanPortfolio = totalLoanPortfolio.add(allGeneralLoans.stream()
-                .map(loan -> loan.getPrincipal())
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        totalLoanPortfolioMinor = Money.add(totalLoanPortfolioMinor, allStudentLoans.stream()
+                .mapToLong(loan -> Money.minorUnits(loan.getLoanAmount()))
+                .reduce(0L, Money::add));
+        totalLoanPortfolioMinor = Money.add(totalLoanPortfolioMinor, allGeneralLoans.stream()
+                .mapToLong(loan -> Money.minorUnits(loan.getPrincipal()))
+                .reduce(0L, Money::add));
+        BigDecimal totalLoanPortfolio = Money.toBigDecimal(totalLoanPortfolioMinor);
 
-        BigDecimal totalOutstanding = BigDecimal.ZERO;
-        totalOutstanding = totalOutstanding.add(allVehicleLoans.stream()
+        long totalOutstandingMinor = allVehicleLoans.stream()
                 .filter(loan -> loan.getOutstandingAmount() != null)
-                .map(loan -> loan.getOutstandingAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
+                .mapToLong(loan -> Money.minorUnits(loan.getOutstandingAmount()))
+                .reduce(0L, Money::add);
 
-        totalOutstanding = totalOutstanding.add(allStudentLoans.stream()
+        totalOutstandingMinor = Money.add(totalOutstandingMinor, allStudentLoans.stream()
                 .filter(loan -> loan.getOutstandingAmount() != null)
-                .map(loan -> loan.getOutstandingAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
+                .mapToLong(loan -> Money.minorUnits(loan.getOutstandingAmount()))
+                .reduce(0L, Money::add));
+        BigDecimal totalOutstanding = Money.toBigDecimal(totalOutstandingMinor);
 
-        // Risk metrics
+        // Risk metrics: OVERDUE_SINCE is kept by OverdueInstallmentSweeper and cleared by payments
         long overdueLoans =
                 allVehicleLoans.stream()
-                        .filter(loan -> "ACTIVE".equals(loan.getStatus()))
-                        .mapToLong(loan -> 0L)
-                        .sum() +
+                        .filter(loan -> loan.getOverdueSince() != null)
+                        .count() +
                         allStudentLoans.stream()
-                                .filter(loan -> "ACTIVE".equals(loan.getStatus()))
-                                .mapToLong(loan -> 0L)
-                                .sum() +
+                                .filter(loan -> loan.getOverdueSince() != null)
+                                .count() +
                         allGeneralLoans.stream()
-                                .filter(loan -> "ACTIVE".equals(loan.getStatus()))
-                                .mapToLong(loan -> 0L)
-                                .sum();
+                                .filter(loan -> loan.getOverdueSince() != null)
+                                .count();
 
 
         return AdminDashboardDto.builder()
@@ -256,14 +254,14 @@ public class LoanDashboardService {
         var allVehicleLoans = vehicleLoanRepository.findAll();
         var allStudentLoans = studentLoanRepository.findAll();
 
-        BigDecimal totalPortfolioValue = BigDecimal.ZERO;
-        totalPortfolioValue = totalPortfolioValue.add(allVehicleLoans.stream()
-                .map(loan -> loan.getLoanAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        long totalPortfolioValueMinor = allVehicleLoans.stream()
+                .mapToLong(loan -> Money.minorUnits(loan.getLoanAmount()))
+                .reduce(0L, Money::add);
 
-        totalPortfolioValue = totalPortfolioValue.add(allStudentLoans.stream()
-                .map(loan -> loan.getLoanAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        totalPortfolioValueMinor = Money.add(totalPortfolioValueMinor, allStudentLoans.stream()
+                .mapToLong(loan -> Money.minorUnits(loan.getLoanAmount()))
+                .reduce(0L, Money::add));
+        BigDecimal totalPortfolioValue = Money.toBigDecimal(totalPortfolioValueMinor);
 
         // Calculate performance metrics
         Map<String, BigDecimal> performanceMetrics = new HashMap<>();
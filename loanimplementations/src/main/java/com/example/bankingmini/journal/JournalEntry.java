@@ -0,0 +1,114 @@
+package com.example.bankingmini.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// A balanced set of legs posted atomically. The id is the entry's WAL sequence number, which is
+// also the JOURNAL_ENTRY primary key, so re-applying an entry after a crash is detectable.
+// pendingId is the JOURNAL_PENDING row of an entry posted inside a transaction (0 for none).
+public record JournalEntry(long id, String kind, String reference, Instant occurredAt, List<JournalLine> lines,
+                           long pendingId) {
+
+    public JournalEntry {
+        if (lines == null || lines.size() < 2) {
+            throw new IllegalArgumentException("A journal entry needs at least two lines");
+        }
+        var debits = BigDecimal.ZERO;
+        var credits = BigDecimal.ZERO;
+        for (var line : lines) {
+            if (line.amount() == null || line.amount().signum() <= 0) {
+                throw new IllegalArgumentException("Journal amounts must be positive");
+            }
+            if (line.debit()) {
+                debits = debits.add(line.amount());
+            } else {
+                credits = credits.add(line.amount());
+            }
+        }
+        if (debits.compareTo(credits) != 0) {
+            throw new IllegalArgumentException("Journal entry is not balanced: debits " + debits + ", credits " + credits);
+        }
+        lines = List.copyOf(lines);
+    }
+
+    JournalEntry withId(long id) {
+        return new JournalEntry(id, kind, reference, occurredAt, lines, pendingId);
+    }
+
+    JournalEntry withPendingId(long pendingId) {
+        return new JournalEntry(id, kind, reference, occurredAt, lines, pendingId);
+    }
+
+    byte[] encode() {
+        var bytes = new ByteArrayOutputStream(64 + lines.size() * 48);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeUTF(kind);
+            writeNullable(out, reference);
+            out.writeLong(occurredAt.getEpochSecond());
+            out.writeInt(occurredAt.getNano());
+            out.writeShort(lines.size());
+            for (var line : lines) {
+                out.writeUTF(line.ledger());
+                out.writeLong(line.accountId() == null ? -1 : line.accountId());
+                out.writeBoolean(line.debit());
+                out.writeShort(line.amount().scale());
+                byte[] unscaled = line.amount().unscaledValue().toByteArray();
+                out.writeByte(unscaled.length);
+                out.write(unscaled);
+                writeNullable(out, line.txnType());
+                out.writeLong(line.refAccountId() == null ? -1 : line.refAccountId());
+            }
+            out.writeLong(pendingId);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    static JournalEntry decode(long id, byte[] payload) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String kind = in.readUTF();
+            String reference = readNullable(in);
+            var occurredAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+            int count = in.readShort();
+            List<JournalLine> lines = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String ledger = in.readUTF();
+                long accountId = in.readLong();
+                boolean debit = in.readBoolean();
+                int scale = in.readShort();
+                byte[] unscaled = new byte[in.readByte()];
+                in.readFully(unscaled);
+                String txnType = readNullable(in);
+                long ref = in.readLong();
+                lines.add(new JournalLine(ledger, accountId < 0 ? null : accountId, debit,
+                        new BigDecimal(new BigInteger(unscaled), scale), txnType, ref < 0 ? null : ref));
+            }
+            // records logged before pending ids existed end after the lines
+            long pendingId = in.available() >= 8 ? in.readLong() : 0;
+            return new JournalEntry(id, kind, reference, occurredAt, lines, pendingId);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
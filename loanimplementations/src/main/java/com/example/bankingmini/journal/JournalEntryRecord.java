@@ -0,0 +1,38 @@
+package com.example.bankingmini.journal;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// Applied (or failed) journal entries. Rows are written with JDBC batches by JournalLedgerWriter;
+// the entity is here so the table is managed with the rest of the schema.
+@Entity
+@Table(name = "JOURNAL_ENTRY")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntryRecord {
+    @Id
+    @Column(name = "ID")
+    private Long id; // WAL sequence number
+
+    @Column(name = "KIND", nullable = false)
+    private String kind;
+
+    @Column(name = "REFERENCE", unique = true)
+    private String reference; // business key, e.g. VEHICLE_LOAN:12; a second entry with the same key fails
+
+    @Column(name = "OCCURRED_AT", nullable = false)
+    private Instant occurredAt;
+
+    @Column(name = "APPLIED_AT", nullable = false)
+    private Instant appliedAt;
+
+    @Column(name = "STATUS", nullable = false)
+    private String status; // APPLIED, FAILED
+
+    @Column(name = "FAILURE_REASON", length = 1000)
+    private String failureReason;
+}
@@ -0,0 +1,27 @@
+package com.example.bankingmini.journal;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// The single row naming the node that runs the journal. Entry ids, holds and the write-ahead log are
+// all local to that node, so JournalService refuses to start while another owner keeps the heartbeat
+// fresh. Written with JDBC by JournalLedgerWriter.
+@Entity
+@Table(name = "JOURNAL_LEASE")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalLeaseRecord {
+    @Id
+    @Column(name = "NAME")
+    private String name;
+
+    @Column(name = "OWNER", nullable = false)
+    private String owner; // host and journal.dir
+
+    @Column(name = "HEARTBEAT_AT", nullable = false)
+    private Instant heartbeatAt;
+}
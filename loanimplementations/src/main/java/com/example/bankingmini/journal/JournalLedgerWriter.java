@@ -0,0 +1,187 @@
+package com.example.bankingmini.journal;
+
+import com.example.bankingmini.account.Account;
+import com.example.bankingmini.account.AccountRepository;
+import com.example.bankingmini.account.TransactionEntity;
+import com.example.bankingmini.account.TransactionPostedEvent;
+import com.example.bankingmini.account.TransactionRepository;
+import com.example.bankingmini.common.InsufficientFundsException;
+import com.example.bankingmini.common.NotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Applies journal entries to ACCOUNT and TXN. The JOURNAL_ENTRY row goes in with the balance
+// changes, so an entry that is replayed after a crash is recognised and skipped. The accounts a
+// batch touches are locked first (SELECT ... FOR UPDATE), so the read-modify-write of BALANCE here
+// cannot overwrite a concurrent in-place update from a JDBC writer or AccountService. A debit the
+// locked balance cannot cover fails the entry (JournalService records it as FAILED) rather than
+// overdrawing the account.
+@Component
+@ConditionalOnProperty(name = "journal.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class JournalLedgerWriter {
+
+    private final AccountRepository accounts;
+    private final TransactionRepository txns;
+    private final JdbcTemplate jdbc;
+    private final ApplicationEventPublisher events;
+
+    // Takes the journal lease for owner if it is free, already owner's, or its heartbeat is older than
+    // leaseSeconds. Database time is used throughout so clock skew between nodes does not matter.
+    public boolean acquireLease(String owner, long leaseSeconds) {
+        try {
+            jdbc.update("INSERT INTO JOURNAL_LEASE (NAME, OWNER, HEARTBEAT_AT) VALUES ('JOURNAL', ?, SYSTIMESTAMP)", owner);
+            return true;
+        } catch (DuplicateKeyException ex) {
+            return jdbc.update("UPDATE JOURNAL_LEASE SET OWNER = ?, HEARTBEAT_AT = SYSTIMESTAMP WHERE NAME = 'JOURNAL' " +
+                    "AND (OWNER = ? OR HEARTBEAT_AT < SYSTIMESTAMP - NUMTODSINTERVAL(?, 'SECOND'))",
+                    owner, owner, leaseSeconds) == 1;
+        }
+    }
+
+    // false once another node has taken the lease over
+    public boolean renewLease(String owner) {
+        return jdbc.update("UPDATE JOURNAL_LEASE SET HEARTBEAT_AT = SYSTIMESTAMP WHERE NAME = 'JOURNAL' AND OWNER = ?",
+                owner) == 1;
+    }
+
+    public long maxEntryId() {
+        Long max = jdbc.queryForObject("SELECT MAX(ID) FROM JOURNAL_ENTRY", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    public Set<Long> recordedIds(Collection<Long> ids) {
+        Set<Long> found = new HashSet<>();
+        List<Long> all = new ArrayList<>(ids);
+        // Oracle caps IN lists at 1000 entries
+        for (int i = 0; i < all.size(); i += 1000) {
+            var chunk = all.subList(i, Math.min(all.size(), i + 1000));
+            var placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            found.addAll(jdbc.queryForList("SELECT ID FROM JOURNAL_ENTRY WHERE ID IN (" + placeholders + ")",
+                    Long.class, chunk.toArray()));
+        }
+        return found;
+    }
+
+    @Transactional
+    public void apply(List<JournalEntry> entries) {
+        var done = recordedIds(entries.stream().map(JournalEntry::id).toList());
+        List<Object[]> entryRows = new ArrayList<>();
+        List<Object[]> lineRows = new ArrayList<>();
+        var now = Timestamp.from(Instant.now());
+        var locked = lock(entries);
+
+        for (var entry : entries) {
+            if (done.contains(entry.id())) {
+                continue;
+            }
+            entryRows.add(new Object[]{entry.id(), entry.kind(), entry.reference(),
+                    Timestamp.from(entry.occurredAt()), now, "APPLIED"});
+            int lineNo = 1;
+            for (var line : entry.lines()) {
+                lineRows.add(new Object[]{entry.id(), lineNo++, line.ledger(), line.accountId(),
+                        line.debit() ? "DR" : "CR", line.amount()});
+                if (!line.isCustomerAccount()) {
+                    continue;
+                }
+                var account = locked.get(line.accountId());
+                if (account == null) {
+                    throw new NotFoundException("Account not found: " + line.accountId());
+                }
+                // postings are checked against the journal's position, but one replayed after a
+                // restart or a balance change that bypassed the journal can still find too little
+                var balance = account.getBalance().add(line.balanceDelta());
+                if (balance.signum() < 0 && line.balanceDelta().signum() < 0) {
+                    throw new InsufficientFundsException("Insufficient funds in account " + account.getAccountNumber()
+                            + " for journal entry " + entry.id());
+                }
+                account.setBalance(balance);
+                var saved = txns.save(TransactionEntity.builder()
+                        .account(account)
+                        .type(line.txnType())
+                        .amount(line.amount())
+                        .refAccountId(line.refAccountId())
+                        .occurredAt(entry.occurredAt())
+                        .journalEntryId(entry.id())
+                        .build());
+                events.publishEvent(TransactionPostedEvent.of(saved));
+            }
+        }
+        if (!entryRows.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO JOURNAL_ENTRY (ID, KIND, REFERENCE, OCCURRED_AT, APPLIED_AT, STATUS) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)", entryRows);
+            jdbc.batchUpdate("INSERT INTO JOURNAL_LINE (ENTRY_ID, LINE_NO, LEDGER, ACCOUNT_ID, SIDE, AMOUNT) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)", lineRows);
+        }
+        deletePending(entries);
+    }
+
+    // Writes entries posted inside the caller's transaction; returns their JOURNAL_PENDING ids
+    public List<Long> insertPending(List<JournalEntry> entries) {
+        List<Long> ids = jdbc.queryForList("SELECT JOURNAL_PENDING_SEQ.NEXTVAL FROM DUAL CONNECT BY LEVEL <= ?",
+                Long.class, entries.size());
+        var now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            rows.add(new Object[]{ids.get(i), entries.get(i).withPendingId(ids.get(i)).encode(), now});
+        }
+        jdbc.batchUpdate("INSERT INTO JOURNAL_PENDING (ID, PAYLOAD, CREATED_AT) VALUES (?, ?, ?)", rows);
+        return ids;
+    }
+
+    public List<JournalEntry> pendingEntries() {
+        return jdbc.query("SELECT ID, PAYLOAD FROM JOURNAL_PENDING ORDER BY ID",
+                (rs, i) -> JournalEntry.decode(0, rs.getBytes(2)).withPendingId(rs.getLong(1)));
+    }
+
+    private Map<Long, Account> lock(List<JournalEntry> entries) {
+        List<Long> ids = entries.stream().flatMap(e -> e.lines().stream())
+                .filter(JournalLine::isCustomerAccount).map(JournalLine::accountId).distinct().sorted().toList();
+        Map<Long, Account> locked = new HashMap<>();
+        // Oracle caps IN lists at 1000 entries
+        for (int i = 0; i < ids.size(); i += 1000) {
+            accounts.findAllByIdForUpdate(ids.subList(i, Math.min(ids.size(), i + 1000)))
+                    .forEach(a -> locked.put(a.getId(), a));
+        }
+        return locked;
+    }
+
+    private void deletePending(List<JournalEntry> entries) {
+        List<Object[]> ids = entries.stream().filter(e -> e.pendingId() != 0)
+                .map(e -> new Object[]{e.pendingId()}).toList();
+        if (!ids.isEmpty()) {
+            jdbc.batchUpdate("DELETE FROM JOURNAL_PENDING WHERE ID = ?", ids);
+        }
+    }
+
+    // The reference goes into the reason rather than the unique REFERENCE column, since a duplicate
+    // reference is one of the ways an entry fails.
+    @Transactional
+    public void markFailed(JournalEntry entry, String reason) {
+        if (!recordedIds(List.of(entry.id())).isEmpty()) {
+            return;
+        }
+        var detail = (entry.reference() == null ? "" : "[" + entry.reference() + "] ") + reason;
+        jdbc.update("INSERT INTO JOURNAL_ENTRY (ID, KIND, REFERENCE, OCCURRED_AT, APPLIED_AT, STATUS, FAILURE_REASON) " +
+                        "VALUES (?, ?, NULL, ?, ?, 'FAILED', ?)",
+                entry.id(), entry.kind(), Timestamp.from(entry.occurredAt()), Timestamp.from(Instant.now()),
+                detail.length() > 1000 ? detail.substring(0, 1000) : detail);
+        deletePending(List.of(entry));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bankingmini.journal;
+
+import java.math.BigDecimal;
+
+// One leg of a journal entry. Customer legs carry the ACCOUNT id and become a TXN row when the
+// entry is applied; general-ledger legs (ledger starting with "GL:") are the contra side and only
+// exist in JOURNAL_LINE. Customer accounts are liabilities, so a credit raises their balance.
+public record JournalLine(
+        String ledger,       // account number or GL code
+        Long accountId,      // null for GL legs
+        boolean debit,
+        BigDecimal amount,
+        String txnType,      // TXN.TYPE written for customer legs
+        Long refAccountId
+) {
+    public static final String GL_CASH = "GL:CASH";
+    public static final String GL_LOANS_RECEIVABLE = "GL:LOANS_RECEIVABLE";
+
+    public static JournalLine debitAccount(Long accountId, String accountNumber, BigDecimal amount, String txnType, Long refAccountId) {
+        return new JournalLine(accountNumber, accountId, true, amount, txnType, refAccountId);
+    }
+
+    public static JournalLine creditAccount(Long accountId, String accountNumber, BigDecimal amount, String txnType, Long refAccountId) {
+        return new JournalLine(accountNumber, accountId, false, amount, txnType, refAccountId);
+    }
+
+    public static JournalLine debitGl(String gl, BigDecimal amount) {
+        return new JournalLine(gl, null, true, amount, null, null);
+    }
+
+    public static JournalLine creditGl(String gl, BigDecimal amount) {
+        return new JournalLine(gl, null, false, amount, null, null);
+    }
+
+    public boolean isCustomerAccount() {
+        return accountId != null;
+    }
+
+    // effect on the customer account balance
+    public BigDecimal balanceDelta() {
+        return debit ? amount.negate() : amount;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.bankingmini.journal;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+@Entity
+@Table(name = "JOURNAL_LINE")
+@IdClass(JournalLineRecord.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalLineRecord {
+    @Id
+    @Column(name = "ENTRY_ID")
+    private Long entryId;
+
+    @Id
+    @Column(name = "LINE_NO")
+    private Integer lineNo;
+
+    @Column(name = "LEDGER", nullable = false)
+    private String ledger; // account number or GL code
+
+    @Column(name = "ACCOUNT_ID")
+    private Long accountId;
+
+    @Column(name = "SIDE", nullable = false, length = 2)
+    private String side; // DR, CR
+
+    @Column(name = "AMOUNT", nullable = false, precision = 38, scale = 2)
+    private BigDecimal amount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long entryId;
+        private Integer lineNo;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.bankingmini.journal;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// Journal entries posted inside a database transaction, written with it. The entry goes to the
+// write-ahead log after commit and the row is deleted when the entry is applied; rows left behind by
+// a crash in between are posted again on startup. Written with JDBC by JournalLedgerWriter.
+@Entity
+@Table(name = "JOURNAL_PENDING")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalPendingRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "journal_pending_seq")
+    @SequenceGenerator(name = "journal_pending_seq", sequenceName = "JOURNAL_PENDING_SEQ", allocationSize = 1)
+    @Column(name = "ID")
+    private Long id;
+
+    @Lob
+    @Column(name = "PAYLOAD", nullable = false)
+    private byte[] payload; // JournalEntry.encode()
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,543 @@
+package com.example.bankingmini.journal;
+
+import com.example.bankingmini.account.AccountBalanceChangedEvent;
+import com.example.bankingmini.account.AccountRepository;
+import com.example.bankingmini.account.TransactionPostedEvent;
+import com.example.bankingmini.common.InsufficientFundsException;
+import com.example.bankingmini.common.NotFoundException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Double-entry posting path (journal.enabled=true). A posting is checked against the account's
+// projected balance, appended to the write-ahead log and acknowledged once the log is synced; a
+// single applier thread then writes ACCOUNT, TXN and JOURNAL_ENTRY/JOURNAL_LINE in batches.
+// On startup every logged entry that is not in JOURNAL_ENTRY yet is applied again.
+//
+// The log is not part of the caller's database transaction, so a posting made inside one is tied to
+// its commit instead: the funds are checked and held at once, the entry is written to JOURNAL_PENDING
+// with the transaction and only appended to the log after it commits. A rollback releases the hold
+// and moves no money; pending rows a crash leaves between commit and append are logged on startup.
+//
+// Entry ids come from the node's own log (seeded from MAX(JOURNAL_ENTRY.ID) + 1), and holds and the
+// log under journal.dir are node-local too, so only one node may run the journal: startup takes the
+// JOURNAL_LEASE row and fails while another node holds it, and the applier renews it every third of
+// journal.lease-seconds. A node that finds its lease taken over stops posting and applying; what is
+// left in its log is applied once it holds the lease again.
+@Service
+@ConditionalOnProperty(name = "journal.enabled", havingValue = "true")
+@Slf4j
+public class JournalService {
+
+    private record AccountRef(Long id, String accountNumber, Long customerId) {
+    }
+
+    // Balance as the journal sees it: what ACCOUNT holds plus entries logged but not applied yet
+    private static final class Position {
+        BigDecimal applied;
+        BigDecimal pending = BigDecimal.ZERO;
+        int inFlight;
+        boolean stale;
+
+        BigDecimal available() {
+            return applied.add(pending);
+        }
+    }
+
+    private final AccountRepository accounts;
+    private final JournalLedgerWriter writer;
+    private final Path dir;
+    private final int segmentBytes;
+    private final long groupCommitMicros;
+    private final int applyBatch;
+    private final long leaseSeconds;
+    private final String owner;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[256];
+    private final Map<Long, Position> positions = new ConcurrentHashMap<>();
+    private final Map<String, AccountRef> refs;
+    private final LinkedBlockingQueue<JournalEntry> queue = new LinkedBlockingQueue<>();
+
+    private WriteAheadLog wal;
+    private Thread applier;
+    private volatile boolean running;
+    private volatile long appliedSeq;
+    private long watermarkWrittenAt;
+    private long leaseRenewedAt;
+    private volatile boolean leaseLost;
+
+    public JournalService(AccountRepository accounts,
+                          JournalLedgerWriter writer,
+                          @Value("${journal.dir:./journal}") String dir,
+                          @Value("${journal.segment-bytes:67108864}") int segmentBytes,
+                          @Value("${journal.group-commit-micros:200}") long groupCommitMicros,
+                          @Value("${journal.apply-batch:200}") int applyBatch,
+                          @Value("${journal.account-cache-size:100000}") int accountCacheSize,
+                          @Value("${journal.lease-seconds:30}") long leaseSeconds) {
+        this.accounts = accounts;
+        this.writer = writer;
+        this.dir = Paths.get(dir);
+        this.segmentBytes = segmentBytes;
+        this.groupCommitMicros = groupCommitMicros;
+        this.applyBatch = applyBatch;
+        this.leaseSeconds = leaseSeconds;
+        this.owner = hostName() + ":" + this.dir.toAbsolutePath().normalize();
+        this.refs = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AccountRef> eldest) {
+                return size() > accountCacheSize;
+            }
+        });
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!writer.acquireLease(owner, leaseSeconds)) {
+            throw new IllegalStateException("The journal is running on another node; set journal.enabled=true on one node only");
+        }
+        leaseRenewedAt = System.currentTimeMillis();
+        long watermark = readWatermark();
+        List<JournalEntry> logged = new ArrayList<>();
+        wal = WriteAheadLog.open(dir, segmentBytes, groupCommitMicros, writer.maxEntryId() + 1, watermark,
+                r -> logged.add(JournalEntry.decode(r.seq(), r.payload())));
+
+        var recorded = writer.recordedIds(logged.stream().map(JournalEntry::id).toList());
+        int replayed = 0;
+        Set<Long> inLog = new HashSet<>();
+        for (var entry : logged) {
+            inLog.add(entry.pendingId());
+            if (!recorded.contains(entry.id())) {
+                reserve(entry);
+                queue.add(entry);
+                replayed++;
+            }
+        }
+        // committed with their transaction but never logged; applied and failed entries lose their row
+        int resumed = 0;
+        for (var entry : writer.pendingEntries()) {
+            if (!inLog.contains(entry.pendingId())) {
+                reserve(entry);
+                wal.append(entry.encode(), s -> queue.add(entry.withId(s)));
+                resumed++;
+            }
+        }
+        appliedSeq = watermark;
+        running = true;
+        applier = new Thread(this::applyLoop, "journal-applier");
+        applier.start();
+        log.info("Journal started from {}; {} logged and {} pending entries to apply", dir, replayed, resumed);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        applier.join(30_000);
+        wal.close();
+        writeWatermark(true);
+    }
+
+    public void deposit(String accountNumber, BigDecimal amount, Long userId) {
+        var acc = owned(accountNumber, userId);
+        post("DEPOSIT", null, List.of(
+                JournalLine.debitGl(JournalLine.GL_CASH, amount),
+                JournalLine.creditAccount(acc.id(), acc.accountNumber(), amount, "DEPOSIT", null)));
+    }
+
+    public void withdraw(String accountNumber, BigDecimal amount, Long userId) {
+        var acc = owned(accountNumber, userId);
+        post("WITHDRAW", null, List.of(
+                JournalLine.debitAccount(acc.id(), acc.accountNumber(), amount, "WITHDRAW", null),
+                JournalLine.creditGl(JournalLine.GL_CASH, amount)));
+    }
+
+    public void transfer(String from, String to, BigDecimal amount, Long userId) {
+        if (from.equals(to)) throw new IllegalArgumentException("Cannot transfer to same account");
+        var a = owned(from, userId);
+        var b = resolve(to);
+        post("TRANSFER", null, List.of(
+                JournalLine.debitAccount(a.id(), a.accountNumber(), amount, "TRANSFER_OUT", b.id()),
+                JournalLine.creditAccount(b.id(), b.accountNumber(), amount, "TRANSFER_IN", a.id())));
+    }
+
+    // reference identifies the disbursal (loan type, id, tranche); posting the same one twice fails on apply
+    public void disburseLoan(String reference, Long accountId, String accountNumber, BigDecimal amount) {
+        post("LOAN_DISBURSAL", reference, List.of(
+                JournalLine.debitGl(JournalLine.GL_LOANS_RECEIVABLE, amount),
+                JournalLine.creditAccount(accountId, accountNumber, amount, "LOAN_DISBURSAL", null)));
+    }
+
+    // Outside a transaction, returns once the entry is durable in the log. Inside one, returns once
+    // the funds are held; the entry is logged when the transaction commits and dropped if it rolls back.
+    public void post(String kind, String reference, List<JournalLine> lines) {
+        if (leaseLost) {
+            throw new IllegalStateException("The journal lease was taken over by another node; postings are refused");
+        }
+        var draft = new JournalEntry(0, kind, reference, Instant.now(), lines, 0);
+        var deltas = deltas(draft);
+        var deferred = deferred();
+        var locks = lockOrder(deltas.keySet());
+        long seq = 0;
+        locks.forEach(ReentrantLock::lock);
+        try {
+            for (var e : deltas.entrySet()) {
+                var position = position(e.getKey());
+                if (e.getValue().signum() < 0 && position.available().add(e.getValue()).signum() < 0) {
+                    throw new InsufficientFundsException("Insufficient funds");
+                }
+            }
+            if (deferred == null) {
+                seq = wal.append(draft.encode(), s -> queue.add(draft.withId(s)));
+            }
+            for (var e : deltas.entrySet()) {
+                var position = positions.get(e.getKey());
+                position.pending = position.pending.add(e.getValue());
+                position.inFlight++;
+            }
+        } finally {
+            locks.forEach(ReentrantLock::unlock);
+        }
+        if (deferred == null) {
+            wal.awaitDurable(seq);
+        } else {
+            deferred.entries.add(draft);
+        }
+    }
+
+    public long appliedThrough() {
+        return appliedSeq;
+    }
+
+    public int backlog() {
+        return queue.size();
+    }
+
+    // Balance changes that bypass the journal make the cached position unreliable; entries the
+    // applier writes itself are already accounted for.
+    @TransactionalEventListener
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        if (Thread.currentThread() != applier) {
+            markStale(event.accountId());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onBalanceChanged(AccountBalanceChangedEvent event) {
+        markStale(event.accountId());
+    }
+
+    private void markStale(Long accountId) {
+        var lock = stripe(accountId);
+        lock.lock();
+        try {
+            var position = positions.get(accountId);
+            if (position != null) {
+                position.stale = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void applyLoop() {
+        List<JournalEntry> batch = new ArrayList<>();
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (!renewLeaseIfDue()) {
+                    return;
+                }
+                if (batch.isEmpty()) {
+                    var first = queue.poll(200, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, applyBatch - 1);
+                }
+                wal.awaitDurable(batch.get(batch.size() - 1).id());
+                applyBatch(batch);
+                batch.clear();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                // database unavailable; keep the batch and try again
+                log.warn("Journal apply failed, retrying: {}", ex.getMessage());
+                try {
+                    Thread.sleep(1_000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // false once another node owns the lease; a renewal the database rejects is retried with the batch
+    private boolean renewLeaseIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - leaseRenewedAt < leaseSeconds * 1000 / 3) {
+            return true;
+        }
+        if (!writer.renewLease(owner)) {
+            leaseLost = true;
+            log.error("Journal lease taken over by another node; {} entries stay in {} until this node holds it again",
+                    queue.size(), dir);
+            return false;
+        }
+        leaseRenewedAt = now;
+        return true;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException ex) {
+            return "localhost";
+        }
+    }
+
+    private void applyBatch(List<JournalEntry> batch) {
+        List<Boolean> outcome = new ArrayList<>(batch.size());
+        try {
+            writer.apply(batch);
+            batch.forEach(e -> outcome.add(true));
+        } catch (RuntimeException ex) {
+            if (isTransient(ex)) {
+                throw ex;
+            }
+            // one bad entry must not hold back the rest
+            for (var entry : batch) {
+                try {
+                    writer.apply(List.of(entry));
+                    outcome.add(true);
+                } catch (RuntimeException one) {
+                    if (isTransient(one)) {
+                        throw one;
+                    }
+                    log.error("Journal entry {} ({}) could not be applied", entry.id(), entry.kind(), one);
+                    writer.markFailed(entry, String.valueOf(one.getMessage()));
+                    outcome.add(false);
+                }
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            release(batch.get(i), outcome.get(i));
+        }
+        appliedSeq = batch.get(batch.size() - 1).id();
+        writeWatermark(false);
+    }
+
+    private static boolean isTransient(RuntimeException ex) {
+        return ex instanceof TransientDataAccessException
+                || ex instanceof DataAccessResourceFailureException
+                || ex instanceof CannotCreateTransactionException;
+    }
+
+    // replayed entries: already counted by ACCOUNT if applied, otherwise pending
+    private void reserve(JournalEntry entry) {
+        for (var e : deltas(entry).entrySet()) {
+            var position = position(e.getKey());
+            position.pending = position.pending.add(e.getValue());
+            position.inFlight++;
+        }
+    }
+
+    private void release(JournalEntry entry, boolean applied) {
+        var deltas = deltas(entry);
+        var locks = lockOrder(deltas.keySet());
+        locks.forEach(ReentrantLock::lock);
+        try {
+            for (var e : deltas.entrySet()) {
+                var position = positions.get(e.getKey());
+                if (position == null) {
+                    continue;
+                }
+                position.pending = position.pending.subtract(e.getValue());
+                if (applied) {
+                    position.applied = position.applied.add(e.getValue());
+                }
+                position.inFlight--;
+            }
+        } finally {
+            locks.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    // Entries posted in the current transaction, or null when there is none (or it is already past
+    // writing them, e.g. a posting from an after-commit callback)
+    private Deferred deferred() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        var deferred = (Deferred) TransactionSynchronizationManager.getResource(this);
+        if (deferred == null) {
+            deferred = new Deferred();
+            TransactionSynchronizationManager.bindResource(this, deferred);
+            TransactionSynchronizationManager.registerSynchronization(deferred);
+        }
+        return deferred.written ? null : deferred;
+    }
+
+    private final class Deferred implements TransactionSynchronization {
+        private final List<JournalEntry> entries = new ArrayList<>();
+        private boolean written;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            written = true;
+            if (entries.isEmpty()) {
+                return;
+            }
+            var ids = writer.insertPending(entries);
+            for (int i = 0; i < entries.size(); i++) {
+                entries.set(i, entries.get(i).withPendingId(ids.get(i)));
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            int logged = 0;
+            try {
+                long last = 0;
+                for (var entry : entries) {
+                    last = wal.append(entry.encode(), s -> queue.add(entry.withId(s)));
+                    logged++;
+                }
+                if (logged > 0) {
+                    wal.awaitDurable(last);
+                }
+            } catch (RuntimeException ex) {
+                // The JOURNAL_PENDING rows committed, so nothing is lost: startup logs them. The money is
+                // still owed until then, so the holds stay; being in flight, the positions are not
+                // refreshed from ACCOUNT either.
+                log.error("Journal could not log {} committed entries; they are posted on the next start",
+                        entries.size() - logged, ex);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(JournalService.this);
+            if (status != STATUS_COMMITTED) {
+                entries.forEach(e -> release(e, false));
+            }
+        }
+    }
+
+    // caller holds the account's stripe lock
+    private Position position(Long accountId) {
+        var position = positions.get(accountId);
+        if (position == null || (position.stale && position.inFlight == 0)) {
+            var balance = accounts.findById(accountId)
+                    .orElseThrow(() -> new NotFoundException("Account not found: " + accountId))
+                    .getBalance();
+            if (position == null) {
+                position = new Position();
+                positions.put(accountId, position);
+            }
+            position.applied = balance;
+            position.stale = false;
+        }
+        return position;
+    }
+
+    private static Map<Long, BigDecimal> deltas(JournalEntry entry) {
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+        for (var line : entry.lines()) {
+            if (line.isCustomerAccount()) {
+                deltas.merge(line.accountId(), line.balanceDelta(), BigDecimal::add);
+            }
+        }
+        return deltas;
+    }
+
+    private ReentrantLock stripe(Long accountId) {
+        return stripes[Math.floorMod(accountId.hashCode(), stripes.length)];
+    }
+
+    // stripes in index order, so two postings touching the same accounts cannot deadlock
+    private List<ReentrantLock> lockOrder(Iterable<Long> accountIds) {
+        var byIndex = new TreeMap<Integer, ReentrantLock>();
+        for (var id : accountIds) {
+            byIndex.put(Math.floorMod(id.hashCode(), stripes.length), stripe(id));
+        }
+        return new ArrayList<>(byIndex.values());
+    }
+
+    private AccountRef owned(String accountNumber, Long userId) {
+        var acc = resolve(accountNumber);
+        if (!acc.customerId().equals(userId)) {
+            throw new IllegalArgumentException("Access denied: Account does not belong to user");
+        }
+        return acc;
+    }
+
+    // account number, id and owner never change, so they are cached (LRU) without invalidation
+    private AccountRef resolve(String accountNumber) {
+        var ref = refs.get(accountNumber);
+        if (ref == null) {
+            var acc = accounts.findByAccountNumber(accountNumber)
+                    .orElseThrow(() -> new NotFoundException("Account not found: " + accountNumber));
+            ref = new AccountRef(acc.getId(), acc.getAccountNumber(), acc.getCustomer().getId());
+            refs.put(accountNumber, ref);
+        }
+        return ref;
+    }
+
+    private long readWatermark() throws IOException {
+        var file = dir.resolve("applied");
+        return Files.exists(file) ? Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim()) : 0;
+    }
+
+    // the watermark only narrows the startup scan; JOURNAL_ENTRY is what decides if an entry was applied
+    private void writeWatermark(boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && now - watermarkWrittenAt < 1_000) {
+            return;
+        }
+        watermarkWrittenAt = now;
+        long seq = appliedSeq;
+        try {
+            var tmp = dir.resolve("applied.tmp");
+            Files.writeString(tmp, Long.toString(seq), StandardCharsets.UTF_8);
+            Files.move(tmp, dir.resolve("applied"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            wal.deleteThrough(seq);
+        } catch (IOException ex) {
+            log.warn("Could not record journal watermark", ex);
+        }
+    }
+}
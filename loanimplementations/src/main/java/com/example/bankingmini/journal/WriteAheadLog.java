@@ -0,0 +1,306 @@
+package com.example.bankingmini.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Append-only log made of fixed-size, preallocated, memory-mapped segment files (wal-<first seq>.log).
+//
+// Record: [int payload length][int CRC32C of seq + payload][long seq][payload]. Unused space is
+// zero, so a zero length marks the end of a segment. On open, a record with a bad CRC or an
+// out-of-order sequence is a torn tail and everything from it on is discarded.
+//
+// append() only copies into the mapping; a flusher thread forces the mapping to disk and every
+// appender that arrived before the force is released together (group commit).
+@Slf4j
+final class WriteAheadLog implements Closeable {
+
+    private static final int HEADER = 4 + 4 + 8;
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    record Record(long seq, byte[] payload) {
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long groupCommitNanos;
+    private final Object lock = new Object();
+    private final List<Long> segmentStarts = new ArrayList<>(); // first seq of each live segment, ascending
+    private final Thread flusher;
+
+    // guarded by lock
+    private MappedByteBuffer buffer;
+    private long nextSeq;
+    private long writtenSeq;
+    private long durableSeq;
+    private boolean closed;
+    private RuntimeException failure;
+
+    private WriteAheadLog(Path dir, int segmentBytes, long groupCommitMicros) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.groupCommitNanos = groupCommitMicros * 1000;
+        this.flusher = new Thread(this::flushLoop, "journal-wal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    // Replays every intact record with seq > afterSeq into recovered, then positions for appending.
+    // Sequences continue from the last record on disk, but never below minNextSeq.
+    static WriteAheadLog open(Path dir, int segmentBytes, long groupCommitMicros, long minNextSeq,
+                              long afterSeq, Consumer<Record> recovered) throws IOException {
+        Files.createDirectories(dir);
+        var wal = new WriteAheadLog(dir, segmentBytes, groupCommitMicros);
+        wal.recover(minNextSeq, afterSeq, recovered);
+        wal.flusher.start();
+        return wal;
+    }
+
+    private void recover(long minNextSeq, long afterSeq, Consumer<Record> recovered) throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(p -> p.getFileName().toString().startsWith(PREFIX) && p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        long lastSeq = 0;
+        int tailPosition = 0;
+        for (int i = 0; i < files.size(); i++) {
+            var file = files.get(i);
+            boolean last = i == files.size() - 1;
+            MappedByteBuffer map;
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                map = channel.map(last ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            segmentStarts.add(firstSeq(file));
+            int pos = 0;
+            while (pos + HEADER <= map.limit()) {
+                int len = map.getInt(pos);
+                if (len <= 0 || pos + HEADER + len > map.limit()) {
+                    break;
+                }
+                int crc = map.getInt(pos + 4);
+                long seq = map.getLong(pos + 8);
+                byte[] payload = new byte[len];
+                map.get(pos + HEADER, payload);
+                if (crc != crc(seq, payload) || seq <= lastSeq) {
+                    log.warn("Journal WAL {} has a torn record at offset {}; discarding the rest", file.getFileName(), pos);
+                    break;
+                }
+                if (seq > afterSeq) {
+                    recovered.accept(new Record(seq, payload));
+                }
+                lastSeq = seq;
+                pos += HEADER + len;
+            }
+            if (last) {
+                // clear whatever a torn write left behind so it can never be read back later
+                boolean dirty = false;
+                for (int p = pos; p < map.limit() && !dirty; p++) {
+                    dirty = map.get(p) != 0;
+                }
+                if (dirty) {
+                    for (int p = pos; p < map.limit(); p++) {
+                        map.put(p, (byte) 0);
+                    }
+                    map.force();
+                }
+                buffer = map;
+                tailPosition = pos;
+            }
+        }
+
+        nextSeq = Math.max(lastSeq + 1, minNextSeq);
+        writtenSeq = nextSeq - 1;
+        durableSeq = writtenSeq;
+        if (buffer == null) {
+            newSegment();
+        } else {
+            buffer.position(tailPosition);
+        }
+    }
+
+    // Appends payload and returns its sequence number; onAppended runs under the log lock, so
+    // callbacks observe sequences in order. The record is not durable until awaitDurable(seq).
+    long append(byte[] payload, LongConsumer onAppended) {
+        int size = HEADER + payload.length;
+        if (size > segmentBytes) {
+            throw new IllegalArgumentException("Journal record larger than a WAL segment");
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (closed) {
+                throw new IllegalStateException("Journal WAL is closed");
+            }
+            if (buffer.remaining() < size) {
+                roll();
+            }
+            long seq = nextSeq++;
+            buffer.putInt(payload.length);
+            buffer.putInt(crc(seq, payload));
+            buffer.putLong(seq);
+            buffer.put(payload);
+            writtenSeq = seq;
+            onAppended.accept(seq);
+            lock.notifyAll();
+            return seq;
+        }
+    }
+
+    void awaitDurable(long seq) {
+        synchronized (lock) {
+            while (durableSeq < seq) {
+                if (failure != null) {
+                    throw failure;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the journal to sync", ex);
+                }
+            }
+        }
+    }
+
+    // Drops whole segments whose records are all <= seq (never the one being written)
+    void deleteThrough(long seq) {
+        List<Path> doomed = new ArrayList<>();
+        synchronized (lock) {
+            while (segmentStarts.size() > 1 && segmentStarts.get(1) - 1 <= seq) {
+                doomed.add(segmentPath(segmentStarts.remove(0)));
+            }
+        }
+        for (var file : doomed) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                log.warn("Could not delete journal segment {}", file, ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join(5_000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (failure == null) {
+                buffer.force();
+                durableSeq = writtenSeq;
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (lock) {
+                while (writtenSeq == durableSeq && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            if (groupCommitNanos > 0) {
+                // let appenders that are just behind this one share the same sync
+                LockSupport.parkNanos(groupCommitNanos);
+            }
+            long target;
+            MappedByteBuffer toForce;
+            synchronized (lock) {
+                target = writtenSeq;
+                toForce = buffer;
+            }
+            try {
+                // outside the lock, so appends keep landing while the disk syncs
+                toForce.force();
+            } catch (RuntimeException ex) {
+                synchronized (lock) {
+                    failure = new IllegalStateException("Journal WAL sync failed", ex);
+                    lock.notifyAll();
+                }
+                log.error("Journal WAL sync failed; no further postings will be accepted", ex);
+                return;
+            }
+            synchronized (lock) {
+                if (target > durableSeq) {
+                    durableSeq = target;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // caller holds lock
+    private void roll() {
+        buffer.force();
+        durableSeq = writtenSeq;
+        try {
+            newSegment();
+        } catch (IOException ex) {
+            failure = new UncheckedIOException("Could not create journal segment", ex);
+            throw failure;
+        }
+    }
+
+    private void newSegment() throws IOException {
+        var file = segmentPath(nextSeq);
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // preallocate so appends never extend the file
+            channel.write(ByteBuffer.wrap(new byte[1]), segmentBytes - 1);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segmentStarts.add(nextSeq);
+    }
+
+    private Path segmentPath(long firstSeq) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, firstSeq, SUFFIX));
+    }
+
+    private static long firstSeq(Path file) {
+        var name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static int crc(long seq, byte[] payload) {
+        var crc = new CRC32C();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (seq >>> shift));
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
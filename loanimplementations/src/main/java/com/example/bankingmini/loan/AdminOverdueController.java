@@ -0,0 +1,42 @@
+package com.example.bankingmini.loan;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+// Admin-only (see SecurityConfig /api/admin/**)
+@RestController
+@RequestMapping("/api/admin/loans")
+@RequiredArgsConstructor
+public class AdminOverdueController {
+
+    private final OverdueInstallmentSweeper sweeper;
+    private final EmiCollectionEngine collection;
+    private final StudentTrancheRunner tranches;
+
+    // Runs a sweep now rather than at the next interval; safe alongside the scheduled one
+    @PostMapping("/overdue-sweep")
+    public OverdueInstallmentSweeper.Result sweep() {
+        return sweeper.sweep(Instant.now());
+    }
+
+    // Collects EMIs due up to the given day (default today, UTC); 400 while another run is going
+    @PostMapping("/emi-collection")
+    public EmiCollectionEngine.Result collect(@RequestParam(required = false) LocalDate day) {
+        return collection.collect(day != null ? day : LocalDate.now(ZoneOffset.UTC));
+    }
+
+    @GetMapping("/emi-collection")
+    public EmiCollectionEngine.Status collectionStatus() {
+        return collection.status();
+    }
+
+    // Pays out student loan tranches due by now; 400 while another run is going
+    @PostMapping("/tranche-run")
+    public StudentTrancheRunner.Result runTranches() {
+        return tranches.run(Instant.now());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.bankingmini.loan;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Splits a level-EMI loan into monthly rows. Interest on each row is the opening balance times the
+// monthly rate (annualRate is a percentage, as in calculateEMI), principal is the rest of the EMI,
+// and the last row takes whatever balance is left so the principal column always sums to the loan.
+final class AmortisationSchedule {
+
+    record Row(int number, Instant dueDate, BigDecimal amount, BigDecimal principal, BigDecimal interest) {
+    }
+
+    private AmortisationSchedule() {
+    }
+
+    static List<Row> build(BigDecimal balance, BigDecimal annualRate, BigDecimal emi, int periods,
+                           Instant firstDue, int firstNumber) {
+        if (periods < 1) {
+            throw new IllegalArgumentException("Schedule needs at least one period");
+        }
+        BigDecimal monthlyRate = annualRate.divide(BigDecimal.valueOf(1200), 10, RoundingMode.HALF_UP);
+        var first = firstDue.atZone(ZoneOffset.UTC);
+        List<Row> rows = new ArrayList<>(periods);
+        BigDecimal remaining = balance;
+        for (int i = 0; i < periods; i++) {
+            BigDecimal interest = remaining.multiply(monthlyRate).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal principal = emi.subtract(interest);
+            if (i == periods - 1 || principal.compareTo(remaining) > 0) {
+                principal = remaining;
+            }
+            // months are added to the first due date, not chained, so a 31st-of-month loan keeps the 31st where it exists
+            Instant due = first.plusMonths(i).toInstant();
+            rows.add(new Row(firstNumber + i, due, principal.add(interest), principal, interest));
+            remaining = remaining.subtract(principal);
+            if (remaining.signum() <= 0) {
+                break;
+            }
+        }
+        return rows;
+    }
+}
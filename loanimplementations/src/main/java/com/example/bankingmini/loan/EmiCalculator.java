@@ -0,0 +1,129 @@
+package com.example.bankingmini.loan;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// EMI for every loan type. EMI = principal * f where f = r(1+r)^n / ((1+r)^n - 1) is the annuity
+// factor for monthly rate r and tenure n; f depends only on (r, n), so it is computed once at 34 digits
+// and cached. The result is the same as exactEmi, the formula the loan services used to carry, to the
+// cent: when principal * f lands close enough to a half cent for the 34-digit factor to matter, the
+// answer comes from exactEmi instead.
+@Component
+public class EmiCalculator {
+
+    static final MathContext MC = MathContext.DECIMAL128;
+
+    private static final BigDecimal MONTHS_PERCENT = BigDecimal.valueOf(1200);
+    private static final BigDecimal HALF = new BigDecimal("0.5");
+    // far above the factor's relative error (about 1e-26 for the smallest rate the API accepts)
+    private static final BigDecimal GUARD = new BigDecimal("1E-20");
+
+    private record Key(BigDecimal monthlyRate, int tenureMonths) {
+    }
+
+    private final Map<Key, BigDecimal> factors;
+
+    public EmiCalculator(@Value("${loan.emi.factor-cache-size:4096}") int cacheSize) {
+        this.factors = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, BigDecimal> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // annualRate is a percentage (12 = 12% a year), as everywhere else in the loan services
+    public BigDecimal emi(BigDecimal principal, BigDecimal annualRate, int tenureMonths) {
+        BigDecimal monthlyRate = monthlyRate(annualRate, tenureMonths);
+        if (monthlyRate.signum() == 0) {
+            return principal.divide(BigDecimal.valueOf(tenureMonths), 2, RoundingMode.HALF_UP);
+        }
+        BigDecimal emi = principal.multiply(factor(monthlyRate, tenureMonths), MC);
+        if (nearHalfCent(emi)) {
+            return exactEmi(principal, annualRate, tenureMonths);
+        }
+        return emi.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // Many principals against one (rate, tenure), in cents. The loop works on doubles and takes the
+    // BigDecimal route only for the rare product that falls too close to a half cent to round safely.
+    public long[] emiMinor(long[] principalMinor, BigDecimal annualRate, int tenureMonths) {
+        BigDecimal monthlyRate = monthlyRate(annualRate, tenureMonths);
+        long[] out = new long[principalMinor.length];
+        if (monthlyRate.signum() == 0) {
+            for (int i = 0; i < out.length; i++) {
+                out[i] = emiMinorSlow(principalMinor[i], annualRate, tenureMonths);
+            }
+            return out;
+        }
+        double f = factor(monthlyRate, tenureMonths).doubleValue();
+        for (int i = 0; i < out.length; i++) {
+            double cents = principalMinor[i] * f;
+            double floor = Math.floor(cents);
+            // a few ulps of error from f and the product; past 2^53 cents the principal itself is inexact
+            boolean safe = principalMinor[i] > 0 && principalMinor[i] < 1L << 53
+                    && Math.abs(cents - floor - 0.5) > cents * 1e-15 + 1e-9;
+            if (safe) {
+                out[i] = (long) floor + (cents - floor >= 0.5 ? 1 : 0);
+            } else {
+                out[i] = emiMinorSlow(principalMinor[i], annualRate, tenureMonths);
+            }
+        }
+        return out;
+    }
+
+    BigDecimal annuityFactor(BigDecimal annualRate, int tenureMonths) {
+        return factor(monthlyRate(annualRate, tenureMonths), tenureMonths);
+    }
+
+    // The original per-service formula: full-precision powers, one division rounded to cents
+    static BigDecimal exactEmi(BigDecimal principal, BigDecimal annualRate, int tenureMonths) {
+        BigDecimal monthlyRate = annualRate.divide(MONTHS_PERCENT, 10, RoundingMode.HALF_UP);
+        BigDecimal onePlusR = BigDecimal.ONE.add(monthlyRate);
+        BigDecimal numerator = principal.multiply(monthlyRate).multiply(onePlusR.pow(tenureMonths));
+        BigDecimal denominator = onePlusR.pow(tenureMonths).subtract(BigDecimal.ONE);
+        return numerator.divide(denominator, 2, RoundingMode.HALF_UP);
+    }
+
+    private long emiMinorSlow(long principalMinor, BigDecimal annualRate, int tenureMonths) {
+        return emi(BigDecimal.valueOf(principalMinor, 2), annualRate, tenureMonths).movePointRight(2).longValueExact();
+    }
+
+    private static BigDecimal monthlyRate(BigDecimal annualRate, int tenureMonths) {
+        if (tenureMonths < 1) {
+            throw new IllegalArgumentException("Tenure months must be at least 1");
+        }
+        if (annualRate.signum() < 0) {
+            throw new IllegalArgumentException("Interest rate cannot be negative");
+        }
+        return annualRate.divide(MONTHS_PERCENT, 10, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal factor(BigDecimal monthlyRate, int tenureMonths) {
+        var key = new Key(monthlyRate, tenureMonths);
+        synchronized (factors) {
+            BigDecimal f = factors.get(key);
+            if (f != null) {
+                return f;
+            }
+        }
+        BigDecimal growth = BigDecimal.ONE.add(monthlyRate).pow(tenureMonths, MC);
+        BigDecimal f = monthlyRate.multiply(growth, MC).divide(growth.subtract(BigDecimal.ONE, MC), MC);
+        synchronized (factors) {
+            factors.put(key, f);
+        }
+        return f;
+    }
+
+    private static boolean nearHalfCent(BigDecimal amount) {
+        BigDecimal cents = amount.movePointRight(2).abs();
+        BigDecimal fraction = cents.subtract(cents.setScale(0, RoundingMode.FLOOR));
+        return fraction.subtract(HALF).abs().compareTo(cents.multiply(GUARD).add(GUARD)) <= 0;
+    }
+}
@@ -0,0 +1,389 @@
+package com.example.bankingmini.loan;
+
+import com.example.bankingmini.account.TransactionPostedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Nightly EMI auto-debit. For each loan type, scheduled installments that are due and next in line
+// for their loan (INSTALLMENT_NUMBER = INSTALLMENTS_PAID + 1) are read in ID-keyset chunks, and
+// each chunk is collected in one transaction on a bounded pool:
+//   lock the installment rows (SKIP LOCKED, so a manual payment in flight wins),
+//   debit ACCOUNT with BALANCE >= amount in the WHERE clause, in account order,
+//   post an EMI_DEBIT TXN row per debit, mark the installments PAID,
+//   and move each loan's counter, outstanding, status and OVERDUE_SINCE in one guarded UPDATE.
+// Debits refused for funds are retried from a DelayQueue with doubling delays; what is still unpaid
+// after the last attempt is left for the next night and the overdue sweep.
+@Service
+@Slf4j
+public class EmiCollectionEngine {
+
+    public record Result(String day, long collected, long amountMinor, long declined, long elapsedMillis) {
+    }
+
+    public record Status(boolean running, int retryQueue, long collected, long declined, long retriesExhausted) {
+    }
+
+    private record Due(long installmentId, long loanId, long customerId, int number, BigDecimal amount,
+                       BigDecimal principal, long accountId, BigDecimal outstanding, String loanStatus) {
+    }
+
+    private static final class Retry implements Delayed {
+        final String loanType;
+        final long installmentId;
+        final int attempt;
+        final long dueAtMillis;
+
+        Retry(String loanType, long installmentId, int attempt, long dueAtMillis) {
+            this.loanType = loanType;
+            this.installmentId = installmentId;
+            this.attempt = attempt;
+            this.dueAtMillis = dueAtMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Retry) other).dueAtMillis);
+        }
+    }
+
+    private static final String DUE_SQL = "SELECT i.ID, i.LOAN_ID, l.CUSTOMER_ID, i.INSTALLMENT_NUMBER, i.AMOUNT, " +
+            "i.PRINCIPAL_AMOUNT, l.ACCOUNT_ID, l.OUTSTANDING_AMOUNT, l.STATUS " +
+            "FROM LOAN_INSTALLMENT i JOIN %s l ON l.ID = i.LOAN_ID " +
+            "WHERE i.LOAN_TYPE = ? AND i.PAID_DATE IS NULL AND i.PRINCIPAL_AMOUNT IS NOT NULL " +
+            "AND l.ACCOUNT_ID IS NOT NULL AND l.STATUS IN ('ACTIVE', 'DISBURSED') " +
+            "AND i.INSTALLMENT_NUMBER = NVL(l.INSTALLMENTS_PAID, 0) + 1 ";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher events;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int maxAttempts;
+    private final Duration firstRetry;
+    private final DelayQueue<Retry> retries = new DelayQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong collected = new AtomicLong();
+    private final AtomicLong declined = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    private volatile boolean retrying;
+    private Thread retryThread;
+
+    public EmiCollectionEngine(JdbcTemplate jdbc,
+                               PlatformTransactionManager transactionManager,
+                               ApplicationEventPublisher events,
+                               MeterRegistry registry,
+                               @Value("${loan.collection.enabled:false}") boolean enabled,
+                               @Value("${loan.collection.chunk-size:500}") int chunkSize,
+                               @Value("${loan.collection.parallelism:4}") int parallelism,
+                               @Value("${loan.collection.retry.max-attempts:4}") int maxAttempts,
+                               @Value("${loan.collection.retry.first-delay-minutes:30}") long firstRetryMinutes) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.events = events;
+        this.enabled = enabled;
+        // the chunk's ids go into IN lists, which Oracle caps at 1000 entries
+        this.chunkSize = Math.min(chunkSize, 1000);
+        this.parallelism = parallelism;
+        this.maxAttempts = maxAttempts;
+        this.firstRetry = Duration.ofMinutes(firstRetryMinutes);
+        FunctionCounter.builder("loan.collection.debits", collected, AtomicLong::get).tag("result", "collected").register(registry);
+        FunctionCounter.builder("loan.collection.debits", declined, AtomicLong::get).tag("result", "declined").register(registry);
+        FunctionCounter.builder("loan.collection.retries.exhausted", exhausted, AtomicLong::get).register(registry);
+        Gauge.builder("loan.collection.retry.queue", retries, DelayQueue::size).register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        retrying = true;
+        retryThread = new Thread(this::retryLoop, "emi-collection-retry");
+        retryThread.setDaemon(true);
+        retryThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        retrying = false;
+        if (retryThread != null) {
+            retryThread.interrupt();
+            retryThread.join(10_000);
+        }
+    }
+
+    @Scheduled(cron = "${loan.collection.cron:0 30 1 * * *}")
+    public void nightly() {
+        if (enabled && !running.get()) {
+            collect(LocalDate.now(ZoneOffset.UTC));
+        }
+    }
+
+    public Status status() {
+        return new Status(running.get(), retries.size(), collected.get(), declined.get(), exhausted.get());
+    }
+
+    // Collects everything due before the end of day
+    public Result collect(LocalDate day) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("An EMI collection run is already in progress");
+        }
+        long started = System.currentTimeMillis();
+        var cutoff = Timestamp.from(day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        var paid = new AtomicLong();
+        var amount = new AtomicLong();
+        var refused = new AtomicLong();
+        // the scanning thread runs a chunk itself when the pool and its queue are full, which keeps
+        // at most parallelism * 2 chunks in memory
+        var pool = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            for (var type : OverdueInstallmentSweeper.LOAN_TABLES.keySet()) {
+                long after = 0;
+                while (true) {
+                    List<Due> chunk = jdbc.query("SELECT * FROM (" + dueSql(type) +
+                                    "AND i.DUE_DATE < ? AND i.ID > ? ORDER BY i.ID) WHERE ROWNUM <= ?",
+                            (rs, i) -> due(rs), type, cutoff, after, chunkSize);
+                    if (chunk.isEmpty()) {
+                        break;
+                    }
+                    after = chunk.get(chunk.size() - 1).installmentId();
+                    pool.execute(() -> {
+                        try {
+                            long[] r = collectChunk(type, chunk, 1);
+                            paid.addAndGet(r[0]);
+                            amount.addAndGet(r[1]);
+                            refused.addAndGet(r[2]);
+                        } catch (RuntimeException ex) {
+                            // the chunk rolled back as a whole; its installments are picked up again next run
+                            log.error("EMI collection chunk of {} {} installments failed", chunk.size(), type, ex);
+                        }
+                    });
+                    if (chunk.size() < chunkSize) {
+                        break;
+                    }
+                }
+            }
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.HOURS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("EMI collection for " + day + " interrupted", ex);
+        } finally {
+            pool.shutdownNow();
+            running.set(false);
+        }
+        var result = new Result(day.toString(), paid.get(), amount.get(), refused.get(), System.currentTimeMillis() - started);
+        log.info("EMI collection for {}: {} debits, {} minor units, {} declined in {} ms",
+                day, result.collected(), result.amountMinor(), result.declined(), result.elapsedMillis());
+        return result;
+    }
+
+    // {collected, amount in cents, declined}; declined installments are queued for retry after commit
+    private long[] collectChunk(String type, List<Due> chunk, int attempt) {
+        List<Due> refused = new ArrayList<>();
+        long[] result = tx.execute(status -> debit(type, chunk, refused));
+        collected.addAndGet(result[0]);
+        declined.addAndGet(refused.size());
+        for (var due : refused) {
+            if (attempt < maxAttempts) {
+                long delay = firstRetry.toMillis() << (attempt - 1);
+                retries.add(new Retry(type, due.installmentId(), attempt + 1, System.currentTimeMillis() + delay));
+            } else {
+                exhausted.incrementAndGet();
+            }
+        }
+        return new long[]{result[0], result[1], refused.size()};
+    }
+
+    private long[] debit(String type, List<Due> chunk, List<Due> refused) {
+        String table = OverdueInstallmentSweeper.LOAN_TABLES.get(type);
+        var locked = new HashSet<>(jdbc.queryForList("SELECT ID FROM LOAN_INSTALLMENT WHERE ID IN (" +
+                        placeholders(chunk.size()) + ") AND PAID_DATE IS NULL FOR UPDATE SKIP LOCKED", Long.class,
+                chunk.stream().map(Due::installmentId).toArray()));
+        // account order, so chunks running side by side lock shared accounts in the same sequence
+        List<Due> dues = chunk.stream().filter(d -> locked.contains(d.installmentId()))
+                .sorted(Comparator.comparingLong(Due::accountId).thenComparingLong(Due::installmentId))
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (dues.isEmpty()) {
+            return new long[]{0, 0};
+        }
+
+        // in place, and safe against postings because AccountService locks the row before it reads the
+        // balance: a deposit either waits for this debit to commit or this debit waits for it
+        int[] debited = jdbc.batchUpdate("UPDATE ACCOUNT SET BALANCE = BALANCE - ? " +
+                "WHERE ID = ? AND STATUS = 'ACTIVE' AND BALANCE >= ?", dues, dues.size(), (ps, d) -> {
+            ps.setBigDecimal(1, d.amount());
+            ps.setLong(2, d.accountId());
+            ps.setBigDecimal(3, d.amount());
+        })[0];
+        List<Due> paid = new ArrayList<>(dues.size());
+        for (int i = 0; i < dues.size(); i++) {
+            (debited[i] > 0 ? paid : refused).add(dues.get(i));
+        }
+        if (paid.isEmpty()) {
+            return new long[]{0, 0};
+        }
+
+        var accounts = paid.stream().map(Due::accountId).distinct().toList();
+        Map<Long, String> numbers = new HashMap<>();
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        jdbc.query("SELECT ID, ACCOUNT_NUMBER, BALANCE FROM ACCOUNT WHERE ID IN (" + placeholders(accounts.size()) + ")",
+                rs -> {
+                    numbers.put(rs.getLong(1), rs.getString(2));
+                    balances.put(rs.getLong(1), rs.getBigDecimal(3));
+                }, accounts.toArray());
+
+        int n = paid.size();
+        List<Long> txnIds = jdbc.queryForList("SELECT TXN_SEQ.NEXTVAL FROM DUAL CONNECT BY LEVEL <= ?", Long.class, n);
+        var now = Instant.now();
+        var at = Timestamp.from(now);
+        var descriptions = new String[n];
+        for (int i = 0; i < n; i++) {
+            var d = paid.get(i);
+            descriptions[i] = "EMI " + d.number() + " " + type + " loan " + d.loanId();
+        }
+        var rows = IntStream.range(0, n).boxed().toList();
+        jdbc.batchUpdate("INSERT INTO TXN (ID, ACCOUNT_ID, TYPE, AMOUNT, DESCRIPTION, OCCURRED_AT) " +
+                "VALUES (?, ?, 'EMI_DEBIT', ?, ?, ?)", rows, n, (ps, i) -> {
+            var d = paid.get(i);
+            ps.setLong(1, txnIds.get(i));
+            ps.setLong(2, d.accountId());
+            ps.setBigDecimal(3, d.amount());
+            ps.setString(4, descriptions[i]);
+            ps.setTimestamp(5, at);
+        });
+        jdbc.batchUpdate("UPDATE LOAN_INSTALLMENT SET STATUS = 'PAID', PAID_DATE = ?, PAID_AMOUNT = AMOUNT WHERE ID = ?",
+                paid, n, (ps, d) -> {
+                    ps.setTimestamp(1, at);
+                    ps.setLong(2, d.installmentId());
+                });
+        int[] moved = jdbc.batchUpdate("UPDATE " + table + " SET INSTALLMENTS_PAID = ?, VERSION = VERSION + 1, " +
+                "OUTSTANDING_AMOUNT = OUTSTANDING_AMOUNT - ?, " +
+                "STATUS = CASE WHEN OUTSTANDING_AMOUNT - ? <= 0 THEN 'CLOSED' ELSE STATUS END, " +
+                "OVERDUE_SINCE = (SELECT MIN(DUE_DATE) FROM LOAN_INSTALLMENT WHERE LOAN_TYPE = ? AND LOAN_ID = ? AND STATUS = 'OVERDUE') " +
+                "WHERE ID = ? AND NVL(INSTALLMENTS_PAID, 0) = ?", paid, n, (ps, d) -> {
+            ps.setInt(1, d.number());
+            ps.setBigDecimal(2, d.principal());
+            ps.setBigDecimal(3, d.principal());
+            ps.setString(4, type);
+            ps.setLong(5, d.loanId());
+            ps.setLong(6, d.loanId());
+            ps.setInt(7, d.number() - 1);
+        })[0];
+        for (int i = 0; i < n; i++) {
+            if (moved[i] == 0) {
+                // the locked installment was next in line when read; anything else is a bug, so undo the chunk
+                throw new IllegalStateException("Loan " + type + ":" + paid.get(i).loanId() + " changed during EMI collection");
+            }
+        }
+
+        // balance after each debit, walking back from the account's balance after the whole chunk
+        var after = new BigDecimal[n];
+        var remaining = new HashMap<>(balances);
+        for (int i = n - 1; i >= 0; i--) {
+            var d = paid.get(i);
+            after[i] = remaining.get(d.accountId());
+            remaining.put(d.accountId(), after[i].add(d.amount()));
+        }
+        long cents = 0;
+        for (int i = 0; i < n; i++) {
+            var d = paid.get(i);
+            cents += d.amount().movePointRight(2).longValueExact();
+            var outstanding = d.outstanding().subtract(d.principal());
+            events.publishEvent(new TransactionPostedEvent(txnIds.get(i), d.accountId(), numbers.get(d.accountId()),
+                    "EMI_DEBIT", d.amount(), null, descriptions[i], null, now, after[i]));
+            events.publishEvent(new LoanStatusChangedEvent(type, d.loanId(), d.customerId(), "INSTALLMENT_PAID",
+                    d.loanStatus(), outstanding.signum() <= 0 ? "CLOSED" : d.loanStatus(), d.amount(), outstanding, now));
+        }
+        return new long[]{n, cents};
+    }
+
+    private void retryLoop() {
+        while (retrying) {
+            try {
+                List<Retry> batch = new ArrayList<>();
+                batch.add(retries.take());
+                retries.drainTo(batch, chunkSize - 1);
+                var byType = batch.stream().collect(Collectors.groupingBy(r -> r.loanType + ":" + r.attempt));
+                for (var group : byType.values()) {
+                    String type = group.get(0).loanType;
+                    var ids = group.stream().map(r -> r.installmentId).toArray();
+                    List<Due> dues = jdbc.query(dueSql(type) + "AND i.ID IN (" + placeholders(ids.length) + ")",
+                            (rs, i) -> due(rs), concat(type, ids));
+                    if (!dues.isEmpty()) {
+                        collectChunk(type, dues, group.get(0).attempt);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("EMI collection retry failed; the installments stay due for the next run", ex);
+            }
+        }
+    }
+
+    private static String dueSql(String type) {
+        return String.format(DUE_SQL, OverdueInstallmentSweeper.LOAN_TABLES.get(type));
+    }
+
+    private static Due due(ResultSet rs) throws SQLException {
+        return new Due(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getInt(4), rs.getBigDecimal(5),
+                rs.getBigDecimal(6), rs.getLong(7), rs.getBigDecimal(8), rs.getString(9));
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    private static Object[] concat(Object first, Object[] rest) {
+        var all = new Object[rest.length + 1];
+        all[0] = first;
+        System.arraycopy(rest, 0, all, 1, rest.length);
+        return all;
+    }
+}
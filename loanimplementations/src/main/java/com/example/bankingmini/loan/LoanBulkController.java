@@ -0,0 +1,37 @@
+package com.example.bankingmini.loan;
+
+import com.example.bankingmini.common.RoleBasedAccessControl;
+import com.example.bankingmini.loan.LoanBulkDtos.BulkRequest;
+import com.example.bankingmini.loan.LoanBulkDtos.BulkResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Loan officers and admins (see SecurityConfig /api/loan-bulk/**); loanType is general, vehicle or student
+@RestController
+@RequestMapping("/api/loan-bulk/{loanType}")
+@RequiredArgsConstructor
+public class LoanBulkController {
+
+    private final LoanBulkService bulk;
+    private final RoleBasedAccessControl accessControl;
+
+    @PostMapping("/approve")
+    public ResponseEntity<BulkResponse> approve(@PathVariable("loanType") String loanType, @Valid @RequestBody BulkRequest request) {
+        accessControl.requireLoanAccess();
+        return ResponseEntity.ok(bulk.approve(loanType, request.ids(), accessControl.getCurrentUser().getId()));
+    }
+
+    @PostMapping("/reject")
+    public ResponseEntity<BulkResponse> reject(@PathVariable("loanType") String loanType, @Valid @RequestBody BulkRequest request) {
+        accessControl.requireLoanAccess();
+        return ResponseEntity.ok(bulk.reject(loanType, request.ids(), request.reason(), accessControl.getCurrentUser().getId()));
+    }
+
+    @PostMapping("/disburse")
+    public ResponseEntity<BulkResponse> disburse(@PathVariable("loanType") String loanType, @Valid @RequestBody BulkRequest request) {
+        accessControl.requireLoanAccess();
+        return ResponseEntity.ok(bulk.disburse(loanType, request.ids()));
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.bankingmini.loan;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class LoanBulkDtos {
+
+    // reason is used by reject only
+    public record BulkRequest(@NotEmpty @Size(max = 1000) List<Long> ids, String reason) {
+    }
+
+    // status: the loan's status after the call; error: why this id was skipped
+    public record Outcome(Long id, boolean ok, String status, String error) {
+    }
+
+    public record BulkResponse(int requested, int succeeded, List<Outcome> outcomes) {
+    }
+}
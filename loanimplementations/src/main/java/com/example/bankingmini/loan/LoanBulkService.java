@@ -0,0 +1,391 @@
+package com.example.bankingmini.loan;
+
+import com.example.bankingmini.account.TransactionPostedEvent;
+import com.example.bankingmini.journal.JournalService;
+import com.example.bankingmini.loan.LoanBulkDtos.BulkResponse;
+import com.example.bankingmini.loan.LoanBulkDtos.Outcome;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+// Approve, reject and disburse for a list of loans of one type in one transaction: the loans are read
+// and locked with a single IN query, each id is checked against the same rules as the one-at-a-time
+// service methods, and the ones that pass are written with JDBC batches. Ids that fail a check are
+// reported in the outcome list and left alone; a database error rolls the whole call back.
+@Service
+public class LoanBulkService {
+
+    private record Kind(String type, String table, String amountColumn, String approvedAtColumn, String referencePrefix) {
+    }
+
+    private static final Map<String, Kind> KINDS = Map.of(
+            "GENERAL", new Kind("GENERAL", "LOAN", "PRINCIPAL", "APPROVED_AT", "LOAN:"),
+            "VEHICLE", new Kind("VEHICLE", "VEHICLE_LOAN", "LOAN_AMOUNT", "APPROVAL_DATE", "VEHICLE_LOAN:"),
+            "STUDENT", new Kind("STUDENT", "STUDENT_LOAN", "LOAN_AMOUNT", "APPROVAL_DATE", "STUDENT_LOAN:"));
+
+    private static final String STUDENT_COLUMNS = "COURSE_DURATION_YEARS, DISBURSEMENT_TYPE, DISBURSED_AMOUNT, " +
+            "NEXT_DISBURSEMENT_AMOUNT, NEXT_DISBURSEMENT_DATE, NVL(MORATORIUM_PERIOD_MONTHS, 0)";
+    private static final String NO_STUDENT_COLUMNS = "0, NULL, NULL, NULL, NULL, 0";
+
+    // student-only fields are zero or null for the other types
+    private record Row(long id, long customerId, Long accountId, String status, BigDecimal loanAmount,
+                       BigDecimal interestRate, int tenureMonths, BigDecimal monthlyEmi, BigDecimal outstanding,
+                       int courseYears, String disbursementType, BigDecimal disbursedAmount,
+                       BigDecimal nextAmount, Timestamp nextDate, int moratoriumMonths) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher events;
+    private final ObjectProvider<JournalService> journal;
+    private final LoanScheduleService schedules;
+    private final EmiCalculator emiCalculator;
+
+    public LoanBulkService(JdbcTemplate jdbc,
+                           PlatformTransactionManager transactionManager,
+                           ApplicationEventPublisher events,
+                           ObjectProvider<JournalService> journal,
+                           LoanScheduleService schedules,
+                           EmiCalculator emiCalculator) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.events = events;
+        this.journal = journal;
+        this.schedules = schedules;
+        this.emiCalculator = emiCalculator;
+    }
+
+    public BulkResponse approve(String loanType, List<Long> ids, long officerId) {
+        var kind = kind(loanType);
+        boolean student = "STUDENT".equals(kind.type());
+        return tx.execute(status -> {
+            var outcomes = new LinkedHashMap<Long, Outcome>();
+            var rows = accept(kind, ids, outcomes, s -> LoanStateMachine.allows(kind.type(), s, "APPROVED"),
+                    "Loan is not in pending status");
+            var now = Instant.now();
+            var at = Timestamp.from(now);
+            int n = rows.size();
+            var emis = new BigDecimal[n];
+            var tranches = new StudentTrancheRunner.Next[n];
+            if (student) {
+                // EMI is fixed at approval and starts after the moratorium; tranche plan as approveLoan
+                for (int i = 0; i < n; i++) {
+                    var r = rows.get(i);
+                    emis[i] = emiCalculator.emi(r.loanAmount(), r.interestRate(), r.tenureMonths());
+                    tranches[i] = StudentTrancheRunner.firstTranche(r.loanAmount(), r.courseYears(), r.disbursementType(), now);
+                }
+            }
+            String sql = "UPDATE " + kind.table() + " SET STATUS = 'APPROVED', VERSION = VERSION + 1, " + kind.approvedAtColumn() + " = ?, APPROVED_BY = ?" +
+                    (student ? ", MONTHLY_EMI = ?, NEXT_DISBURSEMENT_AMOUNT = ?, NEXT_DISBURSEMENT_DATE = ?" : "") +
+                    " WHERE ID = ? AND STATUS = 'PENDING'";
+            int[] moved = batch(sql, n, (ps, i) -> {
+                int p = 1;
+                ps.setTimestamp(p++, at);
+                ps.setLong(p++, officerId);
+                if (student) {
+                    ps.setBigDecimal(p++, emis[i]);
+                    ps.setBigDecimal(p++, tranches[i].amount());
+                    ps.setTimestamp(p++, Timestamp.from(tranches[i].date()));
+                }
+                ps.setLong(p, rows.get(i).id());
+            });
+            checkMoved(kind, rows, moved);
+            for (var r : rows) {
+                statusChanged(kind, r, "APPROVED", "APPROVED", null, r.outstanding(), now);
+                outcomes.put(r.id(), new Outcome(r.id(), true, "APPROVED", null));
+            }
+            return response(outcomes);
+        });
+    }
+
+    public BulkResponse reject(String loanType, List<Long> ids, String reason, long officerId) {
+        var kind = kind(loanType);
+        return tx.execute(status -> {
+            var outcomes = new LinkedHashMap<Long, Outcome>();
+            var rows = accept(kind, ids, outcomes, s -> LoanStateMachine.allows(kind.type(), s, "REJECTED"),
+                    "Loan is not in pending status");
+            int n = rows.size();
+            int[] moved = batch("UPDATE " + kind.table() + " SET STATUS = 'REJECTED', VERSION = VERSION + 1, REJECTION_REASON = ?, " +
+                    "APPROVED_BY = ? WHERE ID = ? AND STATUS = 'PENDING'", n, (ps, i) -> {
+                ps.setString(1, reason);
+                ps.setLong(2, officerId);
+                ps.setLong(3, rows.get(i).id());
+            });
+            checkMoved(kind, rows, moved);
+            var now = Instant.now();
+            for (var r : rows) {
+                statusChanged(kind, r, "REJECTED", "REJECTED", null, r.outstanding(), now);
+                outcomes.put(r.id(), new Outcome(r.id(), true, "REJECTED", null));
+            }
+            return response(outcomes);
+        });
+    }
+
+    // General and vehicle loans pay out in full and go ACTIVE; a student loan pays its next tranche
+    public BulkResponse disburse(String loanType, List<Long> ids) {
+        var kind = kind(loanType);
+        boolean student = "STUDENT".equals(kind.type());
+        // APPROVED, or for a student loan also DISBURSED with tranches to go
+        Predicate<String> payable = s -> LoanStateMachine.allows(kind.type(), s, "ACTIVE");
+        return tx.execute(status -> {
+            var outcomes = new LinkedHashMap<Long, Outcome>();
+            var candidates = accept(kind, ids, outcomes, payable,
+                    student ? "Loan is not approved for disbursement" : "Loan is not approved");
+            List<Row> rows = new ArrayList<>(candidates.size());
+            for (var r : candidates) {
+                if (student && (r.nextAmount() == null || r.nextAmount().signum() <= 0)) {
+                    outcomes.put(r.id(), new Outcome(r.id(), false, r.status(), "No tranche left to disburse"));
+                } else {
+                    rows.add(r);
+                }
+            }
+            // account order, so concurrent calls lock shared accounts in the same sequence
+            rows.sort(Comparator.comparing(Row::accountId, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparingLong(Row::id));
+            int n = rows.size();
+            var now = Instant.now();
+            var at = Timestamp.from(now);
+            var amounts = new BigDecimal[n];
+            var references = new String[n];
+            var tranches = new StudentTrancheRunner.Next[n];
+            for (int i = 0; i < n; i++) {
+                var r = rows.get(i);
+                amounts[i] = student ? r.nextAmount() : r.loanAmount();
+                references[i] = student ? StudentTrancheRunner.reference(r.id(), r.nextDate() == null ? null : r.nextDate().toInstant())
+                        : kind.referencePrefix() + r.id();
+                if (student) {
+                    var before = StudentTrancheRunner.disbursedSoFar(r.disbursedAmount(), r.status(), r.loanAmount(), r.nextAmount());
+                    tranches[i] = StudentTrancheRunner.next(r.loanAmount(), before, amounts[i], r.disbursementType(), now);
+                }
+            }
+            var txnIds = credit(kind, rows, amounts, references, now);
+            batch("INSERT INTO LOAN_DISBURSEMENT (ID, LOAN_TYPE, LOAN_ID, REFERENCE, AMOUNT, TXN_ID, DISBURSED_AT) " +
+                    "VALUES (LOAN_DISBURSEMENT_SEQ.NEXTVAL, ?, ?, ?, ?, ?, ?)", n, (ps, i) -> {
+                ps.setString(1, kind.type());
+                ps.setLong(2, rows.get(i).id());
+                ps.setString(3, references[i]);
+                ps.setBigDecimal(4, amounts[i]);
+                if (txnIds[i] == null) {
+                    ps.setNull(5, Types.BIGINT);
+                } else {
+                    ps.setLong(5, txnIds[i]);
+                }
+                ps.setTimestamp(6, at);
+            });
+
+            var statuses = new String[n];
+            var emiStart = new Instant[n];
+            var courseEnd = new Instant[n];
+            for (int i = 0; i < n; i++) {
+                var r = rows.get(i);
+                if (!student) {
+                    statuses[i] = "ACTIVE";
+                    emiStart[i] = now.plus(30, ChronoUnit.DAYS);
+                } else if (tranches[i].amount() != null) {
+                    statuses[i] = "DISBURSED";
+                } else {
+                    statuses[i] = "ACTIVE";
+                    courseEnd[i] = now.plus(r.courseYears() * 365L, ChronoUnit.DAYS);
+                    emiStart[i] = courseEnd[i].plus(r.moratoriumMonths() * 30L, ChronoUnit.DAYS);
+                }
+            }
+            int[] moved;
+            if (student) {
+                moved = batch("UPDATE STUDENT_LOAN SET STATUS = ?, VERSION = VERSION + 1, DISBURSEMENT_DATE = NVL(DISBURSEMENT_DATE, ?), " +
+                        "DISBURSED_AMOUNT = ?, NEXT_DISBURSEMENT_AMOUNT = ?, NEXT_DISBURSEMENT_DATE = ?, " +
+                        "COURSE_COMPLETION_DATE = NVL(?, COURSE_COMPLETION_DATE), EMI_START_DATE = NVL(?, EMI_START_DATE) " +
+                        "WHERE ID = ? AND STATUS = ?", n, (ps, i) -> {
+                    var next = tranches[i];
+                    ps.setString(1, statuses[i]);
+                    ps.setTimestamp(2, at);
+                    ps.setBigDecimal(3, next.disbursed());
+                    ps.setBigDecimal(4, next.amount());
+                    ps.setTimestamp(5, next.date() == null ? null : Timestamp.from(next.date()));
+                    ps.setTimestamp(6, courseEnd[i] == null ? null : Timestamp.from(courseEnd[i]));
+                    ps.setTimestamp(7, emiStart[i] == null ? null : Timestamp.from(emiStart[i]));
+                    ps.setLong(8, rows.get(i).id());
+                    ps.setString(9, rows.get(i).status());
+                });
+            } else {
+                moved = batch("UPDATE " + kind.table() + " SET STATUS = 'ACTIVE', VERSION = VERSION + 1, DISBURSEMENT_DATE = ?, " +
+                        "EMI_START_DATE = ? WHERE ID = ? AND STATUS = 'APPROVED'", n, (ps, i) -> {
+                    ps.setTimestamp(1, at);
+                    ps.setTimestamp(2, Timestamp.from(emiStart[i]));
+                    ps.setLong(3, rows.get(i).id());
+                });
+            }
+            checkMoved(kind, rows, moved);
+
+            for (int i = 0; i < n; i++) {
+                var r = rows.get(i);
+                if ("ACTIVE".equals(statuses[i])) {
+                    schedules.generate(kind.type(), r.id(), r.loanAmount(), r.interestRate(), r.tenureMonths(),
+                            r.monthlyEmi(), emiStart[i]);
+                }
+                statusChanged(kind, r, "DISBURSED", statuses[i], amounts[i], r.outstanding(), now);
+                outcomes.put(r.id(), new Outcome(r.id(), true, statuses[i], null));
+            }
+            return response(outcomes);
+        });
+    }
+
+    // Credits each loan's account; TXN ids per row, null where the journal posts or there is no account
+    private Long[] credit(Kind kind, List<Row> rows, BigDecimal[] amounts, String[] references, Instant now) {
+        int n = rows.size();
+        var txnIds = new Long[n];
+        var journalService = journal.getIfAvailable();
+        var withAccount = IntStream.range(0, n).filter(i -> rows.get(i).accountId() != null).boxed().toList();
+        if (withAccount.isEmpty()) {
+            return txnIds;
+        }
+        Map<Long, String> numbers = new HashMap<>();
+        jdbc.query("SELECT ID, ACCOUNT_NUMBER FROM ACCOUNT WHERE ID IN (" + placeholders(withAccount.size()) + ")",
+                rs -> {
+                    numbers.put(rs.getLong(1), rs.getString(2));
+                }, withAccount.stream().map(i -> rows.get(i).accountId()).toArray());
+        if (journalService != null) {
+            for (int i : withAccount) {
+                var accountId = rows.get(i).accountId();
+                journalService.disburseLoan(references[i], accountId, numbers.get(accountId), amounts[i]);
+            }
+            return txnIds;
+        }
+
+        int m = withAccount.size();
+        var ids = jdbc.queryForList("SELECT TXN_SEQ.NEXTVAL FROM DUAL CONNECT BY LEVEL <= ?", Long.class, m);
+        for (int j = 0; j < m; j++) {
+            txnIds[withAccount.get(j)] = ids.get(j);
+        }
+        var at = Timestamp.from(now);
+        String description = kind.type().charAt(0) + kind.type().substring(1).toLowerCase(Locale.ROOT) + " loan disbursal";
+        jdbc.batchUpdate("INSERT INTO TXN (ID, ACCOUNT_ID, TYPE, AMOUNT, DESCRIPTION, OCCURRED_AT) " +
+                "VALUES (?, ?, 'LOAN_DISBURSAL', ?, ?, ?)", withAccount, m, (ps, i) -> {
+            ps.setLong(1, txnIds[i]);
+            ps.setLong(2, rows.get(i).accountId());
+            ps.setBigDecimal(3, amounts[i]);
+            ps.setString(4, description + " " + rows.get(i).id());
+            ps.setTimestamp(5, at);
+        });
+        jdbc.batchUpdate("UPDATE ACCOUNT SET BALANCE = BALANCE + ? WHERE ID = ?", withAccount, m, (ps, i) -> {
+            ps.setBigDecimal(1, amounts[i]);
+            ps.setLong(2, rows.get(i).accountId());
+        });
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        jdbc.query("SELECT ID, BALANCE FROM ACCOUNT WHERE ID IN (" + placeholders(m) + ")",
+                rs -> {
+                    balances.put(rs.getLong(1), rs.getBigDecimal(2));
+                }, withAccount.stream().map(i -> rows.get(i).accountId()).toArray());
+        // walk back from each account's closing balance to the balance after each credit
+        var after = new BigDecimal[n];
+        for (int j = m - 1; j >= 0; j--) {
+            int i = withAccount.get(j);
+            var accountId = rows.get(i).accountId();
+            after[i] = balances.get(accountId);
+            balances.put(accountId, after[i].subtract(amounts[i]));
+        }
+        for (int i : withAccount) {
+            var accountId = rows.get(i).accountId();
+            events.publishEvent(new TransactionPostedEvent(txnIds[i], accountId, numbers.get(accountId), "LOAN_DISBURSAL",
+                    amounts[i], null, description + " " + rows.get(i).id(), null, now, after[i]));
+        }
+        return txnIds;
+    }
+
+    // Locks and reads the loans; fills in outcomes for unknown ids and ones in the wrong state and
+    // returns the rest in id order
+    private List<Row> accept(Kind kind, List<Long> ids, Map<Long, Outcome> outcomes, Predicate<String> allowed, String error) {
+        var distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, Row> found = new HashMap<>();
+        jdbc.query("SELECT ID, CUSTOMER_ID, ACCOUNT_ID, STATUS, " + kind.amountColumn() + ", INTEREST_RATE, TENURE_MONTHS, " +
+                        "MONTHLY_EMI, OUTSTANDING_AMOUNT, " + ("STUDENT".equals(kind.type()) ? STUDENT_COLUMNS : NO_STUDENT_COLUMNS) +
+                        " FROM " + kind.table() + " WHERE ID IN (" + placeholders(distinct.size()) + ") FOR UPDATE",
+                rs -> {
+                    var row = row(rs);
+                    found.put(row.id(), row);
+                }, distinct.toArray());
+        List<Row> rows = new ArrayList<>();
+        for (Long id : distinct) {
+            var row = found.get(id);
+            if (row == null) {
+                outcomes.put(id, new Outcome(id, false, null, "Loan not found"));
+            } else if (!allowed.test(row.status())) {
+                outcomes.put(id, new Outcome(id, false, row.status(), error));
+            } else {
+                outcomes.put(id, null); // keeps the request order; filled in once applied
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static Row row(ResultSet rs) throws SQLException {
+        long accountId = rs.getLong(3);
+        Long account = rs.wasNull() ? null : accountId;
+        return new Row(rs.getLong(1), rs.getLong(2), account, rs.getString(4), rs.getBigDecimal(5),
+                rs.getBigDecimal(6), rs.getInt(7), rs.getBigDecimal(8), rs.getBigDecimal(9), rs.getInt(10),
+                rs.getString(11), rs.getBigDecimal(12), rs.getBigDecimal(13), rs.getTimestamp(14), rs.getInt(15));
+    }
+
+    private void statusChanged(Kind kind, Row row, String action, String status, BigDecimal amount, BigDecimal outstanding, Instant now) {
+        events.publishEvent(new LoanStatusChangedEvent(kind.type(), row.id(), row.customerId(), action, row.status(),
+                status, amount, outstanding, now));
+    }
+
+    // The rows are locked and every UPDATE is guarded by the status just read, so a miss means a bug
+    private static void checkMoved(Kind kind, List<Row> rows, int[] moved) {
+        for (int i = 0; i < moved.length; i++) {
+            if (moved[i] == 0) {
+                throw new IllegalStateException(kind.type() + " loan " + rows.get(i).id() + " changed during a bulk update");
+            }
+        }
+    }
+
+    private static BulkResponse response(Map<Long, Outcome> outcomes) {
+        var list = new ArrayList<>(outcomes.values());
+        int ok = (int) list.stream().filter(Outcome::ok).count();
+        return new BulkResponse(list.size(), ok, list);
+    }
+
+    private static Kind kind(String loanType) {
+        var kind = KINDS.get(loanType.toUpperCase(Locale.ROOT));
+        if (kind == null) {
+            throw new IllegalArgumentException("Unknown loan type " + loanType);
+        }
+        return kind;
+    }
+
+    // One JDBC batch over rows 0..n-1, update counts in row order
+    private int[] batch(String sql, int n, ParameterizedPreparedStatementSetter<Integer> setter) {
+        if (n == 0) {
+            return new int[0];
+        }
+        return jdbc.batchUpdate(sql, IntStream.range(0, n).boxed().toList(), n, setter)[0];
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.bankingmini.loan;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// One row per tranche paid out. REFERENCE is the same per-tranche key the journal uses, so a
+// tranche can be recorded once whichever path pays it.
+@Entity
+@Table(name = "LOAN_DISBURSEMENT",
+        uniqueConstraints = @UniqueConstraint(name = "UK_LOAN_DISBURSEMENT_REF", columnNames = "REFERENCE"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoanDisbursement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_disbursement_seq")
+    @SequenceGenerator(name = "loan_disbursement_seq", sequenceName = "LOAN_DISBURSEMENT_SEQ", allocationSize = 1)
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "LOAN_TYPE", nullable = false)
+    private String loanType; // STUDENT, VEHICLE, GENERAL
+
+    @Column(name = "LOAN_ID", nullable = false)
+    private Long loanId;
+
+    @Column(name = "REFERENCE", nullable = false)
+    private String reference;
+
+    @Column(name = "AMOUNT", nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "TXN_ID")
+    private Long txnId; // null when the journal wrote the TXN row
+
+    @Column(name = "DISBURSED_AT", nullable = false)
+    private Instant disbursedAt;
+}
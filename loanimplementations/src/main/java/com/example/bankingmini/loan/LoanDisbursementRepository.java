@@ -0,0 +1,12 @@
+package com.example.bankingmini.loan;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface LoanDisbursementRepository extends JpaRepository<LoanDisbursement, Long> {
+
+    boolean existsByReference(String reference);
+
+    List<LoanDisbursement> findByLoanTypeAndLoanIdOrderByDisbursedAtAsc(String loanType, Long loanId);
+}
@@ -50,6 +50,7 @@ public class LoanDtos {
         private Instant emiStartDate;
         private BigDecimal outstandingAmount;
         private String rejectionReason;
+        private Long daysPastDue;
     }
 
     @Data
@@ -7,7 +7,10 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 @Entity
-@Table(name = "LOAN_INSTALLMENT")
+@Table(name = "LOAN_INSTALLMENT",
+        indexes = @Index(name = "IX_LOAN_INSTALLMENT_DUE", columnList = "STATUS, DUE_DATE"),
+        uniqueConstraints = @UniqueConstraint(name = "UK_LOAN_INSTALLMENT_NUMBER",
+                columnNames = {"LOAN_TYPE", "LOAN_ID", "INSTALLMENT_NUMBER"}))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -33,6 +36,13 @@ public class LoanInstallment {
     @Column(name = "AMOUNT", nullable = false)
     private BigDecimal amount;
 
+    // Split of a scheduled EMI; null on rows recorded before schedules were generated
+    @Column(name = "PRINCIPAL_AMOUNT")
+    private BigDecimal principalAmount;
+
+    @Column(name = "INTEREST_AMOUNT")
+    private BigDecimal interestAmount;
+
     @Column(name = "DUE_DATE", nullable = false)
     private Instant dueDate;
 
@@ -14,6 +14,8 @@ public class LoanInstallmentDto {
     private String loanType;
     private Integer installmentNumber;
     private BigDecimal amount;
+    private BigDecimal principalAmount;
+    private BigDecimal interestAmount;
     private BigDecimal paidAmount;
     private Instant dueDate;
     private Instant paidDate;
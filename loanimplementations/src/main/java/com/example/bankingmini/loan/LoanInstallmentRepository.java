@@ -1,7 +1,14 @@
 package com.example.bankingmini.loan;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 public interface LoanInstallmentRepository extends JpaRepository<LoanInstallment, Long> {
     
@@ -10,4 +17,25 @@ public interface LoanInstallmentRepository extends JpaRepository<LoanInstallment
     List<LoanInstallment> findByStatusOrderByDueDateAsc(String status);
     int countByLoanId(Long loanId);
 
+    // LOAN_ID alone is ambiguous: general, vehicle and student loans have their own id sequences
+    List<LoanInstallment> findByLoanTypeAndLoanIdOrderByDueDateDesc(String loanType, Long loanId);
+
+    int countByLoanTypeAndLoanId(String loanType, Long loanId);
+
+    int countByLoanTypeAndLoanIdAndPaidDateIsNotNull(String loanType, Long loanId);
+
+    Optional<LoanInstallment> findFirstByLoanTypeAndLoanIdAndPaidDateIsNullOrderByInstallmentNumberAsc(String loanType, Long loanId);
+
+    Optional<LoanInstallment> findByLoanTypeAndLoanIdAndInstallmentNumber(String loanType, Long loanId, Integer installmentNumber);
+
+    @Modifying
+    @Query("UPDATE LoanInstallment i SET i.status = 'PAID', i.paidAmount = :amount, i.paidDate = :paidAt " +
+            "WHERE i.id = :id AND i.paidDate IS NULL")
+    int markPaid(@Param("id") Long id, @Param("amount") BigDecimal amount, @Param("paidAt") Instant paidAt);
+
+    // Range scans on IX_LOAN_INSTALLMENT_DUE
+    List<LoanInstallment> findByStatusAndDueDateBetweenOrderByDueDateAsc(String status, Instant from, Instant to);
+
+    List<LoanInstallment> findByStatusAndDueDateBeforeOrderByDueDateAsc(String status, Instant before);
+
 }
@@ -0,0 +1,20 @@
+package com.example.bankingmini.loan;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/loan")
+@RequiredArgsConstructor
+public class LoanQuoteController {
+
+    private final LoanQuoteService quotes;
+
+    // EMI what-if grid for the application sliders; nothing is stored
+    @PostMapping("/quote-grid")
+    public ResponseEntity<LoanQuoteDtos.GridResponse> quoteGrid(@Valid @RequestBody LoanQuoteDtos.GridRequest request) {
+        return ResponseEntity.ok(quotes.grid(request));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.bankingmini.loan;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public class LoanQuoteDtos {
+
+    // from..to inclusive in steps of step; to and step may be left out for a single value
+    public record Range(@NotNull BigDecimal from, BigDecimal to, BigDecimal step) {
+    }
+
+    public record TenureRange(@NotNull Integer from, Integer to, Integer step) {
+    }
+
+    public record GridRequest(
+            @NotNull @Valid Range principal,
+            @NotNull @Valid Range rate,          // annual percentage, e.g. 9.5
+            @NotNull @Valid TenureRange tenureMonths,
+            LocalDate startDate                  // first EMI falls a month later; defaults to today
+    ) {
+    }
+
+    public record Quote(
+            BigDecimal principal,
+            BigDecimal rate,
+            int tenureMonths,
+            BigDecimal emi,
+            BigDecimal totalInterest,
+            LocalDate payoffDate
+    ) {
+    }
+
+    // quotes are ordered by rate, then tenure, then principal
+    public record GridResponse(
+            List<BigDecimal> principals,
+            List<BigDecimal> rates,
+            List<Integer> tenures,
+            List<Quote> quotes
+    ) {
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.bankingmini.loan;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+// What-if EMI grids for the application screens. Pure computation on EmiCalculator, no database:
+// each (rate, tenure) pair quotes the whole principal axis in one emiMinor batch, pairs run in
+// parallel, and finished grids are kept in an LRU keyed by the normalised parameters, so moving a
+// slider back to a position already seen costs a map lookup. Grids vary in size by orders of
+// magnitude, so the LRU is bounded by the quotes it holds rather than by the number of grids.
+@Service
+public class LoanQuoteService {
+
+    private record Key(List<BigDecimal> principals, List<BigDecimal> rates, List<Integer> tenures, LocalDate start) {
+    }
+
+    private final EmiCalculator emiCalculator;
+    private final int maxQuotes;
+    private final int maxAxis;
+    private final int cacheQuotes;
+    private final Map<Key, LoanQuoteDtos.GridResponse> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedQuotes; // guarded by cache
+
+    public LoanQuoteService(EmiCalculator emiCalculator,
+                            @Value("${loan.quote.max-quotes:40000}") int maxQuotes,
+                            @Value("${loan.quote.max-axis:400}") int maxAxis,
+                            @Value("${loan.quote.cache-quotes:200000}") int cacheQuotes) {
+        this.emiCalculator = emiCalculator;
+        this.maxQuotes = maxQuotes;
+        this.maxAxis = maxAxis;
+        this.cacheQuotes = cacheQuotes;
+    }
+
+    public LoanQuoteDtos.GridResponse grid(LoanQuoteDtos.GridRequest request) {
+        var principals = axis("principal", request.principal(), 2);
+        var rates = axis("rate", request.rate(), 4);
+        var tenures = tenureAxis(request.tenureMonths());
+        if (principals.get(0).signum() <= 0) {
+            throw new IllegalArgumentException("principal must be positive");
+        }
+        if (rates.get(0).signum() < 0) {
+            throw new IllegalArgumentException("rate cannot be negative");
+        }
+        if ((long) principals.size() * rates.size() * tenures.size() > maxQuotes) {
+            throw new IllegalArgumentException("Grid is larger than " + maxQuotes + " quotes");
+        }
+        var start = request.startDate() != null ? request.startDate() : LocalDate.now(ZoneOffset.UTC);
+        var key = new Key(principals, rates, tenures, start);
+        synchronized (cache) {
+            var hit = cache.get(key);
+            if (hit != null) {
+                return hit;
+            }
+        }
+        var response = compute(key);
+        cache(key, response);
+        return response;
+    }
+
+    // evicts least recently used grids until the quotes held are back under cache-quotes
+    private void cache(Key key, LoanQuoteDtos.GridResponse response) {
+        int size = response.quotes().size();
+        if (size > cacheQuotes) {
+            return;
+        }
+        synchronized (cache) {
+            var previous = cache.put(key, response);
+            cachedQuotes += size - (previous == null ? 0 : previous.quotes().size());
+            var eldest = cache.values().iterator();
+            while (cachedQuotes > cacheQuotes) {
+                cachedQuotes -= eldest.next().quotes().size();
+                eldest.remove();
+            }
+        }
+    }
+
+    private LoanQuoteDtos.GridResponse compute(Key key) {
+        int p = key.principals().size();
+        int t = key.tenures().size();
+        long[] principalMinor = key.principals().stream().mapToLong(v -> v.movePointRight(2).longValueExact()).toArray();
+        var quotes = new LoanQuoteDtos.Quote[p * t * key.rates().size()];
+        IntStream.range(0, key.rates().size() * t).parallel().forEach(pair -> {
+            BigDecimal rate = key.rates().get(pair / t);
+            int tenure = key.tenures().get(pair % t);
+            LocalDate payoff = key.start().plusMonths(tenure);
+            long[] emi = emiCalculator.emiMinor(principalMinor, rate, tenure);
+            for (int i = 0; i < p; i++) {
+                // nominal: the schedule's last row absorbs the EMI's rounding, so it can differ by cents
+                long interest = Math.subtractExact(Math.multiplyExact(emi[i], tenure), principalMinor[i]);
+                quotes[pair * p + i] = new LoanQuoteDtos.Quote(key.principals().get(i), rate, tenure,
+                        BigDecimal.valueOf(emi[i], 2), BigDecimal.valueOf(interest, 2), payoff);
+            }
+        });
+        return new LoanQuoteDtos.GridResponse(key.principals(), key.rates(), key.tenures(), Arrays.asList(quotes));
+    }
+
+    private List<BigDecimal> axis(String name, LoanQuoteDtos.Range range, int scale) {
+        BigDecimal from = scaled(name, range.from(), scale);
+        BigDecimal to = range.to() == null ? from : scaled(name, range.to(), scale);
+        BigDecimal step = range.step() == null ? to.subtract(from).max(BigDecimal.ONE) : scaled(name, range.step(), scale);
+        if (to.compareTo(from) < 0 || step.signum() <= 0) {
+            throw new IllegalArgumentException(name + " range needs from <= to and a positive step");
+        }
+        List<BigDecimal> values = new ArrayList<>();
+        for (BigDecimal v = from; v.compareTo(to) <= 0; v = v.add(step)) {
+            if (values.size() == maxAxis) {
+                throw new IllegalArgumentException(name + " range has more than " + maxAxis + " values");
+            }
+            values.add(v);
+        }
+        return List.copyOf(values);
+    }
+
+    private List<Integer> tenureAxis(LoanQuoteDtos.TenureRange range) {
+        int from = range.from();
+        int to = range.to() == null ? from : range.to();
+        int step = range.step() == null ? Math.max(1, to - from) : range.step();
+        if (from < 1 || to > 360 || to < from || step < 1) {
+            throw new IllegalArgumentException("tenureMonths range must lie within 1..360 with a positive step");
+        }
+        if ((to - from) / step + 1 > maxAxis) {
+            throw new IllegalArgumentException("tenureMonths range has more than " + maxAxis + " values");
+        }
+        List<Integer> values = new ArrayList<>();
+        for (int v = from; v <= to; v += step) {
+            values.add(v);
+        }
+        return List.copyOf(values);
+    }
+
+    private static BigDecimal scaled(String name, BigDecimal value, int scale) {
+        try {
+            return value.setScale(scale, RoundingMode.UNNECESSARY);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(name + " allows at most " + scale + " decimals");
+        }
+    }
+}
@@ -3,7 +3,12 @@ package com.example.bankingmini.loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 
 public interface LoanRepository extends JpaRepository<Loan, Long> {
@@ -20,5 +25,15 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
     Page<Loan> findByStatusOrderByCreatedAtDesc(String status, Pageable pageable);
 //    List<Loan> findByCustomerIdOrderByApplicationDateDesc(Long customerId);
 
-
+    // status, count
+    @Query("SELECT l.status, COUNT(l) FROM Loan l WHERE l.customer.id = :customerId GROUP BY l.status")
+    List<Object[]> countByStatusForCustomer(@Param("customerId") Long customerId);
+
+    // Compare-and-set on INSTALLMENTS_PAID (null on loans from before the counter matches any value);
+    // 0 rows means another payment got there first
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Loan l SET l.installmentsPaid = :paid + 1, l.outstandingAmount = :outstanding, l.status = :status, " +
+            "l.overdueSince = :overdueSince, l.version = l.version + 1 WHERE l.id = :id AND COALESCE(l.installmentsPaid, :paid) = :paid")
+    int recordInstallment(@Param("id") Long id, @Param("paid") int paid, @Param("outstanding") BigDecimal outstanding,
+                          @Param("status") String status, @Param("overdueSince") Instant overdueSince);
 }
@@ -0,0 +1,90 @@
+package com.example.bankingmini.loan;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+// Owns the LOAN_INSTALLMENT schedule. The full schedule is written as PENDING rows when a loan starts
+// repaying, in one JDBC batch; a payment then settles the row after the loan's INSTALLMENTS_PAID count.
+// Loans disbursed before schedules existed have no rows; their services insert a PAID row per payment.
+@Service
+@RequiredArgsConstructor
+public class LoanScheduleService {
+
+    private static final String INSERT = "INSERT INTO LOAN_INSTALLMENT (ID, LOAN_ID, LOAN_TYPE, INSTALLMENT_NUMBER, AMOUNT, " +
+            "PRINCIPAL_AMOUNT, INTEREST_AMOUNT, DUE_DATE, STATUS, CREATED_AT) " +
+            "VALUES (INSTALLMENT_SEQ.NEXTVAL, ?, ?, ?, ?, ?, ?, ?, 'PENDING', ?)";
+
+    private final JdbcTemplate jdbc;
+    private final LoanInstallmentRepository installments;
+
+    @Transactional
+    public int generate(String loanType, Long loanId, BigDecimal principal, BigDecimal annualRate,
+                        int tenureMonths, BigDecimal emi, Instant firstDue) {
+        if (installments.countByLoanTypeAndLoanId(loanType, loanId) > 0) {
+            throw new IllegalStateException("Loan " + loanType + ":" + loanId + " already has installments");
+        }
+        return insert(loanType, loanId, AmortisationSchedule.build(principal, annualRate, emi, tenureMonths, firstDue, 1));
+    }
+
+    // After a renewal: unpaid rows are replaced by a new schedule for the new balance and tenure,
+    // numbered on from the rows already paid and starting where the first replaced row was due
+    @Transactional
+    public int reschedule(String loanType, Long loanId, BigDecimal balance, BigDecimal annualRate,
+                          int tenureMonths, BigDecimal emi) {
+        var next = nextUnpaid(loanType, loanId);
+        if (next.isEmpty()) {
+            return 0;
+        }
+        Instant firstDue = next.get().getDueDate();
+        int firstNumber = next.get().getInstallmentNumber();
+        jdbc.update("DELETE FROM LOAN_INSTALLMENT WHERE LOAN_TYPE = ? AND LOAN_ID = ? AND PAID_DATE IS NULL", loanType, loanId);
+        return insert(loanType, loanId, AmortisationSchedule.build(balance, annualRate, emi, tenureMonths, firstDue, firstNumber));
+    }
+
+    public Optional<LoanInstallment> nextUnpaid(String loanType, Long loanId) {
+        return installments.findFirstByLoanTypeAndLoanIdAndPaidDateIsNullOrderByInstallmentNumberAsc(loanType, loanId);
+    }
+
+    // Installments paid so far. Loans that took payments before INSTALLMENTS_PAID existed have it null
+    // and their paid rows are counted here (PENDING schedule rows are not payments); their first
+    // recordInstallment then stores the number.
+    public int paidSoFar(String loanType, Long loanId, Integer counter) {
+        return counter != null ? counter : installments.countByLoanTypeAndLoanIdAndPaidDateIsNotNull(loanType, loanId);
+    }
+
+    public Optional<LoanInstallment> scheduled(String loanType, Long loanId, int number) {
+        return installments.findByLoanTypeAndLoanIdAndInstallmentNumber(loanType, loanId, number);
+    }
+
+    @Transactional
+    public void settle(LoanInstallment installment, BigDecimal amount) {
+        if (installments.markPaid(installment.getId(), amount, Instant.now()) == 0) {
+            throw new OptimisticLockingFailureException("Installment " + installment.getInstallmentNumber() + " is already paid");
+        }
+    }
+
+    private int insert(String loanType, Long loanId, List<AmortisationSchedule.Row> rows) {
+        var createdAt = Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        jdbc.batchUpdate(INSERT, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, loanId);
+            ps.setString(2, loanType);
+            ps.setInt(3, row.number());
+            ps.setBigDecimal(4, row.amount());
+            ps.setBigDecimal(5, row.principal());
+            ps.setBigDecimal(6, row.interest());
+            ps.setTimestamp(7, Timestamp.from(row.dueDate()));
+            ps.setTimestamp(8, createdAt);
+        });
+        return rows.size();
+    }
+}
@@ -3,9 +3,13 @@ package com.example.bankingmini.loan;
 import com.example.bankingmini.auth.Customer;
 import com.example.bankingmini.auth.CustomerRepository;
 import com.example.bankingmini.account.Account;
+import com.example.bankingmini.account.AccountBalanceChangedEvent;
 import com.example.bankingmini.account.AccountRepository;
 import com.example.bankingmini.common.NotFoundException;
+import com.example.bankingmini.journal.JournalService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -14,7 +18,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -37,6 +40,21 @@ public class LoanService {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired(required = false)
+    private JournalService journalService;
+
+    @Autowired
+    private LoanScheduleService loanScheduleService;
+
+    @Autowired
+    private EmiCalculator emiCalculator;
+
+    @Autowired
+    private LoanStateMachine loanStateMachine;
+
     private static final Set<String> ALLOWED_TYPES =
             Set.of("EDUCATION", "STUDENT", "PERSONAL");
 
@@ -91,6 +109,7 @@ public class LoanService {
                 .build();
 
         Loan savedLoan = loanRepository.save(loan);
+        statusChanged(savedLoan, "APPLIED", null, request.getPrincipal());
         return convertToDto(savedLoan);
     }
 
@@ -129,54 +148,72 @@ public class LoanService {
     public void approveLoan(Long loanId, Long officerId) {
         Loan loan = loanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.isPending()) {
             throw new RuntimeException("Loan is not in pending status");
         }
+        loanStateMachine.transition("GENERAL", loan.getId(), loan.getVersion(), previousStatus, "APPROVED");
 
         loan.setStatus("APPROVED");
         loan.setApprovedAt(Instant.now());
         loan.setApprovedBy(officerId);
         loanRepository.save(loan);
+        statusChanged(loan, "APPROVED", previousStatus, null);
     }
 
     public void rejectLoan(Long loanId, String reason, Long officerId) {
         Loan loan = loanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.isPending()) {
             throw new RuntimeException("Loan is not in pending status");
         }
+        loanStateMachine.transition("GENERAL", loan.getId(), loan.getVersion(), previousStatus, "REJECTED");
 
         loan.setStatus("REJECTED");
         loan.setRejectionReason(reason);
         loan.setApprovedBy(officerId);
         loanRepository.save(loan);
+        statusChanged(loan, "REJECTED", previousStatus, null);
     }
 
     public void disburseLoan(Long loanId) {
         Loan loan = loanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.isApproved()) {
             throw new RuntimeException("Loan is not approved");
         }
+        // claims the disbursal before any money moves, so a second click fails here
+        loanStateMachine.transition("GENERAL", loan.getId(), loan.getVersion(), previousStatus, "ACTIVE");
 
-        if (loan.getAccount() != null) {
+        if (loan.getAccount() != null && journalService != null) {
             Account account = loan.getAccount();
-            account.setBalance(account.getBalance().add(loan.getPrincipal()));
-            accountRepository.save(account);
+            journalService.disburseLoan("LOAN:" + loan.getId(), account.getId(), account.getAccountNumber(), loan.getPrincipal());
+        } else if (loan.getAccount() != null) {
+            // in place rather than from the loan's copy of the account, which may be stale
+            Account account = loan.getAccount();
+            accountRepository.addToBalance(account.getId(), loan.getPrincipal());
+            eventPublisher.publishEvent(new AccountBalanceChangedEvent(account.getId(), account.getAccountNumber(),
+                    accountRepository.balanceOf(account.getId())));
         }
 
         loan.setStatus("ACTIVE");
         loan.setDisbursementDate(Instant.now());
         loan.setEmiStartDate(Instant.now().plus(30, ChronoUnit.DAYS));
         loanRepository.save(loan);
+        loanScheduleService.generate("GENERAL", loan.getId(), loan.getPrincipal(), loan.getInterestRate(),
+                loan.getTenureMonths(), loan.getMonthlyEmi(), loan.getEmiStartDate());
+        statusChanged(loan, "DISBURSED", previousStatus, loan.getPrincipal());
     }
 
     public void payInstallment(Long loanId, BigDecimal amount, Long customerId) {
         Loan loan = loanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.getCustomer().getId().equals(customerId)) {
             throw new RuntimeException("Access denied: Loan does not belong to user");
@@ -191,6 +228,24 @@ public class LoanService {
             throw new RuntimeException("Installment cannot be paid before EMI start date");
         }
 
+        // The counter on the loan row numbers the payment; recordPayment bumps it only if it is still
+        // the value read here, so two concurrent payments cannot both take the same installment
+        int paid = loanScheduleService.paidSoFar("GENERAL", loanId, loan.getInstallmentsPaid());
+        LoanInstallment scheduled = loanScheduleService.scheduled("GENERAL", loanId, paid + 1).orElse(null);
+        if (scheduled != null) {
+            if (amount.compareTo(scheduled.getAmount()) != 0) {
+                throw new RuntimeException("Installment amount must equal scheduled EMI: " + scheduled.getAmount());
+            }
+            loanScheduleService.settle(scheduled, amount);
+            // the loan stays overdue while the next installment is too
+            Instant overdueSince = loanScheduleService.scheduled("GENERAL", loanId, paid + 2)
+                    .filter(LoanInstallment::isOverdue).map(LoanInstallment::getDueDate).orElse(null);
+            recordPayment(loan, paid, loan.getOutstandingAmount().subtract(scheduled.getPrincipalAmount()), overdueSince);
+            statusChanged(loan, "INSTALLMENT_PAID", previousStatus, amount);
+            return;
+        }
+
+        // Loans disbursed before schedules existed: record the payment as it arrives
         BigDecimal monthlyEmi = loan.getMonthlyEmi();
         BigDecimal outstanding = loan.getOutstandingAmount();
 
@@ -205,13 +260,10 @@ public class LoanService {
             }
         }
 
-        int nextInstallmentNumber = installmentRepository.countByLoanId(loanId) + 1;
-
-        // Create installment record
         LoanInstallment installment = LoanInstallment.builder()
                 .loanId(loanId)
                 .loanType("GENERAL")
-                .installmentNumber(nextInstallmentNumber)
+                .installmentNumber(paid + 1)
                 .amount(amount)
                 .paidAmount(amount)
                 .paidDate(Instant.now())
@@ -221,16 +273,21 @@ public class LoanService {
                 .build();
 
         installmentRepository.save(installment);
+        recordPayment(loan, paid, outstanding.subtract(amount), null);
+        statusChanged(loan, "INSTALLMENT_PAID", previousStatus, amount);
+    }
 
-        // Update outstanding amount
-        BigDecimal newOutstanding = loan.getOutstandingAmount().subtract(amount);
-        loan.setOutstandingAmount(newOutstanding);
-
-        if (newOutstanding.compareTo(BigDecimal.ZERO) <= 0) {
-            loan.setStatus("CLOSED");
+    // Second and last write of a payment: counter, outstanding and status in one conditional update.
+    // The update clears the persistence context, so the loan is detached and only updated in memory here.
+    private void recordPayment(Loan loan, int paid, BigDecimal newOutstanding, Instant overdueSince) {
+        String status = newOutstanding.compareTo(BigDecimal.ZERO) <= 0 ? "CLOSED" : loan.getStatus();
+        if (loanRepository.recordInstallment(loan.getId(), paid, newOutstanding, status, overdueSince) == 0) {
+            throw new OptimisticLockingFailureException("Another payment on loan " + loan.getId() + " was recorded first; retry");
         }
-
-        loanRepository.save(loan);
+        loan.setInstallmentsPaid(paid + 1);
+        loan.setOutstandingAmount(newOutstanding);
+        loan.setStatus(status);
+        loan.setOverdueSince(overdueSince);
     }
 
     public void renewLoan(Long loanId, BigDecimal additionalAmount, Integer newTenure) {
@@ -250,6 +307,7 @@ public class LoanService {
         loan.setMonthlyEmi(newEmi);
 
         loanRepository.save(loan);
+        loanScheduleService.reschedule("GENERAL", loan.getId(), newLoanAmount, loan.getInterestRate(), newTenure, newEmi);
     }
 
     public void closeLoan(Long loanId, Long customerId) {
@@ -264,8 +322,13 @@ public class LoanService {
             throw new RuntimeException("Cannot close loan with outstanding amount");
         }
 
+        String previousStatus = loan.getStatus();
+        if (!"CLOSED".equals(previousStatus)) {
+            loanStateMachine.transition("GENERAL", loan.getId(), loan.getVersion(), previousStatus, "CLOSED");
+        }
         loan.setStatus("CLOSED");
         loanRepository.save(loan);
+        statusChanged(loan, "CLOSED", previousStatus, null);
     }
 
     public List<LoanInstallmentDto> getLoanInstallments(Long loanId, Long customerId) {
@@ -276,7 +339,7 @@ public class LoanService {
             throw new RuntimeException("Access denied: Loan does not belong to user");
         }
 
-        List<LoanInstallment> installments = installmentRepository.findByLoanIdOrderByDueDateDesc(loanId);
+        List<LoanInstallment> installments = installmentRepository.findByLoanTypeAndLoanIdOrderByDueDateDesc("GENERAL", loanId);
         return installments.stream().map(this::convertInstallmentToDto).collect(Collectors.toList());
     }
 
@@ -314,7 +377,9 @@ public class LoanService {
                 .monthlyEmi(monthlyEmi)
                 .outstandingAmount(principal)
                 .build();
-        return loanRepository.save(loan);
+        var saved = loanRepository.save(loan);
+        statusChanged(saved, "APPLIED", null, principal);
+        return saved;
     }
 
     @Transactional
@@ -326,9 +391,12 @@ public class LoanService {
         if (!"PENDING".equals(loan.getStatus())) {
             throw new IllegalArgumentException("Only pending loans can be approved");
         }
+        loanStateMachine.transition("GENERAL", loan.getId(), loan.getVersion(), "PENDING", "APPROVED");
         loan.setStatus("APPROVED");
         loan.setApprovedAt(Instant.now());
-        return loanRepository.save(loan);
+        var saved = loanRepository.save(loan);
+        statusChanged(saved, "APPROVED", "PENDING", null);
+        return saved;
     }
 
     @Transactional
@@ -340,8 +408,11 @@ public class LoanService {
         if (!"PENDING".equals(loan.getStatus())) {
             throw new IllegalArgumentException("Only pending loans can be rejected");
         }
+        loanStateMachine.transition("GENERAL", loan.getId(), loan.getVersion(), "PENDING", "REJECTED");
         loan.setStatus("REJECTED");
-        return loanRepository.save(loan);
+        var saved = loanRepository.save(loan);
+        statusChanged(saved, "REJECTED", "PENDING", null);
+        return saved;
     }
 
 //    public Page<LoanDtos.LoanDto> getAllLoans(String status, Pageable pageable) {
@@ -371,12 +442,13 @@ public class LoanService {
         return loanRepository.findByStatus("PENDING");
     }
 
+    private void statusChanged(Loan loan, String action, String previousStatus, BigDecimal amount) {
+        eventPublisher.publishEvent(new LoanStatusChangedEvent("GENERAL", loan.getId(), loan.getCustomer().getId(),
+                action, previousStatus, loan.getStatus(), amount, loan.getOutstandingAmount(), Instant.now()));
+    }
+
     private BigDecimal calculateEMI(BigDecimal principal, BigDecimal annualRate, Integer tenureMonths) {
-        BigDecimal monthlyRate = annualRate.divide(BigDecimal.valueOf(1200), 10, RoundingMode.HALF_UP);
-        BigDecimal onePlusR = BigDecimal.ONE.add(monthlyRate);
-        BigDecimal numerator = principal.multiply(monthlyRate).multiply(onePlusR.pow(tenureMonths));
-        BigDecimal denominator = onePlusR.pow(tenureMonths).subtract(BigDecimal.ONE);
-        return numerator.divide(denominator, 2, RoundingMode.HALF_UP);
+        return emiCalculator.emi(principal, annualRate, tenureMonths);
     }
 
     private LoanDtos.LoanDto convertToDto(Loan loan) {
@@ -399,6 +471,7 @@ public class LoanService {
                 .emiStartDate(loan.getEmiStartDate())
                 .outstandingAmount(loan.getOutstandingAmount())
                 .rejectionReason(loan.getRejectionReason())
+                .daysPastDue(OverdueInstallmentSweeper.daysPastDue(loan.getOverdueSince(), Instant.now()))
                 .build();
     }
 
@@ -409,6 +482,8 @@ public class LoanService {
                 .loanType(installment.getLoanType())
                 .installmentNumber(installment.getInstallmentNumber())
                 .amount(installment.getAmount())
+                .principalAmount(installment.getPrincipalAmount())
+                .interestAmount(installment.getInterestAmount())
                 .paidAmount(installment.getPaidAmount())
                 .dueDate(installment.getDueDate())
                 .paidDate(installment.getPaidDate())
@@ -0,0 +1,55 @@
+package com.example.bankingmini.loan;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+// Allowed status changes per loan type, and the compare-and-set that makes one. A transition is an
+// UPDATE guarded by the status and version the caller read, run before the caller moves any money:
+// the row lock it takes makes a second writer wait, and once the first commits (its entity save bumps
+// VERSION) the second matches no row and fails with a 409 instead of paying out again. The transition
+// itself leaves VERSION alone, so the caller's own save of the loaded entity still matches.
+@Component
+@RequiredArgsConstructor
+public class LoanStateMachine {
+
+    private static final Map<String, Set<String>> SINGLE_PAYOUT = Map.of(
+            "PENDING", Set.of("APPROVED", "REJECTED"),
+            "APPROVED", Set.of("ACTIVE"),
+            "ACTIVE", Set.of("CLOSED"));
+
+    // student loans pay out in tranches, staying DISBURSED until the last one
+    private static final Map<String, Set<String>> TRANCHED = Map.of(
+            "PENDING", Set.of("APPROVED", "REJECTED"),
+            "APPROVED", Set.of("DISBURSED", "ACTIVE"),
+            "DISBURSED", Set.of("DISBURSED", "ACTIVE"),
+            "ACTIVE", Set.of("CLOSED"));
+
+    private static final Map<String, Map<String, Set<String>>> TRANSITIONS = Map.of(
+            "GENERAL", SINGLE_PAYOUT, "VEHICLE", SINGLE_PAYOUT, "STUDENT", TRANCHED);
+
+    private final JdbcTemplate jdbc;
+
+    public static boolean allows(String loanType, String from, String to) {
+        var table = TRANSITIONS.get(loanType);
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown loan type " + loanType);
+        }
+        return from != null && table.getOrDefault(from, Set.of()).contains(to);
+    }
+
+    public void transition(String loanType, Long loanId, Long version, String from, String to) {
+        if (!allows(loanType, from, to)) {
+            throw new IllegalArgumentException("Loan cannot move from " + from + " to " + to);
+        }
+        int moved = jdbc.update("UPDATE " + OverdueInstallmentSweeper.LOAN_TABLES.get(loanType) + " SET STATUS = ? " +
+                "WHERE ID = ? AND STATUS = ? AND VERSION = ?", to, loanId, from, version);
+        if (moved == 0) {
+            throw new OptimisticLockingFailureException("Loan " + loanId + " was changed by another request; reload and retry");
+        }
+    }
+}
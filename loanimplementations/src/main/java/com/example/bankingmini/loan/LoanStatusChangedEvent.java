@@ -0,0 +1,19 @@
+package com.example.bankingmini.loan;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Published by the loan services on every status-relevant change (application, approve, reject,
+// disburse, installment payment, close), inside the transaction that makes the change.
+public record LoanStatusChangedEvent(
+        String loanType,        // GENERAL, VEHICLE, STUDENT
+        Long loanId,
+        Long customerId,
+        String action,          // APPLIED, APPROVED, REJECTED, DISBURSED, INSTALLMENT_PAID, CLOSED
+        String previousStatus,  // null for APPLIED
+        String status,
+        BigDecimal amount,      // requested, disbursed or paid amount; null otherwise
+        BigDecimal outstanding,
+        Instant occurredAt
+) {
+}
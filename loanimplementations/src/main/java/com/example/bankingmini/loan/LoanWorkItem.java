@@ -0,0 +1,51 @@
+package com.example.bankingmini.loan;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// A pending application in the officers' work queue. An item is free to claim once LEASE_UNTIL has
+// passed; a new item's LEASE_UNTIL is its application time, so claiming in (STATUS, LEASE_UNTIL, ID)
+// index order hands out the oldest applications first and a released item goes back to its old place.
+@Entity
+@Table(name = "LOAN_WORK_ITEM",
+        indexes = {
+                @Index(name = "IX_LOAN_WORK_ITEM_QUEUE", columnList = "STATUS, LEASE_UNTIL, ID"),
+                @Index(name = "IX_LOAN_WORK_ITEM_OWNER", columnList = "CLAIMED_BY")
+        },
+        uniqueConstraints = @UniqueConstraint(name = "UK_LOAN_WORK_ITEM_LOAN", columnNames = {"LOAN_TYPE", "LOAN_ID"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoanWorkItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_work_item_seq")
+    @SequenceGenerator(name = "loan_work_item_seq", sequenceName = "LOAN_WORK_ITEM_SEQ", allocationSize = 1)
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "LOAN_TYPE", nullable = false)
+    private String loanType; // STUDENT, VEHICLE, GENERAL
+
+    @Column(name = "LOAN_ID", nullable = false)
+    private Long loanId;
+
+    @Column(name = "STATUS", nullable = false)
+    private String status; // OPEN, DONE
+
+    @Column(name = "CLAIMED_BY")
+    private Long claimedBy;
+
+    @Column(name = "CLAIMED_AT")
+    private Instant claimedAt;
+
+    @Column(name = "LEASE_UNTIL", nullable = false)
+    private Instant leaseUntil;
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt; // the application time
+}
@@ -0,0 +1,44 @@
+package com.example.bankingmini.loan;
+
+import com.example.bankingmini.common.RoleBasedAccessControl;
+import com.example.bankingmini.loan.LoanWorkQueueDtos.LeaseRequest;
+import com.example.bankingmini.loan.LoanWorkQueueDtos.LeaseResponse;
+import com.example.bankingmini.loan.LoanWorkQueueDtos.WorkItem;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Loan officers and admins (see SecurityConfig /api/loan-queue/**)
+@RestController
+@RequestMapping("/api/loan-queue")
+@RequiredArgsConstructor
+public class LoanWorkQueueController {
+
+    private final LoanWorkQueueService queue;
+    private final RoleBasedAccessControl accessControl;
+
+    // Leases the next pending applications, oldest first, across all loan types
+    @PostMapping("/claim")
+    public ResponseEntity<List<WorkItem>> claim(@RequestParam(value = "count", defaultValue = "10") int count) {
+        return ResponseEntity.ok(queue.claim(accessControl.getCurrentUser().getId(), count));
+    }
+
+    @PostMapping("/heartbeat")
+    public ResponseEntity<LeaseResponse> heartbeat(@Valid @RequestBody LeaseRequest request) {
+        return ResponseEntity.ok(queue.heartbeat(accessControl.getCurrentUser().getId(), request.ids()));
+    }
+
+    @PostMapping("/release")
+    public ResponseEntity<Void> release(@Valid @RequestBody LeaseRequest request) {
+        queue.release(accessControl.getCurrentUser().getId(), request.ids());
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/mine")
+    public ResponseEntity<List<WorkItem>> mine() {
+        return ResponseEntity.ok(queue.mine(accessControl.getCurrentUser().getId()));
+    }
+}
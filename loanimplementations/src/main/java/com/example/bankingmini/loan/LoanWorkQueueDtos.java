@@ -0,0 +1,20 @@
+package com.example.bankingmini.loan;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.time.Instant;
+import java.util.List;
+
+public class LoanWorkQueueDtos {
+
+    public record WorkItem(Long id, String loanType, Long loanId, Instant appliedAt, Instant leaseUntil) {
+    }
+
+    public record LeaseRequest(@NotEmpty @Size(max = 1000) List<Long> ids) {
+    }
+
+    // held: the ids in the request this officer still holds, each now leased until leaseUntil
+    public record LeaseResponse(List<Long> held, Instant leaseUntil) {
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.bankingmini.loan;
+
+import com.example.bankingmini.loan.LoanWorkQueueDtos.LeaseResponse;
+import com.example.bankingmini.loan.LoanWorkQueueDtos.WorkItem;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Officers' queue of pending applications across the three loan types. A claim takes the oldest free
+// items off the (STATUS, LEASE_UNTIL) index with FOR UPDATE SKIP LOCKED, so officers claiming at the
+// same moment walk past each other's rows instead of queueing on them, and leases them for
+// lease-seconds. Heartbeats extend a lease the officer still holds; an item whose lease runs out is
+// simply free again. Items are written by the loan events in the application's own transaction and
+// closed when the loan is approved or rejected.
+@Service
+@Slf4j
+public class LoanWorkQueueService {
+
+    // application time per loan table, for the startup backfill
+    private static final Map<String, String> APPLIED_AT = Map.of("GENERAL", "CREATED_AT", "VEHICLE", "APPLICATION_DATE",
+            "STUDENT", "APPLICATION_DATE");
+
+    // no ROWNUM: Oracle applies it before skipping locked rows, which would leave a claim short while
+    // other officers hold the first rows. SKIP LOCKED locks rows as they are fetched, so reading stops at n.
+    // Without ORDER BY no order is guaranteed; this one matches the (STATUS, LEASE_UNTIL, ID) index, so
+    // rows are still read (and locked) straight off the index with no sort.
+    private static final String CLAIM = "SELECT ID, LOAN_TYPE, LOAN_ID, CREATED_AT FROM LOAN_WORK_ITEM " +
+            "WHERE STATUS = 'OPEN' AND LEASE_UNTIL <= ? ORDER BY LEASE_UNTIL, ID FOR UPDATE SKIP LOCKED";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final Duration lease;
+    private final int maxClaim;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong renewed = new AtomicLong();
+
+    public LoanWorkQueueService(JdbcTemplate jdbc,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry registry,
+                                @Value("${loan.work-queue.lease-seconds:900}") long leaseSeconds,
+                                @Value("${loan.work-queue.max-claim:50}") int maxClaim) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxClaim = maxClaim;
+        FunctionCounter.builder("loan.work-queue.claimed", claimed, AtomicLong::get).register(registry);
+        FunctionCounter.builder("loan.work-queue.renewed", renewed, AtomicLong::get).register(registry);
+    }
+
+    @EventListener
+    public void onLoanStatusChanged(LoanStatusChangedEvent event) {
+        switch (event.action()) {
+            case "APPLIED" -> {
+                var at = Timestamp.from(event.occurredAt());
+                jdbc.update("MERGE INTO LOAN_WORK_ITEM w USING DUAL ON (w.LOAN_TYPE = ? AND w.LOAN_ID = ?) " +
+                                "WHEN NOT MATCHED THEN INSERT (ID, LOAN_TYPE, LOAN_ID, STATUS, LEASE_UNTIL, CREATED_AT) " +
+                                "VALUES (LOAN_WORK_ITEM_SEQ.NEXTVAL, ?, ?, 'OPEN', ?, ?)",
+                        event.loanType(), event.loanId(), event.loanType(), event.loanId(), at, at);
+            }
+            case "APPROVED", "REJECTED" -> jdbc.update("UPDATE LOAN_WORK_ITEM SET STATUS = 'DONE', CLAIMED_BY = NULL " +
+                    "WHERE LOAN_TYPE = ? AND LOAN_ID = ? AND STATUS = 'OPEN'", event.loanType(), event.loanId());
+            default -> {
+            }
+        }
+    }
+
+    // Pending applications from before the queue, or whose item was lost, get one on startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        int added = 0;
+        for (var e : OverdueInstallmentSweeper.LOAN_TABLES.entrySet()) {
+            String appliedAt = APPLIED_AT.get(e.getKey());
+            added += jdbc.update("INSERT INTO LOAN_WORK_ITEM (ID, LOAN_TYPE, LOAN_ID, STATUS, LEASE_UNTIL, CREATED_AT) " +
+                    "SELECT LOAN_WORK_ITEM_SEQ.NEXTVAL, ?, l.ID, 'OPEN', l." + appliedAt + ", l." + appliedAt +
+                    " FROM " + e.getValue() + " l WHERE l.STATUS = 'PENDING' AND NOT EXISTS " +
+                    "(SELECT 1 FROM LOAN_WORK_ITEM w WHERE w.LOAN_TYPE = ? AND w.LOAN_ID = l.ID)", e.getKey(), e.getKey());
+        }
+        if (added > 0) {
+            log.info("Queued {} pending loan applications for review", added);
+        }
+    }
+
+    public List<WorkItem> claim(long officerId, int count) {
+        int n = Math.max(1, Math.min(count, maxClaim));
+        List<WorkItem> items = tx.execute(status -> {
+            var now = Instant.now();
+            var until = now.plus(lease);
+            List<WorkItem> free = jdbc.query(con -> {
+                PreparedStatement ps = con.prepareStatement(CLAIM);
+                ps.setTimestamp(1, Timestamp.from(now));
+                ps.setFetchSize(n);
+                return ps;
+            }, rs -> {
+                List<WorkItem> rows = new ArrayList<>(n);
+                while (rows.size() < n && rs.next()) {
+                    rows.add(new WorkItem(rs.getLong(1), rs.getString(2), rs.getLong(3),
+                            rs.getTimestamp(4).toInstant(), until));
+                }
+                return rows;
+            });
+            if (!free.isEmpty()) {
+                var at = Timestamp.from(now);
+                jdbc.batchUpdate("UPDATE LOAN_WORK_ITEM SET CLAIMED_BY = ?, CLAIMED_AT = ?, LEASE_UNTIL = ? WHERE ID = ?",
+                        free, free.size(), (ps, item) -> {
+                            ps.setLong(1, officerId);
+                            ps.setTimestamp(2, at);
+                            ps.setTimestamp(3, Timestamp.from(until));
+                            ps.setLong(4, item.id());
+                        });
+            }
+            return free;
+        });
+        claimed.addAndGet(items.size());
+        return items;
+    }
+
+    // Extends the officer's live leases; ids whose lease lapsed (and may now be someone else's) are left out
+    public LeaseResponse heartbeat(long officerId, List<Long> ids) {
+        var now = Instant.now();
+        var until = now.plus(lease);
+        var args = new ArrayList<Object>(List.of(Timestamp.from(until), officerId, Timestamp.from(now)));
+        args.addAll(ids);
+        return tx.execute(status -> {
+            jdbc.update("UPDATE LOAN_WORK_ITEM SET LEASE_UNTIL = ? WHERE CLAIMED_BY = ? AND STATUS = 'OPEN' " +
+                    "AND LEASE_UNTIL > ? AND ID IN (" + placeholders(ids.size()) + ")", args.toArray());
+            var held = held(officerId, ids, Timestamp.from(now));
+            renewed.addAndGet(held.size());
+            return new LeaseResponse(held, until);
+        });
+    }
+
+    // Hands the officer's items back at their original place in the queue
+    public void release(long officerId, List<Long> ids) {
+        var args = new ArrayList<Object>(List.of(officerId));
+        args.addAll(ids);
+        jdbc.update("UPDATE LOAN_WORK_ITEM SET CLAIMED_BY = NULL, CLAIMED_AT = NULL, LEASE_UNTIL = CREATED_AT " +
+                "WHERE CLAIMED_BY = ? AND STATUS = 'OPEN' AND ID IN (" + placeholders(ids.size()) + ")", args.toArray());
+    }
+
+    public List<WorkItem> mine(long officerId) {
+        return jdbc.query("SELECT ID, LOAN_TYPE, LOAN_ID, CREATED_AT, LEASE_UNTIL FROM LOAN_WORK_ITEM " +
+                        "WHERE CLAIMED_BY = ? AND STATUS = 'OPEN' AND LEASE_UNTIL > ? ORDER BY CREATED_AT",
+                (rs, i) -> new WorkItem(rs.getLong(1), rs.getString(2), rs.getLong(3),
+                        rs.getTimestamp(4).toInstant(), rs.getTimestamp(5).toInstant()),
+                officerId, Timestamp.from(Instant.now()));
+    }
+
+    private List<Long> held(long officerId, List<Long> ids, Timestamp now) {
+        var args = new ArrayList<Object>(List.of(officerId, now));
+        args.addAll(ids);
+        return jdbc.queryForList("SELECT ID FROM LOAN_WORK_ITEM WHERE CLAIMED_BY = ? AND STATUS = 'OPEN' AND LEASE_UNTIL > ? " +
+                "AND ID IN (" + placeholders(ids.size()) + ")", Long.class, args.toArray());
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.bankingmini.loan;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Flips PENDING installments past their due date to OVERDUE. Each chunk is one transaction that
+// claims up to chunk-size rows off the (STATUS, DUE_DATE) index with FOR UPDATE SKIP LOCKED, so
+// nodes sweeping at the same time take disjoint rows, and a sweep only ever reads installments that
+// are newly overdue. The loans behind them get OVERDUE_SINCE set to their earliest overdue due date;
+// days past due is derived from that column, so it needs no daily update of its own.
+//
+// As in LoanWorkQueueService a chunk is cut by reading chunk-size rows rather than by ROWNUM, which
+// Oracle applies before skipping locked rows and so would come back short while another node holds
+// the first ones.
+@Component
+@Slf4j
+public class OverdueInstallmentSweeper {
+
+    public record Result(int chunks, long installments, long loans, long elapsedMillis) {
+    }
+
+    private record Claimed(long id, String loanType, long loanId, Timestamp dueDate) {
+    }
+
+    static final Map<String, String> LOAN_TABLES = Map.of("GENERAL", "LOAN", "VEHICLE", "VEHICLE_LOAN", "STUDENT", "STUDENT_LOAN");
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final Duration grace;
+    private final AtomicLong flagged = new AtomicLong();
+    private final AtomicLong loansFlagged = new AtomicLong();
+
+    public OverdueInstallmentSweeper(JdbcTemplate jdbc,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry registry,
+                                     @Value("${loan.overdue.enabled:true}") boolean enabled,
+                                     @Value("${loan.overdue.chunk-size:500}") int chunkSize,
+                                     @Value("${loan.overdue.grace-days:0}") int graceDays) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.grace = Duration.ofDays(graceDays);
+        FunctionCounter.builder("loan.overdue.installments", flagged, AtomicLong::get).register(registry);
+        FunctionCounter.builder("loan.overdue.loans", loansFlagged, AtomicLong::get).register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${loan.overdue.interval-ms:300000}", initialDelayString = "${loan.overdue.initial-delay-ms:60000}")
+    public void scheduled() {
+        if (enabled) {
+            var result = sweep(Instant.now());
+            if (result.installments() > 0) {
+                log.info("Overdue sweep flagged {} installments on {} loans in {} ms",
+                        result.installments(), result.loans(), result.elapsedMillis());
+            }
+        }
+    }
+
+    public Result sweep(Instant now) {
+        long started = System.currentTimeMillis();
+        var cutoff = Timestamp.from(now.minus(grace));
+        int chunks = 0;
+        long installments = 0;
+        long loans = 0;
+        while (true) {
+            long[] chunk = tx.execute(status -> sweepChunk(cutoff));
+            chunks++;
+            installments += chunk[0];
+            loans += chunk[1];
+            // rows another node held may be free again by now; only an empty chunk ends the sweep
+            if (chunk[0] == 0) {
+                break;
+            }
+        }
+        return new Result(chunks, installments, loans, System.currentTimeMillis() - started);
+    }
+
+    private long[] sweepChunk(Timestamp cutoff) {
+        List<Claimed> claimed = jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT ID, LOAN_TYPE, LOAN_ID, DUE_DATE FROM LOAN_INSTALLMENT " +
+                    "WHERE STATUS = 'PENDING' AND DUE_DATE < ? FOR UPDATE SKIP LOCKED");
+            ps.setTimestamp(1, cutoff);
+            ps.setFetchSize(chunkSize);
+            return ps;
+        }, rs -> {
+            List<Claimed> rows = new ArrayList<>(chunkSize);
+            while (rows.size() < chunkSize && rs.next()) {
+                rows.add(new Claimed(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getTimestamp(4)));
+            }
+            return rows;
+        });
+        if (claimed.isEmpty()) {
+            return new long[]{0, 0};
+        }
+        jdbc.batchUpdate("UPDATE LOAN_INSTALLMENT SET STATUS = 'OVERDUE' WHERE ID = ?", claimed, claimed.size(),
+                (ps, c) -> ps.setLong(1, c.id()));
+
+        // earliest newly overdue due date per loan; loan rows are updated in key order so two nodes
+        // touching the same loans lock them in the same order
+        Map<String, Map<Long, Timestamp>> earliest = new TreeMap<>();
+        for (var c : claimed) {
+            earliest.computeIfAbsent(c.loanType(), t -> new TreeMap<>())
+                    .merge(c.loanId(), c.dueDate(), (a, b) -> a.before(b) ? a : b);
+        }
+        long loans = 0;
+        for (var byType : earliest.entrySet()) {
+            String table = LOAN_TABLES.get(byType.getKey());
+            if (table == null) {
+                log.warn("Installments with unknown loan type {} marked overdue", byType.getKey());
+                continue;
+            }
+            List<Object[]> args = new ArrayList<>(byType.getValue().size());
+            byType.getValue().forEach((loanId, due) -> args.add(new Object[]{due, loanId, due}));
+            jdbc.batchUpdate("UPDATE " + table + " SET OVERDUE_SINCE = ?, VERSION = VERSION + 1 " +
+                    "WHERE ID = ? AND (OVERDUE_SINCE IS NULL OR OVERDUE_SINCE > ?)", args);
+            loans += args.size();
+        }
+        flagged.addAndGet(claimed.size());
+        loansFlagged.addAndGet(loans);
+        return new long[]{claimed.size(), loans};
+    }
+
+    // Whole days since the earliest unpaid overdue installment fell due; 0 when nothing is overdue
+    public static long daysPastDue(Instant overdueSince, Instant now) {
+        return overdueSince == null ? 0 : Math.max(0, Duration.between(overdueSince, now).toDays());
+    }
+}
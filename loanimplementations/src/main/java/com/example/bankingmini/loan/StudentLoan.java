@@ -102,6 +102,17 @@ public class StudentLoan {
     @Column(name = "OUTSTANDING_AMOUNT")
     private BigDecimal outstandingAmount;
 
+    @Column(name = "INSTALLMENTS_PAID")
+    @Builder.Default
+    private Integer installmentsPaid = 0; // null on loans that took payments before the counter existed
+
+    @Column(name = "OVERDUE_SINCE")
+    private Instant overdueSince; // due date of the earliest unpaid overdue installment; null when up to date
+
+    @Version
+    @Column(name = "VERSION", columnDefinition = "NUMBER(19) DEFAULT 0 NOT NULL")
+    private Long version; // status changes go through LoanStateMachine
+
     @Column(name = "APPROVED_BY")
     private Long approvedBy;
 
@@ -118,6 +129,9 @@ public class StudentLoan {
     @Column(name = "NEXT_DISBURSEMENT_DATE")
     private Instant nextDisbursementDate;
 
+    @Column(name = "DISBURSED_AMOUNT")
+    private BigDecimal disbursedAmount; // paid out so far; null on loans from before tranches were counted
+
     public boolean isPending() {
         return "PENDING".equals(this.status);
     }
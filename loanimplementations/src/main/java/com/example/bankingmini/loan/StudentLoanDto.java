@@ -43,6 +43,7 @@ public class StudentLoanDto {
     private BigDecimal nextDisbursementAmount;
     private Instant nextDisbursementDate;
     private String rejectionReason;
+    private Long daysPastDue;
 }
 
 @Data
@@ -3,9 +3,11 @@ package com.example.bankingmini.loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 
@@ -30,4 +32,16 @@ public interface StudentLoanRepository extends JpaRepository<StudentLoan, Long>
     
     @Query("SELECT s FROM StudentLoan s WHERE s.status = 'ACTIVE' AND s.emiStartDate <= :currentDate")
     List<StudentLoan> findLoansForEMICollection(@Param("currentDate") Instant currentDate);
+
+    // status, count
+    @Query("SELECT s.status, COUNT(s) FROM StudentLoan s WHERE s.customer.id = :customerId GROUP BY s.status")
+    List<Object[]> countByStatusForCustomer(@Param("customerId") Long customerId);
+
+    // Compare-and-set on INSTALLMENTS_PAID (null on loans from before the counter matches any value);
+    // 0 rows means another payment got there first
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE StudentLoan l SET l.installmentsPaid = :paid + 1, l.outstandingAmount = :outstanding, l.status = :status, " +
+            "l.overdueSince = :overdueSince, l.version = l.version + 1 WHERE l.id = :id AND COALESCE(l.installmentsPaid, :paid) = :paid")
+    int recordInstallment(@Param("id") Long id, @Param("paid") int paid, @Param("outstanding") BigDecimal outstanding,
+                          @Param("status") String status, @Param("overdueSince") Instant overdueSince);
 }
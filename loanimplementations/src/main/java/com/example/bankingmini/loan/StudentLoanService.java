@@ -3,8 +3,12 @@ package com.example.bankingmini.loan;
 import com.example.bankingmini.auth.Customer;
 import com.example.bankingmini.auth.CustomerRepository;
 import com.example.bankingmini.account.Account;
+import com.example.bankingmini.account.AccountBalanceChangedEvent;
 import com.example.bankingmini.account.AccountRepository;
+import com.example.bankingmini.journal.JournalService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -13,7 +17,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -35,6 +38,24 @@ public class StudentLoanService {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired(required = false)
+    private JournalService journalService;
+
+    @Autowired
+    private LoanScheduleService loanScheduleService;
+
+    @Autowired
+    private EmiCalculator emiCalculator;
+
+    @Autowired
+    private LoanDisbursementRepository disbursementRepository;
+
+    @Autowired
+    private LoanStateMachine loanStateMachine;
+
     public StudentLoanDto applyForLoan(StudentLoanApplicationRequest request, Long customerId) {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
@@ -77,6 +98,7 @@ public class StudentLoanService {
                 .build();
 
         StudentLoan savedLoan = studentLoanRepository.save(loan);
+        statusChanged(savedLoan, "APPLIED", null, request.getLoanAmount());
         return convertToDto(savedLoan);
     }
 
@@ -115,10 +137,12 @@ public class StudentLoanService {
     public void approveLoan(Long loanId, Long officerId) {
         StudentLoan loan = studentLoanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.isPending()) {
             throw new RuntimeException("Loan is not in pending status");
         }
+        loanStateMachine.transition("STUDENT", loan.getId(), loan.getVersion(), previousStatus, "APPROVED");
 
         // Calculate EMI (will start after moratorium period)
         BigDecimal monthlyEmi = calculateEMI(loan.getLoanAmount(), loan.getInterestRate(), loan.getTenureMonths());
@@ -129,48 +153,66 @@ public class StudentLoanService {
         loan.setMonthlyEmi(monthlyEmi);
 
         // Set next disbursement details based on disbursement type
-        if ("SEMESTER_WISE".equals(loan.getDisbursementType())) {
-            loan.setNextDisbursementAmount(loan.getLoanAmount().divide(BigDecimal.valueOf(loan.getCourseDurationYears() * 2), 2, RoundingMode.HALF_UP));
-            loan.setNextDisbursementDate(Instant.now().plus(30, ChronoUnit.DAYS));
-        } else if ("YEARLY".equals(loan.getDisbursementType())) {
-            loan.setNextDisbursementAmount(loan.getLoanAmount().divide(BigDecimal.valueOf(loan.getCourseDurationYears()), 2, RoundingMode.HALF_UP));
-            loan.setNextDisbursementDate(Instant.now().plus(30, ChronoUnit.DAYS));
-        } else {
-            loan.setNextDisbursementAmount(loan.getLoanAmount());
-            loan.setNextDisbursementDate(Instant.now().plus(7, ChronoUnit.DAYS));
-        }
+        var first = StudentTrancheRunner.firstTranche(loan.getLoanAmount(), loan.getCourseDurationYears(),
+                loan.getDisbursementType(), Instant.now());
+        loan.setNextDisbursementAmount(first.amount());
+        loan.setNextDisbursementDate(first.date());
 
         studentLoanRepository.save(loan);
+        statusChanged(loan, "APPROVED", previousStatus, null);
     }
 
     public void rejectLoan(Long loanId, String reason, Long officerId) {
         StudentLoan loan = studentLoanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.isPending()) {
             throw new RuntimeException("Loan is not in pending status");
         }
+        loanStateMachine.transition("STUDENT", loan.getId(), loan.getVersion(), previousStatus, "REJECTED");
 
         loan.setStatus("REJECTED");
         loan.setRejectionReason(reason);
         loan.setApprovedBy(officerId);
         studentLoanRepository.save(loan);
+        statusChanged(loan, "REJECTED", previousStatus, null);
     }
 
     public void disburseLoan(Long loanId) {
         StudentLoan loan = studentLoanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.isApproved() && !loan.isDisbursed()) {
             throw new RuntimeException("Loan is not approved for disbursement");
         }
 
         BigDecimal disbursementAmount = loan.getNextDisbursementAmount(); // <-- use stored value
+        BigDecimal disbursedBefore = StudentTrancheRunner.disbursedSoFar(loan.getDisbursedAmount(), loan.getStatus(),
+                loan.getLoanAmount(), disbursementAmount);
 
-        if (loan.getAccount() != null) {
+        // one reference per tranche, so a retried disbursal of the same tranche is not paid twice
+        String reference = StudentTrancheRunner.reference(loan.getId(), loan.getNextDisbursementDate());
+        if (disbursementRepository.existsByReference(reference)) {
+            throw new RuntimeException("This tranche has already been disbursed");
+        }
+        // same tranche size again until the loan amount is paid out; claimed before any money moves,
+        // so a second click on the same tranche fails here
+        var next = StudentTrancheRunner.next(loan.getLoanAmount(), disbursedBefore, disbursementAmount,
+                loan.getDisbursementType(), Instant.now());
+        loanStateMachine.transition("STUDENT", loan.getId(), loan.getVersion(), previousStatus,
+                next.amount() != null ? "DISBURSED" : "ACTIVE");
+
+        if (loan.getAccount() != null && journalService != null) {
             Account account = loan.getAccount();
-            account.setBalance(account.getBalance().add(disbursementAmount));
-            accountRepository.save(account);
+            journalService.disburseLoan(reference, account.getId(), account.getAccountNumber(), disbursementAmount);
+        } else if (loan.getAccount() != null) {
+            // in place rather than from the loan's copy of the account, which may be stale
+            Account account = loan.getAccount();
+            accountRepository.addToBalance(account.getId(), disbursementAmount);
+            eventPublisher.publishEvent(new AccountBalanceChangedEvent(account.getId(), account.getAccountNumber(),
+                    accountRepository.balanceOf(account.getId())));
         }
 
         loan.setStatus("DISBURSED");
@@ -179,10 +221,10 @@ public class StudentLoanService {
         }
 
         // Update next disbursement
-        BigDecimal remainingAmount = loan.getOutstandingAmount().subtract(disbursementAmount);
-        if (remainingAmount.compareTo(BigDecimal.ZERO) > 0) {
-            loan.setNextDisbursementAmount(remainingAmount);
-            loan.setNextDisbursementDate(Instant.now().plus(180, ChronoUnit.DAYS));
+        loan.setDisbursedAmount(next.disbursed());
+        if (next.amount() != null) {
+            loan.setNextDisbursementAmount(next.amount());
+            loan.setNextDisbursementDate(next.date());
         } else {
             loan.setNextDisbursementAmount(null);
             loan.setNextDisbursementDate(null);
@@ -194,6 +236,19 @@ public class StudentLoanService {
         }
 
         studentLoanRepository.save(loan);
+        disbursementRepository.save(LoanDisbursement.builder()
+                .loanType("STUDENT")
+                .loanId(loan.getId())
+                .reference(reference)
+                .amount(disbursementAmount)
+                .disbursedAt(Instant.now())
+                .build());
+        if (loan.isActive()) {
+            // last tranche paid out: repayments start after the course and moratorium
+            loanScheduleService.generate("STUDENT", loan.getId(), loan.getLoanAmount(), loan.getInterestRate(),
+                    loan.getTenureMonths(), loan.getMonthlyEmi(), loan.getEmiStartDate());
+        }
+        statusChanged(loan, "DISBURSED", previousStatus, disbursementAmount);
     }
 
     public void renewLoan(Long loanId, BigDecimal additionalAmount, Integer newTenure) {
@@ -213,6 +268,7 @@ public class StudentLoanService {
         loan.setMonthlyEmi(newEmi);
 
         studentLoanRepository.save(loan);
+        loanScheduleService.reschedule("STUDENT", loan.getId(), newLoanAmount, loan.getInterestRate(), newTenure, newEmi);
     }
 
     public void closeLoan(Long loanId, Long customerId) {
@@ -227,8 +283,13 @@ public class StudentLoanService {
             throw new RuntimeException("Cannot close loan with outstanding amount");
         }
 
+        String previousStatus = loan.getStatus();
+        if (!"CLOSED".equals(previousStatus)) {
+            loanStateMachine.transition("STUDENT", loan.getId(), loan.getVersion(), previousStatus, "CLOSED");
+        }
         loan.setStatus("CLOSED");
         studentLoanRepository.save(loan);
+        statusChanged(loan, "CLOSED", previousStatus, null);
     }
 
     public Page<StudentLoanDto> getAllLoans(String status, Pageable pageable) {
@@ -249,13 +310,14 @@ public class StudentLoanService {
             throw new RuntimeException("Access denied: Loan does not belong to user");
         }
 
-        List<LoanInstallment> installments = installmentRepository.findByLoanIdOrderByDueDateDesc(loanId);
+        List<LoanInstallment> installments = installmentRepository.findByLoanTypeAndLoanIdOrderByDueDateDesc("STUDENT", loanId);
         return installments.stream().map(this::convertInstallmentToDto).collect(Collectors.toList());
     }
 
     public void payInstallment(Long loanId, BigDecimal amount, Long customerId) {
         StudentLoan loan = studentLoanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.getCustomer().getId().equals(customerId)) {
             throw new RuntimeException("Access denied: Loan does not belong to user");
@@ -267,6 +329,24 @@ public class StudentLoanService {
             throw new RuntimeException("Installment cannot be paid before EMI start date");
         }
 
+        // The counter on the loan row numbers the payment; recordPayment bumps it only if it is still
+        // the value read here, so two concurrent payments cannot both take the same installment
+        int paid = loanScheduleService.paidSoFar("STUDENT", loanId, loan.getInstallmentsPaid());
+        LoanInstallment scheduled = loanScheduleService.scheduled("STUDENT", loanId, paid + 1).orElse(null);
+        if (scheduled != null) {
+            if (amount.compareTo(scheduled.getAmount()) != 0) {
+                throw new RuntimeException("Installment amount must equal scheduled EMI: " + scheduled.getAmount());
+            }
+            loanScheduleService.settle(scheduled, amount);
+            // the loan stays overdue while the next installment is too
+            Instant overdueSince = loanScheduleService.scheduled("STUDENT", loanId, paid + 2)
+                    .filter(LoanInstallment::isOverdue).map(LoanInstallment::getDueDate).orElse(null);
+            recordPayment(loan, paid, loan.getOutstandingAmount().subtract(scheduled.getPrincipalAmount()), overdueSince);
+            statusChanged(loan, "INSTALLMENT_PAID", previousStatus, amount);
+            return;
+        }
+
+        // Loans disbursed before schedules existed: record the payment as it arrives
         BigDecimal monthlyEmi = loan.getMonthlyEmi();
         BigDecimal outstanding = loan.getOutstandingAmount();
 
@@ -281,37 +361,43 @@ public class StudentLoanService {
             }
         }
 
-        int nextInstallmentNumber = installmentRepository.countByLoanId(loanId) + 1;
-        // Create installment record
         LoanInstallment installment = LoanInstallment.builder()
                 .loanId(loanId)
+                .loanType("STUDENT")
+                .installmentNumber(paid + 1)
                 .amount(amount)
+                .paidAmount(amount)
                 .paidDate(Instant.now())
                 .dueDate(Instant.now())
                 .status("PAID")
                 .createdAt(Instant.now())
                 .build();
 
-
         installmentRepository.save(installment);
+        recordPayment(loan, paid, outstanding.subtract(amount), null);
+        statusChanged(loan, "INSTALLMENT_PAID", previousStatus, amount);
+    }
 
-        // Update outstanding amount
-        BigDecimal newOutstanding = loan.getOutstandingAmount().subtract(amount);
-        loan.setOutstandingAmount(newOutstanding);
-
-        if (newOutstanding.compareTo(BigDecimal.ZERO) <= 0) {
-            loan.setStatus("CLOSED");
+    // Second and last write of a payment: counter, outstanding and status in one conditional update.
+    // The update clears the persistence context, so the loan is detached and only updated in memory here.
+    private void recordPayment(StudentLoan loan, int paid, BigDecimal newOutstanding, Instant overdueSince) {
+        String status = newOutstanding.compareTo(BigDecimal.ZERO) <= 0 ? "CLOSED" : loan.getStatus();
+        if (studentLoanRepository.recordInstallment(loan.getId(), paid, newOutstanding, status, overdueSince) == 0) {
+            throw new OptimisticLockingFailureException("Another payment on loan " + loan.getId() + " was recorded first; retry");
         }
+        loan.setInstallmentsPaid(paid + 1);
+        loan.setOutstandingAmount(newOutstanding);
+        loan.setStatus(status);
+        loan.setOverdueSince(overdueSince);
+    }
 
-        studentLoanRepository.save(loan);
+    private void statusChanged(StudentLoan loan, String action, String previousStatus, BigDecimal amount) {
+        eventPublisher.publishEvent(new LoanStatusChangedEvent("STUDENT", loan.getId(), loan.getCustomer().getId(),
+                action, previousStatus, loan.getStatus(), amount, loan.getOutstandingAmount(), Instant.now()));
     }
 
     private BigDecimal calculateEMI(BigDecimal principal, BigDecimal annualRate, Integer tenureMonths) {
-        BigDecimal monthlyRate = annualRate.divide(BigDecimal.valueOf(1200), 10, RoundingMode.HALF_UP);
-        BigDecimal onePlusR = BigDecimal.ONE.add(monthlyRate);
-        BigDecimal numerator = principal.multiply(monthlyRate).multiply(onePlusR.pow(tenureMonths));
-        BigDecimal denominator = onePlusR.pow(tenureMonths).subtract(BigDecimal.ONE);
-        return numerator.divide(denominator, 2, RoundingMode.HALF_UP);
+        return emiCalculator.emi(principal, annualRate, tenureMonths);
     }
 
     private StudentLoanDto convertToDto(StudentLoan loan) {
@@ -349,6 +435,7 @@ public class StudentLoanService {
                 .nextDisbursementAmount(loan.getNextDisbursementAmount())
                 .nextDisbursementDate(loan.getNextDisbursementDate())
                 .rejectionReason(loan.getRejectionReason())
+                .daysPastDue(OverdueInstallmentSweeper.daysPastDue(loan.getOverdueSince(), Instant.now()))
                 .build();
     }
 
@@ -356,7 +443,12 @@ public class StudentLoanService {
         return LoanInstallmentDto.builder()
                 .id(installment.getId())
                 .loanId(installment.getLoanId())
+                .loanType(installment.getLoanType())
+                .installmentNumber(installment.getInstallmentNumber())
                 .amount(installment.getAmount())
+                .principalAmount(installment.getPrincipalAmount())
+                .interestAmount(installment.getInterestAmount())
+                .paidAmount(installment.getPaidAmount())
                 .dueDate(installment.getDueDate())
                 .paidDate(installment.getPaidDate())
                 .status(installment.getStatus())
@@ -0,0 +1,335 @@
+package com.example.bankingmini.loan;
+
+import com.example.bankingmini.account.TransactionPostedEvent;
+import com.example.bankingmini.journal.JournalService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+// Pays out student loan tranches that have come due. The first tranche is still released by an
+// officer (/api/student-loans/{id}/disburse); after that the loan is DISBURSED with a
+// NEXT_DISBURSEMENT_DATE, and this runner takes it from there. Due loans are read by ID in keyset
+// chunks; each chunk is one transaction that locks its loans (SKIP LOCKED), writes a LOAN_DISBURSEMENT
+// row under the tranche's unique reference, credits the account with a LOAN_DISBURSAL TXN row, and
+// moves the loan on to its next tranche. A crash rolls the open chunk back whole, and a rerun finds
+// the committed loans already moved on, so no tranche is paid twice. With the journal on, the credit
+// goes through it under the same reference, which the journal also refuses to apply twice.
+@Component
+@Slf4j
+public class StudentTrancheRunner {
+
+    public record Result(int chunks, long tranches, long amountMinor, long activated, long failedChunks, long elapsedMillis) {
+    }
+
+    // amount null: the loan is fully paid out
+    record Next(BigDecimal disbursed, BigDecimal amount, Instant date) {
+    }
+
+    private record Due(long loanId, long customerId, long accountId, BigDecimal loanAmount, BigDecimal disbursed,
+                       BigDecimal amount, BigDecimal outstanding, Timestamp dueDate, String disbursementType, int courseYears,
+                       int moratoriumMonths, BigDecimal interestRate, int tenureMonths, BigDecimal monthlyEmi) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher events;
+    private final ObjectProvider<JournalService> journal;
+    private final LoanScheduleService schedules;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong tranches = new AtomicLong();
+    private final AtomicLong amountMinor = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public StudentTrancheRunner(JdbcTemplate jdbc,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher events,
+                                ObjectProvider<JournalService> journal,
+                                LoanScheduleService schedules,
+                                MeterRegistry registry,
+                                @Value("${loan.tranche.enabled:false}") boolean enabled,
+                                @Value("${loan.tranche.chunk-size:200}") int chunkSize) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.events = events;
+        this.journal = journal;
+        this.schedules = schedules;
+        this.enabled = enabled;
+        // the chunk's ids go into an IN list, which Oracle caps at 1000 entries
+        this.chunkSize = Math.min(chunkSize, 1000);
+        FunctionCounter.builder("loan.tranche.disbursed", tranches, AtomicLong::get).register(registry);
+        FunctionCounter.builder("loan.tranche.amount", amountMinor, AtomicLong::get).baseUnit("cents").register(registry);
+        FunctionCounter.builder("loan.tranche.failed.chunks", failed, AtomicLong::get).register(registry);
+    }
+
+    @Scheduled(cron = "${loan.tranche.cron:0 0 2 * * *}")
+    public void nightly() {
+        if (enabled && !running.get()) {
+            run(Instant.now());
+        }
+    }
+
+    // Key shared with the manual disbursal, so both paths name a tranche the same way
+    static String reference(long loanId, Instant dueDate) {
+        return "STUDENT_LOAN:" + loanId + ":" + (dueDate == null ? 0 : dueDate.toEpochMilli());
+    }
+
+    // After paying amount: the same tranche size again, capped by what is left, a semester (180 days)
+    // or a year later
+    static Next next(BigDecimal loanAmount, BigDecimal disbursedBefore, BigDecimal amount, String disbursementType, Instant paidAt) {
+        BigDecimal disbursed = disbursedBefore.add(amount);
+        BigDecimal remaining = loanAmount.subtract(disbursed);
+        if (remaining.signum() <= 0) {
+            return new Next(disbursed, null, null);
+        }
+        long days = "YEARLY".equals(disbursementType) ? 365 : 180;
+        return new Next(disbursed, amount.min(remaining), paidAt.plus(days, ChronoUnit.DAYS));
+    }
+
+    // Set at approval: a semester's or a year's share of the loan 30 days on, or the lump sum within a week
+    static Next firstTranche(BigDecimal loanAmount, int courseYears, String disbursementType, Instant approvedAt) {
+        if ("SEMESTER_WISE".equals(disbursementType)) {
+            return new Next(BigDecimal.ZERO, loanAmount.divide(BigDecimal.valueOf(courseYears * 2L), 2, RoundingMode.HALF_UP),
+                    approvedAt.plus(30, ChronoUnit.DAYS));
+        } else if ("YEARLY".equals(disbursementType)) {
+            return new Next(BigDecimal.ZERO, loanAmount.divide(BigDecimal.valueOf(courseYears), 2, RoundingMode.HALF_UP),
+                    approvedAt.plus(30, ChronoUnit.DAYS));
+        }
+        return new Next(BigDecimal.ZERO, loanAmount, approvedAt.plus(7, ChronoUnit.DAYS));
+    }
+
+    // Loans that paid a tranche before DISBURSED_AMOUNT existed were left with the whole remainder as
+    // their next amount, so what went out already is the loan amount less that
+    static BigDecimal disbursedSoFar(BigDecimal recorded, String status, BigDecimal loanAmount, BigDecimal nextAmount) {
+        if (recorded != null) {
+            return recorded;
+        }
+        return "DISBURSED".equals(status) && nextAmount != null ? loanAmount.subtract(nextAmount) : BigDecimal.ZERO;
+    }
+
+    public Result run(Instant now) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("A tranche run is already in progress");
+        }
+        long started = System.currentTimeMillis();
+        var asOf = Timestamp.from(now);
+        int chunks = 0;
+        long paid = 0;
+        long cents = 0;
+        long activated = 0;
+        long failedChunks = 0;
+        try {
+            long after = 0;
+            while (true) {
+                List<Long> ids = jdbc.queryForList("SELECT * FROM (SELECT ID FROM STUDENT_LOAN WHERE STATUS = 'DISBURSED' " +
+                        "AND NEXT_DISBURSEMENT_DATE <= ? AND ID > ? ORDER BY ID) WHERE ROWNUM <= ?", Long.class, asOf, after, chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                after = ids.get(ids.size() - 1);
+                chunks++;
+                try {
+                    long[] r = tx.execute(status -> disburseChunk(ids, asOf, now));
+                    paid += r[0];
+                    cents += r[1];
+                    activated += r[2];
+                } catch (RuntimeException ex) {
+                    // rolled back whole; the loans are still due and come round on the next run
+                    failedChunks++;
+                    failed.incrementAndGet();
+                    log.error("Tranche chunk of {} loans after id {} failed", ids.size(), ids.get(0), ex);
+                }
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+            }
+        } finally {
+            running.set(false);
+        }
+        var result = new Result(chunks, paid, cents, activated, failedChunks, System.currentTimeMillis() - started);
+        if (chunks > 0) {
+            log.info("Tranche run: {} tranches, {} minor units, {} loans fully paid out, {} failed chunks in {} ms",
+                    paid, cents, activated, failedChunks, result.elapsedMillis());
+        }
+        return result;
+    }
+
+    // {tranches, amount in cents, loans fully paid out}
+    private long[] disburseChunk(List<Long> ids, Timestamp asOf, Instant now) {
+        var args = new ArrayList<Object>(ids);
+        args.add(asOf);
+        // re-checked under the lock: a loan disbursed by hand since the scan is no longer due
+        List<Due> locked = jdbc.query("SELECT ID, CUSTOMER_ID, ACCOUNT_ID, LOAN_AMOUNT, DISBURSED_AMOUNT, STATUS, " +
+                "NEXT_DISBURSEMENT_AMOUNT, NEXT_DISBURSEMENT_DATE, DISBURSEMENT_TYPE, COURSE_DURATION_YEARS, " +
+                "NVL(MORATORIUM_PERIOD_MONTHS, 0), INTEREST_RATE, TENURE_MONTHS, MONTHLY_EMI, OUTSTANDING_AMOUNT FROM STUDENT_LOAN " +
+                "WHERE ID IN (" + placeholders(ids.size()) + ") AND STATUS = 'DISBURSED' AND NEXT_DISBURSEMENT_DATE <= ? " +
+                "AND NEXT_DISBURSEMENT_AMOUNT > 0 FOR UPDATE SKIP LOCKED", (rs, i) -> {
+            BigDecimal loanAmount = rs.getBigDecimal(4);
+            BigDecimal amount = rs.getBigDecimal(7);
+            return new Due(rs.getLong(1), rs.getLong(2), rs.getLong(3), loanAmount,
+                    disbursedSoFar(rs.getBigDecimal(5), rs.getString(6), loanAmount, amount), amount,
+                    rs.getBigDecimal(15), rs.getTimestamp(8), rs.getString(9), rs.getInt(10), rs.getInt(11), rs.getBigDecimal(12),
+                    rs.getInt(13), rs.getBigDecimal(14));
+        }, args.toArray());
+        if (locked.isEmpty()) {
+            return new long[]{0, 0, 0};
+        }
+        // account order, so chunks on other nodes lock shared accounts in the same sequence
+        var dues = new ArrayList<>(locked);
+        dues.sort(Comparator.comparingLong(Due::accountId).thenComparingLong(Due::loanId));
+        int n = dues.size();
+        var rows = IntStream.range(0, n).boxed().toList();
+        var at = Timestamp.from(now);
+        var references = new String[n];
+        var descriptions = new String[n];
+        var nexts = new Next[n];
+        for (int i = 0; i < n; i++) {
+            var d = dues.get(i);
+            references[i] = reference(d.loanId(), d.dueDate().toInstant());
+            descriptions[i] = "Student loan " + d.loanId() + " tranche";
+            nexts[i] = next(d.loanAmount(), d.disbursed(), d.amount(), d.disbursementType(), now);
+        }
+
+        Map<Long, String> numbers = new HashMap<>();
+        jdbc.query("SELECT ID, ACCOUNT_NUMBER FROM ACCOUNT WHERE ID IN (" + placeholders(n) + ")",
+                rs -> {
+                    numbers.put(rs.getLong(1), rs.getString(2));
+                }, dues.stream().map(Due::accountId).toArray());
+
+        var journalService = journal.getIfAvailable();
+        List<Long> txnIds;
+        if (journalService != null) {
+            txnIds = null;
+            for (int i = 0; i < n; i++) {
+                var d = dues.get(i);
+                journalService.disburseLoan(references[i], d.accountId(), numbers.get(d.accountId()), d.amount());
+            }
+        } else {
+            txnIds = jdbc.queryForList("SELECT TXN_SEQ.NEXTVAL FROM DUAL CONNECT BY LEVEL <= ?", Long.class, n);
+        }
+
+        // the unique REFERENCE is the last word on paying a tranche twice
+        jdbc.batchUpdate("INSERT INTO LOAN_DISBURSEMENT (ID, LOAN_TYPE, LOAN_ID, REFERENCE, AMOUNT, TXN_ID, DISBURSED_AT) " +
+                "VALUES (LOAN_DISBURSEMENT_SEQ.NEXTVAL, 'STUDENT', ?, ?, ?, ?, ?)", rows, n, (ps, i) -> {
+            var d = dues.get(i);
+            ps.setLong(1, d.loanId());
+            ps.setString(2, references[i]);
+            ps.setBigDecimal(3, d.amount());
+            if (txnIds == null) {
+                ps.setNull(4, Types.BIGINT);
+            } else {
+                ps.setLong(4, txnIds.get(i));
+            }
+            ps.setTimestamp(5, at);
+        });
+
+        var balanceAfter = new BigDecimal[n];
+        if (txnIds != null) {
+            jdbc.batchUpdate("INSERT INTO TXN (ID, ACCOUNT_ID, TYPE, AMOUNT, DESCRIPTION, OCCURRED_AT) " +
+                    "VALUES (?, ?, 'LOAN_DISBURSAL', ?, ?, ?)", rows, n, (ps, i) -> {
+                var d = dues.get(i);
+                ps.setLong(1, txnIds.get(i));
+                ps.setLong(2, d.accountId());
+                ps.setBigDecimal(3, d.amount());
+                ps.setString(4, descriptions[i]);
+                ps.setTimestamp(5, at);
+            });
+            // in place; AccountService locks the row before reading a balance, so a concurrent posting
+            // waits for this credit instead of writing over it
+            jdbc.batchUpdate("UPDATE ACCOUNT SET BALANCE = BALANCE + ? WHERE ID = ?", rows, n, (ps, i) -> {
+                ps.setBigDecimal(1, dues.get(i).amount());
+                ps.setLong(2, dues.get(i).accountId());
+            });
+            Map<Long, BigDecimal> balances = new HashMap<>();
+            jdbc.query("SELECT ID, BALANCE FROM ACCOUNT WHERE ID IN (" + placeholders(n) + ")",
+                    rs -> {
+                        balances.put(rs.getLong(1), rs.getBigDecimal(2));
+                    }, dues.stream().map(Due::accountId).toArray());
+            // walk back from each account's closing balance to the balance after each credit
+            for (int i = n - 1; i >= 0; i--) {
+                var d = dues.get(i);
+                balanceAfter[i] = balances.get(d.accountId());
+                balances.put(d.accountId(), balanceAfter[i].subtract(d.amount()));
+            }
+        }
+
+        var courseEnd = new Instant[n];
+        var emiStart = new Instant[n];
+        for (int i = 0; i < n; i++) {
+            if (nexts[i].amount() == null) {
+                courseEnd[i] = now.plus(dues.get(i).courseYears() * 365L, ChronoUnit.DAYS);
+                emiStart[i] = courseEnd[i].plus(dues.get(i).moratoriumMonths() * 30L, ChronoUnit.DAYS);
+            }
+        }
+        int[] moved = jdbc.batchUpdate("UPDATE STUDENT_LOAN SET VERSION = VERSION + 1, DISBURSED_AMOUNT = ?, NEXT_DISBURSEMENT_AMOUNT = ?, " +
+                "NEXT_DISBURSEMENT_DATE = ?, STATUS = ?, COURSE_COMPLETION_DATE = NVL(?, COURSE_COMPLETION_DATE), " +
+                "EMI_START_DATE = NVL(?, EMI_START_DATE) WHERE ID = ? AND NEXT_DISBURSEMENT_DATE = ?", rows, n, (ps, i) -> {
+            var next = nexts[i];
+            ps.setBigDecimal(1, next.disbursed());
+            ps.setBigDecimal(2, next.amount());
+            ps.setTimestamp(3, next.date() == null ? null : Timestamp.from(next.date()));
+            ps.setString(4, next.amount() == null ? "ACTIVE" : "DISBURSED");
+            ps.setTimestamp(5, courseEnd[i] == null ? null : Timestamp.from(courseEnd[i]));
+            ps.setTimestamp(6, emiStart[i] == null ? null : Timestamp.from(emiStart[i]));
+            ps.setLong(7, dues.get(i).loanId());
+            ps.setTimestamp(8, dues.get(i).dueDate());
+        })[0];
+        long activated = 0;
+        long cents = 0;
+        for (int i = 0; i < n; i++) {
+            var d = dues.get(i);
+            if (moved[i] == 0) {
+                throw new IllegalStateException("Student loan " + d.loanId() + " changed during the tranche run");
+            }
+            if (nexts[i].amount() == null) {
+                // last tranche paid out: repayments start after the course and moratorium
+                schedules.generate("STUDENT", d.loanId(), d.loanAmount(), d.interestRate(), d.tenureMonths(),
+                        d.monthlyEmi(), emiStart[i]);
+                activated++;
+            }
+            cents += d.amount().movePointRight(2).longValueExact();
+        }
+
+        for (int i = 0; i < n; i++) {
+            var d = dues.get(i);
+            if (txnIds != null) {
+                events.publishEvent(new TransactionPostedEvent(txnIds.get(i), d.accountId(), numbers.get(d.accountId()),
+                        "LOAN_DISBURSAL", d.amount(), null, descriptions[i], null, now, balanceAfter[i]));
+            }
+            events.publishEvent(new LoanStatusChangedEvent("STUDENT", d.loanId(), d.customerId(), "DISBURSED", "DISBURSED",
+                    nexts[i].amount() == null ? "ACTIVE" : "DISBURSED", d.amount(), d.outstanding(), now));
+        }
+        tranches.addAndGet(n);
+        amountMinor.addAndGet(cents);
+        return new long[]{n, cents, activated};
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+}
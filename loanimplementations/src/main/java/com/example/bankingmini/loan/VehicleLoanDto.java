@@ -34,6 +34,7 @@ public class VehicleLoanDto {
     private BigDecimal monthlyIncome;
     private String employmentType;
     private String rejectionReason;
+    private Long daysPastDue;
 }
 
 @Data
@@ -3,9 +3,12 @@ package com.example.bankingmini.loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 
 public interface VehicleLoanRepository extends JpaRepository<VehicleLoan, Long> {
@@ -23,4 +26,16 @@ public interface VehicleLoanRepository extends JpaRepository<VehicleLoan, Long>
     
     @Query("SELECT v FROM VehicleLoan v WHERE v.customer.id = :customerId AND v.status IN ('APPROVED', 'DISBURSED')")
     List<VehicleLoan> findActiveLoansForCustomer(@Param("customerId") Long customerId);
+
+    // status, count
+    @Query("SELECT v.status, COUNT(v) FROM VehicleLoan v WHERE v.customer.id = :customerId GROUP BY v.status")
+    List<Object[]> countByStatusForCustomer(@Param("customerId") Long customerId);
+
+    // Compare-and-set on INSTALLMENTS_PAID (null on loans from before the counter matches any value);
+    // 0 rows means another payment got there first
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE VehicleLoan l SET l.installmentsPaid = :paid + 1, l.outstandingAmount = :outstanding, l.status = :status, " +
+            "l.overdueSince = :overdueSince, l.version = l.version + 1 WHERE l.id = :id AND COALESCE(l.installmentsPaid, :paid) = :paid")
+    int recordInstallment(@Param("id") Long id, @Param("paid") int paid, @Param("outstanding") BigDecimal outstanding,
+                          @Param("status") String status, @Param("overdueSince") Instant overdueSince);
 }
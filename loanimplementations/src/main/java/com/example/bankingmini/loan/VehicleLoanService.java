@@ -3,8 +3,12 @@ package com.example.bankingmini.loan;
 import com.example.bankingmini.auth.Customer;
 import com.example.bankingmini.auth.CustomerRepository;
 import com.example.bankingmini.account.Account;
+import com.example.bankingmini.account.AccountBalanceChangedEvent;
 import com.example.bankingmini.account.AccountRepository;
+import com.example.bankingmini.journal.JournalService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -13,7 +17,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -35,6 +38,21 @@ public class VehicleLoanService {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired(required = false)
+    private JournalService journalService;
+
+    @Autowired
+    private LoanScheduleService loanScheduleService;
+
+    @Autowired
+    private EmiCalculator emiCalculator;
+
+    @Autowired
+    private LoanStateMachine loanStateMachine;
+
     public VehicleLoanDto applyForLoan(VehicleLoanApplicationRequest request, Long customerId) {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
@@ -77,6 +95,7 @@ public class VehicleLoanService {
                 .build();
 
         VehicleLoan savedLoan = vehicleLoanRepository.save(loan);
+        statusChanged(savedLoan, "APPLIED", null, request.getLoanAmount());
         return convertToDto(savedLoan);
     }
 
@@ -115,54 +134,72 @@ public class VehicleLoanService {
     public void approveLoan(Long loanId, Long officerId) {
         VehicleLoan loan = vehicleLoanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.isPending()) {
             throw new RuntimeException("Loan is not in pending status");
         }
+        loanStateMachine.transition("VEHICLE", loan.getId(), loan.getVersion(), previousStatus, "APPROVED");
 
         loan.setStatus("APPROVED");
         loan.setApprovalDate(Instant.now());
         loan.setApprovedBy(officerId);
         vehicleLoanRepository.save(loan);
+        statusChanged(loan, "APPROVED", previousStatus, null);
     }
 
     public void rejectLoan(Long loanId, String reason, Long officerId) {
         VehicleLoan loan = vehicleLoanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.isPending()) {
             throw new RuntimeException("Loan is not in pending status");
         }
+        loanStateMachine.transition("VEHICLE", loan.getId(), loan.getVersion(), previousStatus, "REJECTED");
 
         loan.setStatus("REJECTED");
         loan.setRejectionReason(reason);
         loan.setApprovedBy(officerId);
         vehicleLoanRepository.save(loan);
+        statusChanged(loan, "REJECTED", previousStatus, null);
     }
 
     public void disburseLoan(Long loanId) {
         VehicleLoan loan = vehicleLoanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.isApproved()) {
             throw new RuntimeException("Loan is not approved");
         }
+        // claims the disbursal before any money moves, so a second click fails here
+        loanStateMachine.transition("VEHICLE", loan.getId(), loan.getVersion(), previousStatus, "ACTIVE");
 
-        if (loan.getAccount() != null) {
+        if (loan.getAccount() != null && journalService != null) {
             Account account = loan.getAccount();
-            account.setBalance(account.getBalance().add(loan.getLoanAmount()));
-            accountRepository.save(account);
+            journalService.disburseLoan("VEHICLE_LOAN:" + loan.getId(), account.getId(), account.getAccountNumber(), loan.getLoanAmount());
+        } else if (loan.getAccount() != null) {
+            // in place rather than from the loan's copy of the account, which may be stale
+            Account account = loan.getAccount();
+            accountRepository.addToBalance(account.getId(), loan.getLoanAmount());
+            eventPublisher.publishEvent(new AccountBalanceChangedEvent(account.getId(), account.getAccountNumber(),
+                    accountRepository.balanceOf(account.getId())));
         }
 
         loan.setStatus("ACTIVE"); // Changed from DISBURSED to ACTIVE to match student loan lifecycle
         loan.setDisbursementDate(Instant.now());
         loan.setEmiStartDate(Instant.now().plus(30, ChronoUnit.DAYS));
         vehicleLoanRepository.save(loan);
+        loanScheduleService.generate("VEHICLE", loan.getId(), loan.getLoanAmount(), loan.getInterestRate(),
+                loan.getTenureMonths(), loan.getMonthlyEmi(), loan.getEmiStartDate());
+        statusChanged(loan, "DISBURSED", previousStatus, loan.getLoanAmount());
     }
 
     public void payInstallment(Long loanId, BigDecimal amount, Long customerId) {
         VehicleLoan loan = vehicleLoanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        String previousStatus = loan.getStatus();
 
         if (!loan.getCustomer().getId().equals(customerId)) {
             throw new RuntimeException("Access denied: Loan does not belong to user");
@@ -174,6 +211,24 @@ public class VehicleLoanService {
             throw new RuntimeException("Installment cannot be paid before EMI start date");
         }
 
+        // The counter on the loan row numbers the payment; recordPayment bumps it only if it is still
+        // the value read here, so two concurrent payments cannot both take the same installment
+        int paid = loanScheduleService.paidSoFar("VEHICLE", loanId, loan.getInstallmentsPaid());
+        LoanInstallment scheduled = loanScheduleService.scheduled("VEHICLE", loanId, paid + 1).orElse(null);
+        if (scheduled != null) {
+            if (amount.compareTo(scheduled.getAmount()) != 0) {
+                throw new RuntimeException("Installment amount must equal scheduled EMI: " + scheduled.getAmount());
+            }
+            loanScheduleService.settle(scheduled, amount);
+            // the loan stays overdue while the next installment is too
+            Instant overdueSince = loanScheduleService.scheduled("VEHICLE", loanId, paid + 2)
+                    .filter(LoanInstallment::isOverdue).map(LoanInstallment::getDueDate).orElse(null);
+            recordPayment(loan, paid, loan.getOutstandingAmount().subtract(scheduled.getPrincipalAmount()), overdueSince);
+            statusChanged(loan, "INSTALLMENT_PAID", previousStatus, amount);
+            return;
+        }
+
+        // Loans disbursed before schedules existed: record the payment as it arrives
         BigDecimal monthlyEmi = loan.getMonthlyEmi();
         BigDecimal outstanding = loan.getOutstandingAmount();
 
@@ -188,13 +243,10 @@ public class VehicleLoanService {
             }
         }
 
-        int nextInstallmentNumber = installmentRepository.countByLoanId(loanId) + 1;
-
-        // Create installment record
         LoanInstallment installment = LoanInstallment.builder()
                 .loanId(loanId)
                 .loanType("VEHICLE")
-                .installmentNumber(nextInstallmentNumber)
+                .installmentNumber(paid + 1)
                 .amount(amount)
                 .paidAmount(amount)
                 .paidDate(Instant.now())
@@ -204,16 +256,21 @@ public class VehicleLoanService {
                 .build();
 
         installmentRepository.save(installment);
+        recordPayment(loan, paid, outstanding.subtract(amount), null);
+        statusChanged(loan, "INSTALLMENT_PAID", previousStatus, amount);
+    }
 
-        // Update outstanding amount
-        BigDecimal newOutstanding = loan.getOutstandingAmount().subtract(amount);
-        loan.setOutstandingAmount(newOutstanding);
-
-        if (newOutstanding.compareTo(BigDecimal.ZERO) <= 0) {
-            loan.setStatus("CLOSED");
+    // Second and last write of a payment: counter, outstanding and status in one conditional update.
+    // The update clears the persistence context, so the loan is detached and only updated in memory here.
+    private void recordPayment(VehicleLoan loan, int paid, BigDecimal newOutstanding, Instant overdueSince) {
+        String status = newOutstanding.compareTo(BigDecimal.ZERO) <= 0 ? "CLOSED" : loan.getStatus();
+        if (vehicleLoanRepository.recordInstallment(loan.getId(), paid, newOutstanding, status, overdueSince) == 0) {
+            throw new OptimisticLockingFailureException("Another payment on loan " + loan.getId() + " was recorded first; retry");
         }
-
-        vehicleLoanRepository.save(loan);
+        loan.setInstallmentsPaid(paid + 1);
+        loan.setOutstandingAmount(newOutstanding);
+        loan.setStatus(status);
+        loan.setOverdueSince(overdueSince);
     }
 
     public void renewLoan(Long loanId, BigDecimal additionalAmount, Integer newTenure) {
@@ -233,6 +290,7 @@ public class VehicleLoanService {
         loan.setMonthlyEmi(newEmi);
 
         vehicleLoanRepository.save(loan);
+        loanScheduleService.reschedule("VEHICLE", loan.getId(), newLoanAmount, loan.getInterestRate(), newTenure, newEmi);
     }
 
     public void closeLoan(Long loanId, Long customerId) {
@@ -247,8 +305,13 @@ public class VehicleLoanService {
             throw new RuntimeException("Cannot close loan with outstanding amount");
         }
 
+        String previousStatus = loan.getStatus();
+        if (!"CLOSED".equals(previousStatus)) {
+            loanStateMachine.transition("VEHICLE", loan.getId(), loan.getVersion(), previousStatus, "CLOSED");
+        }
         loan.setStatus("CLOSED");
         vehicleLoanRepository.save(loan);
+        statusChanged(loan, "CLOSED", previousStatus, null);
     }
 
     public List<LoanInstallmentDto> getLoanInstallments(Long loanId, Long customerId) {
@@ -259,16 +322,17 @@ public class VehicleLoanService {
             throw new RuntimeException("Access denied: Loan does not belong to user");
         }
 
-        List<LoanInstallment> installments = installmentRepository.findByLoanIdOrderByDueDateDesc(loanId);
+        List<LoanInstallment> installments = installmentRepository.findByLoanTypeAndLoanIdOrderByDueDateDesc("VEHICLE", loanId);
         return installments.stream().map(this::convertInstallmentToDto).collect(Collectors.toList());
     }
 
+    private void statusChanged(VehicleLoan loan, String action, String previousStatus, BigDecimal amount) {
+        eventPublisher.publishEvent(new LoanStatusChangedEvent("VEHICLE", loan.getId(), loan.getCustomer().getId(),
+                action, previousStatus, loan.getStatus(), amount, loan.getOutstandingAmount(), Instant.now()));
+    }
+
     private BigDecimal calculateEMI(BigDecimal principal, BigDecimal annualRate, Integer tenureMonths) {
-        BigDecimal monthlyRate = annualRate.divide(BigDecimal.valueOf(1200), 10, RoundingMode.HALF_UP);
-        BigDecimal onePlusR = BigDecimal.ONE.add(monthlyRate);
-        BigDecimal numerator = principal.multiply(monthlyRate).multiply(onePlusR.pow(tenureMonths));
-        BigDecimal denominator = onePlusR.pow(tenureMonths).subtract(BigDecimal.ONE);
-        return numerator.divide(denominator, 2, RoundingMode.HALF_UP);
+        return emiCalculator.emi(principal, annualRate, tenureMonths);
     }
 
     public Page<VehicleLoanDto> getAllLoans(String status, Pageable pageable) {
@@ -308,6 +372,7 @@ public class VehicleLoanService {
                 .monthlyIncome(loan.getMonthlyIncome())
                 .employmentType(loan.getEmploymentType())
                 .rejectionReason(loan.getRejectionReason())
+                .daysPastDue(OverdueInstallmentSweeper.daysPastDue(loan.getOverdueSince(), Instant.now()))
                 .build();
     }
 
@@ -318,6 +383,8 @@ public class VehicleLoanService {
                 .loanType(installment.getLoanType())
                 .installmentNumber(installment.getInstallmentNumber())
                 .amount(installment.getAmount())
+                .principalAmount(installment.getPrincipalAmount())
+                .interestAmount(installment.getInterestAmount())
                 .paidAmount(installment.getPaidAmount())
                 .dueDate(installment.getDueDate())
                 .paidDate(installment.getPaidDate())
@@ -0,0 +1,101 @@
+package com.example.bankingmini.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Embedded stand-in for a message broker: one JSON object per line, appended to a daily file
+// (<outbox.log-dir>/events-yyyy-MM-dd.log, UTC) that consumers tail. Each batch is synced before
+// publish() returns. Files older than outbox.log-retention-days are removed when the day rolls.
+@Component
+@ConditionalOnProperty(name = "outbox.publisher", havingValue = "file", matchIfMissing = true)
+@Slf4j
+public class FileLogOutboxPublisher implements OutboxPublisher {
+
+    private final ObjectMapper mapper;
+    private final Path dir;
+    private final int retentionDays;
+
+    private FileChannel channel;
+    private LocalDate day;
+
+    public FileLogOutboxPublisher(ObjectMapper mapper,
+                                  @Value("${outbox.log-dir:./outbox}") String dir,
+                                  @Value("${outbox.log-retention-days:7}") int retentionDays) {
+        this.mapper = mapper;
+        this.dir = Paths.get(dir);
+        this.retentionDays = retentionDays;
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxMessage> batch) throws IOException {
+        var sb = new StringBuilder(batch.size() * 256);
+        for (var m : batch) {
+            var line = mapper.createObjectNode();
+            line.put("id", m.id());
+            line.put("aggregateType", m.aggregateType());
+            line.put("aggregateId", m.aggregateId());
+            line.put("eventType", m.eventType());
+            line.put("createdAt", m.createdAt().toString());
+            line.set("payload", mapper.readTree(m.payload()));
+            sb.append(mapper.writeValueAsString(line)).append('\n');
+        }
+        var out = channel(LocalDate.now(ZoneOffset.UTC));
+        var bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        out.force(false);
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private FileChannel channel(LocalDate today) throws IOException {
+        if (channel != null && today.equals(day)) {
+            return channel;
+        }
+        close();
+        Files.createDirectories(dir);
+        channel = FileChannel.open(dir.resolve("events-" + today + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        day = today;
+        purgeBefore(today.minusDays(retentionDays));
+        return channel;
+    }
+
+    private void purgeBefore(LocalDate oldest) throws IOException {
+        var cutoff = "events-" + oldest + ".log";
+        try (Stream<Path> files = Files.list(dir)) {
+            for (var file : files.toList()) {
+                var name = file.getFileName().toString();
+                // names sort by date, so a plain string compare finds the expired ones
+                if (name.startsWith("events-") && name.endsWith(".log") && name.compareTo(cutoff) < 0) {
+                    Files.deleteIfExists(file);
+                    log.info("Removed expired outbox log {}", name);
+                }
+            }
+        }
+    }
+}
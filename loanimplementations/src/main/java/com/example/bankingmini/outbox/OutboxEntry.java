@@ -0,0 +1,38 @@
+package com.example.bankingmini.outbox;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// Events waiting to be relayed. Rows are inserted by OutboxWriter in the transaction that caused
+// them and deleted by OutboxRelay once published; the entity is here so the table and sequence are
+// managed with the rest of the schema.
+@Entity
+@Table(name = "OUTBOX")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "OUTBOX_SEQ", allocationSize = 1)
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "AGGREGATE_TYPE", nullable = false)
+    private String aggregateType; // ACCOUNT, LOAN, VEHICLE_LOAN, STUDENT_LOAN
+
+    @Column(name = "AGGREGATE_ID", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "EVENT_TYPE", nullable = false)
+    private String eventType;
+
+    @Column(name = "PAYLOAD", nullable = false, length = 4000)
+    private String payload; // JSON
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,13 @@
+package com.example.bankingmini.outbox;
+
+import java.time.Instant;
+
+public record OutboxMessage(
+        long id,
+        String aggregateType,
+        long aggregateId,
+        String eventType,
+        String payload,
+        Instant createdAt
+) {
+}
@@ -0,0 +1,12 @@
+package com.example.bankingmini.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+// Destination for relayed outbox messages. Delivery is at-least-once: a batch that was published
+// but not yet removed from OUTBOX is sent again after a crash, so consumers dedupe on the message id.
+public interface OutboxPublisher {
+
+    // Messages arrive in id order; returning normally means the whole batch is durable downstream
+    void publish(List<OutboxMessage> batch) throws IOException;
+}
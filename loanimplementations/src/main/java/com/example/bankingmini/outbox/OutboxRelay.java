@@ -0,0 +1,100 @@
+package com.example.bankingmini.outbox;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drains OUTBOX to the configured OutboxPublisher. Each batch is locked with SKIP LOCKED, published,
+// and deleted in one transaction, so a second instance never sends the same rows concurrently and a
+// crash between publish and delete only causes a resend. Ids are unique but, since they are taken
+// before commit, not strictly in commit order.
+@Service
+@Slf4j
+public class OutboxRelay {
+
+    private static final String CLAIM = "SELECT ID, AGGREGATE_TYPE, AGGREGATE_ID, EVENT_TYPE, PAYLOAD, CREATED_AT FROM OUTBOX " +
+            "WHERE ID IN (SELECT ID FROM (SELECT ID FROM OUTBOX ORDER BY ID) WHERE ROWNUM <= ?) " +
+            "ORDER BY ID FOR UPDATE SKIP LOCKED";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final OutboxPublisher publisher;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public OutboxRelay(JdbcTemplate jdbc,
+                       PlatformTransactionManager transactionManager,
+                       OutboxPublisher publisher,
+                       MeterRegistry registry,
+                       @Value("${outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${outbox.relay.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.publisher = publisher;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        FunctionCounter.builder("outbox.published", published, AtomicLong::get).register(registry);
+        FunctionCounter.builder("outbox.relay.failures", failures, AtomicLong::get).register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                if (relayBatch() < batchSize) {
+                    return;
+                }
+            }
+        } catch (RuntimeException ex) {
+            // rows stay in OUTBOX and are picked up again on the next run
+            failures.incrementAndGet();
+            log.warn("Outbox relay failed: {}", ex.getMessage());
+        }
+    }
+
+    // Returns the number of messages published
+    public int relayBatch() {
+        Integer count = tx.execute(status -> {
+            List<OutboxMessage> batch = jdbc.query(CLAIM, (rs, n) -> new OutboxMessage(
+                    rs.getLong(1),
+                    rs.getString(2),
+                    rs.getLong(3),
+                    rs.getString(4),
+                    rs.getString(5),
+                    rs.getTimestamp(6).toInstant()), batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            try {
+                publisher.publish(batch);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not publish outbox batch", ex);
+            }
+            jdbc.batchUpdate("DELETE FROM OUTBOX WHERE ID = ?",
+                    batch.stream().map(m -> new Object[]{m.id()}).toList());
+            return batch.size();
+        });
+        published.addAndGet(count);
+        return count;
+    }
+}
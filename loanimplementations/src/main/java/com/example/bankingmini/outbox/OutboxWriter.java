@@ -0,0 +1,91 @@
+package com.example.bankingmini.outbox;
+
+import com.example.bankingmini.account.AccountBalanceChangedEvent;
+import com.example.bankingmini.account.AccountOpenedEvent;
+import com.example.bankingmini.account.TransactionPostedEvent;
+import com.example.bankingmini.loan.LoanStatusChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Turns domain events into OUTBOX rows inside the publishing transaction, so a row exists exactly
+// when the change it describes committed. Rows are buffered per transaction and inserted as one
+// JDBC batch just before commit.
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    private static final String INSERT = "INSERT INTO OUTBOX (ID, AGGREGATE_TYPE, AGGREGATE_ID, EVENT_TYPE, PAYLOAD, CREATED_AT) " +
+            "VALUES (OUTBOX_SEQ.NEXTVAL, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+
+    @EventListener
+    public void onTransactionPosted(TransactionPostedEvent event) {
+        add("ACCOUNT", event.accountId(), "TRANSACTION_POSTED", event);
+    }
+
+    @EventListener
+    public void onBalanceChanged(AccountBalanceChangedEvent event) {
+        add("ACCOUNT", event.accountId(), "BALANCE_CHANGED", event);
+    }
+
+    @EventListener
+    public void onAccountOpened(AccountOpenedEvent event) {
+        add("ACCOUNT", event.accountId(), "ACCOUNT_OPENED", event);
+    }
+
+    @EventListener
+    public void onLoanStatusChanged(LoanStatusChangedEvent event) {
+        var aggregate = switch (event.loanType()) {
+            case "VEHICLE" -> "VEHICLE_LOAN";
+            case "STUDENT" -> "STUDENT_LOAN";
+            default -> "LOAN";
+        };
+        add(aggregate, event.loanId(), "LOAN_" + event.action(), event);
+    }
+
+    private void add(String aggregateType, Long aggregateId, String eventType, Object event) {
+        Object[] row;
+        try {
+            row = new Object[]{aggregateType, aggregateId, eventType, mapper.writeValueAsString(event),
+                    Timestamp.from(Instant.now())};
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialise " + eventType + " for the outbox", ex);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            jdbc.update(INSERT, row);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        var pending = (List<Object[]>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            var rows = new ArrayList<Object[]>();
+            TransactionSynchronizationManager.bindResource(this, rows);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    jdbc.batchUpdate(INSERT, rows);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OutboxWriter.this);
+                }
+            });
+            pending = rows;
+        }
+        pending.add(row);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.bankingmini.standing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+// Admin-only (see SecurityConfig /api/admin/**)
+@RestController
+@RequestMapping("/api/admin/standing-instructions")
+@RequiredArgsConstructor
+public class AdminStandingInstructionController {
+
+    private final StandingInstructionScheduler scheduler;
+
+    @GetMapping("/scheduler")
+    public StandingInstructionScheduler.Status status() {
+        return scheduler.status();
+    }
+
+    // Re-reads the due window now instead of at the next refill interval
+    @PostMapping("/refill")
+    public StandingInstructionScheduler.Status refill() {
+        scheduler.refill();
+        return scheduler.status();
+    }
+}
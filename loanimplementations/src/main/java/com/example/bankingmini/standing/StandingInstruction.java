@@ -0,0 +1,75 @@
+package com.example.bankingmini.standing;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Recurring transfer set up by a customer. NEXT_RUN_AT is always FIRST_RUN_AT advanced by RUNS
+// periods, so monthly instructions keep their day of month; the (STATUS, NEXT_RUN_AT) index is what
+// StandingInstructionScheduler refills its timing wheel from.
+@Entity
+@Table(name = "STANDING_INSTRUCTION",
+        indexes = @Index(name = "IX_STANDING_INSTRUCTION_DUE", columnList = "STATUS, NEXT_RUN_AT"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StandingInstruction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "standing_instruction_seq_gen")
+    @SequenceGenerator(name = "standing_instruction_seq_gen", sequenceName = "STANDING_INSTRUCTION_SEQ", allocationSize = 1)
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "CUSTOMER_ID", nullable = false)
+    private Long customerId;
+
+    @Column(name = "FROM_ACCOUNT_ID", nullable = false)
+    private Long fromAccountId;
+
+    @Column(name = "FROM_ACCOUNT_NUMBER", nullable = false)
+    private String fromAccountNumber;
+
+    @Column(name = "TO_ACCOUNT_NUMBER", nullable = false)
+    private String toAccountNumber;
+
+    @Column(name = "AMOUNT", nullable = false, precision = 38, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "FREQUENCY", nullable = false)
+    private String frequency; // DAILY, WEEKLY, MONTHLY
+
+    @Column(name = "FIRST_RUN_AT", nullable = false)
+    private Instant firstRunAt;
+
+    @Column(name = "NEXT_RUN_AT", nullable = false)
+    private Instant nextRunAt;
+
+    @Column(name = "END_AT")
+    private Instant endAt; // no runs after this; null = until cancelled
+
+    @Column(name = "RUNS", nullable = false)
+    private Integer runs; // occurrences consumed, whether executed, failed or missed
+
+    @Column(name = "STATUS", nullable = false)
+    private String status; // ACTIVE, SUSPENDED, CANCELLED, COMPLETED
+
+    @Column(name = "FAILURES", nullable = false)
+    private Integer failures; // consecutive failed runs
+
+    @Column(name = "MISSED_RUNS", nullable = false)
+    private Integer missedRuns;
+
+    @Column(name = "LAST_RUN_AT")
+    private Instant lastRunAt;
+
+    @Column(name = "LAST_ERROR", length = 500)
+    private String lastError;
+
+    @Column(name = "CREATED_AT", nullable = false)
+    private Instant createdAt;
+}
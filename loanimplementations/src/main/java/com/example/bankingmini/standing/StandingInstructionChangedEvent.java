@@ -0,0 +1,8 @@
+package com.example.bankingmini.standing;
+
+import java.time.Instant;
+
+// Published when an instruction is created or cancelled, so the scheduler can pick up a run that
+// falls inside the window it has already loaded.
+public record StandingInstructionChangedEvent(Long id, Long fromAccountId, String status, Instant nextRunAt) {
+}
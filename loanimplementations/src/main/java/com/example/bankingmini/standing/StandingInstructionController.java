@@ -0,0 +1,34 @@
+package com.example.bankingmini.standing;
+
+import com.example.bankingmini.common.RoleBasedAccessControl;
+import com.example.bankingmini.standing.StandingInstructionDtos.CreateRequest;
+import com.example.bankingmini.standing.StandingInstructionDtos.InstructionView;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/standing-instructions")
+@RequiredArgsConstructor
+public class StandingInstructionController {
+
+    private final StandingInstructionService service;
+    private final RoleBasedAccessControl accessControl;
+
+    @PostMapping
+    public InstructionView create(@Valid @RequestBody CreateRequest req) {
+        return service.create(accessControl.getCurrentUser().getId(), req);
+    }
+
+    @GetMapping
+    public List<InstructionView> list() {
+        return service.list(accessControl.getCurrentUser().getId());
+    }
+
+    @DeleteMapping("/{id}")
+    public InstructionView cancel(@PathVariable("id") Long id) {
+        return service.cancel(accessControl.getCurrentUser().getId(), id);
+    }
+}
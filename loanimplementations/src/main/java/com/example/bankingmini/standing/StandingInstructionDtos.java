@@ -0,0 +1,39 @@
+package com.example.bankingmini.standing;
+
+import jakarta.validation.constraints.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public class StandingInstructionDtos {
+    public record CreateRequest(
+            @NotBlank @Pattern(regexp = "^[A-Z0-9]{10,20}$", message = "Invalid from account number format") String fromAccount,
+            @NotBlank @Pattern(regexp = "^[A-Z0-9]{10,20}$", message = "Invalid to account number format") String toAccount,
+            @NotNull @DecimalMin(value = "0.01") @DecimalMax(value = "1000000.00") @Digits(integer = 16, fraction = 2) BigDecimal amount,
+            @NotBlank @Pattern(regexp = "^(DAILY|WEEKLY|MONTHLY)$", message = "Frequency must be DAILY, WEEKLY or MONTHLY") String frequency,
+            @NotNull @Future Instant firstRunAt,
+            Instant endAt
+    ) {
+    }
+
+    public record InstructionView(
+            Long id,
+            String fromAccount,
+            String toAccount,
+            BigDecimal amount,
+            String frequency,
+            Instant nextRunAt,
+            Instant endAt,
+            String status,
+            int runs,
+            int missedRuns,
+            Instant lastRunAt,
+            String lastError
+    ) {
+        static InstructionView of(StandingInstruction s) {
+            return new InstructionView(s.getId(), s.getFromAccountNumber(), s.getToAccountNumber(), s.getAmount(),
+                    s.getFrequency(), s.getNextRunAt(), s.getEndAt(), s.getStatus(), s.getRuns(), s.getMissedRuns(),
+                    s.getLastRunAt(), s.getLastError());
+        }
+    }
+}
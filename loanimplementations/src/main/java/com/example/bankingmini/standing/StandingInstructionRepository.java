@@ -0,0 +1,19 @@
+package com.example.bankingmini.standing;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface StandingInstructionRepository extends JpaRepository<StandingInstruction, Long> {
+
+    List<StandingInstruction> findByCustomerIdOrderByIdDesc(Long customerId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM StandingInstruction s WHERE s.id = :id")
+    Optional<StandingInstruction> findByIdForUpdate(@Param("id") Long id);
+}
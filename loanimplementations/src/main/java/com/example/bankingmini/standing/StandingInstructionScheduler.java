@@ -0,0 +1,253 @@
+package com.example.bankingmini.standing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fires standing instructions from an in-memory timing wheel instead of polling the table.
+//
+// Every refill interval the runs due within the horizon are read off the (STATUS, NEXT_RUN_AT)
+// index, continuing from where the previous refill stopped, and put on the wheel. Each tick hands
+// the runs that came due to a fixed set of single-threaded lanes, one batch per lane, keyed by the
+// source account: concurrency is bounded by the lane count and an account's runs never overlap and
+// go in due order. Completed runs put their next occurrence straight back on the wheel. On startup
+// the first refill starts from the beginning of time, so runs missed while the service was down are
+// loaded, counted, and handled by StandingInstructionService's missed-run policy.
+@Service
+@Slf4j
+public class StandingInstructionScheduler {
+
+    public record Status(boolean running, int onWheel, int pending, Instant loadedThrough,
+                         long executed, long failed, long missed, long missedAtStartup) {
+    }
+
+    record Due(long id, long fromAccountId, Instant at) {
+    }
+
+    private static final String DUE = "SELECT ID, FROM_ACCOUNT_ID, NEXT_RUN_AT FROM (" +
+            "SELECT ID, FROM_ACCOUNT_ID, NEXT_RUN_AT FROM STANDING_INSTRUCTION " +
+            "WHERE STATUS = 'ACTIVE' AND NEXT_RUN_AT >= ? AND NEXT_RUN_AT < ? ORDER BY NEXT_RUN_AT) " +
+            "WHERE ROWNUM <= ?";
+
+    private final JdbcTemplate jdbc;
+    private final StandingInstructionService service;
+    private final boolean enabled;
+    private final long tickMillis;
+    private final Duration horizon;
+    private final Duration missedGrace;
+    private final Duration retryDelay;
+    private final int refillBatch;
+    private final int maxPending;
+
+    private final TimingWheel<Due> wheel;
+    // runs on the wheel or executing, by instruction id; a wheel entry whose time no longer matches is dropped
+    private final Map<Long, Instant> pending = new ConcurrentHashMap<>();
+    private final ExecutorService[] lanes;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "standing-ticker"));
+    private volatile Instant loadedThrough = Instant.EPOCH;
+    private volatile boolean running;
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong missedAtStartup = new AtomicLong();
+
+    public StandingInstructionScheduler(JdbcTemplate jdbc,
+                                        StandingInstructionService service,
+                                        MeterRegistry registry,
+                                        @Value("${standing.enabled:true}") boolean enabled,
+                                        @Value("${standing.tick-ms:1000}") long tickMillis,
+                                        @Value("${standing.wheel-size:64}") int wheelSize,
+                                        @Value("${standing.horizon-seconds:900}") long horizonSeconds,
+                                        @Value("${standing.missed-grace-seconds:300}") long missedGraceSeconds,
+                                        @Value("${standing.retry-seconds:30}") long retrySeconds,
+                                        @Value("${standing.refill-batch:5000}") int refillBatch,
+                                        @Value("${standing.max-pending:100000}") int maxPending,
+                                        @Value("${standing.concurrency:4}") int concurrency) {
+        this.jdbc = jdbc;
+        this.service = service;
+        this.enabled = enabled;
+        this.tickMillis = tickMillis;
+        this.horizon = Duration.ofSeconds(horizonSeconds);
+        this.missedGrace = Duration.ofSeconds(missedGraceSeconds);
+        this.retryDelay = Duration.ofSeconds(retrySeconds);
+        this.refillBatch = refillBatch;
+        this.maxPending = maxPending;
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        this.lanes = new ExecutorService[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            int lane = i;
+            lanes[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, "standing-lane-" + lane));
+        }
+        FunctionCounter.builder("standing.runs", executed, AtomicLong::get).tag("result", "executed").register(registry);
+        FunctionCounter.builder("standing.runs", failed, AtomicLong::get).tag("result", "failed").register(registry);
+        FunctionCounter.builder("standing.runs", missed, AtomicLong::get).tag("result", "missed").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Long overdue = jdbc.queryForObject("SELECT COUNT(*) FROM STANDING_INSTRUCTION WHERE STATUS = 'ACTIVE' AND NEXT_RUN_AT < ?",
+                Long.class, Timestamp.from(Instant.now().minus(missedGrace)));
+        if (overdue != null && overdue > 0) {
+            missedAtStartup.set(overdue);
+            log.warn("{} standing instructions missed their run while the service was down", overdue);
+        }
+        running = true;
+        refill();
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        ticker.shutdownNow();
+        for (var lane : lanes) {
+            lane.shutdown();
+        }
+        for (var lane : lanes) {
+            lane.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${standing.refill-interval-ms:60000}")
+    public synchronized void refill() {
+        if (!running) {
+            return;
+        }
+        var until = Instant.now().plus(horizon);
+        try {
+            while (pending.size() < maxPending) {
+                List<Due> batch = jdbc.query(DUE, (rs, n) -> new Due(rs.getLong(1), rs.getLong(2), rs.getTimestamp(3).toInstant()),
+                        Timestamp.from(loadedThrough), Timestamp.from(until), refillBatch);
+                batch.forEach(due -> schedule(due, due.at()));
+                if (batch.size() < refillBatch) {
+                    loadedThrough = until;
+                    return;
+                }
+                // more rows share the window; continue from the last one (ties are de-duplicated by pending)
+                var last = batch.get(batch.size() - 1).at();
+                if (last.equals(loadedThrough)) {
+                    log.warn("More than {} standing instructions due at {}; raise standing.refill-batch", refillBatch, last);
+                    loadedThrough = last.plusMillis(1);
+                } else {
+                    loadedThrough = last;
+                }
+            }
+        } catch (RuntimeException ex) {
+            // nothing is lost: the window is read again from loadedThrough on the next refill
+            log.warn("Standing instruction refill failed: {}", ex.getMessage());
+        }
+    }
+
+    // Created and cancelled instructions; a run inside the loaded window would otherwise wait for a restart
+    @TransactionalEventListener
+    public void onChanged(StandingInstructionChangedEvent event) {
+        if (running && event.status().equals("ACTIVE")) {
+            schedule(new Due(event.id(), event.fromAccountId(), event.nextRunAt()), event.nextRunAt());
+        }
+    }
+
+    public Status status() {
+        int onWheel;
+        synchronized (wheel) {
+            onWheel = wheel.size();
+        }
+        return new Status(running, onWheel, pending.size(), loadedThrough, executed.get(), failed.get(), missed.get(),
+                missedAtStartup.get());
+    }
+
+    // fireAt is normally the run's own time; a retry fires later but keeps the run's identity
+    private void schedule(Due due, Instant fireAt) {
+        if (!due.at().isBefore(Instant.now().plus(horizon))) {
+            return; // a later refill reads it
+        }
+        var previous = pending.put(due.id(), due.at());
+        if (due.at().equals(previous)) {
+            return;
+        }
+        synchronized (wheel) {
+            wheel.add(due, fireAt.toEpochMilli());
+        }
+    }
+
+    private void tick() {
+        try {
+            List<Due> due;
+            synchronized (wheel) {
+                due = wheel.advance(System.currentTimeMillis());
+            }
+            if (due.isEmpty()) {
+                return;
+            }
+            Map<Integer, List<Due>> byLane = new HashMap<>();
+            for (var d : due) {
+                if (d.at().equals(pending.get(d.id()))) {
+                    byLane.computeIfAbsent(Math.floorMod(d.fromAccountId(), lanes.length), k -> new ArrayList<>()).add(d);
+                }
+            }
+            byLane.forEach((lane, batch) -> {
+                batch.sort(Comparator.comparing(Due::at));
+                lanes[lane].execute(() -> run(batch));
+            });
+        } catch (RuntimeException ex) {
+            // an exception would cancel the fixed-rate schedule
+            log.warn("Standing instruction tick failed: {}", ex.getMessage());
+        }
+    }
+
+    private void run(List<Due> batch) {
+        for (var due : batch) {
+            Instant next = null;
+            boolean retry = false;
+            try {
+                var outcome = service.execute(due.id(), due.at());
+                next = outcome.nextRunAt();
+                switch (outcome.result()) {
+                    case "EXECUTED" -> executed.incrementAndGet();
+                    case "FAILED" -> failed.incrementAndGet();
+                    case "MISSED" -> missed.incrementAndGet();
+                    default -> {
+                    }
+                }
+            } catch (RuntimeException ex) {
+                // not even the failure could be recorded (database unavailable); the row is unchanged
+                failed.incrementAndGet();
+                retry = true;
+                log.warn("Standing instruction {} run at {} failed: {}", due.id(), due.at(), ex.getMessage());
+            } finally {
+                pending.remove(due.id(), due.at());
+            }
+            if (retry) {
+                schedule(due, Instant.now().plus(retryDelay));
+            } else if (next != null) {
+                schedule(new Due(due.id(), due.fromAccountId(), next), next);
+            }
+        }
+    }
+}
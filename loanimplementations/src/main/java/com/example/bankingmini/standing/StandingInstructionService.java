@@ -0,0 +1,203 @@
+package com.example.bankingmini.standing;
+
+import com.example.bankingmini.account.AccountRepository;
+import com.example.bankingmini.account.AccountService;
+import com.example.bankingmini.common.NotFoundException;
+import com.example.bankingmini.standing.StandingInstructionDtos.CreateRequest;
+import com.example.bankingmini.standing.StandingInstructionDtos.InstructionView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+// Customer-facing CRUD for standing instructions, and the execution of a single run.
+//
+// A run is identified by (ID, NEXT_RUN_AT): the row is locked and only executed if it still has the
+// NEXT_RUN_AT the scheduler fired it for, so a run that is fired twice (another node, a refill racing
+// a completion) executes once. The transfer and the move to the next occurrence commit together.
+@Service
+@Slf4j
+public class StandingInstructionService {
+
+    public record Outcome(String result, Instant nextRunAt) {
+        // nextRunAt is only set while the instruction is still ACTIVE
+    }
+
+    private final StandingInstructionRepository instructions;
+    private final AccountRepository accounts;
+    private final AccountService accountService;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final Duration missedGrace;
+    private final boolean runMissed;
+    private final int maxFailures;
+
+    public StandingInstructionService(StandingInstructionRepository instructions,
+                                      AccountRepository accounts,
+                                      AccountService accountService,
+                                      ApplicationEventPublisher events,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${standing.missed-grace-seconds:300}") long missedGraceSeconds,
+                                      @Value("${standing.missed-policy:RUN_ONCE}") String missedPolicy,
+                                      @Value("${standing.max-failures:3}") int maxFailures) {
+        if (!missedPolicy.equals("RUN_ONCE") && !missedPolicy.equals("SKIP")) {
+            throw new IllegalArgumentException("standing.missed-policy must be RUN_ONCE or SKIP");
+        }
+        this.instructions = instructions;
+        this.accounts = accounts;
+        this.accountService = accountService;
+        this.events = events;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.missedGrace = Duration.ofSeconds(missedGraceSeconds);
+        this.runMissed = missedPolicy.equals("RUN_ONCE");
+        this.maxFailures = maxFailures;
+    }
+
+    // The n-th occurrence (0 = first); monthly runs stay on the first run's day, or the month's last day
+    static Instant occurrence(String frequency, Instant first, int n) {
+        var start = first.atZone(ZoneOffset.UTC);
+        return switch (frequency) {
+            case "DAILY" -> start.plusDays(n).toInstant();
+            case "WEEKLY" -> start.plusWeeks(n).toInstant();
+            case "MONTHLY" -> start.plusMonths(n).toInstant();
+            default -> throw new IllegalArgumentException("Unknown frequency: " + frequency);
+        };
+    }
+
+    @Transactional
+    public InstructionView create(Long customerId, CreateRequest req) {
+        if (req.fromAccount().equals(req.toAccount())) {
+            throw new IllegalArgumentException("Cannot transfer to same account");
+        }
+        var from = accounts.findByAccountNumber(req.fromAccount())
+                .orElseThrow(() -> new NotFoundException("Account not found: " + req.fromAccount()));
+        if (!from.getCustomer().getId().equals(customerId)) {
+            throw new IllegalArgumentException("Access denied: Account does not belong to user");
+        }
+        if (!accounts.existsByAccountNumber(req.toAccount())) {
+            throw new NotFoundException("Account not found: " + req.toAccount());
+        }
+        var first = req.firstRunAt().truncatedTo(ChronoUnit.SECONDS);
+        if (req.endAt() != null && req.endAt().isBefore(first)) {
+            throw new IllegalArgumentException("End date is before the first run");
+        }
+
+        var saved = instructions.save(StandingInstruction.builder()
+                .customerId(customerId)
+                .fromAccountId(from.getId())
+                .fromAccountNumber(from.getAccountNumber())
+                .toAccountNumber(req.toAccount())
+                .amount(req.amount())
+                .frequency(req.frequency())
+                .firstRunAt(first)
+                .nextRunAt(first)
+                .endAt(req.endAt())
+                .runs(0)
+                .status("ACTIVE")
+                .failures(0)
+                .missedRuns(0)
+                .createdAt(Instant.now())
+                .build());
+        events.publishEvent(new StandingInstructionChangedEvent(saved.getId(), saved.getFromAccountId(), saved.getStatus(), saved.getNextRunAt()));
+        return InstructionView.of(saved);
+    }
+
+    @Transactional(readOnly = true)
+    public List<InstructionView> list(Long customerId) {
+        return instructions.findByCustomerIdOrderByIdDesc(customerId).stream().map(InstructionView::of).toList();
+    }
+
+    @Transactional
+    public InstructionView cancel(Long customerId, Long id) {
+        var si = instructions.findByIdForUpdate(id)
+                .filter(s -> s.getCustomerId().equals(customerId))
+                .orElseThrow(() -> new NotFoundException("Standing instruction not found: " + id));
+        if (si.getStatus().equals("ACTIVE") || si.getStatus().equals("SUSPENDED")) {
+            si.setStatus("CANCELLED");
+            events.publishEvent(new StandingInstructionChangedEvent(si.getId(), si.getFromAccountId(), si.getStatus(), si.getNextRunAt()));
+        }
+        return InstructionView.of(si);
+    }
+
+    // Runs the occurrence due at dueAt. A run that is more than the grace period late was missed
+    // (the service was down or behind): RUN_ONCE makes one catch-up transfer, SKIP makes none, and
+    // either way later occurrences that have also passed are counted as missed rather than replayed.
+    public Outcome execute(long id, Instant dueAt) {
+        try {
+            return tx.execute(status -> {
+                var si = current(id, dueAt);
+                if (si == null) {
+                    return new Outcome("STALE", null);
+                }
+                var now = Instant.now();
+                boolean missed = dueAt.isBefore(now.minus(missedGrace));
+                if (missed && !runMissed) {
+                    int skipped = advance(si, now);
+                    si.setMissedRuns(si.getMissedRuns() + skipped + 1);
+                    si.setLastError("Missed run at " + dueAt + " skipped");
+                    return outcome("MISSED", si);
+                }
+                accountService.transfer(si.getFromAccountNumber(), si.getToAccountNumber(), si.getAmount(), si.getCustomerId());
+                int skipped = advance(si, now);
+                si.setMissedRuns(si.getMissedRuns() + skipped);
+                si.setFailures(0);
+                si.setLastRunAt(now);
+                si.setLastError(missed ? "Late run for " + dueAt + (skipped > 0 ? "; " + skipped + " missed" : "") : null);
+                return outcome("EXECUTED", si);
+            });
+        } catch (RuntimeException ex) {
+            // the transfer rolled back with everything else; record the failure on its own
+            return tx.execute(status -> {
+                var si = current(id, dueAt);
+                if (si == null) {
+                    return new Outcome("STALE", null);
+                }
+                var reason = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+                si.setFailures(si.getFailures() + 1);
+                si.setMissedRuns(si.getMissedRuns() + advance(si, Instant.now()));
+                si.setLastError(reason.length() > 500 ? reason.substring(0, 500) : reason);
+                if (si.getFailures() >= maxFailures && si.getStatus().equals("ACTIVE")) {
+                    si.setStatus("SUSPENDED");
+                    log.warn("Standing instruction {} suspended after {} failed runs: {}", id, si.getFailures(), reason);
+                }
+                return outcome("FAILED", si);
+            });
+        }
+    }
+
+    private StandingInstruction current(long id, Instant dueAt) {
+        return instructions.findByIdForUpdate(id)
+                .filter(s -> s.getStatus().equals("ACTIVE") && s.getNextRunAt().equals(dueAt))
+                .orElse(null);
+    }
+
+    private static Outcome outcome(String result, StandingInstruction si) {
+        return new Outcome(result, si.getStatus().equals("ACTIVE") ? si.getNextRunAt() : null);
+    }
+
+    // Moves to the first occurrence after now; returns how many occurrences were passed over
+    private static int advance(StandingInstruction si, Instant now) {
+        int runs = si.getRuns() + 1;
+        int skipped = 0;
+        var next = occurrence(si.getFrequency(), si.getFirstRunAt(), runs);
+        while (!next.isAfter(now)) {
+            next = occurrence(si.getFrequency(), si.getFirstRunAt(), ++runs);
+            skipped++;
+        }
+        si.setRuns(runs);
+        si.setNextRunAt(next);
+        if (si.getEndAt() != null && next.isAfter(si.getEndAt())) {
+            si.setStatus("COMPLETED");
+        }
+        return skipped;
+    }
+}
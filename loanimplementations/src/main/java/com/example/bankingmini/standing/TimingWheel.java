@@ -0,0 +1,115 @@
+package com.example.bankingmini.standing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Hierarchical timing wheel. Level 0 has wheelSize slots of one tick each; a slot on level n spans a
+// whole turn of level n - 1, and levels are added as items further out need them. Items are placed
+// in O(1) and moved down one level at a time as their slot comes round, so advancing costs a slot
+// per tick rather than a scan of everything pending. Not thread-safe; callers serialise access.
+final class TimingWheel<T> {
+
+    private record Entry<T>(T item, long dueTick) {
+    }
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<List<Entry<T>>[]> levels = new ArrayList<>();
+    private final List<T> expired = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMillis must be positive and wheelSize at least 2");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Items already due come back from the next advance; nothing is ever returned early
+    void add(T item, long dueMillis) {
+        place(new Entry<>(item, -Math.floorDiv(-dueMillis, tickMillis)));
+        size++;
+    }
+
+    // Everything due at or before nowMillis, in tick order
+    List<T> advance(long nowMillis) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        List<T> due = new ArrayList<>();
+        drainExpired(due);
+        while (currentTick < target && size > 0) {
+            currentTick++;
+            int top = 0;
+            long width = 1;
+            while (top + 1 < levels.size() && currentTick % (width * wheelSize) == 0) {
+                width *= wheelSize;
+                top++;
+            }
+            // cascade from the highest level whose slot boundary this tick crosses
+            for (int level = top; level >= 1; level--, width /= wheelSize) {
+                var slot = take(level, currentTick / width);
+                if (slot != null) {
+                    slot.forEach(this::place);
+                }
+            }
+            var slot = take(0, currentTick);
+            if (slot != null) {
+                for (var entry : slot) {
+                    due.add(entry.item());
+                }
+                size -= slot.size();
+            }
+            drainExpired(due);
+        }
+        currentTick = Math.max(currentTick, target);
+        return due;
+    }
+
+    private void drainExpired(List<T> due) {
+        due.addAll(expired);
+        size -= expired.size();
+        expired.clear();
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.dueTick() - currentTick;
+        if (delta <= 0) {
+            expired.add(entry.item());
+            return;
+        }
+        int level = 0;
+        long width = 1;
+        while (delta >= width * wheelSize && width <= Long.MAX_VALUE / wheelSize / wheelSize) {
+            width *= wheelSize;
+            level++;
+        }
+        while (levels.size() <= level) {
+            @SuppressWarnings("unchecked")
+            List<Entry<T>>[] slots = new List[wheelSize];
+            levels.add(slots);
+        }
+        var slots = levels.get(level);
+        int index = (int) Math.floorMod(entry.dueTick() / width, (long) wheelSize);
+        if (slots[index] == null) {
+            slots[index] = new ArrayList<>();
+        }
+        slots[index].add(entry);
+    }
+
+    private List<Entry<T>> take(int level, long slotTick) {
+        if (level >= levels.size()) {
+            return null;
+        }
+        var slots = levels.get(level);
+        int index = (int) Math.floorMod(slotTick, (long) wheelSize);
+        var slot = slots[index];
+        slots[index] = null;
+        return slot;
+    }
+}
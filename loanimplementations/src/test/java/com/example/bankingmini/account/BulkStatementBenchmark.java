@@ -0,0 +1,114 @@
+package com.example.bankingmini.account;
+
+import com.example.bankingmini.account.BulkStatementService.AccountRef;
+import com.example.bankingmini.account.BulkStatementService.ArchivedHistory;
+import com.example.bankingmini.account.BulkStatementService.RangeWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// The application side of one month-end statement range: folding an ordered TXN scan and writing a
+// file per account, fed from memory so the database is out of the picture. One op is one range of
+// 500 accounts; accounts/s for a run is roughly 500 / (score in seconds) times the parallelism, as
+// long as the TXN scan keeps up. Not run by the build; start it from main() or with the JMH runner.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkStatementBenchmark {
+
+    private static final int ACCOUNTS = 500;
+    private static final LocalDate FROM = LocalDate.of(2024, 3, 1);
+    private static final Instant FROM_TS = Instant.parse("2024-03-01T00:00:00Z");
+    private static final String[] TYPES = {"DEPOSIT", "WITHDRAW", "TRANSFER_IN", "TRANSFER_OUT", "EMI_DEBIT"};
+
+    @Param({"10", "100"})
+    int txnsPerAccount;
+
+    private List<AccountRef> accounts;
+    private long[] accountIds;
+    private String[] types;
+    private BigDecimal[] amounts;
+    private Timestamp[] occurredAt;
+    private Path dir;
+    private int cursor;
+
+    @Setup
+    public void setUp() throws IOException {
+        var random = new Random(29);
+        accounts = new ArrayList<>(ACCOUNTS);
+        int rows = ACCOUNTS * txnsPerAccount;
+        accountIds = new long[rows];
+        types = new String[rows];
+        amounts = new BigDecimal[rows];
+        occurredAt = new Timestamp[rows];
+        for (int a = 0; a < ACCOUNTS; a++) {
+            accounts.add(new AccountRef(1_000 + a, "ACC" + (1_000 + a)));
+            for (int t = 0; t < txnsPerAccount; t++) {
+                int i = a * txnsPerAccount + t;
+                accountIds[i] = 1_000 + a;
+                types[i] = TYPES[random.nextInt(TYPES.length)];
+                amounts[i] = BigDecimal.valueOf(random.nextInt(500_000), 2);
+                occurredAt[i] = Timestamp.from(FROM_TS.plusSeconds(t * 3_600L));
+            }
+        }
+        dir = Files.createTempDirectory("statement-bench");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (var f : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(f);
+            }
+        }
+    }
+
+    @Benchmark
+    public void range() throws SQLException {
+        var writer = new RangeWriter(accounts, new ArchivedHistory(FROM_TS), FROM, FROM.withDayOfMonth(31), FROM_TS, dir, false);
+        var rs = rows();
+        for (int i = 0; i < accountIds.length; i++) {
+            cursor = i;
+            writer.accept(rs);
+        }
+        writer.finish();
+    }
+
+    // just the columns RangeWriter reads, at the current cursor
+    private ResultSet rows() {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getLong" -> (Integer) args[0] == 1 ? accountIds[cursor] : 0L;
+                    case "getString" -> types[cursor];
+                    case "getBigDecimal" -> amounts[cursor];
+                    case "getTimestamp" -> occurredAt[cursor];
+                    case "wasNull" -> true;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BulkStatementBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.bankingmini.account;
+
+import com.example.bankingmini.account.BulkStatementService.AccountRef;
+import com.example.bankingmini.account.BulkStatementService.ArchivedHistory;
+import com.example.bankingmini.account.BulkStatementService.Checkpoint;
+import com.example.bankingmini.account.BulkStatementService.RangeWriter;
+import com.example.bankingmini.archive.ArchivedTxn;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BulkStatementServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 3, 31);
+    private static final Instant FROM_TS = Instant.parse("2024-03-01T00:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void range_writer_folds_archive_then_live_rows_and_writes_every_account() throws Exception {
+        var archived = new ArchivedHistory(FROM_TS);
+        archived.add(new ArchivedTxn(1, 1, "DEPOSIT", new BigDecimal("100.00"), null, null, null,
+                Instant.parse("2024-01-10T00:00:00Z")));
+        archived.add(new ArchivedTxn(2, 1, "WITHDRAW", new BigDecimal("10.00"), null, null, null,
+                Instant.parse("2024-03-02T00:00:00Z")));
+        archived.sortLines();
+
+        // live rows: account 1 in period, account 3 before and in period; account 2 has none
+        var rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(1L, 3L, 3L);
+        when(rs.getString(2)).thenReturn("DEPOSIT", "DEPOSIT", "TRANSFER_OUT");
+        when(rs.getBigDecimal(3)).thenReturn(new BigDecimal("5.00"), new BigDecimal("50.00"), new BigDecimal("20.00"));
+        when(rs.getLong(4)).thenReturn(0L, 0L, 7L);
+        when(rs.wasNull()).thenReturn(true, true, false);
+        when(rs.getTimestamp(5)).thenReturn(Timestamp.from(Instant.parse("2024-03-05T00:00:00Z")),
+                Timestamp.from(Instant.parse("2024-02-20T00:00:00Z")), Timestamp.from(Instant.parse("2024-03-06T00:00:00Z")));
+
+        var accounts = List.of(new AccountRef(1, "A1"), new AccountRef(2, "A2"), new AccountRef(3, "A3"));
+        var writer = new RangeWriter(accounts, archived, FROM, TO, FROM_TS, dir, false);
+        for (int i = 0; i < 3; i++) {
+            writer.accept(rs);
+        }
+        writer.finish();
+
+        var a1 = Files.readString(dir.resolve("A1.txt"));
+        assertTrue(a1.contains("Opening: 100.00"));
+        assertTrue(a1.indexOf("WITHDRAW 10.00") < a1.indexOf("DEPOSIT 5.00"));
+        assertTrue(a1.contains("Closing: 95.00"));
+        assertTrue(Files.readString(dir.resolve("A2.txt")).contains("Closing: 0.00"));
+        var a3 = Files.readString(dir.resolve("A3.txt"));
+        assertTrue(a3.contains("Opening: 50.00"));
+        assertTrue(a3.contains("TRANSFER_OUT 20.00 Ref:7"));
+        assertTrue(a3.contains("Closing: 30.00"));
+    }
+
+    @Test
+    void checkpoints_are_kept_per_output_format() throws Exception {
+        var range = new AccountIdRange(1, 500);
+        new Checkpoint(dir, false).markDone(range);
+
+        assertTrue(new Checkpoint(dir, false).isDone(range));
+        assertFalse(new Checkpoint(dir, true).isDone(range));
+    }
+}
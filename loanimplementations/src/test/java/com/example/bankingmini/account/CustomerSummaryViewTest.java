@@ -0,0 +1,112 @@
+package com.example.bankingmini.account;
+
+import com.example.bankingmini.loan.LoanRepository;
+import com.example.bankingmini.loan.LoanStatusChangedEvent;
+import com.example.bankingmini.loan.StudentLoanRepository;
+import com.example.bankingmini.loan.VehicleLoanRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CustomerSummaryViewTest {
+
+    private final AccountRepository accounts = mock(AccountRepository.class);
+    private final TransactionRepository txns = mock(TransactionRepository.class);
+    private final LoanRepository loans = mock(LoanRepository.class);
+    private final VehicleLoanRepository vehicleLoans = mock(VehicleLoanRepository.class);
+    private final StudentLoanRepository studentLoans = mock(StudentLoanRepository.class);
+
+    private CustomerSummaryView view() {
+        return view(60_000);
+    }
+
+    private CustomerSummaryView view(long ttlMillis) {
+        var account = Account.builder().id(10L).accountNumber("ACC10").balance(new BigDecimal("100.00")).status("ACTIVE").build();
+        when(accounts.findByCustomerId(1L)).thenReturn(List.of(account));
+        when(txns.findLastActivityByCustomerId(1L)).thenReturn(new ArrayList<>());
+        List<Object[]> vehicle = new ArrayList<>();
+        vehicle.add(new Object[]{"PENDING", 1L});
+        when(vehicleLoans.countByStatusForCustomer(1L)).thenReturn(vehicle);
+        return new CustomerSummaryView(accounts, txns, loans, vehicleLoans, studentLoans, 100, ttlMillis);
+    }
+
+    @Test
+    void postings_and_loan_transitions_update_the_cached_summary() {
+        var view = view();
+        assertEquals(new BigDecimal("100.00"), view.get(1L).totalBalance());
+
+        var at = Instant.parse("2024-05-01T10:00:00Z");
+        view.onTransactionPosted(new TransactionPostedEvent(5L, 10L, "ACC10", "DEPOSIT", new BigDecimal("50.00"),
+                null, null, null, at, new BigDecimal("150.00")));
+        view.onLoanStatusChanged(new LoanStatusChangedEvent("VEHICLE", 3L, 1L, "APPROVED", "PENDING", "APPROVED",
+                null, BigDecimal.TEN, at));
+
+        var summary = view.get(1L);
+        assertEquals(new BigDecimal("150.00"), summary.totalBalance());
+        assertEquals(at, summary.lastActivityAt());
+        assertEquals(1, summary.loans().get("VEHICLE").get("APPROVED"));
+        assertNull(summary.loans().get("VEHICLE").get("PENDING"));
+        verify(accounts, times(1)).findByCustomerId(1L);
+    }
+
+    @Test
+    void expired_summary_is_read_again() throws InterruptedException {
+        var view = view(1);
+        view.get(1L);
+        Thread.sleep(5);
+
+        view.get(1L);
+        verify(accounts, times(2)).findByCustomerId(1L);
+    }
+
+    @Test
+    void out_of_order_posting_forces_a_reload() {
+        var view = view();
+        view.get(1L);
+        var at = Instant.now();
+        view.onTransactionPosted(new TransactionPostedEvent(9L, 10L, "ACC10", "DEPOSIT", BigDecimal.ONE,
+                null, null, null, at, new BigDecimal("101.00")));
+        view.onTransactionPosted(new TransactionPostedEvent(8L, 10L, "ACC10", "DEPOSIT", BigDecimal.ONE,
+                null, null, null, at, new BigDecimal("102.00")));
+
+        view.get(1L);
+        verify(accounts, times(2)).findByCustomerId(1L);
+    }
+
+    @Test
+    void posting_committed_during_the_first_load_is_not_lost() {
+        var view = view();
+        when(accounts.findIdsByCustomerId(1L)).thenReturn(List.of(10L));
+        var account = Account.builder().id(10L).accountNumber("ACC10").balance(new BigDecimal("100.00")).status("ACTIVE").build();
+        when(accounts.findByCustomerId(1L)).thenAnswer(inv -> {
+            view.onTransactionPosted(new TransactionPostedEvent(5L, 10L, "ACC10", "DEPOSIT", BigDecimal.ONE,
+                    null, null, null, Instant.now(), new BigDecimal("101.00")));
+            return List.of(account);
+        }).thenReturn(List.of(account));
+
+        view.get(1L);
+        view.get(1L);
+        verify(accounts, times(2)).findByCustomerId(1L);
+    }
+
+    @Test
+    void late_event_for_a_posting_the_load_already_saw_forces_a_reload() {
+        var view = view();
+        List<Object[]> activity = new ArrayList<>();
+        activity.add(new Object[]{10L, Instant.now(), 9L});
+        when(txns.findLastActivityByCustomerId(1L)).thenReturn(activity);
+        view.get(1L);
+
+        view.onTransactionPosted(new TransactionPostedEvent(8L, 10L, "ACC10", "DEPOSIT", BigDecimal.ONE,
+                null, null, null, Instant.now(), new BigDecimal("90.00")));
+
+        view.get(1L);
+        verify(accounts, times(2)).findByCustomerId(1L);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.bankingmini.account;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class InterestAccrualServiceTest {
+
+    @Test
+    void daily_accrual_is_in_ten_thousandths_of_a_cent() {
+        // 1,000.00 at 3.65% for one day of a 365-day year = 0.10 = 10 cents
+        assertEquals(10 * InterestAccrualService.UNITS_PER_CENT, InterestAccrualService.dailyAccrual(100_000, 365, 365));
+        // 0.01 at 3.5%: a fraction of a cent that still accumulates
+        assertEquals(0, InterestAccrualService.dailyAccrual(1, 350, 365));
+        assertEquals(9, InterestAccrualService.dailyAccrual(10, 350, 365));
+        assertEquals(0, InterestAccrualService.dailyAccrual(-5_000, 350, 365));
+    }
+
+    @Test
+    void overflow_fails_instead_of_wrapping() {
+        assertThrows(ArithmeticException.class, () -> InterestAccrualService.dailyAccrual(Long.MAX_VALUE / 2, 350, 365));
+    }
+
+    @Test
+    void run_claimed_by_another_node_is_left_to_it() {
+        var jdbc = mock(JdbcTemplate.class);
+        var service = service(jdbc);
+        when(jdbc.update(startsWith("INSERT INTO INTEREST_RUN"), any(), any()))
+                .thenThrow(new DuplicateKeyException("INTEREST_RUN_PK"));
+        when(jdbc.update(startsWith("UPDATE INTEREST_RUN SET STATUS = 'RUNNING'"), any(), any(), any())).thenReturn(0);
+        when(jdbc.queryForList(anyString(), eq(String.class), any())).thenReturn(List.of("RUNNING"));
+
+        var result = service.accrue(LocalDate.of(2025, 3, 1));
+
+        assertEquals(InterestAccrualService.IN_PROGRESS, result.state());
+        verify(jdbc, never()).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        verify(jdbc, never()).update(startsWith("UPDATE INTEREST_RUN SET STATUS = 'FAILED'"), any(), any());
+    }
+
+    @Test
+    void completed_run_is_skipped() {
+        var jdbc = mock(JdbcTemplate.class);
+        var service = service(jdbc);
+        when(jdbc.update(startsWith("INSERT INTO INTEREST_RUN"), any(), any()))
+                .thenThrow(new DuplicateKeyException("INTEREST_RUN_PK"));
+        when(jdbc.queryForList(anyString(), eq(String.class), any())).thenReturn(List.of("COMPLETED"));
+
+        assertEquals("SKIPPED", service.accrue(LocalDate.of(2025, 3, 1)).state());
+    }
+
+    private static InterestAccrualService service(JdbcTemplate jdbc) {
+        return new InterestAccrualService(jdbc, mock(PlatformTransactionManager.class),
+                mock(ApplicationEventPublisher.class), false, 350, 365, 2000, 1, 1000, 180);
+    }
+}
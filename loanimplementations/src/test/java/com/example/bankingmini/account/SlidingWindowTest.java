@@ -0,0 +1,46 @@
+package com.example.bankingmini.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowTest {
+
+    @Test
+    void hourAndDayRollForwardMinuteByMinute() {
+        var window = new SlidingWindow();
+        window.add(1_000, 500);
+        window.add(1_030, 200);
+        window.add(1_030, 100);
+
+        assertEquals(800, window.hour(1_030));
+        assertEquals(300, window.hour(1_060));
+        assertEquals(800, window.day(1_060));
+        assertEquals(0, window.hour(1_090));
+        assertEquals(300, window.day(1_000 + SlidingWindow.DAY_MINUTES));
+        assertEquals(0, window.day(1_030 + SlidingWindow.DAY_MINUTES));
+    }
+
+    @Test
+    void releaseGoesBackIntoTheReservedMinute() {
+        var window = new SlidingWindow();
+        window.add(10, 400);
+        window.add(11, 100);
+        window.add(10, -400);
+
+        assertEquals(100, window.hour(69));
+        assertEquals(100, window.hour(70));
+        assertEquals(0, window.hour(71));
+    }
+
+    @Test
+    void keepsEveryBucketOfABusyDay() {
+        var window = new SlidingWindow();
+        for (int minute = 0; minute < SlidingWindow.DAY_MINUTES; minute++) {
+            window.add(minute, 1);
+        }
+        assertEquals(SlidingWindow.DAY_MINUTES, window.day(SlidingWindow.DAY_MINUTES - 1));
+        assertEquals(60, window.hour(SlidingWindow.DAY_MINUTES - 1));
+        assertEquals(SlidingWindow.DAY_MINUTES - 100, window.day(SlidingWindow.DAY_MINUTES + 99));
+    }
+}
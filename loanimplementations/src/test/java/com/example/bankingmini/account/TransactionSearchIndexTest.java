@@ -0,0 +1,57 @@
+package com.example.bankingmini.account;
+
+import com.example.bankingmini.archive.TxnArchive;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TransactionSearchIndexTest {
+
+    @Test
+    void prefix_search_follows_postings_and_edits() {
+        var repo = mock(TransactionRepository.class);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, "Grocery shopping", "FOOD"});
+        rows.add(new Object[]{2L, "Rent March", "HOUSING"});
+        when(repo.findSearchableTextByAccountId(7L)).thenReturn(rows);
+
+        var index = new TransactionSearchIndex(repo, mock(TxnArchive.class), 10, 1 << 20);
+
+        assertArrayEquals(new long[]{1L}, index.search(7L, "groc"));
+        assertArrayEquals(new long[0], index.search(7L, "groc housing"));
+
+        index.onTransactionPosted(new TransactionPostedEvent(3L, 7L, "ACC7", "WITHDRAW", null, null,
+                "Grocery refund", "FOOD", Instant.now(), null));
+        assertArrayEquals(new long[]{3L, 1L}, index.search(7L, "gro food"));
+
+        index.onTransactionDetailsChanged(new TransactionDetailsChangedEvent(1L, 7L,
+                "Grocery shopping", "FOOD", "Dinner out", "FOOD"));
+        assertArrayEquals(new long[]{3L}, index.search(7L, "grocery"));
+        assertArrayEquals(new long[]{1L}, index.search(7L, "din"));
+
+        // the database is only read once, when the index is first built
+        verify(repo, times(1)).findSearchableTextByAccountId(7L);
+    }
+
+    @Test
+    void least_recently_used_account_is_evicted() {
+        var repo = mock(TransactionRepository.class);
+        when(repo.findSearchableTextByAccountId(anyLong())).thenReturn(new ArrayList<>());
+
+        var index = new TransactionSearchIndex(repo, mock(TxnArchive.class), 2, 1 << 20);
+        index.search(1L, "a");
+        index.search(2L, "a");
+        index.search(1L, "a");
+        index.search(3L, "a");
+
+        assertEquals(2, index.indexedAccounts());
+        index.search(2L, "a");
+        verify(repo, times(2)).findSearchableTextByAccountId(2L);
+        verify(repo, times(1)).findSearchableTextByAccountId(1L);
+    }
+}
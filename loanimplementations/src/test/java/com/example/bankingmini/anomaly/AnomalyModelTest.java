@@ -0,0 +1,81 @@
+package com.example.bankingmini.anomaly;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnomalyModelTest {
+
+    private static final AnomalyRules RULES = new AnomalyRules(0.1, 5, 4.0, 100_00, 3, 60 * 60_000, 16);
+
+    private static AnomalyModel.Posting transfer(long txnId, long cents, long payee, long at) {
+        return new AnomalyModel.Posting(txnId, 1L, true, cents, payee, at);
+    }
+
+    @Test
+    void flagsAmountFarAboveTheAccountsUsualSpend() {
+        var model = new AnomalyModel(RULES, 100, 1_000_000);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(model.observe(transfer(i, 200_00 + i * 10_00, 7, i * 1000L)).isEmpty());
+        }
+        assertTrue(model.observe(transfer(20, 300_00, 7, 20_000)).isEmpty());
+
+        var alerts = model.observe(transfer(21, 5_000_00, 7, 21_000));
+        assertEquals(1, alerts.size());
+        assertEquals("LARGE_AMOUNT", alerts.get(0).rule());
+        assertEquals(21, alerts.get(0).txnId());
+    }
+
+    @Test
+    void flagsBurstOfFirstTimePayees() {
+        var model = new AnomalyModel(RULES, 100, 1_000_000);
+        for (int i = 0; i < 6; i++) {
+            model.observe(transfer(i, 50_00, 7, i * 1000L));
+        }
+        long hour = 60 * 60_000;
+        assertTrue(model.observe(transfer(10, 50_00, 100, 10 * hour)).isEmpty());
+        assertTrue(model.observe(transfer(11, 50_00, 101, 10 * hour + 1)).isEmpty());
+        assertTrue(model.observe(transfer(12, 50_00, 102, 10 * hour + 2)).isEmpty());
+        // a known payee does not count
+        assertTrue(model.observe(transfer(13, 50_00, 100, 10 * hour + 3)).isEmpty());
+
+        var alerts = model.observe(transfer(14, 50_00, 103, 10 * hour + 4));
+        assertEquals(1, alerts.size());
+        assertEquals("NEW_PAYEE_BURST", alerts.get(0).rule());
+    }
+
+    @Test
+    void cappedPayeeSetEvictsButKeepsLookupsWorking() {
+        var set = new LongHashSet(4, 8);
+        for (long id = 1; id <= 100; id++) {
+            assertTrue(set.add(id));
+            assertTrue(set.contains(id));
+            assertTrue(set.size() <= 8);
+        }
+        assertFalse(set.add(100));
+    }
+
+    @Test
+    void cappedPayeeSetKeepsMembersThatKeepBeingSeen() {
+        var set = new LongHashSet(4, 8);
+        for (long id = 1; id <= 100; id++) {
+            set.add(id);
+            // a regular payee recurring between one-off ones
+            set.add(1);
+        }
+        assertTrue(set.contains(1));
+    }
+
+    @Test
+    void mapRemovesEntriesAndKeepsTheRestReachable() {
+        var map = new LongObjectMap<Long>(4);
+        for (long key = 0; key < 1000; key++) {
+            map.put(key * 31, key);
+        }
+        assertEquals(500, map.removeIf(v -> v % 2 == 0));
+        assertEquals(500, map.size());
+        for (long key = 0; key < 1000; key++) {
+            assertEquals(key % 2 == 0 ? null : (Long) key, map.get(key * 31));
+        }
+    }
+}
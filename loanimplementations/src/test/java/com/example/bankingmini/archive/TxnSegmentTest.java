@@ -0,0 +1,60 @@
+package com.example.bankingmini.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TxnSegmentTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsRowsAndFiltersByAccountAndTime() throws Exception {
+        var base = Instant.parse("2024-01-01T00:00:00.123456Z");
+        List<ArchivedTxn> rows = new ArrayList<>();
+        long id = 1;
+        for (long account = 100; account < 110; account++) {
+            for (int i = 0; i < 50; i++) {
+                rows.add(new ArchivedTxn(id++, account, i % 2 == 0 ? "DEPOSIT" : "WITHDRAW",
+                        new BigDecimal("12.50").add(BigDecimal.valueOf(i)), i % 3 == 0 ? null : account + 1,
+                        i % 5 == 0 ? "coffee é" : null, i % 7 == 0 ? "food" : null, base.plusSeconds(i * 3600L)));
+            }
+        }
+        var file = dir.resolve("seg.txs");
+        TxnSegment.write(file, rows, 64);
+
+        var segment = TxnSegment.open(file);
+        assertEquals(rows.size(), segment.rows());
+
+        List<ArchivedTxn> all = new ArrayList<>();
+        segment.scan(Long.MIN_VALUE, Long.MAX_VALUE, Instant.EPOCH, base.plusSeconds(1_000_000), all::add);
+        assertEquals(rows, all);
+
+        List<ArchivedTxn> some = new ArrayList<>();
+        segment.scan(105, 105, base.plusSeconds(3600 * 10), base.plusSeconds(3600 * 20), some::add);
+        assertEquals(10, some.size());
+        assertTrue(some.stream().allMatch(t -> t.accountId() == 105));
+        assertEquals(base.plusSeconds(3600 * 10), some.get(0).occurredAt());
+        assertEquals(new BigDecimal("22.50"), some.get(0).amount());
+    }
+
+    @Test
+    void segmentBoundsPruneQueriesOutsideTheRange() throws Exception {
+        var t = Instant.parse("2024-03-01T10:00:00Z");
+        var file = dir.resolve("seg.txs");
+        TxnSegment.write(file, List.of(new ArchivedTxn(1, 42, "DEPOSIT", BigDecimal.TEN, null, null, null, t)), 4096);
+
+        var segment = TxnSegment.open(file);
+        assertTrue(segment.overlaps(42, 42, t, t.plusSeconds(1)));
+        assertFalse(segment.overlaps(43, 50, t, t.plusSeconds(1)));
+        assertFalse(segment.overlaps(42, 42, t.plusSeconds(60), t.plusSeconds(120)));
+    }
+}
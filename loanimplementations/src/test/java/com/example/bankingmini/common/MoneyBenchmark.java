@@ -0,0 +1,74 @@
+package com.example.bankingmini.common;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Folding a statement's worth of postings as BigDecimal versus as cents. Not run by the build;
+// start it from main() or with the JMH runner on the test classpath.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    @Param({"1000", "100000"})
+    int rows;
+
+    private BigDecimal[] amounts;
+    private long[] minor;
+    private boolean[] credit;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        amounts = new BigDecimal[rows];
+        minor = new long[rows];
+        credit = new boolean[rows];
+        for (int i = 0; i < rows; i++) {
+            amounts[i] = BigDecimal.valueOf(random.nextInt(5_000_000), 2);
+            minor[i] = Money.minorUnits(amounts[i]);
+            credit[i] = random.nextBoolean();
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalFold() {
+        var balance = BigDecimal.ZERO;
+        for (int i = 0; i < rows; i++) {
+            balance = credit[i] ? balance.add(amounts[i]) : balance.subtract(amounts[i]);
+        }
+        return balance;
+    }
+
+    // what the statement and dashboard paths do: convert each row's amount, fold in a long
+    @Benchmark
+    public BigDecimal minorUnitFold() {
+        long balance = 0;
+        for (int i = 0; i < rows; i++) {
+            long cents = Money.minorUnits(amounts[i]);
+            balance = credit[i] ? Money.add(balance, cents) : Money.subtract(balance, cents);
+        }
+        return Money.toBigDecimal(balance);
+    }
+
+    @Benchmark
+    public long preconvertedFold() {
+        long balance = 0;
+        for (int i = 0; i < rows; i++) {
+            balance = credit[i] ? Money.add(balance, minor[i]) : Money.subtract(balance, minor[i]);
+        }
+        return balance;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MoneyBenchmark.class.getSimpleName()).build()).run();
+    }
+}
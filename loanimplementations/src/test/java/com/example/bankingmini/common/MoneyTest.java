@@ -0,0 +1,45 @@
+package com.example.bankingmini.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void minorUnitsMatchesBigDecimalOnBothPaths() {
+        assertEquals(1205, Money.minorUnits(new BigDecimal("12.05")));
+        assertEquals(-1, Money.minorUnits(new BigDecimal("-0.01")));
+        assertEquals(500, Money.minorUnits(new BigDecimal("5")));
+        assertEquals(99_999_999_999_999L, Money.minorUnits(new BigDecimal("999999999999.99")));
+        // more than two decimals or a negative scale goes through the exact path
+        assertEquals(1006, Money.minorUnits(new BigDecimal("10.055")));
+        assertEquals(-1006, Money.minorUnits(new BigDecimal("-10.055")));
+        assertEquals(100_000, Money.minorUnits(new BigDecimal("1E+3")));
+        assertEquals(12_345_678_901_234_567L, Money.minorUnits(new BigDecimal("123456789012345.67")));
+    }
+
+    @Test
+    void arithmeticThrowsInsteadOfWrapping() {
+        var max = Money.ofMinor(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.minorUnits(new BigDecimal("1E+20")));
+        assertEquals(Money.parse("7.50"), Money.parse("10.00").minus(Money.parse("2.50")));
+    }
+
+    @Test
+    void printsTwoDecimalsAndRoundTripsThroughJson() throws Exception {
+        assertEquals("-0.05", Money.ofMinor(-5).toString());
+        assertEquals("12.30", Money.ofMinor(1230).toString());
+        assertEquals(new BigDecimal("-0.05"), Money.ofMinor(-5).toBigDecimal());
+
+        var mapper = new ObjectMapper();
+        assertEquals("12.30", mapper.writeValueAsString(Money.ofMinor(1230)));
+        assertEquals(Money.ofMinor(1230), mapper.readValue("12.3", Money.class));
+        assertEquals(Money.ofMinor(-5), mapper.readValue("\"-0.05\"", Money.class));
+    }
+}
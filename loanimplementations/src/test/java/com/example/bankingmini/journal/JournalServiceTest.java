@@ -0,0 +1,103 @@
+package com.example.bankingmini.journal;
+
+import com.example.bankingmini.account.Account;
+import com.example.bankingmini.account.AccountRepository;
+import com.example.bankingmini.common.InsufficientFundsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class JournalServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final AccountRepository accounts = mock(AccountRepository.class);
+    private final JournalLedgerWriter writer = mock(JournalLedgerWriter.class);
+    private final List<JournalEntry> applied = new CopyOnWriteArrayList<>();
+    private JournalService journal;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // the applier reuses its batch list
+        doAnswer(inv -> applied.addAll(inv.getArgument(0))).when(writer).apply(any());
+        var account = Account.builder().id(1L).accountNumber("A1").balance(new BigDecimal("100.00")).build();
+        when(accounts.findById(1L)).thenReturn(Optional.of(account));
+        when(writer.acquireLease(any(), anyLong())).thenReturn(true);
+        when(writer.renewLease(any())).thenReturn(true);
+        journal = new JournalService(accounts, writer, dir.toString(), 1 << 20, 0, 200, 100, 30);
+        journal.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        journal.stop();
+    }
+
+    @Test
+    void rolled_back_posting_releases_its_hold_and_is_never_logged() {
+        TransactionSynchronizationManager.initSynchronization();
+        withdraw("80.00");
+        assertThrows(InsufficientFundsException.class, () -> withdraw("30.00"));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        withdraw("90.00");
+        verify(writer, never()).insertPending(any());
+        verify(writer, timeout(5_000)).apply(any());
+        assertEquals(1, applied.size());
+        assertEquals(0, applied.get(0).lines().get(0).amount().compareTo(new BigDecimal("90.00")));
+    }
+
+    @Test
+    void committed_posting_is_written_pending_then_logged_after_commit() {
+        when(writer.insertPending(any())).thenReturn(List.of(7L));
+        TransactionSynchronizationManager.initSynchronization();
+        withdraw("80.00");
+        verify(writer, never()).insertPending(any());
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(writer, timeout(5_000)).apply(any());
+        assertEquals(7L, applied.get(0).pendingId());
+        assertTrue(applied.get(0).id() > 0);
+    }
+
+    @Test
+    void second_node_cannot_start_while_the_lease_is_held(@TempDir Path otherDir) {
+        when(writer.acquireLease(any(), anyLong())).thenReturn(false);
+        var other = new JournalService(accounts, writer, otherDir.toString(), 1 << 20, 0, 200, 100, 30);
+        assertThrows(IllegalStateException.class, other::start);
+    }
+
+    private void withdraw(String amount) {
+        var value = new BigDecimal(amount);
+        journal.post("WITHDRAW", null, List.of(
+                JournalLine.debitAccount(1L, "A1", value, "WITHDRAW", null),
+                JournalLine.creditGl(JournalLine.GL_CASH, value)));
+    }
+
+    private static void complete(int status) {
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
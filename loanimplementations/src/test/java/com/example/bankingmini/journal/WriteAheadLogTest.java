@@ -0,0 +1,90 @@
+package com.example.bankingmini.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysAppendedRecordsAcrossSegments() throws Exception {
+        try (var wal = WriteAheadLog.open(dir, 256, 0, 1, 0, r -> fail("empty log"))) {
+            long last = 0;
+            for (int i = 0; i < 40; i++) {
+                last = wal.append(("entry-" + i).getBytes(StandardCharsets.UTF_8), s -> { });
+            }
+            wal.awaitDurable(last);
+            assertEquals(40, last);
+        }
+
+        List<WriteAheadLog.Record> replayed = new ArrayList<>();
+        try (var wal = WriteAheadLog.open(dir, 256, 0, 1, 10, replayed::add)) {
+            assertEquals(41, wal.append(new byte[]{1}, s -> { }));
+        }
+        assertEquals(30, replayed.size());
+        assertEquals(11, replayed.get(0).seq());
+        assertEquals("entry-39", new String(replayed.get(29).payload(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void discardsTornTailAndContinuesSequence() throws Exception {
+        try (var wal = WriteAheadLog.open(dir, 4096, 0, 1, 0, r -> { })) {
+            for (int i = 0; i < 3; i++) {
+                wal.awaitDurable(wal.append(new byte[]{(byte) i, 7, 7}, s -> { }));
+            }
+        }
+        Path segment;
+        try (var files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // corrupt one payload byte of the third record
+        try (var raf = new RandomAccessFile(segment.toFile(), "rw")) {
+            raf.seek(2L * (16 + 3) + 16 + 1);
+            raf.write(9);
+        }
+
+        List<WriteAheadLog.Record> replayed = new ArrayList<>();
+        try (var wal = WriteAheadLog.open(dir, 4096, 0, 1, 0, replayed::add)) {
+            assertEquals(3, wal.append(new byte[]{5}, s -> { }));
+        }
+        assertEquals(2, replayed.size());
+
+        replayed.clear();
+        try (var wal = WriteAheadLog.open(dir, 4096, 0, 1, 0, replayed::add)) {
+            assertEquals(4, wal.append(new byte[]{6}, s -> { }));
+        }
+        assertEquals(3, replayed.size());
+        assertArrayEquals(new byte[]{5}, replayed.get(2).payload());
+    }
+
+    @Test
+    void deletesOnlyFullyAppliedSegments() throws Exception {
+        try (var wal = WriteAheadLog.open(dir, 128, 0, 1, 0, r -> { })) {
+            long last = 0;
+            for (int i = 0; i < 20; i++) {
+                last = wal.append(new byte[40], s -> { });
+            }
+            wal.awaitDurable(last);
+            long before;
+            try (var files = Files.list(dir)) {
+                before = files.count();
+            }
+            wal.deleteThrough(last);
+            try (var files = Files.list(dir)) {
+                assertEquals(1, files.count());
+            }
+            assertTrue(before > 1);
+        }
+    }
+}
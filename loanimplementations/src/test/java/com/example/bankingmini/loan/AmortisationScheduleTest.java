@@ -0,0 +1,40 @@
+package com.example.bankingmini.loan;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmortisationScheduleTest {
+
+    @Test
+    void principalSumsToTheLoanAndInterestFallsEachMonth() {
+        var rows = AmortisationSchedule.build(new BigDecimal("100000.00"), new BigDecimal("12"),
+                new BigDecimal("8884.88"), 12, Instant.parse("2024-01-31T00:00:00Z"), 1);
+
+        assertEquals(12, rows.size());
+        assertEquals(new BigDecimal("1000.00"), rows.get(0).interest());
+        assertEquals(new BigDecimal("7884.88"), rows.get(0).principal());
+        assertEquals(new BigDecimal("100000.00"),
+                rows.stream().map(AmortisationSchedule.Row::principal).reduce(BigDecimal.ZERO, BigDecimal::add));
+        for (int i = 1; i < rows.size(); i++) {
+            assertTrue(rows.get(i).interest().compareTo(rows.get(i - 1).interest()) < 0);
+        }
+        assertEquals(Instant.parse("2024-02-29T00:00:00Z"), rows.get(1).dueDate());
+        assertEquals(Instant.parse("2024-03-31T00:00:00Z"), rows.get(2).dueDate());
+        assertEquals(12, rows.get(11).number());
+    }
+
+    @Test
+    void zeroRateSplitsPrincipalOnly() {
+        var rows = AmortisationSchedule.build(new BigDecimal("1000.00"), BigDecimal.ZERO,
+                new BigDecimal("333.34"), 3, Instant.parse("2024-01-01T00:00:00Z"), 4);
+
+        assertEquals(3, rows.size());
+        assertEquals(4, rows.get(0).number());
+        assertEquals(new BigDecimal("333.32"), rows.get(2).principal());
+        assertEquals(0, rows.get(2).interest().signum());
+    }
+}
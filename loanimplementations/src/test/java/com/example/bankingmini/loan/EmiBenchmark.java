@@ -0,0 +1,76 @@
+package com.example.bankingmini.loan;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Old per-service EMI formula against EmiCalculator, single quotes and a batch of principals.
+// setUp fails the run if any quote differs from the old formula by even a cent.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmiBenchmark {
+
+    @Param({"60", "360"})
+    int tenure;
+
+    private final BigDecimal rate = new BigDecimal("9.2500");
+    private BigDecimal[] principals;
+    private long[] principalMinor;
+    private EmiCalculator calculator;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(3);
+        principals = new BigDecimal[1_000];
+        principalMinor = new long[principals.length];
+        for (int i = 0; i < principals.length; i++) {
+            principalMinor[i] = 100_000 + random.nextInt(1_000_000_000);
+            principals[i] = BigDecimal.valueOf(principalMinor[i], 2);
+        }
+        calculator = new EmiCalculator(4096);
+        long[] batch = calculator.emiMinor(principalMinor, rate, tenure);
+        for (int i = 0; i < principals.length; i++) {
+            var expected = EmiCalculator.exactEmi(principals[i], rate, tenure);
+            if (expected.compareTo(calculator.emi(principals[i], rate, tenure)) != 0
+                    || expected.movePointRight(2).longValueExact() != batch[i]) {
+                throw new IllegalStateException("EMI mismatch for " + principals[i] + " over " + tenure);
+            }
+        }
+    }
+
+    @Benchmark
+    public BigDecimal exactFormula() {
+        var total = BigDecimal.ZERO;
+        for (var principal : principals) {
+            total = total.add(EmiCalculator.exactEmi(principal, rate, tenure));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal cachedFactor() {
+        var total = BigDecimal.ZERO;
+        for (var principal : principals) {
+            total = total.add(calculator.emi(principal, rate, tenure));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long[] batchMinor() {
+        return calculator.emiMinor(principalMinor, rate, tenure);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EmiBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.bankingmini.loan;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmiCalculatorTest {
+
+    private final EmiCalculator calculator = new EmiCalculator(64);
+
+    @Test
+    void matchesTheExactFormulaToTheCent() {
+        var random = new Random(11);
+        for (int i = 0; i < 2_000; i++) {
+            var principal = BigDecimal.valueOf(100 + random.nextInt(500_000_000), 2);
+            var rate = BigDecimal.valueOf(1 + random.nextInt(300_000), 4);
+            int tenure = 1 + random.nextInt(360);
+            var expected = EmiCalculator.exactEmi(principal, rate, tenure);
+
+            assertEquals(expected, calculator.emi(principal, rate, tenure), principal + " @ " + rate + " x " + tenure);
+            long[] batch = calculator.emiMinor(new long[]{principal.movePointRight(2).longValueExact()}, rate, tenure);
+            assertEquals(expected.movePointRight(2).longValueExact(), batch[0]);
+        }
+    }
+
+    @Test
+    void zeroRateSplitsThePrincipalEvenly() {
+        assertEquals(new BigDecimal("100.00"), calculator.emi(new BigDecimal("1200.00"), BigDecimal.ZERO, 12));
+        assertThrows(IllegalArgumentException.class, () -> calculator.emi(BigDecimal.TEN, BigDecimal.ONE, 0));
+    }
+}
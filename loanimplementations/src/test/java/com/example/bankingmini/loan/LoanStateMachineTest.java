@@ -0,0 +1,33 @@
+package com.example.bankingmini.loan;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoanStateMachineTest {
+
+    @Test
+    void singlePayoutLoansDisburseOnceStraightToActive() {
+        assertTrue(LoanStateMachine.allows("GENERAL", "PENDING", "APPROVED"));
+        assertTrue(LoanStateMachine.allows("VEHICLE", "APPROVED", "ACTIVE"));
+        assertFalse(LoanStateMachine.allows("GENERAL", "ACTIVE", "ACTIVE"));
+        assertFalse(LoanStateMachine.allows("VEHICLE", "APPROVED", "DISBURSED"));
+        assertFalse(LoanStateMachine.allows("GENERAL", "PENDING", "ACTIVE"));
+    }
+
+    @Test
+    void studentLoansStayDisbursedUntilTheLastTranche() {
+        assertTrue(LoanStateMachine.allows("STUDENT", "APPROVED", "DISBURSED"));
+        assertTrue(LoanStateMachine.allows("STUDENT", "DISBURSED", "DISBURSED"));
+        assertTrue(LoanStateMachine.allows("STUDENT", "DISBURSED", "ACTIVE"));
+        assertFalse(LoanStateMachine.allows("STUDENT", "ACTIVE", "DISBURSED"));
+    }
+
+    @Test
+    void finalStatesGoNowhere() {
+        assertFalse(LoanStateMachine.allows("GENERAL", "REJECTED", "APPROVED"));
+        assertFalse(LoanStateMachine.allows("STUDENT", "CLOSED", "ACTIVE"));
+        assertFalse(LoanStateMachine.allows("VEHICLE", null, "APPROVED"));
+        assertThrows(IllegalArgumentException.class, () -> LoanStateMachine.allows("HOME", "PENDING", "APPROVED"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.bankingmini.loan;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentTrancheRunnerTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-15T02:00:00Z");
+
+    @Test
+    void semesterTranchesRepeatUntilTheLoanIsPaidOut() {
+        var loan = new BigDecimal("100000.00");
+        var tranche = new BigDecimal("30000.00");
+        var disbursed = BigDecimal.ZERO;
+        int paid = 0;
+        while (tranche != null) {
+            var next = StudentTrancheRunner.next(loan, disbursed, tranche, "SEMESTER_WISE", NOW);
+            disbursed = next.disbursed();
+            tranche = next.amount();
+            paid++;
+            if (tranche != null) {
+                assertEquals(NOW.plusSeconds(180L * 86400), next.date());
+            }
+        }
+        assertEquals(4, paid);
+        assertEquals(loan, disbursed);
+    }
+
+    @Test
+    void lastTrancheIsCappedAndYearlyTranchesAreAYearApart() {
+        var next = StudentTrancheRunner.next(new BigDecimal("90000.00"), new BigDecimal("40000.00"),
+                new BigDecimal("40000.00"), "YEARLY", NOW);
+        assertEquals(new BigDecimal("10000.00"), next.amount());
+        assertEquals(NOW.plusSeconds(365L * 86400), next.date());
+    }
+
+    @Test
+    void loansFromBeforeTheCounterInferWhatWentOut() {
+        var loan = new BigDecimal("100000.00");
+        assertEquals(new BigDecimal("25000.00"),
+                StudentTrancheRunner.disbursedSoFar(null, "DISBURSED", loan, new BigDecimal("75000.00")));
+        assertEquals(BigDecimal.ZERO, StudentTrancheRunner.disbursedSoFar(null, "APPROVED", loan, new BigDecimal("25000.00")));
+        assertEquals(new BigDecimal("50000.00"),
+                StudentTrancheRunner.disbursedSoFar(new BigDecimal("50000.00"), "DISBURSED", loan, new BigDecimal("25000.00")));
+    }
+
+    @Test
+    void referenceMatchesTheJournalKey() {
+        assertEquals("STUDENT_LOAN:7:" + NOW.toEpochMilli(), StudentTrancheRunner.reference(7, NOW));
+        assertEquals("STUDENT_LOAN:7:0", StudentTrancheRunner.reference(7, null));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.bankingmini.standing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void firesItemsOnTheirTickAcrossLevels() {
+        var wheel = new TimingWheel<String>(10, 8, 0);
+        wheel.add("a", 5);
+        wheel.add("b", 75);
+        wheel.add("c", 700);
+        wheel.add("d", 5_000);
+
+        assertEquals(List.of(), wheel.advance(9));
+        assertEquals(List.of("a"), wheel.advance(10));
+        assertEquals(List.of(), wheel.advance(79));
+        assertEquals(List.of("b"), wheel.advance(80));
+        assertEquals(List.of(), wheel.advance(699));
+        assertEquals(List.of("c"), wheel.advance(700));
+        assertEquals(List.of("d"), wheel.advance(60_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void overdueItemsComeBackOnTheNextAdvance() {
+        var wheel = new TimingWheel<String>(100, 64, 10_000);
+        wheel.add("late", 1_000);
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("late"), wheel.advance(10_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void firesNeitherEarlyNorMoreThanATickLate() {
+        var random = new Random(42);
+        var wheel = new TimingWheel<Long>(10, 16, 0);
+        long now = 0;
+        List<Long> pending = new ArrayList<>();
+        for (int step = 0; step < 2_000; step++) {
+            for (int i = random.nextInt(4); i > 0; i--) {
+                long due = now + random.nextInt(100_000);
+                wheel.add(due, due);
+                pending.add(due);
+            }
+            now += random.nextInt(200);
+            long cutoff = now;
+            var fired = wheel.advance(now);
+            fired.forEach(due -> assertTrue(due <= cutoff));
+            fired.forEach(due -> assertTrue(pending.remove(due)));
+            pending.forEach(due -> assertTrue(due > cutoff - 10));
+        }
+        assertEquals(pending.size(), wheel.size());
+    }
+}